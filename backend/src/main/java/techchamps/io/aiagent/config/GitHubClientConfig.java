@@ -0,0 +1,433 @@
+package techchamps.io.aiagent.config;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.AbstractClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.Connection;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import techchamps.io.aiagent.service.GitHubIdentityCache;
+import techchamps.io.aiagent.service.GitHubRateLimiter;
+import techchamps.io.aiagent.service.GitHubResponseCache;
+import techchamps.io.aiagent.storage.ChunkedInputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * HTTP clients for the GitHub API, sharing one pooled Reactor Netty client. Both send
+ * GETs through {@link GitHubResponseCache} as conditional requests and replay the cached
+ * body when GitHub answers 304, and schedule every request through
+ * {@link GitHubRateLimiter}, retrying after a backoff when GitHub rejects one for rate
+ * limiting. Every response renews the token's entry in {@link GitHubIdentityCache}.
+ */
+@Configuration
+public class GitHubClientConfig {
+
+    // Request attribute overriding the GitHubRateLimiter priority of a WebClient request
+    public static final String PRIORITY_ATTRIBUTE = GitHubRateLimiter.Priority.class.getName();
+
+    // Request attribute that streams a WebClient GET past GitHubResponseCache instead of buffering it
+    public static final String UNCACHED_ATTRIBUTE = GitHubResponseCache.class.getName() + ".uncached";
+
+    /**
+     * Connection pool shared by both clients, so a repository connect reuses warm keep-alive
+     * connections. Pool gauges are published as {@code reactor.netty.connection.provider.*}.
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider gitHubConnectionProvider(@Value("${github.http.max-connections:50}") int maxConnections,
+                                                       @Value("${github.http.max-idle-time:PT30S}") Duration maxIdleTime,
+                                                       @Value("${github.http.max-life-time:PT5M}") Duration maxLifeTime,
+                                                       @Value("${github.http.pending-acquire-timeout:PT30S}") Duration pendingAcquireTimeout) {
+        return ConnectionProvider.builder("github")
+            .maxConnections(maxConnections)
+            .maxIdleTime(maxIdleTime)
+            .maxLifeTime(maxLifeTime)
+            .pendingAcquireTimeout(pendingAcquireTimeout)
+            .evictInBackground(maxIdleTime)
+            .metrics(true)
+            .build();
+    }
+
+    @Bean
+    public HttpClient gitHubHttpClient(ConnectionProvider gitHubConnectionProvider,
+                                       @Value("${github.api.base-url:https://api.github.com}") String baseUrl,
+                                       @Value("${github.http.connect-timeout:PT5S}") Duration connectTimeout,
+                                       @Value("${github.http.response-timeout:PT30S}") Duration responseTimeout) {
+        HttpClient httpClient = HttpClient.create(gitHubConnectionProvider)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+            .option(ChannelOption.SO_KEEPALIVE, true)
+            .responseTimeout(responseTimeout)
+            // Sends Accept-Encoding: gzip and inflates responses transparently
+            .compress(true);
+        // HTTP/2 is negotiated with ALPN, so it needs TLS; plain-HTTP bases (tests, proxies) stay on 1.1
+        if (baseUrl.startsWith("https:")) {
+            httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11);
+        }
+        return httpClient;
+    }
+
+    @Bean
+    public RestTemplate gitHubRestTemplate(GitHubResponseCache cache, GitHubRateLimiter rateLimiter, GitHubIdentityCache identityCache,
+                                           HttpClient gitHubHttpClient) {
+        RestTemplate restTemplate = new RestTemplate(new PooledRequestFactory(gitHubHttpClient));
+        // The rate limiter sits closest to the wire so retries skip the cache lookup. Its retries
+        // go straight to the request factory, so the identity cache sees the final response
+        // from in front of it
+        restTemplate.getInterceptors().add(new ConditionalRequestInterceptor(cache));
+        restTemplate.getInterceptors().add(new IdentityInterceptor(identityCache));
+        restTemplate.getInterceptors().add(new RateLimitInterceptor(rateLimiter));
+        return restTemplate;
+    }
+
+    @Bean
+    public WebClient gitHubWebClient(GitHubResponseCache cache, GitHubRateLimiter rateLimiter, GitHubIdentityCache identityCache,
+                                     HttpClient gitHubHttpClient,
+                                     @Value("${github.api.base-url:https://api.github.com}") String baseUrl,
+                                     @Value("${github.http.max-response-size:16MB}") DataSize maxResponseSize) {
+        return WebClient.builder()
+            .baseUrl(baseUrl)
+            .clientConnector(new ReactorClientHttpConnector(gitHubHttpClient))
+            // Cacheable GETs are buffered whole for the response cache; the 256 KB default rejects long issue lists
+            .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize((int) maxResponseSize.toBytes()))
+            .filter(conditionalRequestFilter(cache))
+            .filter(rateLimitFilter(rateLimiter))
+            .filter(identityFilter(identityCache))
+            .build();
+    }
+
+    private static ExchangeFilterFunction identityFilter(GitHubIdentityCache identityCache) {
+        return (request, next) -> next.exchange(request).doOnNext(response -> identityCache.onResponse(
+            request.headers().getFirst(HttpHeaders.AUTHORIZATION), response.statusCode().value(), response.headers().asHttpHeaders()));
+    }
+
+    private static ExchangeFilterFunction rateLimitFilter(GitHubRateLimiter rateLimiter) {
+        return (request, next) -> {
+            String authorization = request.headers().getFirst(HttpHeaders.AUTHORIZATION);
+            GitHubRateLimiter.Priority priority = request.attribute(PRIORITY_ATTRIBUTE)
+                .map(GitHubRateLimiter.Priority.class::cast)
+                .orElse(GitHubRateLimiter.currentPriority());
+            return exchangeWithinLimit(request, next, rateLimiter, authorization, priority, 0);
+        };
+    }
+
+    private static Mono<ClientResponse> exchangeWithinLimit(ClientRequest request, ExchangeFunction next, GitHubRateLimiter rateLimiter,
+                                                            String authorization, GitHubRateLimiter.Priority priority, int attempt) {
+        // acquire() blocks while the token is paced or backing off
+        return Mono.fromRunnable(() -> rateLimiter.acquire(authorization, priority))
+            .subscribeOn(Schedulers.boundedElastic())
+            .then(Mono.defer(() -> next.exchange(request)))
+            .flatMap(response -> {
+                long blocked = rateLimiter.onResponse(authorization, response.statusCode().value(), response.headers().asHttpHeaders());
+                if (blocked < 0 || attempt >= rateLimiter.getMaxRetries()) {
+                    return Mono.just(response);
+                }
+                return response.releaseBody()
+                    .then(exchangeWithinLimit(request, next, rateLimiter, authorization, priority, attempt + 1));
+            });
+    }
+
+    private static ExchangeFilterFunction conditionalRequestFilter(GitHubResponseCache cache) {
+        return (request, next) -> {
+            if (request.method() != HttpMethod.GET || request.attribute(UNCACHED_ATTRIBUTE).isPresent()) {
+                return next.exchange(request);
+            }
+            String url = request.url().toString();
+            String authorization = request.headers().getFirst(HttpHeaders.AUTHORIZATION);
+            GitHubResponseCache.Entry cached = cache.lookup(url, authorization);
+            ClientRequest conditional = cached == null ? request
+                : ClientRequest.from(request).headers(headers -> cache.addConditions(cached, headers)).build();
+            return next.exchange(conditional).flatMap(response -> {
+                if (cached != null && response.statusCode().value() == HttpStatus.NOT_MODIFIED.value()) {
+                    cache.recordNotModified();
+                    return response.releaseBody().then(Mono.just(ClientResponse.create(HttpStatus.OK)
+                        .headers(headers -> headers.addAll(cached.headers()))
+                        .body(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(cached.body())))
+                        .build()));
+                }
+                if (response.statusCode().value() != HttpStatus.OK.value()) {
+                    return Mono.just(response);
+                }
+                if (!cache.isCacheable(response.headers().asHttpHeaders())) {
+                    cache.recordMiss();
+                    return Mono.just(response);
+                }
+                return response.bodyToMono(byte[].class)
+                    .defaultIfEmpty(new byte[0])
+                    .map(body -> {
+                        cache.store(url, authorization, response.headers().asHttpHeaders(), body);
+                        return response.mutate().body(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(body))).build();
+                    });
+            });
+        };
+    }
+
+    private static class ConditionalRequestInterceptor implements ClientHttpRequestInterceptor {
+
+        private final GitHubResponseCache cache;
+
+        ConditionalRequestInterceptor(GitHubResponseCache cache) {
+            this.cache = cache;
+        }
+
+        @Override
+        public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+            if (request.getMethod() != HttpMethod.GET) {
+                return execution.execute(request, body);
+            }
+            String url = request.getURI().toString();
+            String authorization = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+            GitHubResponseCache.Entry cached = cache.lookup(url, authorization);
+            if (cached != null) {
+                cache.addConditions(cached, request.getHeaders());
+            }
+            ClientHttpResponse response = execution.execute(request, body);
+            if (cached != null && response.getStatusCode().value() == HttpStatus.NOT_MODIFIED.value()) {
+                response.close();
+                cache.recordNotModified();
+                HttpHeaders headers = new HttpHeaders();
+                headers.addAll(cached.headers());
+                return new BufferedResponse(HttpStatus.OK, headers, cached.body());
+            }
+            if (response.getStatusCode().value() != HttpStatus.OK.value()) {
+                return response;
+            }
+            HttpHeaders headers = response.getHeaders();
+            if (!cache.isCacheable(headers)) {
+                cache.recordMiss();
+                return response;
+            }
+            byte[] content;
+            try (response) {
+                content = response.getBody().readAllBytes();
+            }
+            cache.store(url, authorization, headers, content);
+            return new BufferedResponse(HttpStatus.OK, headers, content);
+        }
+    }
+
+    private static class RateLimitInterceptor implements ClientHttpRequestInterceptor {
+
+        private final GitHubRateLimiter rateLimiter;
+
+        RateLimitInterceptor(GitHubRateLimiter rateLimiter) {
+            this.rateLimiter = rateLimiter;
+        }
+
+        @Override
+        public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+            String authorization = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+            GitHubRateLimiter.Priority priority = GitHubRateLimiter.currentPriority();
+            for (int attempt = 0; ; attempt++) {
+                rateLimiter.acquire(authorization, priority);
+                ClientHttpResponse response = execution.execute(request, body);
+                long blocked = rateLimiter.onResponse(authorization, response.getStatusCode().value(), response.getHeaders());
+                if (blocked < 0 || attempt >= rateLimiter.getMaxRetries()) {
+                    return response;
+                }
+                response.close();
+            }
+        }
+    }
+
+    private static class IdentityInterceptor implements ClientHttpRequestInterceptor {
+
+        private final GitHubIdentityCache identityCache;
+
+        IdentityInterceptor(GitHubIdentityCache identityCache) {
+            this.identityCache = identityCache;
+        }
+
+        @Override
+        public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+            ClientHttpResponse response = execution.execute(request, body);
+            identityCache.onResponse(request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION), response.getStatusCode().value(),
+                response.getHeaders());
+            return response;
+        }
+    }
+
+    /**
+     * RestTemplate requests over the shared Reactor Netty client. Response bodies stream to
+     * the reader as they arrive and the connection goes back to the pool once the body is
+     * read; the framework's ReactorNettyClientRequestFactory buffers the whole body and
+     * closes the connection instead.
+     */
+    private static class PooledRequestFactory implements ClientHttpRequestFactory {
+
+        private final HttpClient httpClient;
+
+        PooledRequestFactory(HttpClient httpClient) {
+            this.httpClient = httpClient;
+        }
+
+        @Override
+        public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) {
+            return new AbstractClientHttpRequest() {
+
+                private final ByteArrayOutputStream body = new ByteArrayOutputStream(256);
+
+                @Override
+                public HttpMethod getMethod() {
+                    return httpMethod;
+                }
+
+                @Override
+                public URI getURI() {
+                    return uri;
+                }
+
+                @Override
+                protected OutputStream getBodyInternal(HttpHeaders headers) {
+                    return body;
+                }
+
+                @Override
+                protected ClientHttpResponse executeInternal(HttpHeaders headers) throws IOException {
+                    HttpClient.RequestSender sender = httpClient
+                        .headers(nettyHeaders -> headers.forEach(nettyHeaders::set))
+                        .request(io.netty.handler.codec.http.HttpMethod.valueOf(httpMethod.name()))
+                        .uri(uri);
+                    HttpClient.ResponseReceiver<?> receiver = body.size() == 0 ? sender
+                        : sender.send(Mono.just(Unpooled.wrappedBuffer(body.toByteArray())));
+                    try {
+                        // Timeouts come from the client's connect and response timeouts
+                        return receiver.responseConnection((response, connection) -> {
+                                HttpHeaders responseHeaders = new HttpHeaders();
+                                response.responseHeaders().forEach(header -> responseHeaders.add(header.getKey(), header.getValue()));
+                                return Mono.just((ClientHttpResponse) new StreamingResponse(
+                                    HttpStatusCode.valueOf(response.status().code()), responseHeaders, connection));
+                            })
+                            .next()
+                            .block();
+                    } catch (RuntimeException e) {
+                        Throwable cause = Exceptions.unwrap(e);
+                        throw cause instanceof IOException io ? io : new IOException(cause.getMessage(), cause);
+                    }
+                }
+            };
+        }
+    }
+
+    private static class StreamingResponse implements ClientHttpResponse {
+
+        // Received chunks queued ahead of the reader
+        private static final int PREFETCH = 4;
+
+        private final HttpStatusCode status;
+        private final HttpHeaders headers;
+        private final Connection connection;
+        private ChunkedInputStream body;
+
+        StreamingResponse(HttpStatusCode status, HttpHeaders headers, Connection connection) {
+            this.status = status;
+            this.headers = headers;
+            this.connection = connection;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() {
+            return status;
+        }
+
+        @Override
+        public String getStatusText() {
+            return status.toString();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() {
+            if (body == null) {
+                body = new ChunkedInputStream(connection.inbound().receive().asByteArray().toStream(PREFETCH));
+            }
+            return body;
+        }
+
+        @Override
+        public void close() {
+            try {
+                // Reads a short unread remainder, such as a retried 429's error message
+                getBody().close();
+            } catch (IOException e) {
+                // Handled below, the body did not complete
+            }
+            if (!body.isExhausted()) {
+                connection.dispose();
+            }
+        }
+    }
+
+    private static class BufferedResponse implements ClientHttpResponse {
+
+        private final HttpStatusCode status;
+        private final HttpHeaders headers;
+        private final byte[] body;
+
+        BufferedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body) {
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() {
+            return status;
+        }
+
+        @Override
+        public String getStatusText() {
+            return status.toString();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() {
+            return new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
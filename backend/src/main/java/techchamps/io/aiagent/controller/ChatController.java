@@ -3,14 +3,24 @@ package techchamps.io.aiagent.controller;
 import techchamps.io.aiagent.model.*;
 import techchamps.io.aiagent.service.AiService;
 import techchamps.io.aiagent.service.ChatSessionService;
+import techchamps.io.aiagent.service.FileBlobService;
+import techchamps.io.aiagent.service.SessionTransferService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Controller
 @CrossOrigin(origins = "*")
@@ -21,6 +31,12 @@ public class ChatController {
     
     @Autowired
     private ChatSessionService chatSessionService;
+    
+    @Autowired
+    private SessionTransferService sessionTransferService;
+    
+    @Autowired
+    private FileBlobService fileBlobService;
 
     @GetMapping("/")
     public String chatPage(Model model) {
@@ -227,6 +243,42 @@ public class ChatController {
         }
     }
     
+    @PostMapping("/api/sessions/{sessionId}/fork")
+    @ResponseBody
+    public ResponseEntity<SessionResponse> forkSession(
+            @PathVariable String sessionId,
+            @RequestParam long sequence,
+            @RequestParam(required = false) String title) {
+        try {
+            ChatSession session = chatSessionService.forkSession(sessionId, sequence, title);
+            SessionResponse response = new SessionResponse(
+                session.getSessionId(),
+                session.getTitle(),
+                session.getContext(),
+                session.getModel(),
+                session.getImageModel()
+            );
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            SessionResponse errorResponse = new SessionResponse();
+            errorResponse.setError("Error forking session: " + e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+    
+    @GetMapping("/api/files/{hash}")
+    @ResponseBody
+    public ResponseEntity<String> getFileContent(@PathVariable String hash) {
+        // Content is addressed by its hash, so it never changes
+        return fileBlobService.getContent(hash)
+            .map(content -> ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                .eTag(hash)
+                .contentType(MediaType.TEXT_PLAIN)
+                .body(content))
+            .orElse(ResponseEntity.notFound().build());
+    }
+    
     @DeleteMapping("/api/sessions/{sessionId}")
     @ResponseBody
     public ResponseEntity<String> deleteSession(@PathVariable String sessionId) {
@@ -243,4 +295,26 @@ public class ChatController {
     public List<ChatSession> searchSessions(@RequestParam String q) {
         return chatSessionService.searchSessions(q);
     }
-} 
\ No newline at end of file
+    
+    @GetMapping("/api/sessions/export")
+    public void exportSessions(HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Content-Disposition", "attachment; filename=\"sessions.ndjson\"");
+        sessionTransferService.exportSessions(response.getOutputStream());
+    }
+    
+    @PostMapping("/api/sessions/import")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> importSessions(HttpServletRequest request) {
+        try {
+            Map<String, Object> result = sessionTransferService.importSessions(request.getInputStream());
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", "Error importing sessions: " + e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+}
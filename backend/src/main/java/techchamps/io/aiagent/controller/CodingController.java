@@ -1,8 +1,10 @@
 package techchamps.io.aiagent.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import techchamps.io.aiagent.service.CodeSearchIndex;
 import techchamps.io.aiagent.service.GitHubService;
 import techchamps.io.aiagent.service.MCPService;
 import techchamps.io.aiagent.service.AiService;
@@ -11,6 +13,8 @@ import techchamps.io.aiagent.model.ChatResponse;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import techchamps.io.aiagent.model.RepositoryConnectRequest;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.util.HashMap;
 import java.util.List;
@@ -31,6 +35,9 @@ public class CodingController {
     @Autowired
     private AiService aiService;
 
+    @Autowired
+    private CodeSearchIndex codeSearchIndex;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     @PostMapping("/github/authenticate")
@@ -59,35 +66,32 @@ public class CodingController {
             return ResponseEntity.badRequest().body(error);
         }
         
-        // Try to get username from the token first
-        Map<String, Object> authResult = githubService.authenticateUser(personalAccessToken);
-        if (!(Boolean) authResult.get("success")) {
-            return ResponseEntity.ok(authResult);
-        }
+        Map<String, Object> result = githubService.getUserRepositories(personalAccessToken);
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * The same listing as one JSON object per line, written as each page arrives. A failure
+     * ends the stream with a line holding {@code success: false} and the error.
+     */
+    @PostMapping(value = "/github/repositories", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Flux<Map<String, Object>>> streamUserRepositories(@RequestBody Map<String, String> request) {
+        String personalAccessToken = request.get("personalAccessToken");
         
-        String username = (String) authResult.get("username");
+        if (personalAccessToken == null || personalAccessToken.trim().isEmpty()) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", "Personal Access Token is required");
+            return ResponseEntity.badRequest().body(Flux.just(error));
+        }
         
-        // Use MCP service to list repositories
-        try {
-            CompletableFuture<ObjectNode> mcpResult = mcpService.listRepositories(personalAccessToken, username);
-            ObjectNode result = mcpResult.get();
-            
-            if (result.get("success").asBoolean()) {
-                Map<String, Object> response = new HashMap<>();
-                response.put("success", true);
-                response.put("repositories", result.get("repositories"));
-                return ResponseEntity.ok(response);
-            } else {
+        return ResponseEntity.ok(githubService.streamUserRepositories(personalAccessToken)
+            .onErrorResume(e -> {
                 Map<String, Object> error = new HashMap<>();
                 error.put("success", false);
-                error.put("error", result.get("error").asText());
-                return ResponseEntity.ok(error);
-            }
-        } catch (Exception e) {
-            // Fallback to GitHubService if MCP fails
-            Map<String, Object> result = githubService.getUserRepositories(personalAccessToken);
-            return ResponseEntity.ok(result);
-        }
+                error.put("error", "Failed to fetch repositories: " + e.getMessage());
+                return Mono.just(error);
+            }));
     }
 
     @PostMapping("/connect-repository")
@@ -143,6 +147,48 @@ public class CodingController {
         }
     }
 
+    @PostMapping("/repositories/{owner}/{repo}/search")
+    public ResponseEntity<Map<String, Object>> searchRepository(@PathVariable String owner, @PathVariable String repo,
+                                                                @RequestBody Map<String, Object> request) {
+        String personalAccessToken = (String) request.get("personalAccessToken");
+        String query = (String) request.get("query");
+        
+        Map<String, Object> response = new HashMap<>();
+        if (personalAccessToken == null || personalAccessToken.isEmpty()) {
+            response.put("success", false);
+            response.put("error", "Personal Access Token is required");
+            return ResponseEntity.badRequest().body(response);
+        }
+        if (query == null || query.isEmpty()) {
+            response.put("success", false);
+            response.put("error", "Query is required");
+            return ResponseEntity.badRequest().body(response);
+        }
+        boolean regex = Boolean.TRUE.equals(request.get("regex"));
+        boolean caseSensitive = Boolean.TRUE.equals(request.get("caseSensitive"));
+        int limit = request.get("limit") instanceof Number number ? Math.min(number.intValue(), 1000) : 50;
+        
+        try {
+            long start = System.nanoTime();
+            CodeSearchIndex.SearchResult result = codeSearchIndex.search(owner + "/" + repo, personalAccessToken, query, regex, caseSensitive, limit);
+            response.put("success", true);
+            response.put("matches", result.matches());
+            response.put("candidates", result.candidates());
+            response.put("indexedFiles", result.indexedFiles());
+            response.put("indexing", result.indexing());
+            response.put("tookMicros", (System.nanoTime() - start) / 1000);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", "Invalid query: " + e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (IllegalStateException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.ok(response);
+        }
+    }
+
     @PostMapping("/coding-chat")
     public ResponseEntity<ChatResponse> codingChat(@RequestBody ChatRequest request) {
         try {
@@ -161,7 +207,7 @@ public class CodingController {
             payload.put("repository", repository);
             payload.put("token", personalAccessToken);
             if (selectedFiles != null && !selectedFiles.isEmpty()) {
-                payload.putPOJO("selectedFiles", selectedFiles);
+                payload.set("selectedFiles", mapper.valueToTree(selectedFiles));
             }
 
             // Call the new smart /execute endpoint via MCPService
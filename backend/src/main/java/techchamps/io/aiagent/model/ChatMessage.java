@@ -1,18 +1,25 @@
 package techchamps.io.aiagent.model;
 
 import jakarta.persistence.*;
+import techchamps.io.aiagent.storage.CompressedText;
+import techchamps.io.aiagent.storage.CompressedTextConverter;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "chat_messages")
+@Table(name = "chat_messages", indexes = {
+    @Index(name = "ux_chat_messages_session_sequence", columnList = "chat_session_id, sequence", unique = true),
+    @Index(name = "ix_chat_messages_file_blob_hash", columnList = "fileBlobHash")
+})
 public class ChatMessage {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "chat_messages_seq")
+    @SequenceGenerator(name = "chat_messages_seq", sequenceName = "chat_messages_seq", allocationSize = 50)
     private Long id;
     
     @Column(nullable = false, columnDefinition = "TEXT")
-    private String content;
+    @Convert(converter = CompressedTextConverter.class)
+    private CompressedText content;
     
     @Column(nullable = false)
     private String sender; // "user" or "assistant"
@@ -20,15 +27,25 @@ public class ChatMessage {
     @Column(nullable = false)
     private LocalDateTime timestamp;
     
+    // Position within the session, allocated by ChatSessionService under the session's lock
+    @Column(nullable = false)
+    private Long sequence;
+    
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "chat_session_id", nullable = false)
     private ChatSession chatSession;
     
     @Column(columnDefinition = "TEXT")
-    private String imageUrl;
+    @Convert(converter = CompressedTextConverter.class)
+    private CompressedText imageUrl;
     
     @Column(columnDefinition = "TEXT")
-    private String fileContent;
+    @Convert(converter = CompressedTextConverter.class)
+    private CompressedText fileContent;
+    
+    // Set once the file content has been moved to file_blobs; fileContent is then null
+    @Column(length = 64)
+    private String fileBlobHash;
     
     @Column
     private String fileName;
@@ -39,7 +56,7 @@ public class ChatMessage {
 
     public ChatMessage(String content, String sender) {
         this();
-        this.content = content;
+        this.content = CompressedText.of(content);
         this.sender = sender;
     }
 
@@ -53,11 +70,11 @@ public class ChatMessage {
     }
 
     public String getContent() {
-        return content;
+        return content != null ? content.get() : null;
     }
 
     public void setContent(String content) {
-        this.content = content;
+        this.content = CompressedText.of(content);
     }
 
     public String getSender() {
@@ -76,6 +93,14 @@ public class ChatMessage {
         this.timestamp = timestamp;
     }
     
+    public Long getSequence() {
+        return sequence;
+    }
+    
+    public void setSequence(Long sequence) {
+        this.sequence = sequence;
+    }
+    
     public ChatSession getChatSession() {
         return chatSession;
     }
@@ -85,19 +110,27 @@ public class ChatMessage {
     }
     
     public String getImageUrl() {
-        return imageUrl;
+        return imageUrl != null ? imageUrl.get() : null;
     }
     
     public void setImageUrl(String imageUrl) {
-        this.imageUrl = imageUrl;
+        this.imageUrl = CompressedText.of(imageUrl);
     }
     
     public String getFileContent() {
-        return fileContent;
+        return fileContent != null ? fileContent.get() : null;
     }
     
     public void setFileContent(String fileContent) {
-        this.fileContent = fileContent;
+        this.fileContent = CompressedText.of(fileContent);
+    }
+    
+    public String getFileBlobHash() {
+        return fileBlobHash;
+    }
+    
+    public void setFileBlobHash(String fileBlobHash) {
+        this.fileBlobHash = fileBlobHash;
     }
     
     public String getFileName() {
@@ -1,24 +1,32 @@
 package techchamps.io.aiagent.model;
 
 import jakarta.persistence.*;
+import techchamps.io.aiagent.storage.CompressedText;
+import techchamps.io.aiagent.storage.CompressedTextConverter;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "chat_sessions")
+@Table(name = "chat_sessions", indexes = {
+    @Index(name = "ux_chat_sessions_session_id", columnList = "sessionId", unique = true),
+    @Index(name = "ix_chat_sessions_updated_at", columnList = "updatedAt"),
+    @Index(name = "ix_chat_sessions_parent_session_id", columnList = "parentSessionId")
+})
 public class ChatSession {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "chat_sessions_seq")
+    @SequenceGenerator(name = "chat_sessions_seq", sequenceName = "chat_sessions_seq", allocationSize = 50)
     private Long id;
     
-    @Column(nullable = false)
+    @Column(nullable = false, unique = true)
     private String sessionId;
     
     @Column(nullable = false)
     private String title;
     
+    // Stored uncompressed so session search can match it with LIKE
     @Column(columnDefinition = "TEXT")
     private String context;
     
@@ -29,6 +37,7 @@ public class ChatSession {
     private LocalDateTime updatedAt;
     
     @OneToMany(mappedBy = "chatSession", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @OrderBy("sequence ASC")
     private List<ChatMessage> messages = new ArrayList<>();
     
     @Column(nullable = false)
@@ -37,6 +46,21 @@ public class ChatSession {
     @Column(nullable = false)
     private String imageModel;
     
+    @Column(columnDefinition = "TEXT")
+    @Convert(converter = CompressedTextConverter.class)
+    private CompressedText summary;
+    
+    // Set on forks: the history is the parent's messages up to forkSequence, then our own
+    @Column
+    private String parentSessionId;
+    
+    @Column
+    private Long forkSequence;
+    
+    // Sequence of the last message covered by the summary
+    @Column
+    private Long summarizedSequence;
+    
     // Constructors
     public ChatSession() {
         this.createdAt = LocalDateTime.now();
@@ -125,9 +149,48 @@ public class ChatSession {
         this.imageModel = imageModel;
     }
     
+    public String getSummary() {
+        return summary != null ? summary.get() : null;
+    }
+    
+    public void setSummary(String summary) {
+        this.summary = CompressedText.of(summary);
+    }
+    
+    public String getParentSessionId() {
+        return parentSessionId;
+    }
+    
+    public void setParentSessionId(String parentSessionId) {
+        this.parentSessionId = parentSessionId;
+    }
+    
+    public Long getForkSequence() {
+        return forkSequence;
+    }
+    
+    public void setForkSequence(Long forkSequence) {
+        this.forkSequence = forkSequence;
+    }
+    
+    public boolean isFork() {
+        return parentSessionId != null;
+    }
+    
+    public Long getSummarizedSequence() {
+        return summarizedSequence;
+    }
+    
+    public void setSummarizedSequence(Long summarizedSequence) {
+        this.summarizedSequence = summarizedSequence;
+    }
+    
     // Helper methods
     public void addMessage(ChatMessage message) {
         message.setChatSession(this);
+        if (message.getSequence() == null) {
+            message.setSequence((long) this.messages.size() + 1);
+        }
         this.messages.add(message);
         this.updatedAt = LocalDateTime.now();
     }
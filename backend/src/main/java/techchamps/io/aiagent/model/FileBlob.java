@@ -0,0 +1,61 @@
+package techchamps.io.aiagent.model;
+
+import jakarta.persistence.*;
+import techchamps.io.aiagent.storage.CompressedText;
+import techchamps.io.aiagent.storage.CompressedTextConverter;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "file_blobs")
+public class FileBlob {
+
+    // Hex SHA-256 of the UTF-8 content
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    @Convert(converter = CompressedTextConverter.class)
+    private CompressedText content;
+
+    @Column(nullable = false)
+    private long sizeBytes;
+
+    @Column(nullable = false)
+    private long refCount;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    // When the last reference was released, or the insert time for a blob never referenced
+    @Column(nullable = false)
+    private LocalDateTime releasedAt;
+
+    public FileBlob() {
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public String getContent() {
+        return content != null ? content.get() : null;
+    }
+
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public long getRefCount() {
+        return refCount;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getReleasedAt() {
+        return releasedAt;
+    }
+}
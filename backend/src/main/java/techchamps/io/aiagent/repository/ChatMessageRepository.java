@@ -1,21 +1,58 @@
 package techchamps.io.aiagent.repository;
 
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import techchamps.io.aiagent.model.ChatMessage;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long> {
     
-    @Query("SELECT cm FROM ChatMessage cm WHERE cm.chatSession.sessionId = :sessionId ORDER BY cm.timestamp ASC")
-    List<ChatMessage> findBySessionIdOrderByTimestampAsc(@Param("sessionId") String sessionId);
+    @Query("SELECT cm FROM ChatMessage cm WHERE cm.chatSession.sessionId = :sessionId ORDER BY cm.sequence ASC")
+    List<ChatMessage> findBySessionIdOrderBySequenceAsc(@Param("sessionId") String sessionId);
     
-    @Query("SELECT cm FROM ChatMessage cm WHERE cm.chatSession.sessionId = :sessionId ORDER BY cm.timestamp DESC")
-    List<ChatMessage> findBySessionIdOrderByTimestampDesc(@Param("sessionId") String sessionId);
+    @Query("SELECT cm FROM ChatMessage cm WHERE cm.chatSession.sessionId = :sessionId ORDER BY cm.sequence DESC")
+    List<ChatMessage> findBySessionIdOrderBySequenceDesc(@Param("sessionId") String sessionId);
     
-    void deleteByChatSessionSessionId(String sessionId);
-} 
\ No newline at end of file
+    @Query("SELECT cm FROM ChatMessage cm WHERE cm.chatSession.sessionId = :sessionId ORDER BY cm.sequence DESC")
+    List<ChatMessage> findBySessionIdOrderBySequenceDesc(@Param("sessionId") String sessionId, Pageable pageable);
+    
+    @Query("SELECT cm FROM ChatMessage cm WHERE cm.chatSession.sessionId = :sessionId AND cm.sequence > :after ORDER BY cm.sequence ASC")
+    List<ChatMessage> findBySessionIdAfterSequence(@Param("sessionId") String sessionId, @Param("after") Long after);
+    
+    @Query("SELECT cm FROM ChatMessage cm WHERE cm.chatSession.sessionId = :sessionId AND cm.sequence <= :maxSequence ORDER BY cm.sequence ASC")
+    List<ChatMessage> findBySessionIdUpToSequence(@Param("sessionId") String sessionId, @Param("maxSequence") Long maxSequence);
+    
+    @Query("SELECT COALESCE(MAX(cm.sequence), 0) FROM ChatMessage cm WHERE cm.chatSession.id = :chatSessionId")
+    long findMaxSequence(@Param("chatSessionId") Long chatSessionId);
+    
+    @Modifying
+    @Query("DELETE FROM ChatMessage cm WHERE cm.chatSession.id IN (SELECT cs.id FROM ChatSession cs WHERE cs.sessionId = :sessionId)")
+    int deleteByChatSessionSessionId(@Param("sessionId") String sessionId);
+    
+    @Modifying
+    @Query("DELETE FROM ChatMessage cm WHERE cm.chatSession.id = :chatSessionId")
+    int deleteAllByChatSessionId(@Param("chatSessionId") Long chatSessionId);
+    
+    @Modifying
+    @Query("DELETE FROM ChatMessage cm WHERE cm.chatSession.id IN (SELECT cs.id FROM ChatSession cs WHERE cs.sessionId IN :sessionIds AND cs.updatedAt < :cutoff AND NOT EXISTS (SELECT f.id FROM ChatSession f WHERE f.parentSessionId = cs.sessionId))")
+    int deleteExpiredBySessionIds(@Param("sessionIds") Collection<String> sessionIds, @Param("cutoff") LocalDateTime cutoff);
+    
+    // Rows written before file content moved to file_blobs
+    @Query("SELECT cm.id FROM ChatMessage cm WHERE cm.fileContent IS NOT NULL AND cm.fileBlobHash IS NULL ORDER BY cm.id ASC")
+    List<Long> findIdsWithInlineFileContent(Pageable pageable);
+    
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query("SELECT cm FROM ChatMessage cm ORDER BY cm.chatSession.id ASC, cm.sequence ASC")
+    Stream<ChatMessage> streamAllOrderBySession();
+}
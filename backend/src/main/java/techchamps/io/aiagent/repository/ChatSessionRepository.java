@@ -1,13 +1,23 @@
 package techchamps.io.aiagent.repository;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import techchamps.io.aiagent.model.ChatSession;
+import techchamps.io.aiagent.storage.CompressedText;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ChatSessionRepository extends JpaRepository<ChatSession, Long> {
@@ -17,8 +27,60 @@ public interface ChatSessionRepository extends JpaRepository<ChatSession, Long>
     @Query("SELECT cs FROM ChatSession cs ORDER BY cs.updatedAt DESC")
     List<ChatSession> findAllOrderByUpdatedAtDesc();
     
-    @Query("SELECT cs FROM ChatSession cs WHERE cs.title LIKE %:searchTerm% OR cs.context LIKE %:searchTerm% ORDER BY cs.updatedAt DESC")
+    // Contexts are never compressed, so the database does the whole match
+    @Query(value = "SELECT * FROM chat_sessions WHERE title LIKE CONCAT('%', :searchTerm, '%') OR context LIKE CONCAT('%', :searchTerm, '%') ORDER BY updated_at DESC", nativeQuery = true)
     List<ChatSession> findByTitleOrContextContaining(@Param("searchTerm") String searchTerm);
     
-    void deleteBySessionId(String sessionId);
-} 
\ No newline at end of file
+    // Bulk delete; messages must be removed first (see ChatMessageRepository.deleteByChatSessionSessionId)
+    @Modifying
+    @Query("DELETE FROM ChatSession cs WHERE cs.sessionId = :sessionId")
+    int deleteBySessionId(@Param("sessionId") String sessionId);
+    
+    @Modifying
+    @Query("UPDATE ChatSession cs SET cs.updatedAt = :updatedAt WHERE cs.id = :id")
+    int touch(@Param("id") Long id, @Param("updatedAt") LocalDateTime updatedAt);
+    
+    @Modifying
+    @Query("UPDATE ChatSession cs SET cs.context = :context, cs.updatedAt = :updatedAt WHERE cs.id = :id")
+    int updateContext(@Param("id") Long id, @Param("context") String context, @Param("updatedAt") LocalDateTime updatedAt);
+    
+    @Modifying
+    @Query("UPDATE ChatSession cs SET cs.title = :title, cs.updatedAt = :updatedAt WHERE cs.id = :id")
+    int updateTitle(@Param("id") Long id, @Param("title") String title, @Param("updatedAt") LocalDateTime updatedAt);
+    
+    // Forks are not archived, so every fork's ancestors stay guarded by the checks below
+    @Query("SELECT cs.id FROM ChatSession cs WHERE cs.updatedAt < :cutoff AND cs.parentSessionId IS NULL AND NOT EXISTS (SELECT f.id FROM ChatSession f WHERE f.parentSessionId = cs.sessionId) ORDER BY cs.updatedAt ASC")
+    List<Long> findIdleSessionIds(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT cs FROM ChatSession cs WHERE cs.id = :id AND cs.updatedAt < :cutoff")
+    Optional<ChatSession> lockIdleSession(@Param("id") Long id, @Param("cutoff") LocalDateTime cutoff);
+    
+    @Modifying
+    @Query("DELETE FROM ChatSession cs WHERE cs.id = :id")
+    int deleteRowById(@Param("id") Long id);
+    
+    // Sessions that still have forks are kept: the forks read their messages
+    @Query("SELECT cs.sessionId FROM ChatSession cs WHERE cs.updatedAt < :cutoff AND NOT EXISTS (SELECT f.id FROM ChatSession f WHERE f.parentSessionId = cs.sessionId) ORDER BY cs.updatedAt ASC")
+    List<String> findExpiredSessionIds(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+    
+    @Query("SELECT cs.sessionId FROM ChatSession cs WHERE cs.updatedAt < :cutoff AND NOT EXISTS (SELECT cm.id FROM ChatMessage cm WHERE cm.chatSession = cs) AND NOT EXISTS (SELECT f.id FROM ChatSession f WHERE f.parentSessionId = cs.sessionId) ORDER BY cs.updatedAt ASC")
+    List<String> findExpiredEmptySessionIds(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+    
+    // The cutoff is re-checked so sessions touched since they were selected survive
+    @Modifying
+    @Query("DELETE FROM ChatSession cs WHERE cs.sessionId IN :sessionIds AND cs.updatedAt < :cutoff AND NOT EXISTS (SELECT f.id FROM ChatSession f WHERE f.parentSessionId = cs.sessionId)")
+    int deleteExpired(@Param("sessionIds") Collection<String> sessionIds, @Param("cutoff") LocalDateTime cutoff);
+    
+    boolean existsBySessionId(String sessionId);
+    
+    boolean existsByParentSessionId(String parentSessionId);
+    
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "200"))
+    @Query("SELECT cs FROM ChatSession cs ORDER BY cs.id ASC")
+    Stream<ChatSession> streamAllOrderById();
+    
+    @Modifying
+    @Query("UPDATE ChatSession cs SET cs.summary = :summary, cs.summarizedSequence = :summarizedSequence WHERE cs.id = :id")
+    int updateSummary(@Param("id") Long id, @Param("summary") CompressedText summary, @Param("summarizedSequence") Long summarizedSequence);
+}
@@ -0,0 +1,59 @@
+package techchamps.io.aiagent.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import techchamps.io.aiagent.model.FileBlob;
+import techchamps.io.aiagent.storage.CompressedText;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Optional;
+
+@Repository
+public interface FileBlobRepository extends JpaRepository<FileBlob, String> {
+    
+    @Query("SELECT b.content FROM FileBlob b WHERE b.hash = :hash")
+    Optional<CompressedText> findContent(@Param("hash") String hash);
+    
+    // Inserts with no references, released as of now; the caller adds its reference with incrementRefCount
+    @Modifying
+    @Query(value = "INSERT INTO file_blobs (hash, content, size_bytes, ref_count, created_at, released_at) "
+            + "SELECT :hash, :content, :sizeBytes, 0, :createdAt, :createdAt WHERE NOT EXISTS (SELECT 1 FROM file_blobs WHERE hash = :hash)", nativeQuery = true)
+    int insertIfAbsent(@Param("hash") String hash, @Param("content") String content, @Param("sizeBytes") long sizeBytes, @Param("createdAt") LocalDateTime createdAt);
+    
+    @Modifying
+    @Query("UPDATE FileBlob b SET b.refCount = b.refCount + 1 WHERE b.hash = :hash")
+    int incrementRefCount(@Param("hash") String hash);
+    
+    // The release queries drop the references held by messages that are about to be deleted.
+    // releasedAt is stamped on every release, so for a blob left at zero it is when the last reference went.
+    @Modifying
+    @Query("UPDATE FileBlob b SET b.refCount = b.refCount - (SELECT COUNT(cm) FROM ChatMessage cm WHERE cm.fileBlobHash = b.hash AND cm.chatSession.id IN (SELECT cs.id FROM ChatSession cs WHERE cs.sessionId = :sessionId)), "
+            + "b.releasedAt = :releasedAt "
+            + "WHERE b.hash IN (SELECT cm.fileBlobHash FROM ChatMessage cm WHERE cm.chatSession.id IN (SELECT cs.id FROM ChatSession cs WHERE cs.sessionId = :sessionId))")
+    int releaseBySessionId(@Param("sessionId") String sessionId, @Param("releasedAt") LocalDateTime releasedAt);
+    
+    @Modifying
+    @Query("UPDATE FileBlob b SET b.refCount = b.refCount - (SELECT COUNT(cm) FROM ChatMessage cm WHERE cm.fileBlobHash = b.hash AND cm.chatSession.id = :chatSessionId), "
+            + "b.releasedAt = :releasedAt "
+            + "WHERE b.hash IN (SELECT cm.fileBlobHash FROM ChatMessage cm WHERE cm.chatSession.id = :chatSessionId)")
+    int releaseByChatSessionId(@Param("chatSessionId") Long chatSessionId, @Param("releasedAt") LocalDateTime releasedAt);
+    
+    // Same session filter as ChatMessageRepository.deleteExpiredBySessionIds
+    @Modifying
+    @Query("UPDATE FileBlob b SET b.refCount = b.refCount - (SELECT COUNT(cm) FROM ChatMessage cm WHERE cm.fileBlobHash = b.hash AND cm.chatSession.id IN "
+            + "(SELECT cs.id FROM ChatSession cs WHERE cs.sessionId IN :sessionIds AND cs.updatedAt < :cutoff AND NOT EXISTS (SELECT f.id FROM ChatSession f WHERE f.parentSessionId = cs.sessionId))), "
+            + "b.releasedAt = :releasedAt "
+            + "WHERE b.hash IN (SELECT cm.fileBlobHash FROM ChatMessage cm WHERE cm.chatSession.id IN "
+            + "(SELECT cs.id FROM ChatSession cs WHERE cs.sessionId IN :sessionIds AND cs.updatedAt < :cutoff AND NOT EXISTS (SELECT f.id FROM ChatSession f WHERE f.parentSessionId = cs.sessionId)))")
+    int releaseExpiredBySessionIds(@Param("sessionIds") Collection<String> sessionIds, @Param("cutoff") LocalDateTime cutoff,
+                                   @Param("releasedAt") LocalDateTime releasedAt);
+    
+    // The grace period runs from the last release, not from creation
+    @Modifying
+    @Query("DELETE FROM FileBlob b WHERE b.refCount <= 0 AND b.releasedAt < :cutoff")
+    int deleteUnreferenced(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -16,7 +16,9 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -35,6 +37,18 @@ public class AiService {
     @Value("${app.upload.dir:uploads}")
     private String uploadDir;
 
+    @Value("${chat.compaction.prompt-history-tokens:3000}")
+    private int promptHistoryTokens;
+
+    @Value("${chat.compaction.prompt-history-messages:50}")
+    private int promptHistoryMessages;
+
+    @Value("${chat.compaction.summary-max-tokens:500}")
+    private int summaryMaxTokens;
+
+    @Autowired
+    private ChatSessionService chatSessionService;
+
     private OpenAiService openAiService;
 
     public void configureOpenAi(String apiKey) {
@@ -208,8 +222,16 @@ public class AiService {
         }
 
         try {
+            String sessionId = request.getSessionId();
+            boolean persist = sessionId != null && chatSessionService.getSession(sessionId).isPresent();
             List<ChatMessage> messages = new ArrayList<>();
             messages.add(new ChatMessage("system", "You are a helpful AI assistant."));
+            if (persist) {
+                // Read before the new turn is stored, so the turn is not sent twice
+                messages.addAll(buildSessionHistory(sessionId));
+                chatSessionService.addMessage(sessionId, request.getMessage(), "user", null,
+                        request.getFileContent(), request.getFileName());
+            }
             messages.add(new ChatMessage("user", request.getMessage()));
 
             ChatCompletionRequest completionRequest = ChatCompletionRequest.builder()
@@ -221,12 +243,90 @@ public class AiService {
             String response = openAiService.createChatCompletion(completionRequest)
                     .getChoices().get(0).getMessage().getContent();
 
+            if (persist) {
+                chatSessionService.addMessage(sessionId, response, "assistant", null, null, null);
+            }
             return new ChatResponse(response);
         } catch (Exception e) {
             return new ChatResponse("Error: " + e.getMessage());
         }
     }
 
+    /**
+     * Rolling summary plus the newest turns it does not cover, newest first until the
+     * prompt-history-tokens budget is spent, so prompt size stays bounded per turn.
+     */
+    private List<ChatMessage> buildSessionHistory(String sessionId) {
+        LinkedList<ChatMessage> history = new LinkedList<>();
+        Optional<ChatSession> session = chatSessionService.getSession(sessionId);
+        if (session.isEmpty()) {
+            return history;
+        }
+        Long summarizedSequence = session.get().getSummarizedSequence();
+        List<techchamps.io.aiagent.model.ChatMessage> recent = chatSessionService.getRecentMessages(sessionId, promptHistoryMessages);
+        int budget = promptHistoryTokens;
+        for (int i = recent.size() - 1; i >= 0; i--) {
+            techchamps.io.aiagent.model.ChatMessage turn = recent.get(i);
+            if (summarizedSequence != null && turn.getSequence() <= summarizedSequence) {
+                break;
+            }
+            int tokens = SessionCompactionService.estimateTokens(turn);
+            if (tokens > budget) {
+                break;
+            }
+            budget -= tokens;
+            String role = "assistant".equals(turn.getSender()) ? "assistant" : "user";
+            history.addFirst(new ChatMessage(role, turn.getContent()));
+        }
+        String summary = session.get().getSummary();
+        if (summary != null && !summary.isBlank()) {
+            history.addFirst(new ChatMessage("system", "Summary of the earlier conversation:\n" + summary));
+        }
+        return history;
+    }
+
+    /**
+     * Folds new turns into an existing summary. Returns null when the AI service is not
+     * configured or the call fails, so callers can simply retry later.
+     */
+    public String summarize(String previousSummary, List<techchamps.io.aiagent.model.ChatMessage> turns) {
+        if (openAiService == null) {
+            return null;
+        }
+
+        StringBuilder prompt = new StringBuilder();
+        prompt.append("Update the running summary of a conversation with the new turns below. ")
+              .append("Keep facts, decisions, open questions and names of files or code that were discussed. ")
+              .append("Reply with the updated summary only.\n\n");
+        prompt.append("Current summary:\n")
+              .append(previousSummary != null && !previousSummary.isBlank() ? previousSummary : "(none)")
+              .append("\n\nNew turns:\n");
+        for (techchamps.io.aiagent.model.ChatMessage turn : turns) {
+            prompt.append(turn.getSender()).append(": ").append(turn.getContent()).append("\n");
+            if (turn.getFileName() != null) {
+                prompt.append("(attached file: ").append(turn.getFileName()).append(")\n");
+            }
+        }
+
+        try {
+            List<ChatMessage> messages = new ArrayList<>();
+            messages.add(new ChatMessage("system", "You write concise conversation summaries."));
+            messages.add(new ChatMessage("user", prompt.toString()));
+
+            ChatCompletionRequest completionRequest = ChatCompletionRequest.builder()
+                    .model(model)
+                    .messages(messages)
+                    .maxTokens(summaryMaxTokens)
+                    .build();
+
+            String summary = openAiService.createChatCompletion(completionRequest)
+                    .getChoices().get(0).getMessage().getContent();
+            return summary != null && !summary.isBlank() ? summary.trim() : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
     // Overload for controller compatibility
     public ImageResponse generateImage(String prompt, String size, String quality, String style) {
         ImageRequest req = new ImageRequest();
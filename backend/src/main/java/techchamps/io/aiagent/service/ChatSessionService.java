@@ -1,14 +1,17 @@
 package techchamps.io.aiagent.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import techchamps.io.aiagent.model.ChatMessage;
 import techchamps.io.aiagent.model.ChatSession;
-import techchamps.io.aiagent.repository.ChatMessageRepository;
-import techchamps.io.aiagent.repository.ChatSessionRepository;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -18,84 +21,286 @@ import java.util.UUID;
 public class ChatSessionService {
     
     @Autowired
-    private ChatSessionRepository chatSessionRepository;
+    private SessionStore sessionStore;
     
     @Autowired
-    private ChatMessageRepository chatMessageRepository;
+    private SessionCache sessionCache;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private SessionLocks sessionLocks;
     
     public ChatSession createSession(String title, String context, String model, String imageModel) {
         String sessionId = UUID.randomUUID().toString();
         ChatSession session = new ChatSession(sessionId, title, context, model, imageModel);
-        return chatSessionRepository.save(session);
+        ChatSession saved = sessionStore.createSession(session);
+        // A brand-new session has no history, so its (empty) buffer is complete
+        sessionCache.put(saved, true);
+        invalidateOnRollback(sessionId);
+        return saved;
     }
     
     public Optional<ChatSession> getSession(String sessionId) {
-        return chatSessionRepository.findBySessionId(sessionId);
+        HotSession hot = loadHotSession(sessionId);
+        return hot != null ? Optional.of(hot.getSession()) : Optional.empty();
     }
     
     public List<ChatSession> getAllSessions() {
-        return chatSessionRepository.findAllOrderByUpdatedAtDesc();
+        return sessionStore.findAllSessions();
     }
     
     public List<ChatSession> searchSessions(String searchTerm) {
-        return chatSessionRepository.findByTitleOrContextContaining(searchTerm);
+        return sessionStore.searchSessions(searchTerm);
     }
     
     public ChatSession updateSessionContext(String sessionId, String context) {
-        Optional<ChatSession> optionalSession = chatSessionRepository.findBySessionId(sessionId);
-        if (optionalSession.isPresent()) {
-            ChatSession session = optionalSession.get();
+        HotSession hot = loadHotSession(sessionId);
+        if (hot != null) {
+            ChatSession session = hot.getSession();
+            LocalDateTime now = LocalDateTime.now();
+            invalidateOnRollback(sessionId);
+            sessionStore.updateContext(session, context, now);
             session.setContext(context);
-            session.setUpdatedAt(LocalDateTime.now());
-            return chatSessionRepository.save(session);
+            session.setUpdatedAt(now);
+            return session;
         }
         throw new RuntimeException("Session not found: " + sessionId);
     }
     
     public ChatSession updateSessionTitle(String sessionId, String title) {
-        Optional<ChatSession> optionalSession = chatSessionRepository.findBySessionId(sessionId);
-        if (optionalSession.isPresent()) {
-            ChatSession session = optionalSession.get();
+        HotSession hot = loadHotSession(sessionId);
+        if (hot != null) {
+            ChatSession session = hot.getSession();
+            LocalDateTime now = LocalDateTime.now();
+            invalidateOnRollback(sessionId);
+            sessionStore.updateTitle(session, title, now);
             session.setTitle(title);
-            session.setUpdatedAt(LocalDateTime.now());
-            return chatSessionRepository.save(session);
+            session.setUpdatedAt(now);
+            return session;
         }
         throw new RuntimeException("Session not found: " + sessionId);
     }
     
     public ChatMessage addMessage(String sessionId, String content, String sender, String imageUrl, String fileContent, String fileName) {
-        Optional<ChatSession> optionalSession = chatSessionRepository.findBySessionId(sessionId);
-        if (optionalSession.isPresent()) {
-            ChatSession session = optionalSession.get();
+        // Resolve the cache entry under the lock so every append uses the current sequence counter
+        sessionLocks.lockUntilCompletion(sessionId);
+        HotSession hot = loadHotSession(sessionId);
+        if (hot != null) {
+            ChatSession session = hot.getSession();
             ChatMessage message = new ChatMessage(content, sender);
             message.setImageUrl(imageUrl);
             message.setFileContent(fileContent);
             message.setFileName(fileName);
-            session.addMessage(message);
-            chatSessionRepository.save(session);
+            // Reference the session directly instead of touching its lazy message collection
+            message.setChatSession(session);
+            invalidateOnRollback(sessionId);
+            message.setSequence(hot.nextSequence(() -> lastSequence(session)));
+            sessionStore.appendMessage(session, message);
+            session.setUpdatedAt(message.getTimestamp());
+            hot.append(message);
+            eventPublisher.publishEvent(new MessageAddedEvent(sessionId));
             return message;
         }
         throw new RuntimeException("Session not found: " + sessionId);
     }
     
     public List<ChatMessage> getSessionMessages(String sessionId) {
-        return chatMessageRepository.findBySessionIdOrderByTimestampAsc(sessionId);
+        HotSession hot = loadHotSession(sessionId);
+        if (hot == null) {
+            return new ArrayList<>();
+        }
+        List<ChatMessage> cached = hot.all();
+        if (cached != null) {
+            return cached;
+        }
+        long version = hot.version();
+        List<ChatMessage> messages = sessionStore.findMessages(sessionId);
+        if (hot.getSession().isFork()) {
+            List<ChatMessage> history = inheritedMessages(hot.getSession());
+            history.addAll(messages);
+            messages = history;
+        }
+        hot.seed(messages, true, version);
+        return messages;
+    }
+    
+    /**
+     * Creates a branch of a session that shares the parent's messages up to and including
+     * {@code atSequence} by reference. Nothing is copied; reads stitch the prefix in.
+     */
+    public ChatSession forkSession(String sessionId, long atSequence, String title) {
+        // Keeps the parent from growing while the fork point is validated
+        sessionLocks.lockUntilCompletion(sessionId);
+        HotSession parentHot = loadHotSession(sessionId);
+        if (parentHot == null) {
+            throw new RuntimeException("Session not found: " + sessionId);
+        }
+        ChatSession parent = parentHot.getSession();
+        if (atSequence < 0 || atSequence > lastSequence(parent)) {
+            throw new IllegalArgumentException("Sequence " + atSequence + " is outside session " + sessionId);
+        }
+        String forkTitle = title != null && !title.isBlank() ? title : parent.getTitle();
+        ChatSession fork = new ChatSession(UUID.randomUUID().toString(), forkTitle, parent.getContext(), parent.getModel(), parent.getImageModel());
+        fork.setParentSessionId(parent.getSessionId());
+        fork.setForkSequence(atSequence);
+        // The parent's summary is only valid for the fork if it stops within the shared prefix
+        if (parent.getSummarizedSequence() != null && parent.getSummarizedSequence() <= atSequence) {
+            fork.setSummary(parent.getSummary());
+            fork.setSummarizedSequence(parent.getSummarizedSequence());
+        }
+        ChatSession saved = sessionStore.createSession(fork);
+        // Forking counts as activity, and the row update fences off a concurrent archive run
+        LocalDateTime now = LocalDateTime.now();
+        sessionStore.touch(parent, now);
+        parent.setUpdatedAt(now);
+        sessionCache.put(saved, false);
+        invalidateOnRollback(saved.getSessionId());
+        invalidateOnRollback(sessionId);
+        return saved;
+    }
+    
+    /**
+     * Messages a fork inherits from its ancestors, oldest first. Each ancestor contributes
+     * its own messages up to the lowest fork point below it; those prefixes never change,
+     * so they are cached per (ancestor, bound) and shared by sibling forks.
+     */
+    private List<ChatMessage> inheritedMessages(ChatSession session) {
+        List<List<ChatMessage>> segments = new ArrayList<>();
+        long bound = Long.MAX_VALUE;
+        ChatSession current = session;
+        while (current.isFork()) {
+            bound = Math.min(bound, current.getForkSequence());
+            String ancestorId = current.getParentSessionId();
+            HotSession ancestor = loadHotSession(ancestorId);
+            if (ancestor == null) {
+                throw new RuntimeException("Session not found: " + ancestorId);
+            }
+            List<ChatMessage> segment = sessionCache.getForkSegment(ancestorId, bound);
+            if (segment == null) {
+                segment = Collections.unmodifiableList(sessionStore.findMessagesUpTo(ancestorId, bound));
+                sessionCache.putForkSegment(ancestorId, bound, segment);
+            }
+            segments.add(segment);
+            current = ancestor.getSession();
+        }
+        List<ChatMessage> inherited = new ArrayList<>();
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            inherited.addAll(segments.get(i));
+        }
+        return inherited;
+    }
+    
+    private long lastSequence(ChatSession session) {
+        long stored = sessionStore.maxSequence(session);
+        return session.isFork() ? Math.max(stored, session.getForkSequence()) : stored;
+    }
+    
+    /**
+     * Messages newer than the session's rolling summary, in sequence order.
+     */
+    public List<ChatMessage> getUnsummarizedMessages(String sessionId) {
+        HotSession hot = loadHotSession(sessionId);
+        if (hot == null) {
+            return new ArrayList<>();
+        }
+        Long summarizedSequence = hot.getSession().getSummarizedSequence();
+        if (summarizedSequence == null) {
+            return getSessionMessages(sessionId);
+        }
+        if (hot.getSession().isFork() && summarizedSequence < hot.getSession().getForkSequence()) {
+            // Part of the unsummarized history lives in the ancestors
+            List<ChatMessage> pending = new ArrayList<>();
+            for (ChatMessage message : getSessionMessages(sessionId)) {
+                if (message.getSequence() > summarizedSequence) {
+                    pending.add(message);
+                }
+            }
+            return pending;
+        }
+        return sessionStore.findMessagesAfter(sessionId, summarizedSequence);
+    }
+    
+    public ChatSession updateSessionSummary(String sessionId, String summary, Long summarizedSequence) {
+        HotSession hot = loadHotSession(sessionId);
+        if (hot != null) {
+            ChatSession session = hot.getSession();
+            invalidateOnRollback(sessionId);
+            sessionStore.updateSummary(session, summary, summarizedSequence);
+            session.setSummary(summary);
+            session.setSummarizedSequence(summarizedSequence);
+            return session;
+        }
+        throw new RuntimeException("Session not found: " + sessionId);
     }
     
     public void deleteSession(String sessionId) {
-        chatSessionRepository.deleteBySessionId(sessionId);
+        if (sessionStore.hasForks(sessionId)) {
+            throw new RuntimeException("Session has forks and cannot be deleted: " + sessionId);
+        }
+        sessionCache.invalidate(sessionId);
+        sessionStore.deleteSession(sessionId);
+        invalidateAfterCompletion(sessionId);
     }
     
     public List<ChatMessage> getRecentMessages(String sessionId, int limit) {
-        List<ChatMessage> allMessages = chatMessageRepository.findBySessionIdOrderByTimestampDesc(sessionId);
-        return allMessages.stream()
-                .limit(limit)
-                .sorted((m1, m2) -> m1.getTimestamp().compareTo(m2.getTimestamp()))
-                .toList();
+        HotSession hot = loadHotSession(sessionId);
+        if (hot == null) {
+            return new ArrayList<>();
+        }
+        List<ChatMessage> cached = hot.recent(limit);
+        if (cached != null) {
+            return cached;
+        }
+        long version = hot.version();
+        int fetch = Math.max(limit, sessionCache.getRecentMessages());
+        List<ChatMessage> latest = sessionStore.findRecentMessages(sessionId, fetch);
+        if (latest.size() < fetch && hot.getSession().isFork()) {
+            List<ChatMessage> inherited = inheritedMessages(hot.getSession());
+            List<ChatMessage> combined = new ArrayList<>(inherited.subList(Math.max(0, inherited.size() - (fetch - latest.size())), inherited.size()));
+            combined.addAll(latest);
+            latest = combined;
+        }
+        hot.seed(latest, latest.size() < fetch, version);
+        return latest.subList(Math.max(0, latest.size() - limit), latest.size());
     }
     
     public String getSessionContext(String sessionId) {
-        Optional<ChatSession> session = chatSessionRepository.findBySessionId(sessionId);
-        return session.map(ChatSession::getContext).orElse("");
+        HotSession hot = loadHotSession(sessionId);
+        return hot != null && hot.getSession().getContext() != null ? hot.getSession().getContext() : "";
+    }
+    
+    private HotSession loadHotSession(String sessionId) {
+        HotSession hot = sessionCache.get(sessionId);
+        if (hot != null) {
+            return hot;
+        }
+        return sessionStore.findSession(sessionId).map(s -> sessionCache.put(s, false)).orElse(null);
+    }
+    
+    private void invalidateOnRollback(String sessionId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        sessionCache.invalidate(sessionId);
+                    }
+                }
+            });
+        }
+    }
+    
+    private void invalidateAfterCompletion(String sessionId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    // A concurrent reader may have re-cached the row before the delete committed
+                    sessionCache.invalidate(sessionId);
+                }
+            });
+        }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,500 @@
+package techchamps.io.aiagent.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.eclipse.jgit.util.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import techchamps.io.aiagent.storage.HnswIndex;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Retrieval of relevant code chunks for the coding chat, without an embedding service.
+ *
+ * Files are cut into chunks at top-level declarations (classes, functions, methods and
+ * their leading comments or annotations), and each chunk is embedded by feature hashing:
+ * identifiers and their camelCase / snake_case parts, weighted by log term frequency,
+ * are hashed with a random sign into a fixed number of dimensions and normalized. The
+ * vectors go into one {@link HnswIndex} file per repository under
+ * {@code code-retrieval.directory}, next to an append-only file with the chunk texts,
+ * so indexes survive restarts. Updates follow the blob SHAs of each connect like
+ * {@link CodeSearchIndex}, and only tokens that connected a repository get its chunks.
+ */
+@Component
+public class CodeRetrievalIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(CodeRetrievalIndex.class);
+
+    static final int DIMENSIONS = 512;
+    private static final int M = 16;
+    private static final int EF_CONSTRUCTION = 100;
+
+    private static final int MIN_CHUNK_LINES = 5;
+    private static final int MAX_CHUNK_LINES = 80;
+
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_.-]+");
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+    private static final Pattern DECLARATION = Pattern.compile(
+            "^(public|private|protected|internal|static|final|abstract|class|interface|enum|record|def|async|function"
+                    + "|export|const|let|var|func|fn|pub|impl|struct|trait|type|module|package|@\\w+)\\b.*");
+    private static final Set<String> STOP_WORDS = Set.of(
+            "public", "private", "protected", "static", "final", "void", "return", "new", "this", "self", "import",
+            "if", "else", "for", "while", "the", "and", "class", "def", "function", "const", "let", "var", "int",
+            "string", "true", "false", "null", "none");
+
+    // Whole identifiers, their camelCase / snake_case parts, and character trigrams
+    private static final Map<Character, Double> FEATURE_WEIGHTS = Map.of('w', 1.0, 'p', 0.5, 't', 0.15);
+
+    @Value("${code-retrieval.enabled:false}")
+    private boolean enabled;
+
+    @Value("${code-retrieval.directory:${app.data.dir:data}/retrieval}")
+    private String directory;
+
+    @Value("${code-retrieval.ef-search:128}")
+    private int efSearch;
+
+    @Value("${code-retrieval.max-file-size:1MB}")
+    private DataSize maxFileSize;
+
+    @Value("${code-retrieval.rebuild-threshold:0.3}")
+    private double rebuildThreshold;
+
+    private final Map<String, RepositoryIndex> indexes = new ConcurrentHashMap<>();
+
+    private ExecutorService indexer;
+
+    public record Chunk(String path, String sha, int startLine, int endLine, String text) {
+    }
+
+    public record ScoredChunk(Chunk chunk, float score) {
+    }
+
+    @PostConstruct
+    public void init() {
+        indexer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "code-retrieval-indexer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        indexer.shutdownNow();
+        for (RepositoryIndex index : indexes.values()) {
+            index.close();
+        }
+    }
+
+    /**
+     * Brings the repository's chunks in line with {@code blobShas} (path to blob SHA) in the
+     * background, loading new and changed files with {@code loader}.
+     */
+    public void update(String repository, String token, Map<String, String> blobShas, Function<String, GitHubFileContent> loader) {
+        if (!enabled) {
+            return;
+        }
+        RepositoryIndex index;
+        try {
+            index = indexes.computeIfAbsent(repository, RepositoryIndex::new);
+        } catch (IllegalArgumentException | UncheckedIOException e) {
+            logger.warn("Cannot index {}: {}", repository, e.getMessage());
+            return;
+        }
+        index.tokens.add(GitHubRateLimiter.tokenHash(token));
+        indexer.execute(() -> {
+            try {
+                long start = System.nanoTime();
+                int chunks = GitHubRateLimiter.inBackground(() -> index.sync(blobShas, loader));
+                logger.info("Embedded {} chunks of {} in {} ms", chunks, repository, (System.nanoTime() - start) / 1_000_000);
+            } catch (Exception e) {
+                logger.error("Embedding {} failed", repository, e);
+            }
+        });
+    }
+
+    /**
+     * The {@code k} chunks most similar to {@code question}, best first; empty if the token
+     * has not connected the repository.
+     */
+    public List<ScoredChunk> search(String repository, String token, String question, int k) {
+        RepositoryIndex index = indexes.get(repository);
+        if (index == null || !index.tokens.contains(GitHubRateLimiter.tokenHash(token))) {
+            return List.of();
+        }
+        return index.search(embed(question), k);
+    }
+
+    private class RepositoryIndex {
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Set<String> tokens = ConcurrentHashMap.newKeySet();
+        private final Path directory;
+
+        private HnswIndex graph;
+        private DataOutputStream chunkLog;
+        // By node id; null once the node is deleted
+        private final List<Chunk> chunks = new ArrayList<>();
+        private final Map<String, List<Integer>> nodesByPath = new HashMap<>();
+
+        RepositoryIndex(String repository) {
+            String[] names = repository.split("/");
+            for (String name : names) {
+                if (!NAME.matcher(name).matches() || name.startsWith(".")) {
+                    throw new IllegalArgumentException("Invalid repository name: " + repository);
+                }
+            }
+            directory = Path.of(CodeRetrievalIndex.this.directory).resolve(repository);
+            try {
+                Files.createDirectories(directory);
+                open();
+            } catch (IllegalStateException e) {
+                logger.warn("Discarding retrieval index of {}: {}", repository, e.getMessage());
+                delete();
+                open();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void open() {
+            graph = new HnswIndex(directory.resolve("vectors.hnsw"), DIMENSIONS, M, EF_CONSTRUCTION);
+            Path chunkFile = directory.resolve("chunks.dat");
+            try {
+                if (Files.exists(chunkFile)) {
+                    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(chunkFile)))) {
+                        while (chunks.size() < graph.size()) {
+                            Chunk chunk = readChunk(in);
+                            int node = chunks.size();
+                            chunks.add(graph.isDeleted(node) ? null : chunk);
+                            if (!graph.isDeleted(node)) {
+                                nodesByPath.computeIfAbsent(chunk.path(), path -> new ArrayList<>()).add(node);
+                            }
+                        }
+                    } catch (EOFException e) {
+                        // Nodes added after the last complete chunk record are left out of results
+                        while (chunks.size() < graph.size()) {
+                            graph.delete(chunks.size());
+                            chunks.add(null);
+                        }
+                    }
+                }
+                chunkLog = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(chunkFile,
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void delete() {
+            try {
+                FileUtils.delete(directory.toFile(), FileUtils.RECURSIVE | FileUtils.SKIP_MISSING);
+                Files.createDirectories(directory);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        int sync(Map<String, String> blobShas, Function<String, GitHubFileContent> loader) throws IOException {
+            int added = 0;
+            lock.writeLock().lock();
+            try {
+                for (String path : List.copyOf(nodesByPath.keySet())) {
+                    Chunk first = chunks.get(nodesByPath.get(path).get(0));
+                    if (!first.sha().equals(blobShas.get(path))) {
+                        for (int node : nodesByPath.remove(path)) {
+                            graph.delete(node);
+                            chunks.set(node, null);
+                        }
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            for (Map.Entry<String, String> file : blobShas.entrySet()) {
+                lock.readLock().lock();
+                try {
+                    if (nodesByPath.containsKey(file.getKey())) {
+                        continue;
+                    }
+                } finally {
+                    lock.readLock().unlock();
+                }
+                // Loaded and embedded outside the lock so searches continue meanwhile
+                GitHubFileContent fileContent = loader.apply(file.getKey());
+                if (fileContent == null || fileContent.isBinary() || fileContent.size() > maxFileSize.toBytes()) {
+                    continue;
+                }
+                String content = fileContent.text();
+                List<Chunk> fileChunks = chunk(file.getKey(), file.getValue(), content);
+                List<float[]> vectors = fileChunks.stream().map(chunk -> embed(chunk.path() + "\n" + chunk.text())).toList();
+                lock.writeLock().lock();
+                try {
+                    for (int i = 0; i < fileChunks.size(); i++) {
+                        append(fileChunks.get(i), vectors.get(i));
+                        added++;
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+            lock.writeLock().lock();
+            try {
+                chunkLog.flush();
+                graph.force();
+                if (graph.deletedCount() > graph.size() * rebuildThreshold) {
+                    rebuild();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return added;
+        }
+
+        List<ScoredChunk> search(float[] query, int k) {
+            lock.readLock().lock();
+            try {
+                List<ScoredChunk> results = new ArrayList<>(k);
+                for (HnswIndex.Result result : graph.search(query, k, efSearch)) {
+                    results.add(new ScoredChunk(chunks.get(result.node()), result.score()));
+                }
+                return results;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void close() {
+            lock.writeLock().lock();
+            try {
+                chunkLog.close();
+                graph.close();
+            } catch (IOException e) {
+                logger.warn("Could not close retrieval index {}", directory, e);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void append(Chunk chunk, float[] vector) throws IOException {
+            int node = graph.add(vector);
+            writeChunk(chunkLog, chunk);
+            chunks.add(chunk);
+            nodesByPath.computeIfAbsent(chunk.path(), path -> new ArrayList<>()).add(node);
+        }
+
+        // Rewrites both files with the live nodes only
+        private void rebuild() throws IOException {
+            List<Chunk> live = new ArrayList<>();
+            List<float[]> vectors = new ArrayList<>();
+            for (int node = 0; node < chunks.size(); node++) {
+                if (chunks.get(node) != null) {
+                    live.add(chunks.get(node));
+                    vectors.add(graph.vector(node));
+                }
+            }
+            chunkLog.close();
+            graph.close();
+            delete();
+            chunks.clear();
+            nodesByPath.clear();
+            open();
+            for (int i = 0; i < live.size(); i++) {
+                append(live.get(i), vectors.get(i));
+            }
+            chunkLog.flush();
+            graph.force();
+        }
+    }
+
+    private static void writeChunk(DataOutputStream out, Chunk chunk) throws IOException {
+        out.writeUTF(chunk.path());
+        out.writeUTF(chunk.sha());
+        out.writeInt(chunk.startLine());
+        out.writeInt(chunk.endLine());
+        byte[] text = chunk.text().getBytes(StandardCharsets.UTF_8);
+        out.writeInt(text.length);
+        out.write(text);
+    }
+
+    private static Chunk readChunk(DataInputStream in) throws IOException {
+        String path = in.readUTF();
+        String sha = in.readUTF();
+        int startLine = in.readInt();
+        int endLine = in.readInt();
+        byte[] text = new byte[in.readInt()];
+        in.readFully(text);
+        return new Chunk(path, sha, startLine, endLine, new String(text, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Splits a file before top-level declarations (with their leading comments and
+     * annotations), merging chunks shorter than {@value #MIN_CHUNK_LINES} lines and
+     * cutting ones longer than {@value #MAX_CHUNK_LINES} at blank lines where possible.
+     */
+    static List<Chunk> chunk(String path, String sha, String content) {
+        String[] lines = content.split("\n", -1);
+        List<Integer> starts = new ArrayList<>();
+        starts.add(0);
+        for (int i = 1; i < lines.length; i++) {
+            String line = lines[i];
+            if (indentation(line) <= 4 && DECLARATION.matcher(line.strip()).matches()) {
+                // Pull in the comments and annotations directly above
+                int start = i;
+                while (start - 1 > starts.get(starts.size() - 1) && isPreamble(lines[start - 1])) {
+                    start--;
+                }
+                if (start - starts.get(starts.size() - 1) >= MIN_CHUNK_LINES) {
+                    starts.add(start);
+                }
+            }
+        }
+        starts.add(lines.length);
+
+        List<Chunk> chunks = new ArrayList<>();
+        for (int s = 0; s + 1 < starts.size(); s++) {
+            int from = starts.get(s);
+            int end = starts.get(s + 1);
+            while (from < end) {
+                int to = Math.min(end, from + MAX_CHUNK_LINES);
+                if (to < end) {
+                    for (int i = to - 1; i > from + MIN_CHUNK_LINES; i--) {
+                        if (lines[i].isBlank()) {
+                            to = i + 1;
+                            break;
+                        }
+                    }
+                }
+                String text = String.join("\n", Arrays.copyOfRange(lines, from, to)).strip();
+                if (!text.isEmpty()) {
+                    chunks.add(new Chunk(path, sha, from + 1, to, text));
+                }
+                from = to;
+            }
+        }
+        return chunks;
+    }
+
+    private static boolean isPreamble(String line) {
+        String stripped = line.strip();
+        return stripped.startsWith("@") || stripped.startsWith("//") || stripped.startsWith("/*")
+                || stripped.startsWith("*") || stripped.startsWith("#");
+    }
+
+    private static int indentation(String line) {
+        int width = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == ' ') {
+                width++;
+            } else if (c == '\t') {
+                width += 4;
+            } else {
+                break;
+            }
+        }
+        return width;
+    }
+
+    /**
+     * Unit vector of the hashed identifiers of {@code text}.
+     */
+    static float[] embed(String text) {
+        // Feature to occurrence count; the first character tells the feature's kind
+        Map<String, Integer> features = new HashMap<>();
+        Matcher matcher = IDENTIFIER.matcher(text);
+        while (matcher.find()) {
+            String identifier = matcher.group();
+            String lower = identifier.toLowerCase(Locale.ROOT);
+            if (lower.length() < 2 || STOP_WORDS.contains(lower)) {
+                continue;
+            }
+            features.merge("w" + stem(lower), 1, Integer::sum);
+            String[] parts = identifier.split("_|(?<=[a-z0-9])(?=[A-Z])|(?<=[A-Z])(?=[A-Z][a-z])");
+            if (parts.length > 1) {
+                for (String part : parts) {
+                    String word = part.toLowerCase(Locale.ROOT);
+                    if (word.length() > 1 && !STOP_WORDS.contains(word)) {
+                        features.merge("p" + stem(word), 1, Integer::sum);
+                    }
+                }
+            }
+            // Character trigrams give rare identifiers some overlap with their neighborhood,
+            // which the graph search needs to find them
+            for (int i = 0; i + 3 <= lower.length(); i++) {
+                features.merge("t" + lower.substring(i, i + 3), 1, Integer::sum);
+            }
+        }
+        float[] vector = new float[DIMENSIONS];
+        for (Map.Entry<String, Integer> feature : features.entrySet()) {
+            int hash = mix(feature.getKey().hashCode());
+            float weight = (float) (FEATURE_WEIGHTS.get(feature.getKey().charAt(0)) * (1 + Math.log(feature.getValue())));
+            vector[(hash >>> 1) % DIMENSIONS] += (hash & 1) == 0 ? weight : -weight;
+        }
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] *= scale;
+            }
+        }
+        return vector;
+    }
+
+    // Crude suffix stripping, so "limited" in a question meets "RateLimiter" in code
+    private static String stem(String word) {
+        if (word.length() > 3 && word.endsWith("s") && !word.endsWith("ss")) {
+            word = word.substring(0, word.length() - 1);
+        }
+        for (String suffix : new String[] {"ing", "ed", "er"}) {
+            if (word.length() - suffix.length() >= 4 && word.endsWith(suffix)) {
+                return word.substring(0, word.length() - suffix.length());
+            }
+        }
+        return word;
+    }
+
+    // Murmur3 finalizer, so similar strings land in unrelated dimensions
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+}
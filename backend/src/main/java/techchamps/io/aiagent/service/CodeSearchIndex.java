@@ -0,0 +1,518 @@
+package techchamps.io.aiagent.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Trigram index over the code files of connected repositories, for substring and regex search.
+ *
+ * Every file is indexed by the byte trigrams of its lower-cased UTF-8 content; each trigram
+ * maps to a delta- and varint-encoded posting list of document ids. A query is narrowed to
+ * the documents containing all trigrams of the literals it requires (for a regex, the
+ * literal runs outside groups, classes and optional atoms; none for a top-level
+ * alternation), and only those candidates are matched against the pattern.
+ *
+ * Indexes are kept up to date by blob SHA: on every connect, changed and new files are
+ * loaded in the background and removed or changed ones are tombstoned. Once tombstones
+ * exceed {@code rebuild-threshold} of the documents, the index is rebuilt from the
+ * contents it holds. Only tokens that connected a repository may search it.
+ */
+@Component
+public class CodeSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(CodeSearchIndex.class);
+
+    // Longest line excerpt returned with a match
+    private static final int MAX_LINE_LENGTH = 200;
+
+    @Value("${code-search.enabled:true}")
+    private boolean enabled;
+
+    @Value("${code-search.max-file-size:1MB}")
+    private DataSize maxFileSize;
+
+    @Value("${code-search.rebuild-threshold:0.3}")
+    private double rebuildThreshold;
+
+    @Value("${code-search.regex-timeout:PT2S}")
+    private Duration regexTimeout;
+
+    private final Map<String, RepositoryIndex> indexes = new ConcurrentHashMap<>();
+
+    private ExecutorService indexer;
+
+    public record Match(String path, int line, String text) {
+    }
+
+    public record SearchResult(List<Match> matches, int candidates, int indexedFiles, boolean indexing) {
+    }
+
+    private record Document(String path, String sha, String content) {
+    }
+
+    @PostConstruct
+    public void init() {
+        indexer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "code-search-indexer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        indexer.shutdownNow();
+    }
+
+    /**
+     * Brings the repository's index in line with {@code blobShas} (path to blob SHA) in the
+     * background, loading new and changed files with {@code loader}.
+     */
+    public void update(String repository, String token, Map<String, String> blobShas, Function<String, GitHubFileContent> loader) {
+        if (!enabled) {
+            return;
+        }
+        RepositoryIndex index = indexes.computeIfAbsent(repository, key -> new RepositoryIndex());
+        index.tokens.add(GitHubRateLimiter.tokenHash(token));
+        index.pending.incrementAndGet();
+        indexer.execute(() -> {
+            try {
+                long start = System.nanoTime();
+                int loaded = GitHubRateLimiter.inBackground(() -> index.sync(blobShas, loader));
+                logger.info("Indexed {} changed files of {} in {} ms", loaded, repository, (System.nanoTime() - start) / 1_000_000);
+            } catch (Exception e) {
+                logger.error("Indexing {} failed", repository, e);
+            } finally {
+                index.pending.decrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Returns up to {@code limit} matching lines, at most one match per line.
+     *
+     * @throws IllegalArgumentException if the query is not a valid regex
+     * @throws IllegalStateException if the token has not connected the repository, or
+     *         matching ran past {@code regex-timeout}
+     */
+    public SearchResult search(String repository, String token, String query, boolean regex, boolean caseSensitive, int limit) {
+        RepositoryIndex index = indexes.get(repository);
+        if (index == null || !index.tokens.contains(GitHubRateLimiter.tokenHash(token))) {
+            throw new IllegalStateException("Repository is not indexed: " + repository);
+        }
+        int flags = Pattern.MULTILINE | (caseSensitive ? 0 : Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+        Pattern pattern = Pattern.compile(regex ? query : Pattern.quote(query), flags);
+        List<String> literals = regex ? requiredLiterals(query) : List.of(query);
+        return index.search(pattern, literals, limit, System.nanoTime() + regexTimeout.toNanos());
+    }
+
+    private class RepositoryIndex {
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Set<String> tokens = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger pending = new AtomicInteger();
+
+        // Indexed by document id; null once removed
+        private List<Document> documents = new ArrayList<>();
+        private Map<String, Integer> documentIds = new HashMap<>();
+        private Map<Integer, PostingList> postings = new HashMap<>();
+        private int removed;
+
+        int sync(Map<String, String> blobShas, Function<String, GitHubFileContent> loader) {
+            lock.writeLock().lock();
+            try {
+                for (String path : List.copyOf(documentIds.keySet())) {
+                    Document document = documents.get(documentIds.get(path));
+                    if (!document.sha().equals(blobShas.get(path))) {
+                        remove(path);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            int loaded = 0;
+            for (Map.Entry<String, String> file : blobShas.entrySet()) {
+                lock.readLock().lock();
+                try {
+                    if (documentIds.containsKey(file.getKey())) {
+                        continue;
+                    }
+                } finally {
+                    lock.readLock().unlock();
+                }
+                // Loaded outside the lock so searches continue while files are fetched
+                GitHubFileContent fileContent = loader.apply(file.getKey());
+                if (fileContent == null || fileContent.isBinary() || fileContent.size() > maxFileSize.toBytes()) {
+                    continue;
+                }
+                String content = fileContent.text();
+                lock.writeLock().lock();
+                try {
+                    if (!documentIds.containsKey(file.getKey())) {
+                        add(new Document(file.getKey(), file.getValue(), content));
+                        loaded++;
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+            lock.writeLock().lock();
+            try {
+                if (removed > documents.size() * rebuildThreshold) {
+                    rebuild();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return loaded;
+        }
+
+        SearchResult search(Pattern pattern, List<String> literals, int limit, long deadline) {
+            lock.readLock().lock();
+            try {
+                int[] candidates = candidates(literals);
+                List<Match> matches = new ArrayList<>();
+                for (int id : candidates) {
+                    Document document = documents.get(id);
+                    if (document == null) {
+                        continue;
+                    }
+                    collectMatches(document, pattern, matches, limit, deadline);
+                    if (matches.size() >= limit) {
+                        break;
+                    }
+                }
+                return new SearchResult(matches, candidates.length, documentIds.size(), pending.get() > 0);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        // Documents containing every trigram of every literal, smallest posting lists first
+        private int[] candidates(List<String> literals) {
+            List<PostingList> lists = new ArrayList<>();
+            for (String literal : literals) {
+                for (int trigram : trigrams(literal)) {
+                    PostingList list = postings.get(trigram);
+                    if (list == null) {
+                        return new int[0];
+                    }
+                    lists.add(list);
+                }
+            }
+            if (lists.isEmpty()) {
+                int[] all = new int[documents.size()];
+                Arrays.setAll(all, i -> i);
+                return all;
+            }
+            lists.sort(Comparator.comparingInt(list -> list.count));
+            int[] result = lists.get(0).decode();
+            for (int i = 1; i < lists.size() && result.length > 0; i++) {
+                result = intersect(result, lists.get(i).decode());
+            }
+            return result;
+        }
+
+        private void add(Document document) {
+            int id = documents.size();
+            documents.add(document);
+            documentIds.put(document.path(), id);
+            for (int trigram : trigrams(document.content())) {
+                postings.computeIfAbsent(trigram, key -> new PostingList()).add(id);
+            }
+        }
+
+        private void remove(String path) {
+            Integer id = documentIds.remove(path);
+            if (id != null) {
+                documents.set(id, null);
+                removed++;
+            }
+        }
+
+        private void rebuild() {
+            List<Document> live = documents.stream().filter(document -> document != null).toList();
+            documents = new ArrayList<>(live.size());
+            documentIds = new HashMap<>();
+            postings = new HashMap<>();
+            removed = 0;
+            live.forEach(this::add);
+        }
+    }
+
+    private static void collectMatches(Document document, Pattern pattern, List<Match> matches, int limit, long deadline) {
+        String content = document.content();
+        Matcher matcher = pattern.matcher(new DeadlineCharSequence(content, deadline));
+        int line = 1;
+        int counted = 0;
+        int from = 0;
+        while (matches.size() < limit && from <= content.length() && matcher.find(from)) {
+            int start = matcher.start();
+            for (; counted < start; counted++) {
+                if (content.charAt(counted) == '\n') {
+                    line++;
+                }
+            }
+            int lineStart = content.lastIndexOf('\n', start - 1) + 1;
+            int lineEnd = content.indexOf('\n', start);
+            if (lineEnd < 0) {
+                lineEnd = content.length();
+            }
+            String text = content.substring(lineStart, Math.min(lineEnd, lineStart + MAX_LINE_LENGTH)).strip();
+            matches.add(new Match(document.path(), line, text));
+            from = lineEnd + 1;
+        }
+    }
+
+    /**
+     * Fails a match that runs past the deadline. A backtracking regex only makes progress
+     * through charAt, so checking there bounds the work of any pattern.
+     */
+    private static final class DeadlineCharSequence implements CharSequence {
+
+        // Calls between clock reads
+        private static final int CHECK_INTERVAL = 4096;
+
+        private final CharSequence text;
+        private final long deadline;
+        private int calls;
+
+        DeadlineCharSequence(CharSequence text, long deadline) {
+            this.text = text;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (++calls % CHECK_INTERVAL == 0 && System.nanoTime() - deadline > 0) {
+                throw new IllegalStateException("Search timed out, simplify the regex");
+            }
+            return text.charAt(index);
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new DeadlineCharSequence(text.subSequence(start, end), deadline);
+        }
+
+        @Override
+        public String toString() {
+            return text.toString();
+        }
+    }
+
+    // Distinct trigrams of the lower-cased UTF-8 bytes, sorted
+    private static int[] trigrams(String text) {
+        byte[] bytes = text.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8);
+        if (bytes.length < 3) {
+            return new int[0];
+        }
+        int[] trigrams = new int[bytes.length - 2];
+        for (int i = 0; i < trigrams.length; i++) {
+            trigrams[i] = (bytes[i] & 0xff) << 16 | (bytes[i + 1] & 0xff) << 8 | (bytes[i + 2] & 0xff);
+        }
+        Arrays.sort(trigrams);
+        int distinct = 0;
+        for (int i = 0; i < trigrams.length; i++) {
+            if (i == 0 || trigrams[i] != trigrams[i - 1]) {
+                trigrams[distinct++] = trigrams[i];
+            }
+        }
+        return Arrays.copyOf(trigrams, distinct);
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    /**
+     * Literal runs that every match of {@code regex} must contain. Conservative: groups,
+     * character classes and escapes other than escaped punctuation end a run, an optional
+     * atom is dropped from it, and a top-level alternation yields no literals at all.
+     */
+    static List<String> requiredLiterals(String regex) {
+        List<String> literals = new ArrayList<>();
+        StringBuilder run = new StringBuilder();
+        int i = 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\' && i + 1 < regex.length()) {
+                char escaped = regex.charAt(i + 1);
+                if (Character.isLetterOrDigit(escaped)) {
+                    flush(run, literals);
+                    if (escaped == 'Q') {
+                        int end = regex.indexOf("\\E", i + 2);
+                        i = end < 0 ? regex.length() : end + 2;
+                        continue;
+                    }
+                } else {
+                    run.append(escaped);
+                }
+                i += 2;
+                continue;
+            }
+            switch (c) {
+                case '|':
+                    return List.of();
+                case '*':
+                case '?':
+                case '{':
+                    // The preceding atom may be absent
+                    if (!run.isEmpty()) {
+                        run.setLength(run.length() - 1);
+                    }
+                    flush(run, literals);
+                    if (c == '{') {
+                        int end = regex.indexOf('}', i);
+                        i = end < 0 ? regex.length() : end + 1;
+                        continue;
+                    }
+                    break;
+                case '(':
+                case '[':
+                    flush(run, literals);
+                    i = skipGroup(regex, i);
+                    continue;
+                case '+':
+                case '.':
+                case '^':
+                case '$':
+                    flush(run, literals);
+                    break;
+                default:
+                    run.append(c);
+            }
+            i++;
+        }
+        flush(run, literals);
+        return literals;
+    }
+
+    // Index after the group or character class opening at start
+    private static int skipGroup(String regex, int start) {
+        int depth = 0;
+        boolean inClass = false;
+        for (int i = start; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (inClass) {
+                if (c == ']' && i > start + 1) {
+                    inClass = false;
+                    if (depth == 0) {
+                        return i + 1;
+                    }
+                }
+            } else if (c == '[') {
+                inClass = true;
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == '^') {
+                    i++;
+                }
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == ']') {
+                    i++;
+                }
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return i + 1;
+            } else if (c == '|' && depth == 0) {
+                return i;
+            }
+        }
+        return regex.length();
+    }
+
+    private static void flush(StringBuilder run, List<String> literals) {
+        if (run.length() >= 3) {
+            literals.add(run.toString());
+        }
+        run.setLength(0);
+    }
+
+    // Ascending document ids as varint-encoded gaps
+    private static class PostingList {
+
+        private byte[] data = new byte[4];
+        private int length;
+        private int last = -1;
+        private int count;
+
+        void add(int id) {
+            int gap = id - last;
+            if (length + 5 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            while ((gap & ~0x7f) != 0) {
+                data[length++] = (byte) (gap & 0x7f | 0x80);
+                gap >>>= 7;
+            }
+            data[length++] = (byte) gap;
+            last = id;
+            count++;
+        }
+
+        int[] decode() {
+            int[] ids = new int[count];
+            int id = -1;
+            int position = 0;
+            for (int n = 0; n < count; n++) {
+                int gap = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[position++];
+                    gap |= (b & 0x7f) << shift;
+                    shift += 7;
+                } while (b < 0);
+                id += gap;
+                ids[n] = id;
+            }
+            return ids;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package techchamps.io.aiagent.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import techchamps.io.aiagent.model.ChatMessage;
+import techchamps.io.aiagent.repository.ChatMessageRepository;
+import techchamps.io.aiagent.repository.FileBlobRepository;
+import techchamps.io.aiagent.storage.CompressedText;
+import techchamps.io.aiagent.storage.TextCompression;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Content-addressed storage for attached file content.
+ *
+ * Each distinct content is stored once in {@code file_blobs} under its SHA-256 and
+ * messages keep only the hash, so loading a history never reads file bodies; they are
+ * fetched by hash when needed. Blobs are reference counted: a message adds a reference
+ * in the transaction that inserts it and deleting messages releases them. Blobs left
+ * without references are deleted once {@code grace-period} has passed since their last
+ * reference was released; a new blob counts as released when inserted, which covers
+ * blobs whose first reference was rolled back.
+ */
+@Service
+public class FileBlobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileBlobService.class);
+
+    @Autowired
+    private FileBlobRepository fileBlobRepository;
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${chat.storage.compression.threshold:1024}")
+    private int compressionThreshold;
+
+    @Value("${chat.file-blobs.grace-period:PT1H}")
+    private Duration gracePeriod;
+
+    @Value("${chat.file-blobs.migrate-batch-size:200}")
+    private int migrateBatchSize;
+
+    /**
+     * Moves the message's inline file content into a blob and references it. Must run in
+     * the transaction that saves the message.
+     */
+    public void intern(ChatMessage message) {
+        String content = message.getFileContent();
+        if (content == null) {
+            return;
+        }
+        String hash = hash(content);
+        // A concurrent cleanup can delete an unreferenced blob between insert and reference
+        while (fileBlobRepository.incrementRefCount(hash) == 0) {
+            insert(hash, content);
+        }
+        message.setFileBlobHash(hash);
+        message.setFileContent(null);
+    }
+
+    public Optional<String> getContent(String hash) {
+        return fileBlobRepository.findContent(hash).map(CompressedText::get);
+    }
+
+    /**
+     * The message's file content, whether it is still inline or already in a blob.
+     */
+    public String resolveFileContent(ChatMessage message) {
+        if (message.getFileBlobHash() == null) {
+            return message.getFileContent();
+        }
+        return getContent(message.getFileBlobHash()).orElse(null);
+    }
+
+    @Scheduled(fixedDelayString = "${chat.file-blobs.cleanup-interval:PT10M}")
+    public void scheduledMaintenance() {
+        try {
+            migrateInlineContent();
+            deleteUnreferenced();
+        } catch (RuntimeException e) {
+            logger.error("File blob maintenance failed", e);
+        }
+    }
+
+    /**
+     * Moves file content stored inline by earlier versions into blobs, one batch per
+     * transaction.
+     */
+    public int migrateInlineContent() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int migrated = 0;
+        while (true) {
+            List<Long> ids = chatMessageRepository.findIdsWithInlineFileContent(PageRequest.of(0, migrateBatchSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+            transactionTemplate.executeWithoutResult(status ->
+                    chatMessageRepository.findAllById(ids).forEach(this::intern));
+            migrated += ids.size();
+            if (ids.size() < migrateBatchSize) {
+                break;
+            }
+        }
+        if (migrated > 0) {
+            logger.info("Moved inline file content of {} messages into blobs", migrated);
+        }
+        return migrated;
+    }
+
+    public int deleteUnreferenced() {
+        Integer deleted = new TransactionTemplate(transactionManager).execute(status ->
+                fileBlobRepository.deleteUnreferenced(LocalDateTime.now().minus(gracePeriod)));
+        if (deleted != null && deleted > 0) {
+            logger.info("Deleted {} unreferenced file blobs", deleted);
+        }
+        return deleted != null ? deleted : 0;
+    }
+
+    private void insert(String hash, String content) {
+        // Committed on its own so concurrent writers of the same content see the row and
+        // only contend on the reference count update
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            transactionTemplate.executeWithoutResult(status -> fileBlobRepository.insertIfAbsent(hash,
+                    TextCompression.encode(content, compressionThreshold),
+                    content.getBytes(StandardCharsets.UTF_8).length, LocalDateTime.now()));
+        } catch (DataIntegrityViolationException e) {
+            logger.debug("File blob {} was inserted concurrently", hash);
+        }
+    }
+
+    static String hash(String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
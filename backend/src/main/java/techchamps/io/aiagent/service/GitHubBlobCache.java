@@ -0,0 +1,73 @@
+package techchamps.io.aiagent.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Repository file contents keyed by git blob SHA, held in direct buffers outside the heap.
+ *
+ * A blob SHA names its content, so entries are never invalidated; they are only evicted
+ * least-recently-used once the total exceeds {@code github.blob-cache.max-size}.
+ */
+@Component
+public class GitHubBlobCache {
+
+    private static final Counter hits = Counter.builder("github.blob-cache.requests").tag("result", "hit")
+            .description("Repository file reads served from the blob cache").register(Metrics.globalRegistry);
+    private static final Counter misses = Counter.builder("github.blob-cache.requests").tag("result", "miss")
+            .description("Repository file reads that fetched the blob").register(Metrics.globalRegistry);
+
+    @Value("${github.blob-cache.max-size:64MB}")
+    private DataSize maxSize;
+
+    private final LinkedHashMap<String, ByteBuffer> blobs = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+
+    /**
+     * Returns a read-only view of the blob's bytes, or null if it is not cached.
+     */
+    public ByteBuffer get(String sha) {
+        ByteBuffer buffer;
+        synchronized (this) {
+            buffer = blobs.get(sha);
+        }
+        if (buffer == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        // Each reader gets its own position; an evicted buffer lives on until its views are gone
+        return buffer.asReadOnlyBuffer();
+    }
+
+    public void put(String sha, ByteBuffer content) {
+        if (content.remaining() > maxSize.toBytes()) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(content.remaining()).put(content.duplicate()).flip();
+        synchronized (this) {
+            ByteBuffer previous = blobs.put(sha, buffer);
+            if (previous != null) {
+                totalBytes -= previous.capacity();
+            }
+            totalBytes += buffer.capacity();
+            Iterator<Map.Entry<String, ByteBuffer>> iterator = blobs.entrySet().iterator();
+            while (totalBytes > maxSize.toBytes() && iterator.hasNext()) {
+                totalBytes -= iterator.next().getValue().capacity();
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized long size() {
+        return totalBytes;
+    }
+}
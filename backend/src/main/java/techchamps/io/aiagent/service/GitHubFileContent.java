@@ -0,0 +1,313 @@
+package techchamps.io.aiagent.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The bytes of one repository file, exactly as stored in git. Small files are held in the
+ * heap; larger ones are spooled to a temp file that is memory-mapped and then deleted.
+ *
+ * Text files carry the charset they were detected in: a byte order mark wins, otherwise
+ * UTF-8 if every byte decodes as UTF-8, otherwise windows-1252. A NUL byte in the first
+ * {@value #BINARY_PROBE} bytes marks the file as binary, as git does, and it gets no charset.
+ */
+public final class GitHubFileContent {
+
+    private static final int BINARY_PROBE = 8000;
+
+    // Legacy single-byte text; unlike ISO-8859-1 it maps 0x80-0x9F to printable characters
+    private static final Charset LEGACY_CHARSET = Charset.forName("windows-1252");
+
+    private final ByteBuffer bytes;
+    private final Charset charset;
+    // Bytes of the byte order mark, skipped when decoding
+    private final int textOffset;
+
+    private GitHubFileContent(ByteBuffer content) {
+        this.bytes = content.slice().asReadOnlyBuffer();
+        int bom = 0;
+        Charset detected;
+        if (startsWith(this.bytes, 0xEF, 0xBB, 0xBF)) {
+            detected = StandardCharsets.UTF_8;
+            bom = 3;
+        } else if (startsWith(this.bytes, 0xFE, 0xFF)) {
+            detected = StandardCharsets.UTF_16BE;
+            bom = 2;
+        } else if (startsWith(this.bytes, 0xFF, 0xFE)) {
+            detected = StandardCharsets.UTF_16LE;
+            bom = 2;
+        } else if (hasNul(this.bytes)) {
+            detected = null;
+        } else {
+            detected = isUtf8(this.bytes) ? StandardCharsets.UTF_8 : LEGACY_CHARSET;
+        }
+        this.charset = detected;
+        this.textOffset = bom;
+    }
+
+    public static GitHubFileContent of(ByteBuffer bytes) {
+        return new GitHubFileContent(bytes);
+    }
+
+    public static GitHubFileContent of(byte[] bytes) {
+        return new GitHubFileContent(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * A sink that keeps up to {@code memoryThreshold} bytes in the heap, spools anything
+     * larger to a temp file in {@code tempDirectory} and fails once more than
+     * {@code maxSize} bytes are written.
+     */
+    public static Spool spool(long maxSize, long memoryThreshold, Path tempDirectory) {
+        return new Spool(maxSize, memoryThreshold, tempDirectory);
+    }
+
+    public long size() {
+        return bytes.capacity();
+    }
+
+    public boolean isBinary() {
+        return charset == null;
+    }
+
+    /**
+     * The detected charset, or null for a binary file.
+     */
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * A read-only view of the raw bytes with its own position.
+     */
+    public ByteBuffer asByteBuffer() {
+        return bytes.duplicate();
+    }
+
+    public InputStream openStream() {
+        return stream(bytes.duplicate());
+    }
+
+    /**
+     * The text decoded with the detected charset, without the byte order mark.
+     *
+     * @throws IllegalStateException for a binary file
+     */
+    public Reader openReader() {
+        CharsetDecoder decoder = decoder();
+        return Channels.newReader(Channels.newChannel(stream(textBytes())), decoder, -1);
+    }
+
+    /**
+     * The whole text; see {@link #text(int)} to decode only a prefix of a large file.
+     */
+    public String text() {
+        return text(Integer.MAX_VALUE);
+    }
+
+    /**
+     * At most the first {@code maxChars} characters of the text.
+     *
+     * @throws IllegalStateException for a binary file
+     */
+    public String text(int maxChars) {
+        CharsetDecoder decoder = decoder();
+        ByteBuffer input = textBytes();
+        if (maxChars >= input.remaining()) {
+            // Everything fits, so String decodes straight into its own array without a CharBuffer
+            if (input.hasArray()) {
+                return new String(input.array(), input.arrayOffset() + input.position(), input.remaining(), charset);
+            }
+            byte[] copy = new byte[input.remaining()];
+            input.get(copy);
+            return new String(copy, charset);
+        }
+        // None of the charsets decodes a byte into more than one char
+        CharBuffer output = CharBuffer.allocate(Math.min(maxChars, input.remaining()));
+        if (decoder.decode(input, output, true).isUnderflow()) {
+            decoder.flush(output);
+        }
+        return output.flip().toString();
+    }
+
+    private ByteBuffer textBytes() {
+        return bytes.duplicate().position(textOffset);
+    }
+
+    private static InputStream stream(ByteBuffer view) {
+        return new InputStream() {
+            @Override
+            public int read() {
+                return view.hasRemaining() ? view.get() & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] target, int offset, int length) {
+                if (length == 0) {
+                    return 0;
+                }
+                if (!view.hasRemaining()) {
+                    return -1;
+                }
+                int count = Math.min(length, view.remaining());
+                view.get(target, offset, count);
+                return count;
+            }
+
+            @Override
+            public int available() {
+                return view.remaining();
+            }
+        };
+    }
+
+    private CharsetDecoder decoder() {
+        if (charset == null) {
+            throw new IllegalStateException("Binary content has no text");
+        }
+        return charset.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    private static boolean startsWith(ByteBuffer bytes, int... prefix) {
+        if (bytes.capacity() < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if ((bytes.get(i) & 0xFF) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasNul(ByteBuffer bytes) {
+        int end = Math.min(bytes.capacity(), BINARY_PROBE);
+        for (int i = 0; i < end; i++) {
+            if (bytes.get(i) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Validates in fixed-size steps so a large file is not decoded into one char array
+    private static boolean isUtf8(ByteBuffer bytes) {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT);
+        ByteBuffer input = bytes.duplicate();
+        CharBuffer scratch = CharBuffer.allocate(8192);
+        try {
+            while (true) {
+                CoderResult result = decoder.decode(input, scratch, true);
+                if (result.isError()) {
+                    result.throwException();
+                }
+                if (result.isUnderflow()) {
+                    return true;
+                }
+                scratch.clear();
+            }
+        } catch (CharacterCodingException e) {
+            return false;
+        }
+    }
+
+    public static final class Spool extends OutputStream {
+
+        private final long maxSize;
+        private final long memoryThreshold;
+        private final Path tempDirectory;
+        private Memory memory = new Memory();
+        private Path file;
+        private FileChannel channel;
+        private long size;
+
+        private Spool(long maxSize, long memoryThreshold, Path tempDirectory) {
+            this.maxSize = maxSize;
+            this.memoryThreshold = memoryThreshold;
+            this.tempDirectory = tempDirectory;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int offset, int length) throws IOException {
+            if (size + length > maxSize) {
+                throw new IOException("File is larger than " + maxSize + " bytes");
+            }
+            if (channel == null && size + length > memoryThreshold) {
+                Files.createDirectories(tempDirectory);
+                file = Files.createTempFile(tempDirectory, "github-", ".blob");
+                channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                ByteBuffer buffered = memory.contents();
+                while (buffered.hasRemaining()) {
+                    channel.write(buffered);
+                }
+                memory = null;
+            }
+            if (channel != null) {
+                ByteBuffer source = ByteBuffer.wrap(b, offset, length);
+                while (source.hasRemaining()) {
+                    channel.write(source);
+                }
+            } else {
+                memory.write(b, offset, length);
+            }
+            size += length;
+        }
+
+        /**
+         * The content written so far. A spooled file stays mapped after its temp file is deleted.
+         */
+        public GitHubFileContent finish() throws IOException {
+            if (channel == null) {
+                return of(memory.contents());
+            }
+            try {
+                return of(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+            } finally {
+                discard();
+            }
+        }
+
+        /**
+         * Deletes the temp file, if there is one. Safe to call after {@link #finish()}.
+         */
+        public void discard() throws IOException {
+            if (channel != null) {
+                channel.close();
+                Files.deleteIfExists(file);
+            }
+        }
+
+        // Hands out its buffer instead of copying it like toByteArray()
+        private static final class Memory extends ByteArrayOutputStream {
+
+            ByteBuffer contents() {
+                return ByteBuffer.wrap(buf, 0, count);
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package techchamps.io.aiagent.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The GitHub user behind each token, so authenticating the same token again does not
+ * repeat the {@code /user} call.
+ *
+ * Entries are keyed by a hash of the token and expire after {@code ttl}. Every other
+ * response for the same token renews the entry and updates its scopes from
+ * {@code X-OAuth-Scopes}; a 401 drops it. The least recently used entry is evicted past
+ * {@code max-entries}.
+ */
+@Component
+public class GitHubIdentityCache {
+
+    public static final String SCOPES_HEADER = "X-OAuth-Scopes";
+
+    private static final Counter hits = Counter.builder("github.identity-cache.requests").tag("result", "hit")
+            .description("Authentications answered without calling GitHub").register(Metrics.globalRegistry);
+    private static final Counter misses = Counter.builder("github.identity-cache.requests").tag("result", "miss")
+            .description("Authentications that called GitHub").register(Metrics.globalRegistry);
+
+    @Value("${github.identity-cache.ttl:PT10M}")
+    private Duration ttl;
+
+    @Value("${github.identity-cache.max-entries:1000}")
+    private int maxEntries;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    public record Identity(String login, long id, String name, String avatarUrl, Set<String> scopes) {
+    }
+
+    private record Entry(Identity identity, long expiresAt) {
+    }
+
+    /**
+     * The cached identity for an {@code Authorization} header value, or null if there is none or it expired.
+     */
+    public synchronized Identity lookup(String authorization) {
+        String key = GitHubRateLimiter.tokenHash(authorization);
+        Entry entry = entries.get(key);
+        if (entry == null || entry.expiresAt() <= System.nanoTime()) {
+            if (entry != null) {
+                entries.remove(key);
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.identity();
+    }
+
+    public synchronized void store(String authorization, Identity identity) {
+        entries.put(GitHubRateLimiter.tokenHash(authorization), new Entry(identity, expiry()));
+        Iterator<String> iterator = entries.keySet().iterator();
+        while (entries.size() > maxEntries && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Renews or drops the entry for the token a GitHub response was sent for.
+     */
+    public void onResponse(String authorization, int status, HttpHeaders headers) {
+        if (authorization == null) {
+            return;
+        }
+        String key = GitHubRateLimiter.tokenHash(authorization);
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return;
+            }
+            if (status == HttpStatus.UNAUTHORIZED.value()) {
+                entries.remove(key);
+                return;
+            }
+            if (status >= 400) {
+                return;
+            }
+            Identity identity = entry.identity();
+            String scopes = headers.getFirst(SCOPES_HEADER);
+            if (scopes != null) {
+                identity = new Identity(identity.login(), identity.id(), identity.name(), identity.avatarUrl(), parseScopes(scopes));
+            }
+            entries.put(key, new Entry(identity, expiry()));
+        }
+    }
+
+    public static Set<String> parseScopes(String header) {
+        if (header == null || header.isBlank()) {
+            return Collections.emptySet();
+        }
+        Set<String> scopes = new TreeSet<>();
+        Arrays.stream(header.split(","))
+            .map(String::trim)
+            .filter(scope -> !scope.isEmpty())
+            .forEach(scopes::add);
+        return Collections.unmodifiableSet(scopes);
+    }
+
+    private long expiry() {
+        return System.nanoTime() + ttl.toNanos();
+    }
+}
@@ -0,0 +1,220 @@
+package techchamps.io.aiagent.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Schedules GitHub API requests per token so one busy token slows down instead of failing.
+ *
+ * Each token gets a token bucket of {@code burst} requests that refills at the rate the
+ * remaining quota allows until the reset time ({@code X-RateLimit-Remaining} /
+ * {@code X-RateLimit-Reset} from the last response). Interactive requests are served
+ * first: background requests wait while an interactive one is queued and leave
+ * {@code background-reserve} of the bucket untouched. A 429, or a 403 carrying
+ * {@code Retry-After} or an exhausted quota, blocks the token until the indicated time
+ * (secondary limits without a hint back off exponentially from {@code secondary-backoff}).
+ * Callers that would wait longer than their maximum wait fail immediately.
+ */
+@Component
+public class GitHubRateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(GitHubRateLimiter.class);
+
+    private static final ThreadLocal<Priority> currentPriority = ThreadLocal.withInitial(() -> Priority.INTERACTIVE);
+
+    private static final Counter backoffs = Counter.builder("github.rate-limit.backoffs")
+            .description("GitHub responses that blocked a token").register(Metrics.globalRegistry);
+
+    @Value("${github.rate-limit.burst:100}")
+    private int burst;
+
+    @Value("${github.rate-limit.background-reserve:0.25}")
+    private double backgroundReserve;
+
+    @Value("${github.rate-limit.max-wait:PT30S}")
+    private Duration maxWait;
+
+    @Value("${github.rate-limit.background-max-wait:PT1H}")
+    private Duration backgroundMaxWait;
+
+    @Value("${github.rate-limit.secondary-backoff:PT60S}")
+    private Duration secondaryBackoff;
+
+    @Value("${github.rate-limit.max-retries:2}")
+    private int maxRetries;
+
+    private final Map<String, TokenState> tokens = new ConcurrentHashMap<>();
+
+    public enum Priority {
+        INTERACTIVE,
+        BACKGROUND
+    }
+
+    private class TokenState {
+        private double available = burst;
+        private long refilledAt = System.nanoTime();
+        private long remaining = -1;
+        private long resetAtMillis;
+        private long blockedUntilMillis;
+        private int consecutiveBackoffs;
+        private int interactiveWaiting;
+
+        // Requests per millisecond the remaining quota allows; unlimited until GitHub reports one
+        private double rate(long now) {
+            if (remaining < 0 || now >= resetAtMillis) {
+                return Double.POSITIVE_INFINITY;
+            }
+            return (double) remaining / Math.max(resetAtMillis - now, 1000);
+        }
+
+        private void refill(long now) {
+            long nanos = System.nanoTime();
+            double rate = rate(now);
+            available = Double.isInfinite(rate) ? burst : Math.min(burst, available + rate * (nanos - refilledAt) / 1_000_000.0);
+            refilledAt = nanos;
+        }
+    }
+
+    /**
+     * Runs {@code task} with its GitHub requests scheduled as background work.
+     */
+    public static <T> T inBackground(Callable<T> task) throws Exception {
+        Priority previous = currentPriority.get();
+        currentPriority.set(Priority.BACKGROUND);
+        try {
+            return task.call();
+        } finally {
+            currentPriority.set(previous);
+        }
+    }
+
+    public static Priority currentPriority() {
+        return currentPriority.get();
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * Blocks until a request for the token may be sent.
+     *
+     * @throws IllegalStateException if that would take longer than the priority's maximum wait
+     */
+    public void acquire(String authorization, Priority priority) {
+        TokenState state = tokens.computeIfAbsent(tokenHash(authorization), k -> new TokenState());
+        long deadline = System.currentTimeMillis() + (priority == Priority.INTERACTIVE ? maxWait : backgroundMaxWait).toMillis();
+        synchronized (state) {
+            if (priority == Priority.INTERACTIVE) {
+                state.interactiveWaiting++;
+            }
+            try {
+                while (true) {
+                    long now = System.currentTimeMillis();
+                    state.refill(now);
+                    long waitMillis;
+                    if (now < state.blockedUntilMillis) {
+                        waitMillis = state.blockedUntilMillis - now;
+                    } else if (state.remaining == 0 && now < state.resetAtMillis) {
+                        waitMillis = state.resetAtMillis - now;
+                    } else if (priority == Priority.BACKGROUND && state.interactiveWaiting > 0) {
+                        waitMillis = 50;
+                    } else {
+                        double needed = priority == Priority.BACKGROUND ? 1 + burst * backgroundReserve : 1;
+                        if (state.available >= needed) {
+                            state.available -= 1;
+                            return;
+                        }
+                        waitMillis = (long) Math.ceil((needed - state.available) / state.rate(now));
+                    }
+                    if (now + waitMillis > deadline) {
+                        throw new IllegalStateException("GitHub rate limit reached, retry after "
+                                + Instant.ofEpochMilli(now + waitMillis));
+                    }
+                    state.wait(Math.max(waitMillis, 1));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting for GitHub rate limit", e);
+            } finally {
+                if (priority == Priority.INTERACTIVE) {
+                    state.interactiveWaiting--;
+                    state.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Records the quota headers of a response. Returns how long the token is blocked if the
+     * response was rejected by a rate limit, or -1 otherwise.
+     */
+    public long onResponse(String authorization, int status, HttpHeaders headers) {
+        TokenState state = tokens.computeIfAbsent(tokenHash(authorization), k -> new TokenState());
+        long now = System.currentTimeMillis();
+        Long remaining = parseLong(headers.getFirst("X-RateLimit-Remaining"));
+        Long reset = parseLong(headers.getFirst("X-RateLimit-Reset"));
+        Long retryAfter = parseLong(headers.getFirst(HttpHeaders.RETRY_AFTER));
+        synchronized (state) {
+            if (remaining != null && reset != null) {
+                state.remaining = remaining;
+                state.resetAtMillis = reset * 1000;
+            }
+            boolean limited = status == 429 || (status == 403 && (retryAfter != null || Long.valueOf(0).equals(remaining)));
+            if (!limited) {
+                state.consecutiveBackoffs = 0;
+                return -1;
+            }
+            long delay;
+            if (retryAfter != null) {
+                delay = retryAfter * 1000;
+            } else if (state.remaining == 0 && state.resetAtMillis > now) {
+                delay = state.resetAtMillis - now;
+            } else {
+                delay = secondaryBackoff.toMillis() << Math.min(state.consecutiveBackoffs, 5);
+            }
+            state.consecutiveBackoffs++;
+            state.blockedUntilMillis = Math.max(state.blockedUntilMillis, now + delay);
+            state.notifyAll();
+            backoffs.increment();
+            logger.warn("GitHub rate limit hit (status {}), backing off for {} ms", status, delay);
+            return delay;
+        }
+    }
+
+    private static Long parseLong(String value) {
+        try {
+            return value != null ? Long.parseLong(value.trim()) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Tokens are never kept in memory longer than the request
+    static String tokenHash(String authorization) {
+        if (authorization == null) {
+            return "anonymous";
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(authorization.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
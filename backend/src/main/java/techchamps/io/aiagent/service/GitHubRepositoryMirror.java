@@ -0,0 +1,225 @@
+package techchamps.io.aiagent.service;
+
+import jakarta.annotation.PreDestroy;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.util.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Local bare clones of connected repositories ({@code github.mirror.enabled}), so file
+ * listings and contents are read from pack files on disk instead of the contents API.
+ *
+ * A repository is cloned on its first connect and fetched incrementally on every later
+ * one; reads always use the tree of {@code HEAD} as of the last sync. The token is only
+ * handed to the transport and never written to the clone's config. Clones are kept under
+ * {@code github.mirror.directory} as {@code owner/repo.git} and reopened after a restart.
+ *
+ * A clone is only read for tokens that synced it, recorded by hash in memory; any other
+ * token, including every token after a restart until it reconnects, goes to the API.
+ */
+@Component
+public class GitHubRepositoryMirror {
+
+    private static final Logger logger = LoggerFactory.getLogger(GitHubRepositoryMirror.class);
+
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_.-]+");
+
+    @Value("${github.mirror.enabled:false}")
+    private boolean enabled;
+
+    @Value("${github.mirror.directory:data/mirrors}")
+    private String directory;
+
+    // Formatted with owner and repository name
+    @Value("${github.mirror.clone-url:https://github.com/%s/%s.git}")
+    private String cloneUrl;
+
+    private final Map<String, Mirror> mirrors = new ConcurrentHashMap<>();
+
+    private static class Mirror {
+        private final Path gitDir;
+        // Hashes of the tokens that fetched into this clone
+        private final Set<String> tokens = ConcurrentHashMap.newKeySet();
+        private volatile Repository repository;
+        // Blob id of every file at HEAD as of the last sync, in tree order
+        private volatile Map<String, ObjectId> files;
+
+        Mirror(Path gitDir) {
+            this.gitDir = gitDir;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Clones the repository, or fetches into the existing clone, and moves reads to the new {@code HEAD}.
+     */
+    public void sync(String owner, String repo, String token) throws IOException, GitAPIException {
+        Mirror mirror = mirror(owner, repo);
+        CredentialsProvider credentials = token != null ? new UsernamePasswordCredentialsProvider("x-access-token", token) : null;
+        synchronized (mirror) {
+            open(mirror);
+            long start = System.nanoTime();
+            if (mirror.repository == null) {
+                Files.createDirectories(mirror.gitDir.getParent());
+                try {
+                    Git.cloneRepository()
+                        .setURI(String.format(cloneUrl, owner, repo))
+                        .setDirectory(mirror.gitDir.toFile())
+                        .setBare(true)
+                        .setCredentialsProvider(credentials)
+                        .call()
+                        .close();
+                } catch (GitAPIException | RuntimeException e) {
+                    FileUtils.delete(mirror.gitDir.toFile(), FileUtils.RECURSIVE | FileUtils.SKIP_MISSING);
+                    throw e;
+                }
+                open(mirror);
+                logger.info("Cloned {}/{} in {} ms", owner, repo, (System.nanoTime() - start) / 1_000_000);
+            } else {
+                Git.wrap(mirror.repository).fetch()
+                    .setRemote(Constants.DEFAULT_REMOTE_NAME)
+                    .setRefSpecs(new RefSpec("+refs/heads/*:refs/heads/*"))
+                    .setRemoveDeletedRefs(true)
+                    .setCredentialsProvider(credentials)
+                    .call();
+                logger.debug("Fetched {}/{} in {} ms", owner, repo, (System.nanoTime() - start) / 1_000_000);
+            }
+            mirror.files = index(mirror.repository);
+            mirror.tokens.add(GitHubRateLimiter.tokenHash(token));
+        }
+    }
+
+    /**
+     * True if the token's reads of the repository can be served from a clone it synced.
+     */
+    public boolean isMirrored(String owner, String repo, String token) {
+        if (!enabled) {
+            return false;
+        }
+        try {
+            Mirror mirror = mirror(owner, repo);
+            if (!mirror.tokens.contains(GitHubRateLimiter.tokenHash(token))) {
+                return false;
+            }
+            if (mirror.files == null) {
+                synchronized (mirror) {
+                    open(mirror);
+                    if (mirror.repository != null && mirror.files == null) {
+                        mirror.files = index(mirror.repository);
+                    }
+                }
+            }
+            return mirror.files != null;
+        } catch (IOException | IllegalArgumentException e) {
+            logger.warn("Could not open mirror of {}/{}: {}", owner, repo, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Blob SHA of every file at {@code HEAD} by path, in tree order.
+     */
+    public Map<String, String> listBlobs(String owner, String repo) {
+        Map<String, String> blobs = new LinkedHashMap<>();
+        mirrored(owner, repo).files.forEach((path, blob) -> blobs.put(path, blob.name()));
+        return blobs;
+    }
+
+    /**
+     * Writes the bytes of a file at {@code HEAD} to {@code out}, streaming large blobs
+     * from the pack instead of inflating them into one array.
+     *
+     * @return false if there is no such file
+     */
+    public boolean copyFile(String owner, String repo, String path, OutputStream out) throws IOException {
+        Mirror mirror = mirrored(owner, repo);
+        ObjectId blob = mirror.files.get(path);
+        if (blob == null) {
+            return false;
+        }
+        mirror.repository.open(blob, Constants.OBJ_BLOB).copyTo(out);
+        return true;
+    }
+
+    @PreDestroy
+    public void close() {
+        for (Mirror mirror : mirrors.values()) {
+            if (mirror.repository != null) {
+                mirror.repository.close();
+            }
+        }
+    }
+
+    private Mirror mirrored(String owner, String repo) {
+        Mirror mirror = mirror(owner, repo);
+        if (mirror.files == null) {
+            throw new IllegalStateException("Repository is not mirrored: " + owner + "/" + repo);
+        }
+        return mirror;
+    }
+
+    private Mirror mirror(String owner, String repo) {
+        // Both names become directory names
+        for (String name : new String[] {owner, repo}) {
+            if (!NAME.matcher(name).matches() || name.startsWith(".")) {
+                throw new IllegalArgumentException("Invalid repository name: " + owner + "/" + repo);
+            }
+        }
+        return mirrors.computeIfAbsent(owner + "/" + repo, key -> new Mirror(Path.of(directory, owner, repo + ".git")));
+    }
+
+    // Null for an empty repository
+    private static Map<String, ObjectId> index(Repository repository) throws IOException {
+        ObjectId headTree = repository.resolve(Constants.HEAD + "^{tree}");
+        if (headTree == null) {
+            return null;
+        }
+        Map<String, ObjectId> files = new LinkedHashMap<>();
+        try (TreeWalk walk = new TreeWalk(repository)) {
+            walk.addTree(headTree);
+            walk.setRecursive(true);
+            while (walk.next()) {
+                // Skips submodule entries
+                if (walk.getFileMode(0).getObjectType() == Constants.OBJ_BLOB) {
+                    files.put(walk.getPathString(), walk.getObjectId(0));
+                }
+            }
+        }
+        return Collections.unmodifiableMap(files);
+    }
+
+    private static void open(Mirror mirror) throws IOException {
+        if (mirror.repository == null && Files.isDirectory(mirror.gitDir.resolve("objects"))) {
+            mirror.repository = new FileRepositoryBuilder()
+                .setGitDir(mirror.gitDir.toFile())
+                .setMustExist(true)
+                .build();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package techchamps.io.aiagent.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Validators and bodies of GitHub API GET responses, used to turn repeated calls into
+ * conditional requests. A {@code 304 Not Modified} costs neither payload nor rate limit.
+ *
+ * Entries are keyed by URL and a hash of the caller's token. Responses GitHub marks
+ * {@code Cache-Control: public} are also kept under the URL alone so other users can
+ * revalidate against them; a cached body is only ever served after GitHub answered 304
+ * to the requesting user's own credentials, so sharing never exposes data a user
+ * could not fetch. Entries are evicted least-recently-used by total body size.
+ */
+@Component
+public class GitHubResponseCache {
+
+    // Response headers replayed with a cached body
+    private static final List<String> REPLAYED_HEADERS = List.of(
+            HttpHeaders.CONTENT_TYPE, HttpHeaders.ETAG, HttpHeaders.LAST_MODIFIED, HttpHeaders.LINK);
+
+    private static final Counter hits = Counter.builder("github.cache.requests").tag("result", "not-modified")
+            .description("GitHub API GETs answered from the cache after a 304").register(Metrics.globalRegistry);
+    private static final Counter misses = Counter.builder("github.cache.requests").tag("result", "miss")
+            .description("GitHub API GETs that transferred a body").register(Metrics.globalRegistry);
+
+    @Value("${github.cache.max-size:32MB}")
+    private DataSize maxSize;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes;
+
+    public record Entry(byte[] body, HttpHeaders headers) {
+
+        long weight() {
+            return body.length + 512L;
+        }
+    }
+
+    public synchronized Entry lookup(String url, String authorization) {
+        Entry entry = entries.get(userKey(url, authorization));
+        return entry != null ? entry : entries.get(sharedKey(url));
+    }
+
+    /**
+     * Adds {@code If-None-Match} / {@code If-Modified-Since} for a cached entry.
+     */
+    public void addConditions(Entry entry, HttpHeaders requestHeaders) {
+        if (entry.headers().getETag() != null) {
+            requestHeaders.set(HttpHeaders.IF_NONE_MATCH, entry.headers().getETag());
+        }
+        String lastModified = entry.headers().getFirst(HttpHeaders.LAST_MODIFIED);
+        if (lastModified != null) {
+            requestHeaders.set(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+        }
+    }
+
+    public void recordNotModified() {
+        hits.increment();
+    }
+
+    public void recordMiss() {
+        misses.increment();
+    }
+
+    /**
+     * Whether a 200 response could be stored: it carries a validator and, when the length
+     * is known up front, fits in the cache. Other responses need not be buffered at all.
+     */
+    public boolean isCacheable(HttpHeaders responseHeaders) {
+        if (responseHeaders.getETag() == null && responseHeaders.getFirst(HttpHeaders.LAST_MODIFIED) == null) {
+            return false;
+        }
+        long length = responseHeaders.getContentLength();
+        return length < 0 || length + 512L <= maxSize.toBytes();
+    }
+
+    /**
+     * Keeps a 200 response if it carries a validator. Returns false when it was not cached.
+     */
+    public boolean store(String url, String authorization, HttpHeaders responseHeaders, byte[] body) {
+        misses.increment();
+        if (responseHeaders.getETag() == null && responseHeaders.getFirst(HttpHeaders.LAST_MODIFIED) == null) {
+            return false;
+        }
+        HttpHeaders replayed = new HttpHeaders();
+        for (String name : REPLAYED_HEADERS) {
+            List<String> values = responseHeaders.get(name);
+            if (values != null) {
+                replayed.put(name, values);
+            }
+        }
+        Entry entry = new Entry(body, replayed);
+        if (entry.weight() > maxSize.toBytes()) {
+            return false;
+        }
+        String cacheControl = responseHeaders.getCacheControl();
+        boolean shared = cacheControl != null && cacheControl.contains("public");
+        synchronized (this) {
+            put(userKey(url, authorization), entry);
+            if (shared) {
+                put(sharedKey(url), entry);
+            }
+            evict();
+        }
+        return true;
+    }
+
+    public synchronized long size() {
+        return totalBytes;
+    }
+
+    private void put(String key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            totalBytes -= previous.weight();
+        }
+        totalBytes += entry.weight();
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxSize.toBytes() && iterator.hasNext()) {
+            totalBytes -= iterator.next().getValue().weight();
+            iterator.remove();
+        }
+    }
+
+    private static String sharedKey(String url) {
+        return "public " + url;
+    }
+
+    private static String userKey(String url, String authorization) {
+        return authorization != null ? GitHubRateLimiter.tokenHash(authorization) + " " + url : sharedKey(url);
+    }
+}
@@ -1,62 +1,165 @@
 package techchamps.io.aiagent.service;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.client.RestTemplate;
-import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import techchamps.io.aiagent.config.GitHubClientConfig;
 
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Service
 public class GitHubService {
 
-    private final RestTemplate restTemplate;
+    // One entry of a Link header: <url>; rel="next"
+    private static final Pattern LINK_RELATION = Pattern.compile("<([^>]+)>;\\s*rel=\"([^\"]+)\"");
+
+    // Sends GETs as conditional requests, see GitHubClientConfig
+    @Autowired
+    private RestTemplate gitHubRestTemplate;
+
+    // Streams raw file contents
+    @Autowired
+    private WebClient gitHubWebClient;
+
+    @Autowired
+    private GitHubRepositoryMirror repositoryMirror;
+
+    @Autowired
+    private GitHubBlobCache blobCache;
+
+    @Autowired
+    private CodeSearchIndex codeSearchIndex;
+
+    @Autowired
+    private CodeRetrievalIndex codeRetrievalIndex;
+
+    @Autowired
+    private GitHubIdentityCache identityCache;
+
     private final ObjectMapper objectMapper;
 
     @Value("${github.api.base-url:https://api.github.com}")
     private String githubApiBaseUrl;
 
+    @Value("${github.tree-walk.parallelism:8}")
+    private int treeWalkParallelism;
+
+    @Value("${github.file-fetch.concurrency:6}")
+    private int fileFetchConcurrency;
+
+    @Value("${github.file-fetch.timeout:PT10S}")
+    private Duration fileFetchTimeout;
+
+    @Value("${github.repository-listing.concurrency:4}")
+    private int repositoryListingConcurrency;
+
+    @Value("${code-search.index-api-repositories:false}")
+    private boolean indexApiRepositories;
+
+    @Value("${code-search.max-api-files:500}")
+    private int codeSearchMaxApiFiles;
+
+    @Value("${github.file-content.max-size:10MB}")
+    private DataSize fileMaxSize;
+
+    @Value("${github.file-content.memory-threshold:1MB}")
+    private DataSize fileMemoryThreshold;
+
+    @Value("${github.file-content.temp-directory:${java.io.tmpdir}}")
+    private String fileTempDirectory;
+
+    private ExecutorService treeWalkExecutor;
+
+    // Blob SHA of each file from the last listing, per token and repository
+    private final Map<String, Map<String, String>> blobShas = Collections.synchronizedMap(
+        new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Map<String, String>> eldest) {
+                return size() > 256;
+            }
+        });
+
+    public record RepositoryFile(String path, GitHubFileContent content) {
+    }
+
+    public record RepositorySummary(long id, String name, String fullName, String description, boolean isPrivate,
+                                    String htmlUrl, String cloneUrl, String language, String updatedAt) {
+    }
+
+    private record Tree(boolean truncated, List<TreeEntry> entries) {
+    }
+
+    private record TreeEntry(String path, String type, String sha) {
+    }
+
+    @FunctionalInterface
+    private interface JsonReader<T> {
+        T read(JsonParser parser, HttpHeaders headers) throws IOException;
+    }
+
     public GitHubService() {
-        this.restTemplate = new RestTemplate();
         this.objectMapper = new ObjectMapper();
     }
 
+    @PostConstruct
+    public void init() {
+        treeWalkExecutor = Executors.newFixedThreadPool(treeWalkParallelism, r -> {
+            Thread thread = new Thread(r, "github-tree-walk");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        treeWalkExecutor.shutdownNow();
+    }
+
     public Map<String, Object> authenticateUser(String personalAccessToken) {
         Map<String, Object> result = new HashMap<>();
         
         try {
-            // Create headers with the token
-            HttpHeaders headers = new HttpHeaders();
-            headers.set("Authorization", "token " + personalAccessToken);
-            headers.set("Accept", "application/vnd.github.v3+json");
+            String authorization = "token " + personalAccessToken;
             
-            HttpEntity<String> entity = new HttpEntity<>(headers);
+            GitHubIdentityCache.Identity identity = identityCache.lookup(authorization);
+            if (identity != null) {
+                return authenticated(identity);
+            }
             
             // Get user information from GitHub API
-            ResponseEntity<String> response = restTemplate.exchange(
-                githubApiBaseUrl + "/user",
-                HttpMethod.GET,
-                entity,
-                String.class
-            );
+            identity = getJson(githubApiBaseUrl + "/user", personalAccessToken, GitHubService::readIdentity);
+            identityCache.store(authorization, identity);
             
-            if (response.getStatusCode() == HttpStatus.OK) {
-                JsonNode userData = objectMapper.readTree(response.getBody());
-                
-                result.put("success", true);
-                result.put("username", userData.get("login").asText());
-                result.put("name", userData.get("name").asText());
-                result.put("id", userData.get("id").asLong());
-                result.put("avatar_url", userData.get("avatar_url").asText());
-                
-                return result;
-            } else {
-                result.put("success", false);
-                result.put("error", "Authentication failed: " + response.getStatusCode());
-                return result;
-            }
+            return authenticated(identity);
             
         } catch (Exception e) {
             result.put("success", false);
@@ -65,52 +168,25 @@ public class GitHubService {
         }
     }
 
+    private static Map<String, Object> authenticated(GitHubIdentityCache.Identity identity) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("username", identity.login());
+        result.put("name", identity.name());
+        result.put("id", identity.id());
+        result.put("avatar_url", identity.avatarUrl());
+        result.put("scopes", identity.scopes());
+        return result;
+    }
+
     public Map<String, Object> getUserRepositories(String personalAccessToken) {
         Map<String, Object> result = new HashMap<>();
         
         try {
-            // Create headers with the token
-            HttpHeaders headers = new HttpHeaders();
-            headers.set("Authorization", "token " + personalAccessToken);
-            headers.set("Accept", "application/vnd.github.v3+json");
-            
-            HttpEntity<String> entity = new HttpEntity<>(headers);
-            
-            // Get user repositories from GitHub API
-            ResponseEntity<String> response = restTemplate.exchange(
-                githubApiBaseUrl + "/user/repos?sort=updated&per_page=100",
-                HttpMethod.GET,
-                entity,
-                String.class
-            );
-            
-            if (response.getStatusCode() == HttpStatus.OK) {
-                JsonNode reposData = objectMapper.readTree(response.getBody());
-                List<Map<String, Object>> repositories = new ArrayList<>();
-                
-                for (JsonNode repo : reposData) {
-                    Map<String, Object> repoInfo = new HashMap<>();
-                    repoInfo.put("name", repo.get("name").asText());
-                    repoInfo.put("full_name", repo.get("full_name").asText());
-                    repoInfo.put("description", repo.get("description") != null ? repo.get("description").asText() : "");
-                    repoInfo.put("private", repo.get("private").asBoolean());
-                    repoInfo.put("html_url", repo.get("html_url").asText());
-                    repoInfo.put("clone_url", repo.get("clone_url").asText());
-                    repoInfo.put("language", repo.get("language") != null ? repo.get("language").asText() : "Unknown");
-                    repoInfo.put("updated_at", repo.get("updated_at").asText());
-                    
-                    repositories.add(repoInfo);
-                }
-                
-                result.put("success", true);
-                result.put("repositories", repositories);
-                return result;
-            } else {
-                result.put("success", false);
-                result.put("error", "Failed to fetch repositories: " + response.getStatusCode());
-                return result;
-            }
-            
+            List<Map<String, Object>> repositories = streamUserRepositories(personalAccessToken).collectList().block();
+            result.put("success", true);
+            result.put("repositories", repositories);
+            return result;
         } catch (Exception e) {
             result.put("success", false);
             result.put("error", "Failed to fetch repositories: " + e.getMessage());
@@ -118,6 +194,82 @@ public class GitHubService {
         }
     }
 
+    /**
+     * Every repository the token can access, including those of the user's organizations,
+     * most recently updated first and emitted page by page as they arrive.
+     */
+    public Flux<Map<String, Object>> streamUserRepositories(String personalAccessToken) {
+        return streamRepositories(personalAccessToken,
+                "/user/repos?sort=updated&affiliation=owner,collaborator,organization_member&per_page=100")
+            .map(repo -> {
+                Map<String, Object> repoInfo = new LinkedHashMap<>();
+                repoInfo.put("id", repo.id());
+                repoInfo.put("name", repo.name());
+                repoInfo.put("full_name", repo.fullName());
+                repoInfo.put("description", repo.description() != null ? repo.description() : "");
+                repoInfo.put("private", repo.isPrivate());
+                repoInfo.put("html_url", repo.htmlUrl());
+                repoInfo.put("clone_url", repo.cloneUrl());
+                repoInfo.put("language", repo.language() != null ? repo.language() : "Unknown");
+                repoInfo.put("updated_at", repo.updatedAt());
+                return repoInfo;
+            })
+            // A repository updated between page requests can move onto a later page
+            .distinct(repoInfo -> repoInfo.get("full_name"));
+    }
+
+    /**
+     * All pages of a repository listing ({@code path} is relative to the API base URL).
+     * Pages follow the {@code Link} header: once the first page names the last one, the
+     * others are fetched with up to {@code github.repository-listing.concurrency} in flight
+     * and emitted in page order; without a last page the {@code next} links are followed.
+     */
+    public Flux<RepositorySummary> streamRepositories(String personalAccessToken, String path) {
+        return fetchRepositoryPage(personalAccessToken, githubApiBaseUrl + path)
+            .flatMapMany(first -> {
+                Flux<RepositoryPage> pages;
+                String last = first.links().get("last");
+                if (last != null) {
+                    UriComponents lastPage = UriComponentsBuilder.fromUriString(last).build();
+                    int pageCount = Integer.parseInt(lastPage.getQueryParams().getFirst("page"));
+                    pages = Flux.concat(Mono.just(first), Flux.range(2, Math.max(0, pageCount - 1))
+                        .flatMapSequential(page -> fetchRepositoryPage(personalAccessToken,
+                                UriComponentsBuilder.newInstance().uriComponents(lastPage)
+                                    .replaceQueryParam("page", page).build().toUriString()),
+                            repositoryListingConcurrency));
+                } else {
+                    pages = Mono.just(first).expand(page -> page.links().containsKey("next")
+                        ? fetchRepositoryPage(personalAccessToken, page.links().get("next"))
+                        : Mono.empty());
+                }
+                return pages.concatMapIterable(RepositoryPage::repositories);
+            });
+    }
+
+    private record RepositoryPage(List<RepositorySummary> repositories, Map<String, String> links) {
+    }
+
+    private Mono<RepositoryPage> fetchRepositoryPage(String personalAccessToken, String url) {
+        // The URL is already encoded, either built here or taken from a Link header
+        return Mono.fromCallable(() -> getJson(URI.create(url), personalAccessToken, (parser, headers) -> {
+            List<RepositorySummary> repositories = new ArrayList<>();
+            if (parser.nextToken() == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    repositories.add(readRepository(parser));
+                }
+            }
+            Map<String, String> links = new HashMap<>();
+            String link = headers.getFirst(HttpHeaders.LINK);
+            if (link != null) {
+                Matcher matcher = LINK_RELATION.matcher(link);
+                while (matcher.find()) {
+                    links.put(matcher.group(2), matcher.group(1));
+                }
+            }
+            return new RepositoryPage(repositories, links);
+        })).subscribeOn(Schedulers.boundedElastic());
+    }
+
     public Map<String, Object> connectToRepository(String personalAccessToken, String repositoryUrl) {
         Map<String, Object> result = new HashMap<>();
         
@@ -133,38 +285,31 @@ public class GitHubService {
             String owner = urlParts[0];
             String repo = urlParts[1];
             
-            // Create headers with the token
-            HttpHeaders headers = new HttpHeaders();
-            headers.set("Authorization", "token " + personalAccessToken);
-            headers.set("Accept", "application/vnd.github.v3+json");
-            
-            HttpEntity<String> entity = new HttpEntity<>(headers);
-            
-            // Get repository contents
-            ResponseEntity<String> response = restTemplate.exchange(
-                githubApiBaseUrl + "/repos/" + owner + "/" + repo + "/contents",
-                HttpMethod.GET,
-                entity,
-                String.class
-            );
+            List<String> files = null;
+            if (repositoryMirror.isEnabled()) {
+                files = listMirroredFiles(owner, repo, personalAccessToken);
+            }
+            if (files == null) {
+                // One recursive tree listing instead of a /contents request per directory
+                files = listFiles(owner, repo, personalAccessToken);
+            }
             
-            if (response.getStatusCode() == HttpStatus.OK) {
-                JsonNode contentsData = objectMapper.readTree(response.getBody());
-                List<String> files = new ArrayList<>();
-                
-                // Recursively get all files
-                extractFiles(contentsData, files, owner, repo, personalAccessToken, "");
-                
-                result.put("success", true);
-                result.put("files", files);
-                result.put("repository", owner + "/" + repo);
-                return result;
-            } else {
-                result.put("success", false);
-                result.put("error", "Failed to connect to repository: " + response.getStatusCode());
-                return result;
+            // Without a local clone every indexed file costs an API call, so that is opt-in
+            Map<String, String> shas = blobShas.get(blobShasKey(owner, repo, personalAccessToken));
+            boolean indexable = repositoryMirror.isMirrored(owner, repo, personalAccessToken)
+                || (indexApiRepositories && shas != null && shas.size() <= codeSearchMaxApiFiles);
+            if (shas != null && indexable) {
+                codeSearchIndex.update(owner + "/" + repo, personalAccessToken, shas,
+                    path -> openFile(personalAccessToken, repositoryUrl, path));
+                codeRetrievalIndex.update(owner + "/" + repo, personalAccessToken, shas,
+                    path -> openFile(personalAccessToken, repositoryUrl, path));
             }
             
+            result.put("success", true);
+            result.put("files", files);
+            result.put("repository", owner + "/" + repo);
+            return result;
+            
         } catch (Exception e) {
             result.put("success", false);
             result.put("error", "Failed to connect to repository: " + e.getMessage());
@@ -172,43 +317,122 @@ public class GitHubService {
         }
     }
 
-    private void extractFiles(JsonNode contents, List<String> files, String owner, String repo, String token, String path) {
-        for (JsonNode item : contents) {
-            String name = item.get("name").asText();
-            String type = item.get("type").asText();
-            String currentPath = path.isEmpty() ? name : path + "/" + name;
-            
-            if ("file".equals(type)) {
-                // Only include common code files
-                if (isCodeFile(name)) {
-                    files.add(currentPath);
+    // Syncs the local clone and lists from it; null if the mirror is unavailable
+    private List<String> listMirroredFiles(String owner, String repo, String token) {
+        try {
+            repositoryMirror.sync(owner, repo, token);
+            List<String> files = new ArrayList<>();
+            Map<String, String> shas = new HashMap<>();
+            for (Map.Entry<String, String> blob : repositoryMirror.listBlobs(owner, repo).entrySet()) {
+                String path = blob.getKey();
+                if (isCodeFile(path.substring(path.lastIndexOf('/') + 1))) {
+                    files.add(path);
+                    shas.put(path, blob.getValue());
                 }
-            } else if ("dir".equals(type)) {
-                // Recursively get contents of subdirectories
+            }
+            blobShas.put(blobShasKey(owner, repo, token), shas);
+            return files;
+        } catch (Exception e) {
+            System.err.println("Could not mirror repository: " + owner + "/" + repo + " - " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Lists the code files of the default branch with the git trees API. A single
+     * {@code recursive=1} call covers most repositories; when GitHub truncates the
+     * listing, subtrees are listed level by level with at most
+     * {@code github.tree-walk.parallelism} requests in flight.
+     */
+    private List<String> listFiles(String owner, String repo, String token) throws Exception {
+        String treesUrl = githubApiBaseUrl + "/repos/" + owner + "/" + repo + "/git/trees/";
+        Tree root = getTree(treesUrl + "HEAD?recursive=1", token);
+        List<String> files = new ArrayList<>();
+        Map<String, String> shas = new ConcurrentHashMap<>();
+        blobShas.put(blobShasKey(owner, repo, token), shas);
+        if (!root.truncated()) {
+            collectFiles(root, "", files, shas, null);
+            return files;
+        }
+        
+        List<String[]> level = new ArrayList<>();
+        collectFiles(getTree(treesUrl + "HEAD", token), "", files, shas, level);
+        while (!level.isEmpty()) {
+            List<Callable<List<String[]>>> tasks = new ArrayList<>();
+            List<List<String>> found = new ArrayList<>();
+            for (String[] subtree : level) {
+                List<String> subtreeFiles = new ArrayList<>();
+                found.add(subtreeFiles);
+                tasks.add(() -> walkSubtree(treesUrl, subtree[0], subtree[1], token, subtreeFiles, shas));
+            }
+            List<String[]> next = new ArrayList<>();
+            List<Future<List<String[]>>> results = treeWalkExecutor.invokeAll(tasks);
+            for (int i = 0; i < results.size(); i++) {
+                files.addAll(found.get(i));
                 try {
-                    HttpHeaders headers = new HttpHeaders();
-                    headers.set("Authorization", "token " + token);
-                    headers.set("Accept", "application/vnd.github.v3+json");
-                    
-                    HttpEntity<String> entity = new HttpEntity<>(headers);
-                    
-                    ResponseEntity<String> response = restTemplate.exchange(
-                        githubApiBaseUrl + "/repos/" + owner + "/" + repo + "/contents/" + currentPath,
-                        HttpMethod.GET,
-                        entity,
-                        String.class
-                    );
-                    
-                    if (response.getStatusCode() == HttpStatus.OK) {
-                        JsonNode subContents = objectMapper.readTree(response.getBody());
-                        extractFiles(subContents, files, owner, repo, token, currentPath);
-                    }
-                } catch (Exception e) {
-                    // Skip directories that can't be accessed
-                    System.err.println("Could not access directory: " + currentPath + " - " + e.getMessage());
+                    next.addAll(results.get(i).get());
+                } catch (ExecutionException e) {
+                    // Skip subtrees that can't be accessed
+                    System.err.println("Could not access directory: " + level.get(i)[0] + " - " + e.getCause().getMessage());
                 }
             }
+            level = next;
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    // Returns the subtrees that still have to be listed because this one was truncated too
+    private List<String[]> walkSubtree(String treesUrl, String path, String sha, String token, List<String> files,
+                                       Map<String, String> shas) throws Exception {
+        Tree tree = getTree(treesUrl + sha + "?recursive=1", token);
+        if (!tree.truncated()) {
+            collectFiles(tree, path + "/", files, shas, null);
+            return List.of();
         }
+        List<String[]> subtrees = new ArrayList<>();
+        collectFiles(getTree(treesUrl + sha, token), path + "/", files, shas, subtrees);
+        return subtrees;
+    }
+
+    private void collectFiles(Tree tree, String prefix, List<String> files, Map<String, String> shas, List<String[]> subtrees) {
+        for (TreeEntry item : tree.entries()) {
+            String path = prefix + item.path();
+            if ("blob".equals(item.type())) {
+                // Only include common code files
+                if (isCodeFile(path.substring(path.lastIndexOf('/') + 1))) {
+                    files.add(path);
+                    shas.put(path, item.sha());
+                }
+            } else if ("tree".equals(item.type()) && subtrees != null) {
+                subtrees.add(new String[] {path, item.sha()});
+            }
+        }
+    }
+
+    private Tree getTree(String url, String token) {
+        return getJson(url, token, (parser, headers) -> {
+            boolean truncated = false;
+            List<TreeEntry> entries = new ArrayList<>();
+            parser.nextToken();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                if (parser.nextToken() == JsonToken.START_ARRAY && "tree".equals(field)) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        entries.add(readTreeEntry(parser));
+                    }
+                } else if ("truncated".equals(field)) {
+                    truncated = parser.getValueAsBoolean();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return new Tree(truncated, entries);
+        });
+    }
+
+    private static String blobShasKey(String owner, String repo, String token) {
+        return GitHubRateLimiter.tokenHash(token) + " " + owner + "/" + repo;
     }
 
     private boolean isCodeFile(String fileName) {
@@ -246,49 +470,231 @@ public class GitHubService {
         return false;
     }
 
+    /**
+     * Fetches several files with at most {@code github.file-fetch.concurrency} in flight and
+     * emits each as soon as it arrives, so callers can start on the first files before the
+     * slowest one returns. Files that are missing, too large or exceed
+     * {@code github.file-fetch.timeout} are skipped; a timeout cancels the download.
+     */
+    public Flux<RepositoryFile> fetchFiles(String personalAccessToken, String repositoryUrl, List<String> filePaths) {
+        return Flux.fromIterable(filePaths)
+            .flatMap(path -> loadFile(personalAccessToken, repositoryUrl, path)
+                .timeout(fileFetchTimeout)
+                .map(content -> new RepositoryFile(path, content))
+                .onErrorResume(e -> {
+                    System.err.println("Could not fetch file: " + path + " - " + e.getMessage());
+                    return Mono.empty();
+                }), fileFetchConcurrency);
+    }
+
+    /**
+     * The text of a file, or null if it is missing, binary or larger than
+     * {@code github.file-content.max-size}.
+     */
     public String getFileContent(String personalAccessToken, String repositoryUrl, String filePath) {
+        GitHubFileContent content = openFile(personalAccessToken, repositoryUrl, filePath);
+        return content == null || content.isBinary() ? null : content.text();
+    }
+
+    /**
+     * The bytes of a file, or null if it is missing or larger than {@code github.file-content.max-size}.
+     * Files are fetched with the raw media type, so unlike the JSON contents API there is no
+     * 1 MB limit and no base64 copy; past {@code github.file-content.memory-threshold} the
+     * bytes are spooled to a memory-mapped temp file instead of the heap.
+     */
+    public GitHubFileContent openFile(String personalAccessToken, String repositoryUrl, String filePath) {
         try {
-            // Extract owner and repo name from URL
-            String[] urlParts = repositoryUrl.replace("https://github.com/", "").split("/");
-            if (urlParts.length < 2) {
-                return null;
-            }
-            
-            String owner = urlParts[0];
-            String repo = urlParts[1];
-            
-            // Create headers with the token
-            HttpHeaders headers = new HttpHeaders();
-            headers.set("Authorization", "token " + personalAccessToken);
-            headers.set("Accept", "application/vnd.github.v3+json");
-            
-            HttpEntity<String> entity = new HttpEntity<>(headers);
-            
-            // Get file content
-            ResponseEntity<String> response = restTemplate.exchange(
-                githubApiBaseUrl + "/repos/" + owner + "/" + repo + "/contents/" + filePath,
-                HttpMethod.GET,
-                entity,
-                String.class
-            );
-            
-            if (response.getStatusCode() == HttpStatus.OK) {
-                JsonNode fileData = objectMapper.readTree(response.getBody());
-                String content = fileData.get("content").asText();
-                String encoding = fileData.get("encoding").asText();
-                
-                if ("base64".equals(encoding)) {
-                    return new String(java.util.Base64.getDecoder().decode(content));
-                } else {
-                    return content;
-                }
-            }
-            
-            return null;
-            
+            return loadFile(personalAccessToken, repositoryUrl, filePath).block();
         } catch (Exception e) {
             System.err.println("Error getting file content: " + e.getMessage());
             return null;
         }
     }
-} 
\ No newline at end of file
+
+    // Empty if the file is missing; the local mirror and blob cache are read on a worker thread
+    private Mono<GitHubFileContent> loadFile(String personalAccessToken, String repositoryUrl, String filePath) {
+        // Extract owner and repo name from URL
+        String[] urlParts = repositoryUrl.replace("https://github.com/", "").split("/");
+        if (urlParts.length < 2) {
+            return Mono.empty();
+        }
+        
+        String owner = urlParts[0];
+        String repo = urlParts[1];
+        
+        // The chain continues on other threads, so the caller's rate-limit priority is captured here
+        GitHubRateLimiter.Priority priority = GitHubRateLimiter.currentPriority();
+        Mono<GitHubFileContent> download = Mono.defer(() -> downloadFile(owner, repo, personalAccessToken, filePath, priority));
+        return Mono.fromCallable(() -> repositoryMirror.isMirrored(owner, repo, personalAccessToken))
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(mirrored -> !mirrored ? download : Mono.fromCallable(() -> {
+                    GitHubFileContent.Spool spool = spool();
+                    try {
+                        if (!repositoryMirror.copyFile(owner, repo, filePath, spool)) {
+                            spool.discard();
+                            return null;
+                        }
+                        return spool.finish();
+                    } catch (Exception e) {
+                        spool.discard();
+                        throw e;
+                    }
+                })
+                .onErrorResume(e -> {
+                    System.err.println("Could not read mirrored file: " + filePath + " - " + e.getMessage());
+                    return download;
+                }));
+    }
+
+    private Mono<GitHubFileContent> downloadFile(String owner, String repo, String personalAccessToken, String filePath,
+                                                 GitHubRateLimiter.Priority priority) {
+        // Blobs are immutable, so a file whose SHA is known from the listing never needs a refetch
+        String sha = blobShas.getOrDefault(blobShasKey(owner, repo, personalAccessToken), Map.of()).get(filePath);
+        if (sha != null) {
+            ByteBuffer cached = blobCache.get(sha);
+            if (cached != null) {
+                return Mono.just(GitHubFileContent.of(cached));
+            }
+        }
+        
+        String uri = sha != null
+            ? "/repos/" + owner + "/" + repo + "/git/blobs/" + sha
+            : "/repos/" + owner + "/" + repo + "/contents/" + filePath;
+        // Nothing blocks on the exchange, so cancelling the subscription (a timeout) aborts the download
+        return Mono.using(this::spool, spool -> {
+                Flux<DataBuffer> body = gitHubWebClient.get()
+                    .uri(uri)
+                    .header("Authorization", "token " + personalAccessToken)
+                    .header("Accept", "application/vnd.github.raw")
+                    .attribute(GitHubClientConfig.UNCACHED_ATTRIBUTE, true)
+                    .attribute(GitHubClientConfig.PRIORITY_ATTRIBUTE, priority)
+                    .retrieve()
+                    .bodyToFlux(DataBuffer.class)
+                    // The spool may write to disk, which must not happen on an event loop
+                    .publishOn(Schedulers.boundedElastic());
+                return DataBufferUtils.write(body, spool).map(DataBufferUtils::release).then(Mono.fromCallable(spool::finish));
+            }, spool -> {
+                // Also runs after finish(), which has already mapped and deleted any temp file
+                try {
+                    spool.discard();
+                } catch (IOException e) {
+                    System.err.println("Could not delete spooled file: " + e.getMessage());
+                }
+            })
+            .doOnNext(content -> {
+                // Spooled files would take a large share of the cache
+                if (sha != null && content.size() <= fileMemoryThreshold.toBytes()) {
+                    blobCache.put(sha, content.asByteBuffer());
+                }
+            });
+    }
+
+    private GitHubFileContent.Spool spool() {
+        return GitHubFileContent.spool(fileMaxSize.toBytes(), fileMemoryThreshold.toBytes(), Path.of(fileTempDirectory));
+    }
+
+    /**
+     * GETs a GitHub API resource and reads the body with a streaming parser, so only the
+     * fields a reader picks out are materialized instead of a String and a JsonNode tree
+     * of the whole response.
+     */
+    private <T> T getJson(String url, String token, JsonReader<T> reader) {
+        return getJson(gitHubRestTemplate.getUriTemplateHandler().expand(url), token, reader);
+    }
+
+    private <T> T getJson(URI uri, String token, JsonReader<T> reader) {
+        return gitHubRestTemplate.execute(uri, HttpMethod.GET, request -> {
+            request.getHeaders().set("Authorization", "token " + token);
+            request.getHeaders().set("Accept", "application/vnd.github.v3+json");
+        }, response -> {
+            try (JsonParser parser = objectMapper.getFactory().createParser(response.getBody())) {
+                return reader.read(parser, response.getHeaders());
+            }
+        });
+    }
+
+    private static GitHubIdentityCache.Identity readIdentity(JsonParser parser, HttpHeaders headers) throws IOException {
+        String login = null;
+        long id = 0;
+        String name = null;
+        String avatarUrl = null;
+        parser.nextToken();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("login".equals(field)) {
+                login = parser.getValueAsString();
+            } else if ("id".equals(field)) {
+                id = parser.getValueAsLong();
+            } else if ("name".equals(field)) {
+                name = parser.getValueAsString();
+            } else if ("avatar_url".equals(field)) {
+                avatarUrl = parser.getValueAsString();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new GitHubIdentityCache.Identity(login, id, name, avatarUrl,
+            GitHubIdentityCache.parseScopes(headers.getFirst(GitHubIdentityCache.SCOPES_HEADER)));
+    }
+
+    // The parser is on the START_OBJECT of one repository
+    private static RepositorySummary readRepository(JsonParser parser) throws IOException {
+        long id = 0;
+        String name = null;
+        String fullName = null;
+        String description = null;
+        boolean isPrivate = false;
+        String htmlUrl = null;
+        String cloneUrl = null;
+        String language = null;
+        String updatedAt = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("id".equals(field)) {
+                id = parser.getValueAsLong();
+            } else if ("name".equals(field)) {
+                name = parser.getValueAsString();
+            } else if ("full_name".equals(field)) {
+                fullName = parser.getValueAsString();
+            } else if ("description".equals(field)) {
+                description = parser.getValueAsString();
+            } else if ("private".equals(field)) {
+                isPrivate = parser.getValueAsBoolean();
+            } else if ("html_url".equals(field)) {
+                htmlUrl = parser.getValueAsString();
+            } else if ("clone_url".equals(field)) {
+                cloneUrl = parser.getValueAsString();
+            } else if ("language".equals(field)) {
+                language = parser.getValueAsString();
+            } else if ("updated_at".equals(field)) {
+                updatedAt = parser.getValueAsString();
+            } else {
+                // Owner, permissions and the rest
+                parser.skipChildren();
+            }
+        }
+        return new RepositorySummary(id, name, fullName, description, isPrivate, htmlUrl, cloneUrl, language, updatedAt);
+    }
+
+    private static TreeEntry readTreeEntry(JsonParser parser) throws IOException {
+        String path = null;
+        String type = null;
+        String sha = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("path".equals(field)) {
+                path = parser.getValueAsString();
+            } else if ("type".equals(field)) {
+                type = parser.getValueAsString();
+            } else if ("sha".equals(field)) {
+                sha = parser.getValueAsString();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new TreeEntry(path, type, sha);
+    }
+}
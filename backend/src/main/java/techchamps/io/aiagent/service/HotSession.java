@@ -0,0 +1,118 @@
+package techchamps.io.aiagent.service;
+
+import techchamps.io.aiagent.model.ChatMessage;
+import techchamps.io.aiagent.model.ChatSession;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Cached view of an active session: its metadata, its message sequence counter and a
+ * ring buffer holding the most recent messages. The buffer is "complete" when it holds
+ * the entire history.
+ */
+class HotSession {
+
+    private final ChatSession session;
+    private final int capacity;
+    private final ArrayDeque<ChatMessage> recent;
+    private boolean complete;
+    private long version;
+    private long lastSequence = -1;
+    // Sequence of the newest appended message, which may not be committed yet
+    private long appendedSequence = -1;
+    private volatile long lastAccessNanos;
+
+    HotSession(ChatSession session, int capacity, boolean complete) {
+        this.session = session;
+        this.capacity = capacity;
+        this.recent = new ArrayDeque<>(capacity);
+        this.complete = complete;
+        touch();
+    }
+
+    ChatSession getSession() {
+        return session;
+    }
+
+    void touch() {
+        this.lastAccessNanos = System.nanoTime();
+    }
+
+    long getLastAccessNanos() {
+        return lastAccessNanos;
+    }
+
+    synchronized long version() {
+        return version;
+    }
+
+    /**
+     * Allocates the next message sequence. Callers must hold the session's lock; the
+     * counter starts from the stored maximum the first time it is used.
+     */
+    synchronized long nextSequence(LongSupplier storedMax) {
+        if (lastSequence < 0) {
+            lastSequence = storedMax.getAsLong();
+        }
+        return ++lastSequence;
+    }
+
+    synchronized void append(ChatMessage message) {
+        if (recent.size() == capacity) {
+            recent.pollFirst();
+            complete = false;
+        }
+        recent.addLast(message);
+        appendedSequence = message.getSequence();
+        version++;
+    }
+
+    /**
+     * Replaces the buffer with messages read from the database, unless an append
+     * happened since {@code expectedVersion} was read or the read missed an appended
+     * message whose transaction had not committed yet.
+     */
+    synchronized void seed(List<ChatMessage> ordered, boolean fullHistory, long expectedVersion) {
+        if (version != expectedVersion) {
+            return;
+        }
+        if (appendedSequence >= 0 && (ordered.isEmpty() || ordered.get(ordered.size() - 1).getSequence() < appendedSequence)) {
+            return;
+        }
+        recent.clear();
+        int from = Math.max(0, ordered.size() - capacity);
+        for (int i = from; i < ordered.size(); i++) {
+            recent.addLast(ordered.get(i));
+        }
+        complete = fullHistory && from == 0;
+    }
+
+    /**
+     * Returns the last {@code limit} messages in chronological order, or null when
+     * the buffer cannot answer without a database read.
+     */
+    synchronized List<ChatMessage> recent(int limit) {
+        if (limit > recent.size() && !complete) {
+            return null;
+        }
+        List<ChatMessage> result = new ArrayList<>(Math.min(limit, recent.size()));
+        int skip = Math.max(0, recent.size() - limit);
+        for (ChatMessage message : recent) {
+            if (skip-- > 0) {
+                continue;
+            }
+            result.add(message);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the full history when the buffer holds all of it, otherwise null.
+     */
+    synchronized List<ChatMessage> all() {
+        return complete ? new ArrayList<>(recent) : null;
+    }
+}
@@ -0,0 +1,636 @@
+package techchamps.io.aiagent.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import techchamps.io.aiagent.model.ChatMessage;
+import techchamps.io.aiagent.model.ChatSession;
+import techchamps.io.aiagent.storage.SessionJournal;
+import techchamps.io.aiagent.storage.SessionJournal.Location;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Session store on an append-only {@link SessionJournal}, for write-heavy deployments
+ * ({@code chat.store.type=journal}).
+ *
+ * The journal holds three record types: a full session snapshot on every metadata
+ * change, one record per message, and a tombstone per deleted session. An in-memory
+ * index keeps each session's metadata and the journal location of each of its messages;
+ * message bodies are decoded from the mapped segments on read. On startup the index is
+ * rebuilt by replaying the journal. Segments whose live bytes drop below
+ * {@code compaction-threshold} are compacted by re-appending their live records and
+ * deleting the file; readers hold {@code segmentLock} for reading so a segment is never
+ * deleted under a location they already resolved.
+ */
+@Component
+@ConditionalOnProperty(name = "chat.store.type", havingValue = "journal")
+public class JournalSessionStore implements SessionStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(JournalSessionStore.class);
+
+    private static final byte SESSION = 1;
+    private static final byte MESSAGE = 2;
+    private static final byte DELETE = 3;
+
+    @Value("${chat.store.journal.directory:data/journal}")
+    private String directory;
+
+    @Value("${chat.store.journal.segment-size:64MB}")
+    private DataSize segmentSize;
+
+    @Value("${chat.store.journal.group-commit-interval:PT0.005S}")
+    private Duration groupCommitInterval;
+
+    @Value("${chat.store.journal.await-sync:true}")
+    private boolean awaitSync;
+
+    @Value("${chat.store.journal.compaction-threshold:0.5}")
+    private double compactionThreshold;
+
+    private final Map<String, SessionEntry> sessions = new ConcurrentHashMap<>();
+    private final Map<Integer, AtomicLong> liveBytes = new ConcurrentHashMap<>();
+    private final AtomicLong sessionIds = new AtomicLong();
+    private final AtomicLong messageIds = new AtomicLong();
+    private final ReadWriteLock segmentLock = new ReentrantReadWriteLock();
+
+    private SessionJournal journal;
+
+    private static class SessionEntry {
+        private ChatSession session;
+        private Location sessionRecord;
+        private LocalDateTime lastMessageAt;
+        private boolean deleted;
+        private final List<MessageRef> messages = new ArrayList<>();
+    }
+
+    private record MessageRef(long sequence, Location location) {
+    }
+
+    @PostConstruct
+    public void open() {
+        journal = new SessionJournal(Path.of(directory), (int) segmentSize.toBytes(), groupCommitInterval, this::replay);
+        // Messages whose session snapshot never made it to disk cannot be served
+        sessions.values().removeIf(entry -> {
+            if (entry.session == null) {
+                release(entry);
+                return true;
+            }
+            return false;
+        });
+        logger.info("Opened session journal in {} with {} sessions", directory, sessions.size());
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    @Override
+    public ChatSession createSession(ChatSession session) {
+        session.setId(sessionIds.incrementAndGet());
+        SessionEntry entry = new SessionEntry();
+        entry.session = copy(session);
+        Location location;
+        synchronized (entry) {
+            sessions.put(session.getSessionId(), entry);
+            location = writeSnapshot(entry);
+        }
+        awaitDurable(location);
+        return session;
+    }
+
+    @Override
+    public Optional<ChatSession> findSession(String sessionId) {
+        SessionEntry entry = sessions.get(sessionId);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        synchronized (entry) {
+            return entry.deleted ? Optional.empty() : Optional.of(copy(entry.session));
+        }
+    }
+
+    @Override
+    public List<ChatSession> findAllSessions() {
+        List<ChatSession> result = new ArrayList<>();
+        for (SessionEntry entry : sessions.values()) {
+            synchronized (entry) {
+                if (!entry.deleted) {
+                    result.add(copy(entry.session));
+                }
+            }
+        }
+        result.sort(Comparator.comparing(ChatSession::getUpdatedAt).reversed());
+        return result;
+    }
+
+    @Override
+    public List<ChatSession> searchSessions(String searchTerm) {
+        List<ChatSession> result = new ArrayList<>();
+        for (ChatSession session : findAllSessions()) {
+            if (session.getTitle().contains(searchTerm)
+                    || (session.getContext() != null && session.getContext().contains(searchTerm))) {
+                result.add(session);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void updateContext(ChatSession session, String context, LocalDateTime updatedAt) {
+        SessionEntry entry = entry(session.getSessionId());
+        Location location;
+        synchronized (entry) {
+            entry.session.setContext(context);
+            entry.session.setUpdatedAt(updatedAt);
+            location = writeSnapshot(entry);
+        }
+        awaitDurable(location);
+    }
+
+    @Override
+    public void updateTitle(ChatSession session, String title, LocalDateTime updatedAt) {
+        SessionEntry entry = entry(session.getSessionId());
+        Location location;
+        synchronized (entry) {
+            entry.session.setTitle(title);
+            entry.session.setUpdatedAt(updatedAt);
+            location = writeSnapshot(entry);
+        }
+        awaitDurable(location);
+    }
+
+    @Override
+    public void updateSummary(ChatSession session, String summary, Long summarizedSequence) {
+        SessionEntry entry = entry(session.getSessionId());
+        Location location;
+        synchronized (entry) {
+            entry.session.setSummary(summary);
+            entry.session.setSummarizedSequence(summarizedSequence);
+            location = writeSnapshot(entry);
+        }
+        awaitDurable(location);
+    }
+
+    @Override
+    public void touch(ChatSession session, LocalDateTime updatedAt) {
+        SessionEntry entry = entry(session.getSessionId());
+        Location location;
+        synchronized (entry) {
+            entry.session.setUpdatedAt(updatedAt);
+            location = writeSnapshot(entry);
+        }
+        awaitDurable(location);
+    }
+
+    @Override
+    public void appendMessage(ChatSession session, ChatMessage message) {
+        SessionEntry entry = entry(session.getSessionId());
+        Location location;
+        synchronized (entry) {
+            message.setId(messageIds.incrementAndGet());
+            location = append(MESSAGE, encodeMessage(session.getSessionId(), message));
+            putMessage(entry, new MessageRef(message.getSequence(), location));
+            // No snapshot per message: replay derives updatedAt from the message timestamps
+            entry.lastMessageAt = message.getTimestamp();
+            entry.session.setUpdatedAt(message.getTimestamp());
+        }
+        awaitDurable(location);
+    }
+
+    @Override
+    public List<ChatMessage> findMessages(String sessionId) {
+        return readMessages(sessionId, Long.MIN_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<ChatMessage> findMessagesUpTo(String sessionId, long maxSequence) {
+        return readMessages(sessionId, Long.MIN_VALUE, maxSequence, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<ChatMessage> findMessagesAfter(String sessionId, long afterSequence) {
+        return readMessages(sessionId, afterSequence + 1, Long.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<ChatMessage> findRecentMessages(String sessionId, int limit) {
+        return readMessages(sessionId, Long.MIN_VALUE, Long.MAX_VALUE, limit);
+    }
+
+    @Override
+    public long maxSequence(ChatSession session) {
+        SessionEntry entry = entry(session.getSessionId());
+        synchronized (entry) {
+            return entry.messages.isEmpty() ? 0 : entry.messages.get(entry.messages.size() - 1).sequence();
+        }
+    }
+
+    @Override
+    public boolean hasForks(String sessionId) {
+        for (SessionEntry entry : sessions.values()) {
+            synchronized (entry) {
+                if (!entry.deleted && sessionId.equals(entry.session.getParentSessionId())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void deleteSession(String sessionId) {
+        SessionEntry entry = sessions.remove(sessionId);
+        if (entry == null) {
+            return;
+        }
+        Location location;
+        synchronized (entry) {
+            entry.deleted = true;
+            location = append(DELETE, sessionId.getBytes(StandardCharsets.UTF_8));
+            release(entry);
+        }
+        awaitDurable(location);
+    }
+
+    @Scheduled(fixedDelayString = "${chat.store.journal.compaction-interval:PT5M}")
+    public void scheduledCompaction() {
+        compact();
+    }
+
+    /**
+     * Rewrites the live records of sealed segments that are mostly dead and deletes them.
+     */
+    public int compact() {
+        int compacted = 0;
+        try {
+            for (int segment : journal.segmentNumbers()) {
+                if (segment == journal.activeSegment()) {
+                    continue;
+                }
+                long live = liveBytes.getOrDefault(segment, new AtomicLong()).get();
+                if (live > journal.segmentBytes() * compactionThreshold) {
+                    continue;
+                }
+                // A tombstone must outlive every older segment that may hold the session
+                boolean olderSegments = journal.segmentNumbers().get(0) < segment;
+                Location[] last = new Location[1];
+                journal.scan(segment, (type, location, payload) -> {
+                    Location moved = relocate(type, location, payload, olderSegments);
+                    if (moved != null) {
+                        last[0] = moved;
+                    }
+                });
+                if (last[0] != null) {
+                    journal.awaitDurable(last[0]);
+                }
+                segmentLock.writeLock().lock();
+                try {
+                    journal.deleteSegment(segment);
+                } finally {
+                    segmentLock.writeLock().unlock();
+                }
+                liveBytes.remove(segment);
+                compacted++;
+            }
+        } catch (IOException e) {
+            logger.error("Journal compaction stopped after {} segments", compacted, e);
+        }
+        if (compacted > 0) {
+            logger.info("Compacted {} journal segments", compacted);
+        }
+        return compacted;
+    }
+
+    private Location relocate(byte type, Location location, byte[] payload, boolean olderSegments) throws IOException {
+        if (type == DELETE) {
+            return olderSegments ? journal.append(DELETE, payload) : null;
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        SessionEntry entry = sessions.get(readString(in));
+        if (entry == null) {
+            return null;
+        }
+        synchronized (entry) {
+            if (entry.deleted) {
+                return null;
+            }
+            if (type == SESSION && location.equals(entry.sessionRecord)) {
+                Location moved = journal.append(SESSION, payload);
+                entry.sessionRecord = moved;
+                moveLive(location, moved);
+                return moved;
+            }
+            if (type == MESSAGE) {
+                in.readLong();
+                int index = indexOf(entry, in.readLong());
+                if (index >= 0 && entry.messages.get(index).location().equals(location)) {
+                    Location moved = journal.append(MESSAGE, payload);
+                    entry.messages.set(index, new MessageRef(entry.messages.get(index).sequence(), moved));
+                    moveLive(location, moved);
+                    return moved;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void replay(byte type, Location location, byte[] payload) throws IOException {
+        if (type == DELETE) {
+            SessionEntry entry = sessions.remove(new String(payload, StandardCharsets.UTF_8));
+            if (entry != null) {
+                release(entry);
+            }
+            return;
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        if (type == SESSION) {
+            ChatSession session = decodeSession(in);
+            SessionEntry entry = sessions.computeIfAbsent(session.getSessionId(), id -> new SessionEntry());
+            if (entry.sessionRecord != null) {
+                addLive(entry.sessionRecord, -1);
+            }
+            // A compacted snapshot can be replayed after newer messages
+            if (entry.lastMessageAt != null && entry.lastMessageAt.isAfter(session.getUpdatedAt())) {
+                session.setUpdatedAt(entry.lastMessageAt);
+            }
+            entry.session = session;
+            entry.sessionRecord = location;
+            addLive(location, 1);
+            sessionIds.accumulateAndGet(session.getId(), Math::max);
+        } else if (type == MESSAGE) {
+            String sessionId = readString(in);
+            ChatMessage message = decodeMessage(in);
+            SessionEntry entry = sessions.computeIfAbsent(sessionId, id -> new SessionEntry());
+            putMessage(entry, new MessageRef(message.getSequence(), location));
+            if (entry.lastMessageAt == null || message.getTimestamp().isAfter(entry.lastMessageAt)) {
+                entry.lastMessageAt = message.getTimestamp();
+            }
+            if (entry.session != null && entry.lastMessageAt.isAfter(entry.session.getUpdatedAt())) {
+                entry.session.setUpdatedAt(entry.lastMessageAt);
+            }
+            messageIds.accumulateAndGet(message.getId(), Math::max);
+        }
+    }
+
+    private List<ChatMessage> readMessages(String sessionId, long fromSequence, long toSequence, int limit) {
+        SessionEntry entry = sessions.get(sessionId);
+        if (entry == null) {
+            return new ArrayList<>();
+        }
+        // Compaction may relocate records after the snapshot below, but cannot delete the
+        // segments holding the old copies until these reads finish
+        segmentLock.readLock().lock();
+        try {
+            List<MessageRef> refs = new ArrayList<>();
+            ChatSession session;
+            synchronized (entry) {
+                if (entry.deleted) {
+                    return new ArrayList<>();
+                }
+                for (MessageRef ref : entry.messages) {
+                    if (ref.sequence() >= fromSequence && ref.sequence() <= toSequence) {
+                        refs.add(ref);
+                    }
+                }
+                session = copy(entry.session);
+            }
+            if (refs.size() > limit) {
+                refs = refs.subList(refs.size() - limit, refs.size());
+            }
+            List<ChatMessage> messages = new ArrayList<>(refs.size());
+            for (MessageRef ref : refs) {
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(journal.read(ref.location())));
+                readString(in);
+                ChatMessage message = decodeMessage(in);
+                message.setChatSession(session);
+                messages.add(message);
+            }
+            return messages;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read messages of session " + sessionId, e);
+        } finally {
+            segmentLock.readLock().unlock();
+        }
+    }
+
+    private void putMessage(SessionEntry entry, MessageRef ref) {
+        int index = indexOf(entry, ref.sequence());
+        if (index >= 0) {
+            // Replaying a record that compaction already copied forward
+            addLive(entry.messages.get(index).location(), -1);
+            entry.messages.set(index, ref);
+        } else {
+            entry.messages.add(-index - 1, ref);
+        }
+        addLive(ref.location(), 1);
+    }
+
+    private int indexOf(SessionEntry entry, long sequence) {
+        int low = 0;
+        int high = entry.messages.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long value = entry.messages.get(mid).sequence();
+            if (value < sequence) {
+                low = mid + 1;
+            } else if (value > sequence) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    // Callers hold the entry's monitor and wait for the returned location after releasing it
+    private Location writeSnapshot(SessionEntry entry) {
+        Location previous = entry.sessionRecord;
+        Location location = append(SESSION, encodeSession(entry.session));
+        entry.sessionRecord = location;
+        addLive(location, 1);
+        if (previous != null) {
+            addLive(previous, -1);
+        }
+        return location;
+    }
+
+    private void release(SessionEntry entry) {
+        if (entry.sessionRecord != null) {
+            addLive(entry.sessionRecord, -1);
+        }
+        for (MessageRef ref : entry.messages) {
+            addLive(ref.location(), -1);
+        }
+    }
+
+    private void moveLive(Location from, Location to) {
+        addLive(from, -1);
+        addLive(to, 1);
+    }
+
+    private void addLive(Location location, int sign) {
+        liveBytes.computeIfAbsent(location.segment(), s -> new AtomicLong()).addAndGet((long) sign * location.frameBytes());
+    }
+
+    private Location append(byte type, byte[] payload) {
+        try {
+            return journal.append(type, payload);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write to session journal", e);
+        }
+    }
+
+    private void awaitDurable(Location location) {
+        if (!awaitSync) {
+            return;
+        }
+        try {
+            journal.awaitDurable(location);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Session journal is not durable", e);
+        }
+    }
+
+    private SessionEntry entry(String sessionId) {
+        SessionEntry entry = sessions.get(sessionId);
+        if (entry == null) {
+            throw new RuntimeException("Session not found: " + sessionId);
+        }
+        return entry;
+    }
+
+    private static ChatSession copy(ChatSession source) {
+        ChatSession session = new ChatSession(source.getSessionId(), source.getTitle(), source.getContext(), source.getModel(), source.getImageModel());
+        session.setId(source.getId());
+        session.setCreatedAt(source.getCreatedAt());
+        session.setUpdatedAt(source.getUpdatedAt());
+        session.setSummary(source.getSummary());
+        session.setSummarizedSequence(source.getSummarizedSequence());
+        session.setParentSessionId(source.getParentSessionId());
+        session.setForkSequence(source.getForkSequence());
+        return session;
+    }
+
+    private static byte[] encodeSession(ChatSession session) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            writeString(out, session.getSessionId());
+            out.writeLong(session.getId());
+            writeString(out, session.getTitle());
+            writeString(out, session.getContext());
+            writeString(out, session.getModel());
+            writeString(out, session.getImageModel());
+            writeString(out, session.getCreatedAt().toString());
+            writeString(out, session.getUpdatedAt().toString());
+            writeString(out, session.getSummary());
+            out.writeLong(session.getSummarizedSequence() != null ? session.getSummarizedSequence() : -1);
+            writeString(out, session.getParentSessionId());
+            out.writeLong(session.getForkSequence() != null ? session.getForkSequence() : -1);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static ChatSession decodeSession(DataInputStream in) throws IOException {
+        String sessionId = readString(in);
+        long id = in.readLong();
+        ChatSession session = new ChatSession(sessionId, readString(in), readString(in), readString(in), readString(in));
+        session.setId(id);
+        session.setCreatedAt(LocalDateTime.parse(readString(in)));
+        session.setUpdatedAt(LocalDateTime.parse(readString(in)));
+        session.setSummary(readString(in));
+        long summarizedSequence = in.readLong();
+        session.setSummarizedSequence(summarizedSequence >= 0 ? summarizedSequence : null);
+        session.setParentSessionId(readString(in));
+        long forkSequence = in.readLong();
+        session.setForkSequence(forkSequence >= 0 ? forkSequence : null);
+        return session;
+    }
+
+    private static byte[] encodeMessage(String sessionId, ChatMessage message) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            writeString(out, sessionId);
+            out.writeLong(message.getId());
+            out.writeLong(message.getSequence());
+            writeString(out, message.getSender());
+            writeString(out, message.getTimestamp().toString());
+            writeString(out, message.getContent());
+            writeString(out, message.getImageUrl());
+            writeString(out, message.getFileContent());
+            writeString(out, message.getFileName());
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Reads what follows the session id of a message record
+    private static ChatMessage decodeMessage(DataInputStream in) throws IOException {
+        long id = in.readLong();
+        long sequence = in.readLong();
+        String sender = readString(in);
+        LocalDateTime timestamp = LocalDateTime.parse(readString(in));
+        ChatMessage message = new ChatMessage(readString(in), sender);
+        message.setId(id);
+        message.setSequence(sequence);
+        message.setTimestamp(timestamp);
+        message.setImageUrl(readString(in));
+        message.setFileContent(readString(in));
+        message.setFileName(readString(in));
+        return message;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,133 @@
+package techchamps.io.aiagent.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import techchamps.io.aiagent.model.ChatMessage;
+import techchamps.io.aiagent.model.ChatSession;
+import techchamps.io.aiagent.repository.ChatMessageRepository;
+import techchamps.io.aiagent.repository.ChatSessionRepository;
+import techchamps.io.aiagent.repository.FileBlobRepository;
+import techchamps.io.aiagent.storage.CompressedText;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Default store: the JPA repositories, with idle sessions moved to and from the
+ * {@link SessionArchiveService} archive. Runs inside the caller's transaction.
+ */
+@Component
+@ConditionalOnProperty(name = "chat.store.type", havingValue = "jpa", matchIfMissing = true)
+public class JpaSessionStore implements SessionStore {
+
+    @Autowired
+    private ChatSessionRepository chatSessionRepository;
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+
+    @Autowired
+    private FileBlobRepository fileBlobRepository;
+
+    @Autowired
+    private FileBlobService fileBlobService;
+
+    @Autowired
+    private SessionArchiveService sessionArchiveService;
+
+    @Override
+    public ChatSession createSession(ChatSession session) {
+        return chatSessionRepository.save(session);
+    }
+
+    @Override
+    public Optional<ChatSession> findSession(String sessionId) {
+        Optional<ChatSession> session = chatSessionRepository.findBySessionId(sessionId);
+        if (session.isEmpty()) {
+            session = sessionArchiveService.rehydrate(sessionId);
+        }
+        return session;
+    }
+
+    @Override
+    public List<ChatSession> findAllSessions() {
+        return chatSessionRepository.findAllOrderByUpdatedAtDesc();
+    }
+
+    @Override
+    public List<ChatSession> searchSessions(String searchTerm) {
+        return chatSessionRepository.findByTitleOrContextContaining(searchTerm);
+    }
+
+    @Override
+    public void updateContext(ChatSession session, String context, LocalDateTime updatedAt) {
+        chatSessionRepository.updateContext(session.getId(), context, updatedAt);
+    }
+
+    @Override
+    public void updateTitle(ChatSession session, String title, LocalDateTime updatedAt) {
+        chatSessionRepository.updateTitle(session.getId(), title, updatedAt);
+    }
+
+    @Override
+    public void updateSummary(ChatSession session, String summary, Long summarizedSequence) {
+        chatSessionRepository.updateSummary(session.getId(), CompressedText.of(summary), summarizedSequence);
+    }
+
+    @Override
+    public void touch(ChatSession session, LocalDateTime updatedAt) {
+        chatSessionRepository.touch(session.getId(), updatedAt);
+    }
+
+    @Override
+    public void appendMessage(ChatSession session, ChatMessage message) {
+        fileBlobService.intern(message);
+        chatMessageRepository.save(message);
+        chatSessionRepository.touch(session.getId(), message.getTimestamp());
+    }
+
+    @Override
+    public List<ChatMessage> findMessages(String sessionId) {
+        return chatMessageRepository.findBySessionIdOrderBySequenceAsc(sessionId);
+    }
+
+    @Override
+    public List<ChatMessage> findMessagesUpTo(String sessionId, long maxSequence) {
+        return chatMessageRepository.findBySessionIdUpToSequence(sessionId, maxSequence);
+    }
+
+    @Override
+    public List<ChatMessage> findMessagesAfter(String sessionId, long afterSequence) {
+        return chatMessageRepository.findBySessionIdAfterSequence(sessionId, afterSequence);
+    }
+
+    @Override
+    public List<ChatMessage> findRecentMessages(String sessionId, int limit) {
+        List<ChatMessage> latest = new ArrayList<>(chatMessageRepository.findBySessionIdOrderBySequenceDesc(sessionId, PageRequest.of(0, limit)));
+        Collections.reverse(latest);
+        return latest;
+    }
+
+    @Override
+    public long maxSequence(ChatSession session) {
+        return chatMessageRepository.findMaxSequence(session.getId());
+    }
+
+    @Override
+    public boolean hasForks(String sessionId) {
+        return chatSessionRepository.existsByParentSessionId(sessionId);
+    }
+
+    @Override
+    public void deleteSession(String sessionId) {
+        fileBlobRepository.releaseBySessionId(sessionId, LocalDateTime.now());
+        chatMessageRepository.deleteByChatSessionSessionId(sessionId);
+        chatSessionRepository.deleteBySessionId(sessionId);
+        sessionArchiveService.remove(sessionId);
+    }
+}
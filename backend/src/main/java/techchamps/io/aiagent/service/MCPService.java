@@ -1,5 +1,7 @@
 package techchamps.io.aiagent.service;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
@@ -7,12 +9,19 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 import techchamps.io.aiagent.model.ChatRequest;
 import techchamps.io.aiagent.model.ChatResponse;
+import techchamps.io.aiagent.storage.ChunkedInputStream;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 @Service
@@ -20,12 +29,30 @@ public class MCPService {
     
     private static final Logger logger = LoggerFactory.getLogger(MCPService.class);
     
+    // Response chunks queued ahead of the parser
+    private static final int RESPONSE_PREFETCH = 4;
+    
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private final WebClient webClient = WebClient.builder().build();
+    
+    // Base URL github.api.base-url; GETs are sent as conditional requests, see GitHubClientConfig
+    @Autowired
+    private WebClient gitHubWebClient;
     
     @Autowired
     private AiService aiService;
     
+    @Autowired
+    private GitHubService githubService;
+    
+    @Autowired
+    private CodeRetrievalIndex codeRetrievalIndex;
+    
+    @Value("${github.file-fetch.max-context-chars:60000}")
+    private int maxFileContextChars;
+    
+    @Value("${code-retrieval.top-k:8}")
+    private int retrievalTopK;
+    
     public CompletableFuture<ObjectNode> getMCPStatus() {
         ObjectNode response = objectMapper.createObjectNode();
         response.put("status", "connected");
@@ -34,39 +61,24 @@ public class MCPService {
     }
     
     public CompletableFuture<ObjectNode> listRepositories(String token, String username) {
-        return webClient.get()
-            .uri("https://api.github.com/users/" + username + "/repos")
-            .header("Authorization", "token " + token)
-            .header("Accept", "application/vnd.github.v3+json")
-            .retrieve()
-            .bodyToMono(String.class)
-            .map(response -> {
-                try {
-                    JsonNode repos = objectMapper.readTree(response);
-                    ArrayNode repoList = objectMapper.createArrayNode();
-                    
-                    for (JsonNode repo : repos) {
-                        ObjectNode repoInfo = objectMapper.createObjectNode();
-                        repoInfo.put("id", repo.get("id").asInt());
-                        repoInfo.put("name", repo.get("name").asText());
-                        repoInfo.put("fullName", repo.get("full_name").asText());
-                        repoInfo.put("description", repo.has("description") ? repo.get("description").asText() : "");
-                        repoInfo.put("url", repo.get("html_url").asText());
-                        repoInfo.put("private", repo.get("private").asBoolean());
-                        repoList.add(repoInfo);
-                    }
-                    
-                    ObjectNode responseNode = objectMapper.createObjectNode();
-                    responseNode.put("success", true);
-                    responseNode.set("repositories", repoList);
-                    return responseNode;
-                } catch (Exception e) {
-                    logger.error("Error parsing repository list response", e);
-                    ObjectNode errorResponse = objectMapper.createObjectNode();
-                    errorResponse.put("success", false);
-                    errorResponse.put("error", "Failed to parse repository list");
-                    return errorResponse;
-                }
+        // Every page, not just the first 30 repositories
+        return githubService.streamRepositories(token, "/users/" + username + "/repos?per_page=100")
+            .map(repo -> {
+                ObjectNode repoInfo = objectMapper.createObjectNode();
+                repoInfo.put("id", repo.id());
+                repoInfo.put("name", repo.name());
+                repoInfo.put("fullName", repo.fullName());
+                repoInfo.put("description", repo.description() != null ? repo.description() : "");
+                repoInfo.put("url", repo.htmlUrl());
+                repoInfo.put("private", repo.isPrivate());
+                return repoInfo;
+            })
+            .collect(objectMapper::createArrayNode, ArrayNode::add)
+            .map(repoList -> {
+                ObjectNode responseNode = objectMapper.createObjectNode();
+                responseNode.put("success", true);
+                responseNode.set("repositories", repoList);
+                return responseNode;
             })
             .onErrorResume(e -> {
                 logger.error("Error listing repositories", e);
@@ -90,6 +102,8 @@ public class MCPService {
         String message = payload.get("message").asText();
         String repository = payload.get("repository").asText();
         String token = payload.get("token").asText();
+        List<String> selectedFiles = new ArrayList<>();
+        payload.path("selectedFiles").forEach(file -> selectedFiles.add(file.asText()));
         
         logger.info("Processing request: {}", message);
         
@@ -117,6 +131,18 @@ public class MCPService {
         String systemPrompt = systemPromptTemplate
             .replace("{{repository}}", repository)
             .replace("{{message}}", message);
+        String relevantCode = relevantCodeContext(token, repository, message);
+        boolean hasCodeContext = !selectedFiles.isEmpty() || !relevantCode.isEmpty();
+        if (hasCodeContext) {
+            systemPrompt += "\nIf the request is about the code below rather than a GitHub operation, " +
+                "answer it directly in plain text instead of JSON.";
+        }
+        if (!selectedFiles.isEmpty()) {
+            systemPrompt += "\nSelected files:" + selectedFilesContext(token, repository, selectedFiles);
+        }
+        if (!relevantCode.isEmpty()) {
+            systemPrompt += "\nRelevant code:" + relevantCode;
+        }
         
         try {
             ChatRequest chatRequest = new ChatRequest();
@@ -130,6 +156,13 @@ public class MCPService {
                 JsonNode apiCall = objectMapper.readTree(responseText);
                 return executeGitHubApiCall(apiCall, repository, token);
             } catch (Exception e) {
+                if (hasCodeContext) {
+                    // A direct answer about the code in the prompt
+                    ObjectNode response = objectMapper.createObjectNode();
+                    response.put("success", true);
+                    response.put("message", responseText);
+                    return CompletableFuture.completedFuture(response);
+                }
                 logger.error("Failed to parse LLM response as JSON", e);
                 ObjectNode response = objectMapper.createObjectNode();
                 response.put("success", true);
@@ -154,6 +187,37 @@ public class MCPService {
         }
     }
     
+    // Appends files in arrival order until max-context-chars is used up, then cancels the remaining fetches
+    private String selectedFilesContext(String token, String repository, List<String> selectedFiles) {
+        StringBuilder context = new StringBuilder();
+        githubService.fetchFiles(token, repository, selectedFiles)
+            .takeWhile(file -> context.length() < maxFileContextChars)
+            .doOnNext(file -> {
+                int room = maxFileContextChars - context.length();
+                context.append("\n--- ").append(file.path()).append(" ---\n");
+                if (file.content().isBinary()) {
+                    context.append("[binary file, ").append(file.content().size()).append(" bytes]");
+                    return;
+                }
+                // Only the part that fits is decoded
+                String content = file.content().text(room + 1);
+                context.append(content.length() > room ? content.substring(0, room) + "\n[truncated]" : content);
+            })
+            .blockLast();
+        return context.toString();
+    }
+    
+    // The top-k indexed chunks closest to the request, empty until the repository has been indexed
+    private String relevantCodeContext(String token, String repository, String message) {
+        StringBuilder context = new StringBuilder();
+        for (CodeRetrievalIndex.ScoredChunk result : codeRetrievalIndex.search(repository, token, message, retrievalTopK)) {
+            CodeRetrievalIndex.Chunk chunk = result.chunk();
+            context.append("\n--- ").append(chunk.path()).append(':').append(chunk.startLine()).append('-')
+                .append(chunk.endLine()).append(" ---\n").append(chunk.text());
+        }
+        return context.toString();
+    }
+    
     private CompletableFuture<ObjectNode> executeGitHubApiCall(JsonNode apiCall, String repository, String token) {
         String method = apiCall.get("method").asText();
         String endpoint = apiCall.get("endpoint").asText();
@@ -162,8 +226,8 @@ public class MCPService {
         // Replace {owner}/{repo} with actual repository
         endpoint = endpoint.replace("{owner}/{repo}", repository);
         
-        WebClient.RequestBodySpec request = webClient.method(org.springframework.http.HttpMethod.valueOf(method))
-            .uri("https://api.github.com" + endpoint)
+        WebClient.RequestBodySpec request = gitHubWebClient.method(org.springframework.http.HttpMethod.valueOf(method))
+            .uri(endpoint)
             .header("Authorization", "token " + token)
             .header("Accept", "application/vnd.github.v3+json");
         
@@ -173,18 +237,18 @@ public class MCPService {
                    .bodyValue(apiCall.get("data").toString());
         }
         
-        return request.retrieve()
-            .bodyToMono(String.class)
-            .map(jsonResponse -> {
-                try {
-                    JsonNode data = objectMapper.readTree(jsonResponse);
-                    String formattedResponse = formatGitHubResponse(data, description);
+        // Parsed from the chunks as they arrive, keeping only the fields that are shown. The
+        // parser blocks waiting for the next chunk, so it runs off the event loop
+        Flux<byte[]> body = request.retrieve().bodyToFlux(byte[].class);
+        return Mono.fromCallable(() -> {
+                try (JsonParser parser = objectMapper.getFactory().createParser(new ChunkedInputStream(body.toStream(RESPONSE_PREFETCH)))) {
+                    String formattedResponse = formatGitHubResponse(readGitHubResponse(parser), description);
                     
                     ObjectNode response = objectMapper.createObjectNode();
                     response.put("success", true);
                     response.put("message", formattedResponse);
                     return response;
-                } catch (Exception e) {
+                } catch (IOException e) {
                     logger.error("Error parsing GitHub API response", e);
                     ObjectNode errorResponse = objectMapper.createObjectNode();
                     errorResponse.put("success", false);
@@ -192,6 +256,7 @@ public class MCPService {
                     return errorResponse;
                 }
             })
+            .subscribeOn(Schedulers.boundedElastic())
             .onErrorResume(e -> {
                 logger.error("Error executing GitHub API call", e);
                 ObjectNode errorResponse = objectMapper.createObjectNode();
@@ -202,13 +267,14 @@ public class MCPService {
             .toFuture();
     }
     
-    private String formatGitHubResponse(JsonNode data, String description) {
+    private String formatGitHubResponse(GitHubResponse data, String description) {
+        GitHubItem single = !data.array() && !data.items().isEmpty() ? data.items().get(0) : null;
         // If it's a single item (not an array), and the description matches a known action, return a natural language response
-        if (!data.isArray() && data.has("number")) {
+        if (single != null && single.number() != null) {
             String action = description.toLowerCase();
-            String number = data.get("number").asText();
-            String title = data.has("title") ? data.get("title").asText() : "";
-            String url = data.has("html_url") ? data.get("html_url").asText() : null;
+            String number = single.number();
+            String title = single.title() != null ? single.title() : "";
+            String url = single.htmlUrl();
             String type = "item";
             if (action.contains("issue")) type = "issue";
             else if (action.contains("pull request") || action.contains("pr")) type = "pull request";
@@ -245,46 +311,46 @@ public class MCPService {
         // For lists and other responses, keep the current markdown format
         StringBuilder response = new StringBuilder();
         response.append("✅ **").append(description).append(":**\n\n");
-        if (data.isArray()) {
+        if (data.array()) {
             if (data.size() == 0) {
                 response.append("No items found.");
             } else {
-                for (JsonNode item : data) {
-                    if (item.has("number")) {
+                for (GitHubItem item : data.items()) {
+                    if (item.number() != null) {
                         // Issue or PR
-                        response.append("🔸 **#").append(item.get("number").asText())
-                              .append("** ").append(item.get("title").asText()).append("\n");
-                        if (item.has("user")) {
-                            response.append("   👤 ").append(item.get("user").get("login").asText());
+                        response.append("🔸 **#").append(item.number())
+                              .append("** ").append(item.title()).append("\n");
+                        if (item.userLogin() != null) {
+                            response.append("   👤 ").append(item.userLogin());
                         }
-                        if (item.has("created_at")) {
-                            response.append(" • ").append(item.get("created_at").asText().substring(0, 10));
+                        if (item.createdAt() != null) {
+                            response.append(" • ").append(item.createdAt().substring(0, 10));
                         }
                         response.append("\n");
-                        if (item.has("html_url")) {
-                            response.append("   🔗 ").append(item.get("html_url").asText()).append("\n");
+                        if (item.htmlUrl() != null) {
+                            response.append("   🔗 ").append(item.htmlUrl()).append("\n");
                         }
                         response.append("\n");
-                    } else if (item.has("name")) {
+                    } else if (item.name() != null) {
                         // Branch
-                        response.append("🌿 **").append(item.get("name").asText()).append("**\n");
-                        if (item.has("commit")) {
-                            response.append("   📝 ").append(item.get("commit").get("sha").asText().substring(0, 7));
-                            if (item.get("commit").has("commit")) {
-                                response.append(" • ").append(item.get("commit").get("commit").get("message").asText());
+                        response.append("🌿 **").append(item.name()).append("**\n");
+                        if (item.commit() != null) {
+                            response.append("   📝 ").append(item.commit().sha().substring(0, 7));
+                            if (item.commit().commit() != null) {
+                                response.append(" • ").append(item.commit().commit().message());
                             }
                             response.append("\n");
                         }
                         response.append("\n");
-                    } else if (item.has("sha")) {
+                    } else if (item.sha() != null) {
                         // Commit
-                        response.append("🔸 **").append(item.get("sha").asText().substring(0, 7)).append("**\n");
-                        if (item.has("commit")) {
-                            response.append("   📝 ").append(item.get("commit").get("message").asText()).append("\n");
-                            if (item.get("commit").has("author")) {
-                                response.append("   👤 ").append(item.get("commit").get("author").get("name").asText());
-                                if (item.get("commit").get("author").has("date")) {
-                                    response.append(" • ").append(item.get("commit").get("author").get("date").asText().substring(0, 10));
+                        response.append("🔸 **").append(item.sha().substring(0, 7)).append("**\n");
+                        if (item.commit() != null) {
+                            response.append("   📝 ").append(item.commit().message()).append("\n");
+                            if (item.commit().authorName() != null) {
+                                response.append("   👤 ").append(item.commit().authorName());
+                                if (item.commit().authorDate() != null) {
+                                    response.append(" • ").append(item.commit().authorDate().substring(0, 10));
                                 }
                                 response.append("\n");
                             }
@@ -293,16 +359,126 @@ public class MCPService {
                     }
                 }
             }
-        } else {
-            // Single item fallback (not an issue/PR)
-            if (data.has("number")) {
-                response.append("🔸 **#").append(data.get("number").asText())
-                      .append("** ").append(data.get("title").asText()).append("\n");
-                if (data.has("html_url")) {
-                    response.append("🔗 ").append(data.get("html_url").asText());
+        }
+        return response.toString();
+    }
+
+    // The shown fields of a GitHub API response: the elements of an array, or a single object
+    private record GitHubResponse(boolean array, int size, List<GitHubItem> items) {
+    }
+
+    private record GitHubItem(String number, String title, String userLogin, String createdAt, String htmlUrl,
+                              String name, String sha, GitHubCommit commit) {
+    }
+
+    // A commit as listed with commits (message, author) or branches (sha, nested commit)
+    private record GitHubCommit(String sha, String message, String authorName, String authorDate, GitHubCommit commit) {
+    }
+
+    private static GitHubResponse readGitHubResponse(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        List<GitHubItem> items = new ArrayList<>();
+        if (token == JsonToken.START_OBJECT) {
+            items.add(readGitHubItem(parser));
+            return new GitHubResponse(false, 1, items);
+        }
+        if (token != JsonToken.START_ARRAY) {
+            return new GitHubResponse(false, 0, items);
+        }
+        int size = 0;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == JsonToken.START_OBJECT) {
+                items.add(readGitHubItem(parser));
+            } else {
+                parser.skipChildren();
+            }
+            size++;
+        }
+        return new GitHubResponse(true, size, items);
+    }
+
+    // The parser is on the START_OBJECT of the item; bodies, labels, reactions and the like are skipped
+    private static GitHubItem readGitHubItem(JsonParser parser) throws IOException {
+        String number = null;
+        String title = null;
+        String userLogin = null;
+        String createdAt = null;
+        String htmlUrl = null;
+        String name = null;
+        String sha = null;
+        GitHubCommit commit = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if ("number".equals(field)) {
+                number = parser.getValueAsString();
+            } else if ("title".equals(field)) {
+                title = parser.getValueAsString();
+            } else if ("user".equals(field) && token == JsonToken.START_OBJECT) {
+                userLogin = readField(parser, "login");
+            } else if ("created_at".equals(field)) {
+                createdAt = parser.getValueAsString();
+            } else if ("html_url".equals(field)) {
+                htmlUrl = parser.getValueAsString();
+            } else if ("name".equals(field)) {
+                name = parser.getValueAsString();
+            } else if ("sha".equals(field)) {
+                sha = parser.getValueAsString();
+            } else if ("commit".equals(field) && token == JsonToken.START_OBJECT) {
+                commit = readGitHubCommit(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new GitHubItem(number, title, userLogin, createdAt, htmlUrl, name, sha, commit);
+    }
+
+    private static GitHubCommit readGitHubCommit(JsonParser parser) throws IOException {
+        String sha = null;
+        String message = null;
+        String authorName = null;
+        String authorDate = null;
+        GitHubCommit commit = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if ("sha".equals(field)) {
+                sha = parser.getValueAsString();
+            } else if ("message".equals(field)) {
+                message = parser.getValueAsString();
+            } else if ("author".equals(field) && token == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String authorField = parser.currentName();
+                    parser.nextToken();
+                    if ("name".equals(authorField)) {
+                        authorName = parser.getValueAsString();
+                    } else if ("date".equals(authorField)) {
+                        authorDate = parser.getValueAsString();
+                    } else {
+                        parser.skipChildren();
+                    }
                 }
+            } else if ("commit".equals(field) && token == JsonToken.START_OBJECT) {
+                commit = readGitHubCommit(parser);
+            } else {
+                parser.skipChildren();
             }
         }
-        return response.toString();
+        return new GitHubCommit(sha, message, authorName, authorDate, commit);
+    }
+
+    // Reads one string field of the object the parser is on and skips the rest of it
+    private static String readField(JsonParser parser, String name) throws IOException {
+        String value = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if (name.equals(field)) {
+                value = parser.getValueAsString();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return value;
     }
 } 
\ No newline at end of file
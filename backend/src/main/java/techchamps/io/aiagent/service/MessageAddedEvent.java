@@ -0,0 +1,17 @@
+package techchamps.io.aiagent.service;
+
+/**
+ * Published by {@link ChatSessionService} whenever a message is appended to a session.
+ */
+public class MessageAddedEvent {
+
+    private final String sessionId;
+
+    public MessageAddedEvent(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+}
@@ -0,0 +1,315 @@
+package techchamps.io.aiagent.service;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+import techchamps.io.aiagent.model.ChatMessage;
+import techchamps.io.aiagent.model.ChatSession;
+import techchamps.io.aiagent.repository.ChatMessageRepository;
+import techchamps.io.aiagent.repository.ChatSessionRepository;
+import techchamps.io.aiagent.repository.FileBlobRepository;
+import techchamps.io.aiagent.storage.SegmentArchive;
+import techchamps.io.aiagent.storage.SessionRecordCodec;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Moves sessions that have been idle for {@code chat.archive.idle-days} out of the
+ * database into {@link SegmentArchive} files, and puts them back on first access.
+ */
+@Service
+@ConditionalOnProperty(name = "chat.store.type", havingValue = "jpa", matchIfMissing = true)
+public class SessionArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionArchiveService.class);
+
+    @Autowired
+    private ChatSessionRepository chatSessionRepository;
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+
+    @Autowired
+    private FileBlobRepository fileBlobRepository;
+
+    @Autowired
+    private FileBlobService fileBlobService;
+
+    @Autowired
+    private SessionCache sessionCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${chat.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${chat.archive.directory:data/archive}")
+    private String directory;
+
+    @Value("${chat.archive.idle-days:30}")
+    private int idleDays;
+
+    @Value("${chat.archive.batch-size:100}")
+    private int batchSize;
+
+    @Value("${chat.archive.memory-budget:16MB}")
+    private DataSize memoryBudget;
+
+    @Value("${chat.archive.segment-size:64MB}")
+    private DataSize segmentSize;
+
+    private volatile SegmentArchive archive;
+
+    @Scheduled(cron = "${chat.archive.cron:0 30 3 * * *}")
+    public void scheduledArchive() {
+        if (enabled) {
+            archiveIdleSessions();
+        }
+    }
+
+    /**
+     * Archives every session idle since before the cutoff. Each batch stops once the
+     * encoded records reach the memory budget; the archive is fsynced before the batch's
+     * database deletes commit, so a crash can duplicate a session but never lose one.
+     */
+    public int archiveIdleSessions() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(idleDays);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int archived = 0;
+        try {
+            while (true) {
+                List<Long> ids = chatSessionRepository.findIdleSessionIds(cutoff, PageRequest.of(0, batchSize));
+                if (ids.isEmpty()) {
+                    break;
+                }
+                Integer count = transactionTemplate.execute(status -> archiveBatch(ids, cutoff));
+                if (count == null || count == 0) {
+                    break;
+                }
+                archived += count;
+            }
+        } catch (RuntimeException e) {
+            logger.error("Session archival stopped after {} sessions", archived, e);
+        }
+        if (archived > 0) {
+            logger.info("Archived {} sessions idle since {}", archived, cutoff);
+        }
+        return archived;
+    }
+
+    private int archiveBatch(List<Long> ids, LocalDateTime cutoff) {
+        SegmentArchive segments = archive();
+        List<String> written = new ArrayList<>();
+        long pendingBytes = 0;
+        try {
+            for (Long id : ids) {
+                Optional<ChatSession> candidate = chatSessionRepository.lockIdleSession(id, cutoff);
+                // Forks read their parent's rows, so parents stay in the database. Forks stay too:
+                // the fork checks on delete and retention only see the database
+                if (candidate.isEmpty() || candidate.get().isFork()
+                        || chatSessionRepository.existsByParentSessionId(candidate.get().getSessionId())) {
+                    continue;
+                }
+                ChatSession session = candidate.get();
+                List<ChatMessage> messages = chatMessageRepository.findBySessionIdOrderBySequenceAsc(session.getSessionId());
+                // Archive records are self-contained, so blob content is copied back inline
+                for (ChatMessage message : messages) {
+                    entityManager.detach(message);
+                    if (message.getFileBlobHash() != null) {
+                        message.setFileContent(fileBlobService.resolveFileContent(message));
+                        message.setFileBlobHash(null);
+                    }
+                }
+                byte[] record = SessionRecordCodec.encode(session, messages);
+                segments.append(session.getSessionId(), record);
+                written.add(session.getSessionId());
+
+                fileBlobRepository.releaseByChatSessionId(session.getId(), LocalDateTime.now());
+                chatMessageRepository.deleteAllByChatSessionId(session.getId());
+                chatSessionRepository.deleteRowById(session.getId());
+                sessionCache.invalidate(session.getSessionId());
+                // Keep the persistence context from accumulating every archived message
+                entityManager.clear();
+
+                pendingBytes += record.length;
+                if (pendingBytes >= memoryBudget.toBytes()) {
+                    break;
+                }
+            }
+            segments.flush();
+        } catch (IOException e) {
+            removeQuietly(written);
+            throw new UncheckedIOException("Could not write session archive", e);
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    removeQuietly(written);
+                }
+            }
+        });
+        return written.size();
+    }
+
+    /**
+     * Restores an archived session into the database. Must run inside the caller's
+     * transaction; the archive entry is dropped once that transaction commits.
+     */
+    public Optional<ChatSession> rehydrate(String sessionId) {
+        if (archive == null && !Files.isDirectory(Paths.get(directory))) {
+            return Optional.empty();
+        }
+        try {
+            byte[] record = archive().read(sessionId);
+            if (record == null) {
+                return Optional.empty();
+            }
+            SessionRecordCodec.Decoded decoded = SessionRecordCodec.decode(record);
+            ChatSession session = decoded.getSession();
+            // Access makes the session active again, otherwise the next run would re-archive it
+            session.setUpdatedAt(LocalDateTime.now());
+            ChatSession saved = chatSessionRepository.save(session);
+            for (ChatMessage message : decoded.getMessages()) {
+                message.setChatSession(saved);
+                fileBlobService.intern(message);
+            }
+            chatMessageRepository.saveAll(decoded.getMessages());
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        removeQuietly(List.of(sessionId));
+                    }
+                });
+            } else {
+                removeQuietly(List.of(sessionId));
+            }
+            logger.debug("Rehydrated archived session {} with {} messages", sessionId, decoded.getMessages().size());
+            return Optional.of(saved);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read archived session " + sessionId, e);
+        }
+    }
+
+    /**
+     * Decodes an archived session without restoring it, or empty if it is not archived.
+     */
+    public Optional<SessionRecordCodec.Decoded> readArchived(String sessionId) {
+        if (archive == null && !Files.isDirectory(Paths.get(directory))) {
+            return Optional.empty();
+        }
+        try {
+            byte[] record = archive().read(sessionId);
+            return record != null ? Optional.of(SessionRecordCodec.decode(record)) : Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read archived session " + sessionId, e);
+        }
+    }
+
+    public void remove(String sessionId) {
+        if (archive != null || Files.isDirectory(Paths.get(directory))) {
+            removeQuietly(List.of(sessionId));
+        }
+    }
+
+    public boolean isArchived(String sessionId) {
+        if (archive == null && !Files.isDirectory(Paths.get(directory))) {
+            return false;
+        }
+        return archive().contains(sessionId);
+    }
+
+    public List<String> archivedSessionIds() {
+        if (archive == null && !Files.isDirectory(Paths.get(directory))) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(archive().ids());
+    }
+
+    /**
+     * Drops an archived session whose last activity is before the cutoff.
+     */
+    public boolean removeIfIdleSince(String sessionId, LocalDateTime cutoff) {
+        try {
+            SegmentArchive segments = archive();
+            byte[] record = segments.read(sessionId);
+            if (record == null || !SessionRecordCodec.decode(record).getSession().getUpdatedAt().isBefore(cutoff)) {
+                return false;
+            }
+            segments.remove(sessionId);
+            return true;
+        } catch (IOException e) {
+            logger.warn("Could not check archived session {} for expiry", sessionId, e);
+            return false;
+        }
+    }
+
+    public void flushArchive() {
+        if (archive != null) {
+            try {
+                archive.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not flush session archive", e);
+            }
+        }
+    }
+
+    private void removeQuietly(List<String> sessionIds) {
+        try {
+            SegmentArchive segments = archive();
+            for (String sessionId : sessionIds) {
+                segments.remove(sessionId);
+            }
+            segments.flush();
+        } catch (IOException e) {
+            logger.warn("Could not remove {} sessions from the archive", sessionIds.size(), e);
+        }
+    }
+
+    private SegmentArchive archive() {
+        SegmentArchive current = archive;
+        if (current == null) {
+            synchronized (this) {
+                current = archive;
+                if (current == null) {
+                    current = new SegmentArchive(Path.of(directory), segmentSize.toBytes());
+                    archive = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (archive != null) {
+            archive.close();
+        }
+    }
+}
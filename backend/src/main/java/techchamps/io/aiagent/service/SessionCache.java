@@ -0,0 +1,105 @@
+package techchamps.io.aiagent.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import techchamps.io.aiagent.model.ChatMessage;
+import techchamps.io.aiagent.model.ChatSession;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded in-process cache of hot sessions. Entries are evicted least-recently-used
+ * once {@code maxSessions} is exceeded, and expire after {@code ttl} without access.
+ */
+@Component
+public class SessionCache {
+
+    @Value("${chat.session-cache.max-sessions:1000}")
+    private int maxSessions;
+
+    @Value("${chat.session-cache.ttl:PT30M}")
+    private Duration ttl;
+
+    @Value("${chat.session-cache.recent-messages:50}")
+    private int recentMessages;
+
+    @Value("${chat.session-cache.fork-segments:256}")
+    private int maxForkSegments;
+
+    private final LinkedHashMap<String, HotSession> sessions = new LinkedHashMap<>(64, 0.75f, true);
+
+    // Ancestor message prefixes of forked sessions, keyed by "sessionId@maxSequence".
+    // A prefix below a fork point never changes, so entries need no invalidation.
+    private final LinkedHashMap<String, List<ChatMessage>> forkSegments = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<ChatMessage>> eldest) {
+            return size() > maxForkSegments;
+        }
+    };
+
+    public int getRecentMessages() {
+        return recentMessages;
+    }
+
+    synchronized HotSession get(String sessionId) {
+        HotSession hot = sessions.get(sessionId);
+        if (hot == null) {
+            return null;
+        }
+        if (isExpired(hot, System.nanoTime())) {
+            sessions.remove(sessionId);
+            return null;
+        }
+        hot.touch();
+        return hot;
+    }
+
+    synchronized HotSession put(ChatSession session, boolean complete) {
+        HotSession hot = new HotSession(session, recentMessages, complete);
+        sessions.put(session.getSessionId(), hot);
+        evict();
+        return hot;
+    }
+
+    public synchronized void invalidate(String sessionId) {
+        sessions.remove(sessionId);
+    }
+
+    public synchronized void clear() {
+        sessions.clear();
+    }
+
+    synchronized List<ChatMessage> getForkSegment(String sessionId, long maxSequence) {
+        return forkSegments.get(sessionId + "@" + maxSequence);
+    }
+
+    synchronized void putForkSegment(String sessionId, long maxSequence, List<ChatMessage> messages) {
+        forkSegments.put(sessionId + "@" + maxSequence, messages);
+    }
+
+    public synchronized int size() {
+        return sessions.size();
+    }
+
+    private void evict() {
+        long now = System.nanoTime();
+        Iterator<Map.Entry<String, HotSession>> it = sessions.entrySet().iterator();
+        while (it.hasNext()) {
+            HotSession hot = it.next().getValue();
+            if (sessions.size() > maxSessions || isExpired(hot, now)) {
+                it.remove();
+            } else {
+                // Access order: everything after the first live entry is newer
+                break;
+            }
+        }
+    }
+
+    private boolean isExpired(HotSession hot, long now) {
+        return now - hot.getLastAccessNanos() > ttl.toNanos();
+    }
+}
@@ -0,0 +1,159 @@
+package techchamps.io.aiagent.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import techchamps.io.aiagent.model.ChatMessage;
+import techchamps.io.aiagent.model.ChatSession;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Folds older turns of long sessions into the session's rolling summary.
+ *
+ * Runs after a message commit. Once the turns not yet covered by the summary exceed
+ * {@code trigger-tokens} or {@code prompt-history-messages}, the oldest of them (keeping
+ * {@code keep-recent-tokens} and {@code keep-recent-messages} of the newest turns raw)
+ * are summarized together with the previous summary only, never the whole history. The
+ * raw messages stay in the database for display.
+ *
+ * The prompt only carries unsummarized turns that fit prompt-history-tokens and
+ * prompt-history-messages, so the trigger may not exceed either budget: every turn is
+ * then either in the prompt or in the summary.
+ */
+@Service
+public class SessionCompactionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionCompactionService.class);
+
+    @Autowired
+    private ChatSessionService chatSessionService;
+
+    @Autowired
+    private AiService aiService;
+
+    @Value("${chat.compaction.enabled:true}")
+    private boolean enabled;
+
+    @Value("${chat.compaction.prompt-history-tokens:3000}")
+    private int promptHistoryTokens;
+
+    @Value("${chat.compaction.prompt-history-messages:50}")
+    private int promptHistoryMessages;
+
+    @Value("${chat.compaction.trigger-tokens:${chat.compaction.prompt-history-tokens:3000}}")
+    private int triggerTokens;
+
+    @Value("${chat.compaction.keep-recent-tokens:1000}")
+    private int keepRecentTokens;
+
+    @Value("${chat.compaction.keep-recent-messages:20}")
+    private int keepRecentMessages;
+
+    @Value("${chat.compaction.max-fold-tokens:8000}")
+    private int maxFoldTokens;
+
+    private final Set<String> inProgress = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void validateBudgets() {
+        if (triggerTokens > promptHistoryTokens) {
+            throw new IllegalStateException("chat.compaction.trigger-tokens (" + triggerTokens
+                    + ") must not exceed chat.compaction.prompt-history-tokens (" + promptHistoryTokens + ")");
+        }
+        if (keepRecentTokens >= triggerTokens) {
+            throw new IllegalStateException("chat.compaction.keep-recent-tokens (" + keepRecentTokens
+                    + ") must be below chat.compaction.trigger-tokens (" + triggerTokens + ")");
+        }
+        if (keepRecentMessages >= promptHistoryMessages) {
+            throw new IllegalStateException("chat.compaction.keep-recent-messages (" + keepRecentMessages
+                    + ") must be below chat.compaction.prompt-history-messages (" + promptHistoryMessages + ")");
+        }
+    }
+
+    /**
+     * Rough token count used for budgeting prompts (about four characters per token).
+     */
+    public static int estimateTokens(String text) {
+        return text == null ? 0 : (text.length() + 3) / 4;
+    }
+
+    // Only the content goes into the prompt, attachments are not sent again with later turns
+    public static int estimateTokens(ChatMessage message) {
+        return estimateTokens(message.getContent()) + 4;
+    }
+
+    @Async
+    @TransactionalEventListener
+    public void onMessageAdded(MessageAddedEvent event) {
+        if (enabled) {
+            // Each pass folds at most max-fold-tokens, so keep going until under the trigger
+            while (compact(event.getSessionId())) {
+                logger.trace("Session {} still above the compaction trigger", event.getSessionId());
+            }
+        }
+    }
+
+    public boolean compact(String sessionId) {
+        // Only one compaction per session at a time; later events find the work already done
+        if (!inProgress.add(sessionId)) {
+            return false;
+        }
+        try {
+            Optional<ChatSession> session = chatSessionService.getSession(sessionId);
+            if (session.isEmpty()) {
+                return false;
+            }
+            List<ChatMessage> pending = chatSessionService.getUnsummarizedMessages(sessionId);
+            int pendingTokens = 0;
+            for (ChatMessage message : pending) {
+                pendingTokens += estimateTokens(message);
+            }
+            if (pendingTokens <= triggerTokens && pending.size() <= promptHistoryMessages) {
+                return false;
+            }
+
+            List<ChatMessage> fold = new ArrayList<>();
+            int foldTokens = 0;
+            int remainingTokens = pendingTokens;
+            int remainingMessages = pending.size();
+            for (ChatMessage message : pending) {
+                int tokens = estimateTokens(message);
+                boolean recentFits = remainingTokens <= keepRecentTokens && remainingMessages <= keepRecentMessages;
+                if (recentFits || (!fold.isEmpty() && foldTokens + tokens > maxFoldTokens)) {
+                    break;
+                }
+                fold.add(message);
+                foldTokens += tokens;
+                remainingTokens -= tokens;
+                remainingMessages--;
+            }
+            if (fold.isEmpty()) {
+                return false;
+            }
+
+            String summary = aiService.summarize(session.get().getSummary(), fold);
+            if (summary == null) {
+                return false;
+            }
+            ChatMessage last = fold.get(fold.size() - 1);
+            chatSessionService.updateSessionSummary(sessionId, summary, last.getSequence());
+            logger.debug("Compacted {} turns (~{} tokens) of session {}", fold.size(), foldTokens, sessionId);
+            return true;
+        } catch (Exception e) {
+            logger.warn("Compaction of session {} failed", sessionId, e);
+            return false;
+        } finally {
+            inProgress.remove(sessionId);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package techchamps.io.aiagent.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped per-session locks for message appends.
+ *
+ * A session always maps to the same stripe, so appends to one session are serialized,
+ * while appends to different sessions only contend when they happen to share one of the
+ * {@code stripes} locks. The lock is held until the surrounding transaction completes, so
+ * sequence numbers become visible in the order they were allocated.
+ */
+@Component
+public class SessionLocks {
+
+    private final ReentrantLock[] stripes;
+
+    @Value("${chat.session-locks.timeout:PT10S}")
+    private Duration timeout;
+
+    public SessionLocks(@Value("${chat.session-locks.stripes:1024}") int stripes) {
+        this.stripes = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Locks the session's stripe and releases it when the current transaction completes.
+     */
+    void lockUntilCompletion(String sessionId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Session locks must be taken inside a transaction");
+        }
+        ReentrantLock lock = stripe(sessionId);
+        try {
+            if (!lock.tryLock(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new RuntimeException("Timed out waiting for session lock: " + sessionId);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted waiting for session lock: " + sessionId, e);
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                lock.unlock();
+            }
+        });
+    }
+
+    private ReentrantLock stripe(String sessionId) {
+        int hash = sessionId.hashCode();
+        // Spread the high bits so similar ids do not cluster on neighbouring stripes
+        hash ^= hash >>> 16;
+        return stripes[Math.floorMod(hash, stripes.length)];
+    }
+}
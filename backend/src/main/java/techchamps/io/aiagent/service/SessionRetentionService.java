@@ -0,0 +1,144 @@
+package techchamps.io.aiagent.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import techchamps.io.aiagent.repository.ChatMessageRepository;
+import techchamps.io.aiagent.repository.ChatSessionRepository;
+import techchamps.io.aiagent.repository.FileBlobRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Deletes sessions whose last activity is older than the configured TTLs.
+ *
+ * Two policies: {@code session-ttl} for every session and {@code empty-session-ttl} for
+ * sessions that never got a message. Deletes are bulk statements over chunks of
+ * {@code batch-size} sessions, each chunk in its own short transaction followed by a
+ * {@code pause}, so the job never holds locks long enough to stall interactive requests.
+ * A TTL of zero disables that policy.
+ */
+@Service
+@ConditionalOnProperty(name = "chat.store.type", havingValue = "jpa", matchIfMissing = true)
+public class SessionRetentionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionRetentionService.class);
+
+    @Autowired
+    private ChatSessionRepository chatSessionRepository;
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+
+    @Autowired
+    private FileBlobRepository fileBlobRepository;
+
+    @Autowired
+    private SessionCache sessionCache;
+
+    @Autowired
+    private SessionArchiveService sessionArchiveService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${chat.retention.enabled:false}")
+    private boolean enabled;
+
+    @Value("${chat.retention.session-ttl:365d}")
+    private Duration sessionTtl;
+
+    @Value("${chat.retention.empty-session-ttl:7d}")
+    private Duration emptySessionTtl;
+
+    @Value("${chat.retention.batch-size:500}")
+    private int batchSize;
+
+    @Value("${chat.retention.pause:200ms}")
+    private Duration pause;
+
+    @Scheduled(cron = "${chat.retention.cron:0 0 4 * * *}")
+    public void scheduledPurge() {
+        if (enabled) {
+            purgeExpiredSessions();
+        }
+    }
+
+    public int purgeExpiredSessions() {
+        LocalDateTime now = LocalDateTime.now();
+        int deleted = 0;
+        try {
+            if (!emptySessionTtl.isZero()) {
+                deleted += purge(now.minus(emptySessionTtl), true);
+            }
+            if (!sessionTtl.isZero()) {
+                LocalDateTime cutoff = now.minus(sessionTtl);
+                deleted += purge(cutoff, false);
+                deleted += purgeArchive(cutoff);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Session retention interrupted after {} sessions", deleted);
+        } catch (RuntimeException e) {
+            logger.error("Session retention stopped after {} sessions", deleted, e);
+        }
+        if (deleted > 0) {
+            logger.info("Deleted {} expired sessions", deleted);
+        }
+        return deleted;
+    }
+
+    private int purge(LocalDateTime cutoff, boolean emptyOnly) throws InterruptedException {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int deleted = 0;
+        while (true) {
+            PageRequest page = PageRequest.of(0, batchSize);
+            List<String> sessionIds = emptyOnly
+                    ? chatSessionRepository.findExpiredEmptySessionIds(cutoff, page)
+                    : chatSessionRepository.findExpiredSessionIds(cutoff, page);
+            if (sessionIds.isEmpty()) {
+                break;
+            }
+            Integer count = transactionTemplate.execute(status -> {
+                fileBlobRepository.releaseExpiredBySessionIds(sessionIds, cutoff, LocalDateTime.now());
+                chatMessageRepository.deleteExpiredBySessionIds(sessionIds, cutoff);
+                return chatSessionRepository.deleteExpired(sessionIds, cutoff);
+            });
+            sessionIds.forEach(sessionCache::invalidate);
+            if (count == null || count == 0) {
+                break;
+            }
+            deleted += count;
+            if (sessionIds.size() < batchSize) {
+                break;
+            }
+            Thread.sleep(pause.toMillis());
+        }
+        return deleted;
+    }
+
+    private int purgeArchive(LocalDateTime cutoff) throws InterruptedException {
+        int deleted = 0;
+        int checked = 0;
+        for (String sessionId : sessionArchiveService.archivedSessionIds()) {
+            if (sessionArchiveService.removeIfIdleSince(sessionId, cutoff)) {
+                deleted++;
+            }
+            if (++checked % batchSize == 0) {
+                sessionArchiveService.flushArchive();
+                Thread.sleep(pause.toMillis());
+            }
+        }
+        sessionArchiveService.flushArchive();
+        return deleted;
+    }
+}
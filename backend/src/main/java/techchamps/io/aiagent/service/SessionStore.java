@@ -0,0 +1,55 @@
+package techchamps.io.aiagent.service;
+
+import techchamps.io.aiagent.model.ChatMessage;
+import techchamps.io.aiagent.model.ChatSession;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Persistence behind {@link ChatSessionService}. Selected with {@code chat.store.type}:
+ * {@code jpa} (default), {@code journal} or {@code sharded}.
+ *
+ * Callers serialize writes per session (see {@link SessionLocks}) and cache the returned
+ * sessions, so implementations only need to be safe across different sessions. Message
+ * lists are always in sequence order.
+ */
+public interface SessionStore {
+
+    ChatSession createSession(ChatSession session);
+
+    Optional<ChatSession> findSession(String sessionId);
+
+    List<ChatSession> findAllSessions();
+
+    List<ChatSession> searchSessions(String searchTerm);
+
+    void updateContext(ChatSession session, String context, LocalDateTime updatedAt);
+
+    void updateTitle(ChatSession session, String title, LocalDateTime updatedAt);
+
+    void updateSummary(ChatSession session, String summary, Long summarizedSequence);
+
+    void touch(ChatSession session, LocalDateTime updatedAt);
+
+    /**
+     * Stores a message whose session and sequence are already set, and marks the session
+     * as updated at the message's timestamp.
+     */
+    void appendMessage(ChatSession session, ChatMessage message);
+
+    List<ChatMessage> findMessages(String sessionId);
+
+    List<ChatMessage> findMessagesUpTo(String sessionId, long maxSequence);
+
+    List<ChatMessage> findMessagesAfter(String sessionId, long afterSequence);
+
+    List<ChatMessage> findRecentMessages(String sessionId, int limit);
+
+    long maxSequence(ChatSession session);
+
+    boolean hasForks(String sessionId);
+
+    void deleteSession(String sessionId);
+}
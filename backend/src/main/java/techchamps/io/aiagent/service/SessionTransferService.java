@@ -0,0 +1,386 @@
+package techchamps.io.aiagent.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import techchamps.io.aiagent.model.ChatMessage;
+import techchamps.io.aiagent.model.ChatSession;
+import techchamps.io.aiagent.repository.ChatMessageRepository;
+import techchamps.io.aiagent.repository.ChatSessionRepository;
+import techchamps.io.aiagent.storage.SessionRecordCodec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Bulk export and import of sessions as NDJSON.
+ *
+ * Each session is written as a {@code "type":"session"} line followed by one
+ * {@code "type":"message"} line per message, so both directions can stream without
+ * holding more than one import batch in memory.
+ */
+@Service
+public class SessionTransferService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionTransferService.class);
+
+    @Autowired
+    private ChatSessionRepository chatSessionRepository;
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+    
+    @Autowired
+    private FileBlobService fileBlobService;
+
+    // Only present with the JPA store
+    @Autowired(required = false)
+    private SessionArchiveService sessionArchiveService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${chat.store.type:jpa}")
+    private String storeType;
+
+    @Value("${chat.transfer.import-parallelism:4}")
+    private int importParallelism;
+
+    @Value("${chat.transfer.import-batch-size:500}")
+    private int importBatchSize;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static class ImportedSession {
+        private final ChatSession session;
+        private final List<ChatMessage> messages = new ArrayList<>();
+
+        ImportedSession(ChatSession session) {
+            this.session = session;
+        }
+    }
+
+    /**
+     * Streams every session and message to {@code out}. Sessions and messages are read
+     * through two cursors ordered by session id and merged, and each entity is detached
+     * once written, so memory use does not grow with the size of the database. Archived
+     * sessions follow, decoded one at a time from the archive.
+     */
+    public Map<String, Object> exportSessions(OutputStream out) {
+        requireJpaStore();
+        long start = System.nanoTime();
+        long[] counts = new long[2];
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<ChatSession> sessions = chatSessionRepository.streamAllOrderById();
+                 Stream<ChatMessage> messages = chatMessageRepository.streamAllOrderBySession()) {
+                JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setRootValueSeparator(new SerializedString("\n"));
+
+                Iterator<ChatMessage> messageIterator = messages.iterator();
+                ChatMessage pending = messageIterator.hasNext() ? messageIterator.next() : null;
+                Iterator<ChatSession> sessionIterator = sessions.iterator();
+                while (sessionIterator.hasNext()) {
+                    ChatSession session = sessionIterator.next();
+                    writeSession(generator, session);
+                    counts[0]++;
+                    while (pending != null && pending.getChatSession().getId() <= session.getId()) {
+                        if (pending.getChatSession().getId().equals(session.getId())) {
+                            writeMessage(generator, session.getSessionId(), pending);
+                            counts[1]++;
+                        }
+                        entityManager.detach(pending);
+                        pending = messageIterator.hasNext() ? messageIterator.next() : null;
+                    }
+                    entityManager.detach(session);
+                    if (counts[0] % 100 == 0) {
+                        generator.flush();
+                    }
+                }
+                writeArchivedSessions(generator, counts);
+                generator.writeRaw('\n');
+                generator.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Session export failed", e);
+            }
+        });
+        Map<String, Object> result = summary(counts[0], counts[1], 0, start);
+        logger.info("Exported sessions: {}", result);
+        return result;
+    }
+
+    /**
+     * Imports an NDJSON stream produced by {@link #exportSessions}. Batches of roughly
+     * {@code importBatchSize} records are inserted in their own transactions on
+     * {@code importParallelism} worker threads; sessions whose id already exists in the
+     * database or the archive, or appeared earlier in the stream, are skipped along with
+     * their messages.
+     */
+    public Map<String, Object> importSessions(InputStream in) throws IOException {
+        requireJpaStore();
+        long start = System.nanoTime();
+        AtomicLong importedSessions = new AtomicLong();
+        AtomicLong importedMessages = new AtomicLong();
+        AtomicLong skipped = new AtomicLong();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(importParallelism);
+        // Bounds the number of parsed batches waiting in memory
+        Semaphore inFlight = new Semaphore(importParallelism * 2);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        try (MappingIterator<JsonNode> records = objectMapper.readerFor(JsonNode.class).readValues(in)) {
+            List<ImportedSession> batch = new ArrayList<>();
+            int batchRecords = 0;
+            ImportedSession current = null;
+            while (records.hasNext() && failure.get() == null) {
+                JsonNode node = records.next();
+                String type = node.path("type").asText();
+                if ("session".equals(type)) {
+                    if (batchRecords >= importBatchSize) {
+                        submit(executor, inFlight, transactionTemplate, batch, importedSessions, importedMessages, skipped, failure);
+                        batch = new ArrayList<>();
+                        batchRecords = 0;
+                    }
+                    current = new ImportedSession(readSession(node));
+                    batch.add(current);
+                } else if ("message".equals(type)) {
+                    if (current == null || !current.session.getSessionId().equals(node.path("sessionId").asText())) {
+                        throw new IllegalArgumentException("Message for session " + node.path("sessionId").asText() + " does not follow its session line");
+                    }
+                    current.messages.add(readMessage(node, current.messages.size() + 1));
+                } else {
+                    throw new IllegalArgumentException("Unknown record type: " + type);
+                }
+                batchRecords++;
+            }
+            if (!batch.isEmpty()) {
+                submit(executor, inFlight, transactionTemplate, batch, importedSessions, importedMessages, skipped, failure);
+            }
+        } finally {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(1, TimeUnit.HOURS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        Map<String, Object> result = summary(importedSessions.get(), importedMessages.get(), skipped.get(), start);
+        if (failure.get() != null) {
+            result.put("success", false);
+            result.put("error", "Import stopped: " + failure.get().getMessage());
+        }
+        logger.info("Imported sessions: {}", result);
+        return result;
+    }
+
+    private void requireJpaStore() {
+        if (!"jpa".equals(storeType)) {
+            throw new UnsupportedOperationException("Export and import are only available with the JPA session store");
+        }
+    }
+
+    private void submit(ExecutorService executor, Semaphore inFlight, TransactionTemplate transactionTemplate,
+                        List<ImportedSession> batch, AtomicLong importedSessions, AtomicLong importedMessages,
+                        AtomicLong skipped, AtomicReference<Exception> failure) {
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Import interrupted", e);
+        }
+        executor.execute(() -> {
+            try {
+                long[] counts;
+                try {
+                    counts = transactionTemplate.execute(status -> insertBatch(batch));
+                } catch (DataIntegrityViolationException e) {
+                    // A concurrent batch committed one of these ids first; the existence
+                    // check skips it on the second attempt
+                    logger.debug("Session import batch conflicted with a concurrent batch, retrying");
+                    batch.forEach(imported -> imported.session.setId(null));
+                    counts = transactionTemplate.execute(status -> insertBatch(batch));
+                }
+                importedSessions.addAndGet(counts[0]);
+                importedMessages.addAndGet(counts[1]);
+                skipped.addAndGet(counts[2]);
+            } catch (Exception e) {
+                failure.compareAndSet(null, e);
+                logger.error("Session import batch failed", e);
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    // Sessions are all flushed before any message is interned, so a unique index conflict
+    // rolls back without having taken blob references
+    private long[] insertBatch(List<ImportedSession> batch) {
+        long[] counts = new long[3];
+        List<ImportedSession> inserted = new ArrayList<>();
+        for (ImportedSession imported : batch) {
+            String sessionId = imported.session.getSessionId();
+            if (chatSessionRepository.existsBySessionId(sessionId)
+                    || (sessionArchiveService != null && sessionArchiveService.isArchived(sessionId))) {
+                counts[2]++;
+                continue;
+            }
+            chatSessionRepository.save(imported.session);
+            inserted.add(imported);
+        }
+        chatSessionRepository.flush();
+        for (ImportedSession imported : inserted) {
+            for (ChatMessage message : imported.messages) {
+                message.setChatSession(imported.session);
+                fileBlobService.intern(message);
+            }
+            chatMessageRepository.saveAll(imported.messages);
+            counts[0]++;
+            counts[1] += imported.messages.size();
+        }
+        return counts;
+    }
+
+    private void writeArchivedSessions(JsonGenerator generator, long[] counts) throws IOException {
+        if (sessionArchiveService == null) {
+            return;
+        }
+        for (String sessionId : sessionArchiveService.archivedSessionIds()) {
+            // A crash between archiving and the database delete can leave both copies
+            if (chatSessionRepository.existsBySessionId(sessionId)) {
+                continue;
+            }
+            Optional<SessionRecordCodec.Decoded> archived = sessionArchiveService.readArchived(sessionId);
+            if (archived.isEmpty()) {
+                continue;
+            }
+            writeSession(generator, archived.get().getSession());
+            counts[0]++;
+            for (ChatMessage message : archived.get().getMessages()) {
+                writeMessage(generator, sessionId, message);
+                counts[1]++;
+            }
+            if (counts[0] % 100 == 0) {
+                generator.flush();
+            }
+        }
+    }
+
+    private void writeSession(JsonGenerator generator, ChatSession session) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("type", "session");
+        generator.writeStringField("sessionId", session.getSessionId());
+        generator.writeStringField("title", session.getTitle());
+        generator.writeStringField("context", session.getContext());
+        generator.writeStringField("model", session.getModel());
+        generator.writeStringField("imageModel", session.getImageModel());
+        generator.writeStringField("createdAt", session.getCreatedAt().toString());
+        generator.writeStringField("updatedAt", session.getUpdatedAt().toString());
+        if (session.getSummary() != null) {
+            generator.writeStringField("summary", session.getSummary());
+            generator.writeNumberField("summarizedSequence", session.getSummarizedSequence());
+        }
+        if (session.isFork()) {
+            generator.writeStringField("parentSessionId", session.getParentSessionId());
+            generator.writeNumberField("forkSequence", session.getForkSequence());
+        }
+        generator.writeEndObject();
+    }
+
+    private void writeMessage(JsonGenerator generator, String sessionId, ChatMessage message) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("type", "message");
+        generator.writeStringField("sessionId", sessionId);
+        generator.writeNumberField("sequence", message.getSequence());
+        generator.writeStringField("sender", message.getSender());
+        generator.writeStringField("content", message.getContent());
+        generator.writeStringField("timestamp", message.getTimestamp().toString());
+        generator.writeStringField("imageUrl", message.getImageUrl());
+        generator.writeStringField("fileContent", fileBlobService.resolveFileContent(message));
+        generator.writeStringField("fileName", message.getFileName());
+        generator.writeEndObject();
+    }
+
+    private ChatSession readSession(JsonNode node) {
+        ChatSession session = new ChatSession(
+            node.path("sessionId").asText(),
+            node.path("title").asText(),
+            text(node, "context"),
+            node.path("model").asText(),
+            node.path("imageModel").asText()
+        );
+        session.setCreatedAt(LocalDateTime.parse(node.path("createdAt").asText()));
+        session.setUpdatedAt(LocalDateTime.parse(node.path("updatedAt").asText()));
+        if (node.path("forkSequence").isNumber()) {
+            session.setParentSessionId(text(node, "parentSessionId"));
+            session.setForkSequence(node.path("forkSequence").asLong());
+        }
+        // Summaries without a sequence watermark are dropped and rebuilt by compaction
+        if (node.path("summarizedSequence").isNumber()) {
+            session.setSummary(text(node, "summary"));
+            session.setSummarizedSequence(node.path("summarizedSequence").asLong());
+        }
+        return session;
+    }
+
+    private ChatMessage readMessage(JsonNode node, long position) {
+        ChatMessage message = new ChatMessage(node.path("content").asText(), node.path("sender").asText());
+        message.setSequence(node.path("sequence").isNumber() ? node.path("sequence").asLong() : position);
+        message.setTimestamp(LocalDateTime.parse(node.path("timestamp").asText()));
+        message.setImageUrl(text(node, "imageUrl"));
+        message.setFileContent(text(node, "fileContent"));
+        message.setFileName(text(node, "fileName"));
+        return message;
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private static Map<String, Object> summary(long sessions, long messages, long skipped, long startNanos) {
+        double seconds = Math.max((System.nanoTime() - startNanos) / 1_000_000_000.0, 0.001);
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("sessions", sessions);
+        result.put("messages", messages);
+        result.put("skipped", skipped);
+        result.put("elapsedMs", Math.round(seconds * 1000));
+        result.put("recordsPerSecond", Math.round((sessions + messages) / seconds));
+        return result;
+    }
+}
@@ -0,0 +1,361 @@
+package techchamps.io.aiagent.service;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.flywaydb.core.Flyway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import techchamps.io.aiagent.model.ChatMessage;
+import techchamps.io.aiagent.model.ChatSession;
+import techchamps.io.aiagent.storage.TextCompression;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Session store that spreads sessions over several embedded databases
+ * ({@code chat.store.type=sharded}), so appends to different sessions do not queue
+ * behind one database's write lock.
+ *
+ * A session lives on shard {@code floorMod(sessionId.hashCode(), shards)} together with
+ * all of its messages; each shard has its own connection pool and is migrated with the
+ * regular Flyway scripts on startup. Listing, search and fork lookups query every shard
+ * in parallel and merge the results. Ids are made unique across shards by encoding the
+ * shard in the low digits ({@code localId * shards + shard}).
+ *
+ * The shard count is part of the placement, so changing it requires moving the data.
+ */
+@Component
+@ConditionalOnProperty(name = "chat.store.type", havingValue = "sharded")
+public class ShardedSessionStore implements SessionStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardedSessionStore.class);
+
+    private static final String SESSION_COLUMNS = "id, session_id, title, context, created_at, updated_at, model, image_model, "
+            + "summary, summarized_sequence, parent_session_id, fork_sequence";
+
+    private static final String MESSAGE_COLUMNS = "id, content, sender, timestamp, sequence, image_url, file_content, file_name";
+
+    @Value("${chat.store.sharded.shards:8}")
+    private int shardCount;
+
+    @Value("${chat.store.sharded.url:jdbc:h2:mem:aiagent-shard-%d;DB_CLOSE_DELAY=-1}")
+    private String urlPattern;
+
+    @Value("${chat.store.sharded.pool-size:4}")
+    private int poolSize;
+
+    @Value("${spring.datasource.username:sa}")
+    private String username;
+
+    @Value("${spring.datasource.password:}")
+    private String password;
+
+    @Value("${spring.flyway.locations:classpath:db/migration}")
+    private String[] migrationLocations;
+
+    @Value("${chat.storage.compression.threshold:1024}")
+    private int compressionThreshold;
+
+    private final List<Shard> shards = new ArrayList<>();
+    private ExecutorService scatter;
+
+    private static class Shard {
+        private final int index;
+        private final HikariDataSource dataSource;
+        private final JdbcTemplate jdbc;
+        private final TransactionTemplate transactions;
+
+        private Shard(int index, HikariDataSource dataSource) {
+            this.index = index;
+            this.dataSource = dataSource;
+            this.jdbc = new JdbcTemplate(dataSource);
+            this.transactions = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        }
+    }
+
+    @PostConstruct
+    public void open() {
+        for (int i = 0; i < shardCount; i++) {
+            HikariConfig config = new HikariConfig();
+            config.setJdbcUrl(String.format(urlPattern, i));
+            config.setUsername(username);
+            config.setPassword(password);
+            config.setMaximumPoolSize(poolSize);
+            config.setPoolName("session-shard-" + i);
+            HikariDataSource dataSource = new HikariDataSource(config);
+            Flyway.configure().dataSource(dataSource).locations(migrationLocations).load().migrate();
+            shards.add(new Shard(i, dataSource));
+        }
+        scatter = Executors.newFixedThreadPool(shardCount, r -> {
+            Thread thread = new Thread(r, "session-shard-query");
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.info("Opened {} session store shards", shardCount);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (scatter != null) {
+            scatter.shutdown();
+        }
+        shards.forEach(shard -> shard.dataSource.close());
+    }
+
+    @Override
+    public ChatSession createSession(ChatSession session) {
+        Shard shard = shard(session.getSessionId());
+        KeyHolder keys = new GeneratedKeyHolder();
+        shard.jdbc.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO chat_sessions (session_id, title, context, created_at, updated_at, model, image_model, "
+                            + "summary, summarized_sequence, parent_session_id, fork_sequence) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                    new String[] {"id"});
+            statement.setString(1, session.getSessionId());
+            statement.setString(2, session.getTitle());
+            statement.setString(3, session.getContext());
+            statement.setTimestamp(4, Timestamp.valueOf(session.getCreatedAt()));
+            statement.setTimestamp(5, Timestamp.valueOf(session.getUpdatedAt()));
+            statement.setString(6, session.getModel());
+            statement.setString(7, session.getImageModel());
+            statement.setString(8, encode(session.getSummary()));
+            statement.setObject(9, session.getSummarizedSequence());
+            statement.setString(10, session.getParentSessionId());
+            statement.setObject(11, session.getForkSequence());
+            return statement;
+        }, keys);
+        session.setId(globalId(keys.getKey().longValue(), shard));
+        return session;
+    }
+
+    @Override
+    public Optional<ChatSession> findSession(String sessionId) {
+        Shard shard = shard(sessionId);
+        List<ChatSession> found = shard.jdbc.query(
+                "SELECT " + SESSION_COLUMNS + " FROM chat_sessions WHERE session_id = ?", sessionMapper(shard), sessionId);
+        return found.stream().findFirst();
+    }
+
+    @Override
+    public List<ChatSession> findAllSessions() {
+        return mergeByUpdatedAt(gather(shard -> shard.jdbc.query(
+                "SELECT " + SESSION_COLUMNS + " FROM chat_sessions ORDER BY updated_at DESC", sessionMapper(shard))));
+    }
+
+    @Override
+    public List<ChatSession> searchSessions(String searchTerm) {
+        // Contexts are stored uncompressed, so each shard matches them with LIKE
+        return mergeByUpdatedAt(gather(shard -> shard.jdbc.query(
+                "SELECT " + SESSION_COLUMNS + " FROM chat_sessions WHERE title LIKE CONCAT('%', ?, '%') OR context LIKE CONCAT('%', ?, '%') ORDER BY updated_at DESC",
+                sessionMapper(shard), searchTerm, searchTerm)));
+    }
+
+    @Override
+    public void updateContext(ChatSession session, String context, LocalDateTime updatedAt) {
+        Shard shard = shard(session.getSessionId());
+        shard.jdbc.update("UPDATE chat_sessions SET context = ?, updated_at = ? WHERE id = ?",
+                context, Timestamp.valueOf(updatedAt), localId(session.getId()));
+    }
+
+    @Override
+    public void updateTitle(ChatSession session, String title, LocalDateTime updatedAt) {
+        Shard shard = shard(session.getSessionId());
+        shard.jdbc.update("UPDATE chat_sessions SET title = ?, updated_at = ? WHERE id = ?",
+                title, Timestamp.valueOf(updatedAt), localId(session.getId()));
+    }
+
+    @Override
+    public void updateSummary(ChatSession session, String summary, Long summarizedSequence) {
+        Shard shard = shard(session.getSessionId());
+        shard.jdbc.update("UPDATE chat_sessions SET summary = ?, summarized_sequence = ? WHERE id = ?",
+                encode(summary), summarizedSequence, localId(session.getId()));
+    }
+
+    @Override
+    public void touch(ChatSession session, LocalDateTime updatedAt) {
+        Shard shard = shard(session.getSessionId());
+        shard.jdbc.update("UPDATE chat_sessions SET updated_at = ? WHERE id = ?",
+                Timestamp.valueOf(updatedAt), localId(session.getId()));
+    }
+
+    @Override
+    public void appendMessage(ChatSession session, ChatMessage message) {
+        Shard shard = shard(session.getSessionId());
+        long sessionRowId = localId(session.getId());
+        shard.transactions.executeWithoutResult(status -> {
+            KeyHolder keys = new GeneratedKeyHolder();
+            shard.jdbc.update(connection -> {
+                PreparedStatement statement = connection.prepareStatement(
+                        "INSERT INTO chat_messages (chat_session_id, content, sender, timestamp, sequence, image_url, file_content, file_name) "
+                                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                        new String[] {"id"});
+                statement.setLong(1, sessionRowId);
+                statement.setString(2, encode(message.getContent()));
+                statement.setString(3, message.getSender());
+                statement.setTimestamp(4, Timestamp.valueOf(message.getTimestamp()));
+                statement.setLong(5, message.getSequence());
+                statement.setString(6, encode(message.getImageUrl()));
+                statement.setString(7, encode(message.getFileContent()));
+                statement.setString(8, message.getFileName());
+                return statement;
+            }, keys);
+            shard.jdbc.update("UPDATE chat_sessions SET updated_at = ? WHERE id = ?",
+                    Timestamp.valueOf(message.getTimestamp()), sessionRowId);
+            message.setId(globalId(keys.getKey().longValue(), shard));
+        });
+    }
+
+    @Override
+    public List<ChatMessage> findMessages(String sessionId) {
+        return queryMessages(sessionId, "ORDER BY sequence ASC");
+    }
+
+    @Override
+    public List<ChatMessage> findMessagesUpTo(String sessionId, long maxSequence) {
+        return queryMessages(sessionId, "AND sequence <= ? ORDER BY sequence ASC", maxSequence);
+    }
+
+    @Override
+    public List<ChatMessage> findMessagesAfter(String sessionId, long afterSequence) {
+        return queryMessages(sessionId, "AND sequence > ? ORDER BY sequence ASC", afterSequence);
+    }
+
+    @Override
+    public List<ChatMessage> findRecentMessages(String sessionId, int limit) {
+        List<ChatMessage> latest = queryMessages(sessionId, "ORDER BY sequence DESC LIMIT ?", limit);
+        Collections.reverse(latest);
+        return latest;
+    }
+
+    @Override
+    public long maxSequence(ChatSession session) {
+        Long max = shard(session.getSessionId()).jdbc.queryForObject(
+                "SELECT COALESCE(MAX(sequence), 0) FROM chat_messages WHERE chat_session_id = ?",
+                Long.class, localId(session.getId()));
+        return max != null ? max : 0;
+    }
+
+    @Override
+    public boolean hasForks(String sessionId) {
+        // Forks are placed by their own id, so they can live on any shard
+        return gather(shard -> shard.jdbc.queryForList(
+                "SELECT 1 FROM chat_sessions WHERE parent_session_id = ? LIMIT 1", Integer.class, sessionId))
+                .stream().anyMatch(found -> !found.isEmpty());
+    }
+
+    @Override
+    public void deleteSession(String sessionId) {
+        Shard shard = shard(sessionId);
+        shard.transactions.executeWithoutResult(status -> {
+            shard.jdbc.update("DELETE FROM chat_messages WHERE chat_session_id IN (SELECT id FROM chat_sessions WHERE session_id = ?)", sessionId);
+            shard.jdbc.update("DELETE FROM chat_sessions WHERE session_id = ?", sessionId);
+        });
+    }
+
+    private List<ChatMessage> queryMessages(String sessionId, String clauses, Object... args) {
+        Optional<ChatSession> session = findSession(sessionId);
+        if (session.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Shard shard = shard(sessionId);
+        ChatSession owner = session.get();
+        Object[] parameters = new Object[args.length + 1];
+        parameters[0] = localId(owner.getId());
+        System.arraycopy(args, 0, parameters, 1, args.length);
+        return shard.jdbc.query(
+                "SELECT " + MESSAGE_COLUMNS + " FROM chat_messages WHERE chat_session_id = ? " + clauses,
+                (rs, row) -> {
+                    ChatMessage message = new ChatMessage();
+                    message.setId(globalId(rs.getLong("id"), shard));
+                    message.setContent(TextCompression.decode(rs.getString("content")));
+                    message.setSender(rs.getString("sender"));
+                    message.setTimestamp(rs.getTimestamp("timestamp").toLocalDateTime());
+                    message.setSequence(rs.getLong("sequence"));
+                    message.setImageUrl(TextCompression.decode(rs.getString("image_url")));
+                    message.setFileContent(TextCompression.decode(rs.getString("file_content")));
+                    message.setFileName(rs.getString("file_name"));
+                    message.setChatSession(owner);
+                    return message;
+                },
+                parameters);
+    }
+
+    private <T> List<T> gather(Function<Shard, T> query) {
+        List<CompletableFuture<T>> futures = new ArrayList<>(shards.size());
+        for (Shard shard : shards) {
+            futures.add(CompletableFuture.supplyAsync(() -> query.apply(shard), scatter));
+        }
+        return futures.stream().map(CompletableFuture::join).toList();
+    }
+
+    private List<ChatSession> mergeByUpdatedAt(List<List<ChatSession>> perShard) {
+        List<ChatSession> merged = new ArrayList<>();
+        perShard.forEach(merged::addAll);
+        merged.sort(Comparator.comparing(ChatSession::getUpdatedAt).reversed());
+        return merged;
+    }
+
+    private RowMapper<ChatSession> sessionMapper(Shard shard) {
+        return (rs, row) -> {
+            ChatSession session = new ChatSession();
+            session.setId(globalId(rs.getLong("id"), shard));
+            session.setSessionId(rs.getString("session_id"));
+            session.setTitle(rs.getString("title"));
+            session.setContext(rs.getString("context"));
+            session.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+            session.setUpdatedAt(rs.getTimestamp("updated_at").toLocalDateTime());
+            session.setModel(rs.getString("model"));
+            session.setImageModel(rs.getString("image_model"));
+            session.setSummary(TextCompression.decode(rs.getString("summary")));
+            session.setSummarizedSequence(nullableLong(rs, "summarized_sequence"));
+            session.setParentSessionId(rs.getString("parent_session_id"));
+            session.setForkSequence(nullableLong(rs, "fork_sequence"));
+            return session;
+        };
+    }
+
+    private static Long nullableLong(ResultSet rs, String column) throws SQLException {
+        long value = rs.getLong(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    private String encode(String value) {
+        return TextCompression.encode(value, compressionThreshold);
+    }
+
+    private Shard shard(String sessionId) {
+        return shards.get(Math.floorMod(sessionId.hashCode(), shards.size()));
+    }
+
+    private long globalId(long localId, Shard shard) {
+        return localId * shards.size() + shard.index;
+    }
+
+    private long localId(long globalId) {
+        return globalId / shards.size();
+    }
+}
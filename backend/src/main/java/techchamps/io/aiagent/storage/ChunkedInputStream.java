@@ -0,0 +1,110 @@
+package techchamps.io.aiagent.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Blocking InputStream over a stream of chunks, such as a response body still arriving
+ * from the network. Only the chunk being read is held in memory.
+ *
+ * Closing reads and discards a short remainder, so a body the reader stopped just short
+ * of (a JSON parser does not look past the closing bracket) still completes and its
+ * connection can be reused. A longer remainder is abandoned by closing the chunk stream.
+ */
+public class ChunkedInputStream extends InputStream {
+
+    // Longest remainder read on close rather than abandoned
+    private static final int MAX_DRAIN_BYTES = 64 * 1024;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final Stream<byte[]> chunks;
+    private final Iterator<byte[]> iterator;
+    private byte[] current = EMPTY;
+    private int position;
+    private boolean exhausted;
+    private boolean closed;
+
+    public ChunkedInputStream(Stream<byte[]> chunks) {
+        this.chunks = chunks;
+        this.iterator = chunks.iterator();
+    }
+
+    /**
+     * Whether every chunk has been read.
+     */
+    public boolean isExhausted() {
+        return exhausted;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return fill() ? current[position++] & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        Objects.checkFromIndexSize(offset, length, buffer.length);
+        if (length == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int count = Math.min(length, current.length - position);
+        System.arraycopy(current, position, buffer, offset, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return current.length - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            long drained = 0;
+            while (drained <= MAX_DRAIN_BYTES && fill()) {
+                drained += current.length - position;
+                position = current.length;
+            }
+        } catch (IOException e) {
+            // The remainder was going to be discarded anyway
+        } finally {
+            current = EMPTY;
+            chunks.close();
+        }
+    }
+
+    private boolean fill() throws IOException {
+        while (position == current.length) {
+            if (exhausted) {
+                return false;
+            }
+            try {
+                if (!iterator.hasNext()) {
+                    exhausted = true;
+                    return false;
+                }
+                current = iterator.next();
+                position = 0;
+            } catch (RuntimeException e) {
+                // Blocking iterators wrap checked failures of the source
+                if (e.getCause() instanceof IOException io) {
+                    throw io;
+                }
+                throw e;
+            }
+        }
+        return true;
+    }
+}
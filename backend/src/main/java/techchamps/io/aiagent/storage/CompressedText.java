@@ -0,0 +1,66 @@
+package techchamps.io.aiagent.storage;
+
+import java.util.Objects;
+
+/**
+ * Immutable holder for a text column stored in the {@link TextCompression} format.
+ *
+ * Values read from the database keep their stored form and are only decompressed the
+ * first time {@link #get()} is called, so loading a message or session does not pay for
+ * decompressing fields nobody reads.
+ */
+public final class CompressedText {
+
+    private final String stored;
+    private volatile String value;
+
+    private CompressedText(String stored, String value) {
+        this.stored = stored;
+        this.value = value;
+    }
+
+    public static CompressedText of(String value) {
+        return value != null ? new CompressedText(null, value) : null;
+    }
+
+    static CompressedText fromStored(String stored) {
+        return stored != null ? new CompressedText(stored, null) : null;
+    }
+
+    public String get() {
+        String result = value;
+        if (result == null) {
+            result = TextCompression.decode(stored);
+            value = result;
+        }
+        return result;
+    }
+
+    String toStored(int threshold) {
+        return stored != null ? stored : TextCompression.encode(value, threshold);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CompressedText other)) {
+            return false;
+        }
+        if (stored != null && other.stored != null) {
+            return stored.equals(other.stored);
+        }
+        return Objects.equals(get(), other.get());
+    }
+
+    @Override
+    public int hashCode() {
+        return get().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return get();
+    }
+}
@@ -0,0 +1,28 @@
+package techchamps.io.aiagent.storage;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import org.hibernate.annotations.Immutable;
+import org.springframework.beans.factory.annotation.Value;
+
+/**
+ * Maps {@link CompressedText} attributes onto plain TEXT columns. Existing uncompressed
+ * rows stay readable because the storage format leaves small values untouched.
+ */
+@Converter
+@Immutable
+public class CompressedTextConverter implements AttributeConverter<CompressedText, String> {
+
+    @Value("${chat.storage.compression.threshold:1024}")
+    private int threshold = 1024;
+
+    @Override
+    public String convertToDatabaseColumn(CompressedText attribute) {
+        return attribute != null ? attribute.toStored(threshold) : null;
+    }
+
+    @Override
+    public CompressedText convertToEntityAttribute(String dbData) {
+        return CompressedText.fromStored(dbData);
+    }
+}
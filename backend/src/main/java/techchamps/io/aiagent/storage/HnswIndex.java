@@ -0,0 +1,388 @@
+package techchamps.io.aiagent.storage;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Hierarchical navigable small world graph over unit vectors, scored by dot product, in a
+ * memory-mapped file.
+ *
+ * The file (little-endian) is a 64-byte header followed by one fixed-size record per node:
+ * its level, a deleted flag, the vector, and the neighbor lists of layer 0 (up to
+ * {@code 2m}) and of each upper layer (up to {@code m}). Fixed records let a node be read and relinked in
+ * place, so adding a node only writes its own record, its neighbors' lists and the header.
+ * Neighbors are chosen with the diversity heuristic of the HNSW paper. Deleted nodes stay
+ * in the graph for navigation and are dropped from results.
+ *
+ * Not thread-safe: callers serialize writes against reads. The mapping is limited to 2 GB.
+ */
+public class HnswIndex implements AutoCloseable {
+
+    private static final int MAGIC = 0x484e5357;
+    private static final int HEADER_BYTES = 64;
+    private static final int MAX_LEVEL = 6;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    public record Result(int node, float score) {
+    }
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final int dimensions;
+    private final int m;
+    private final int efConstruction;
+    private final int recordBytes;
+    private final double levelMultiplier;
+    private final Random random = new Random(42);
+
+    private MappedByteBuffer buffer;
+    // Float view of the whole mapping, for scoring without per-read byte swaps
+    private FloatBuffer floats;
+    private int capacity;
+    private int count;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+    private int deleted;
+
+    /**
+     * Opens the index in {@code path}, creating it if the file is empty.
+     *
+     * @throws IllegalStateException if the file holds an index with other parameters
+     */
+    public HnswIndex(Path path, int dimensions, int m, int efConstruction) {
+        this.dimensions = dimensions;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.recordBytes = 8 + dimensions * 4 + 4 + 2 * m * 4 + MAX_LEVEL * (4 + m * 4);
+        this.levelMultiplier = 1 / Math.log(m);
+        try {
+            file = new RandomAccessFile(path.toFile(), "rw");
+            channel = file.getChannel();
+            if (channel.size() == 0) {
+                map(INITIAL_CAPACITY);
+                writeHeader();
+            } else {
+                map((int) ((channel.size() - HEADER_BYTES) / recordBytes));
+                if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != dimensions || buffer.getInt(8) != m) {
+                    close();
+                    throw new IllegalStateException("Incompatible vector index: " + path);
+                }
+                count = buffer.getInt(12);
+                entryPoint = buffer.getInt(16);
+                maxLevel = buffer.getInt(20);
+                deleted = buffer.getInt(24);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int deletedCount() {
+        return deleted;
+    }
+
+    public boolean isDeleted(int node) {
+        return buffer.getInt(offset(node) + 4) != 0;
+    }
+
+    public void delete(int node) {
+        if (!isDeleted(node)) {
+            buffer.putInt(offset(node) + 4, 1);
+            deleted++;
+            writeHeader();
+        }
+    }
+
+    public float[] vector(int node) {
+        float[] vector = new float[dimensions];
+        floats.get((offset(node) + 8) / 4, vector);
+        return vector;
+    }
+
+    /**
+     * Inserts a unit vector and returns its node id.
+     */
+    public int add(float[] vector) {
+        if (count == capacity) {
+            long limit = (Integer.MAX_VALUE - HEADER_BYTES) / recordBytes;
+            if (capacity >= limit) {
+                throw new IllegalStateException("Vector index is full: " + count + " nodes");
+            }
+            map((int) Math.min(limit, (long) capacity * 2));
+        }
+        int node = count++;
+        int level = Math.min((int) (-Math.log(1 - random.nextDouble()) * levelMultiplier), MAX_LEVEL);
+        int base = offset(node);
+        buffer.putInt(base, level);
+        buffer.putInt(base + 4, 0);
+        for (int i = 0; i < dimensions; i++) {
+            buffer.putFloat(base + 8 + i * 4, vector[i]);
+        }
+        for (int layer = 0; layer <= MAX_LEVEL; layer++) {
+            buffer.putInt(neighborsOffset(node, layer), 0);
+        }
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            writeHeader();
+            return node;
+        }
+
+        int current = entryPoint;
+        for (int layer = maxLevel; layer > level; layer--) {
+            current = greedy(vector, current, layer);
+        }
+        for (int layer = Math.min(level, maxLevel); layer >= 0; layer--) {
+            List<Result> candidates = searchLayer(vector, current, efConstruction, layer);
+            List<Result> selected = selectNeighbors(candidates, m);
+            setNeighbors(node, layer, selected.stream().mapToInt(Result::node).toArray());
+            int maxNeighbors = layer == 0 ? 2 * m : m;
+            for (Result neighbor : selected) {
+                link(neighbor.node(), node, layer, maxNeighbors);
+            }
+            current = candidates.get(0).node();
+        }
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+        writeHeader();
+        return node;
+    }
+
+    /**
+     * The {@code k} live nodes most similar to {@code query}, best first.
+     */
+    public List<Result> search(float[] query, int k, int ef) {
+        if (entryPoint < 0) {
+            return List.of();
+        }
+        int current = entryPoint;
+        for (int layer = maxLevel; layer > 0; layer--) {
+            current = greedy(query, current, layer);
+        }
+        List<Result> results = new ArrayList<>(k);
+        for (Result result : searchLayer(query, current, Math.max(ef, k), 0)) {
+            if (!isDeleted(result.node())) {
+                results.add(result);
+                if (results.size() == k) {
+                    break;
+                }
+            }
+        }
+        return results;
+    }
+
+    public void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (buffer != null) {
+                buffer.force();
+            }
+            channel.close();
+            file.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int greedy(float[] query, int start, int layer) {
+        int current = start;
+        float best = score(query, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int neighbor : neighbors(current, layer)) {
+                float score = score(query, neighbor);
+                if (score > best) {
+                    best = score;
+                    current = neighbor;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    // The ef nearest nodes reachable from start on one layer, best first
+    private List<Result> searchLayer(float[] query, int start, int ef, int layer) {
+        BitSet visited = new BitSet(count);
+        PriorityQueue<Result> candidates = new PriorityQueue<>(Comparator.comparingDouble(Result::score).reversed());
+        PriorityQueue<Result> nearest = new PriorityQueue<>(Comparator.comparingDouble(Result::score));
+        Result first = new Result(start, score(query, start));
+        visited.set(start);
+        candidates.add(first);
+        nearest.add(first);
+        while (!candidates.isEmpty()) {
+            Result candidate = candidates.poll();
+            if (candidate.score() < nearest.peek().score() && nearest.size() >= ef) {
+                break;
+            }
+            for (int neighbor : neighbors(candidate.node(), layer)) {
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+                float score = score(query, neighbor);
+                if (nearest.size() < ef || score > nearest.peek().score()) {
+                    Result result = new Result(neighbor, score);
+                    candidates.add(result);
+                    nearest.add(result);
+                    if (nearest.size() > ef) {
+                        nearest.poll();
+                    }
+                }
+            }
+        }
+        List<Result> results = new ArrayList<>(nearest);
+        results.sort(Comparator.comparingDouble(Result::score).reversed());
+        return results;
+    }
+
+    // Keeps candidates closer to the query than to any already selected neighbor, then fills up
+    private List<Result> selectNeighbors(List<Result> candidates, int limit) {
+        List<Result> selected = new ArrayList<>(limit);
+        List<float[]> selectedVectors = new ArrayList<>(limit);
+        List<Result> skipped = new ArrayList<>();
+        for (Result candidate : candidates) {
+            if (selected.size() == limit) {
+                break;
+            }
+            float[] vector = vector(candidate.node());
+            boolean diverse = true;
+            for (float[] other : selectedVectors) {
+                if (dot(vector, other) > candidate.score()) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected.add(candidate);
+                selectedVectors.add(vector);
+            } else {
+                skipped.add(candidate);
+            }
+        }
+        for (int i = 0; i < skipped.size() && selected.size() < limit; i++) {
+            selected.add(skipped.get(i));
+        }
+        return selected;
+    }
+
+    private void link(int node, int neighbor, int layer, int maxNeighbors) {
+        int[] existing = neighbors(node, layer);
+        int[] updated = new int[existing.length + 1];
+        System.arraycopy(existing, 0, updated, 0, existing.length);
+        updated[existing.length] = neighbor;
+        if (updated.length <= maxNeighbors) {
+            setNeighbors(node, layer, updated);
+            return;
+        }
+        float[] vector = vector(node);
+        List<Result> candidates = new ArrayList<>(updated.length);
+        for (int id : updated) {
+            candidates.add(new Result(id, score(vector, id)));
+        }
+        candidates.sort(Comparator.comparingDouble(Result::score).reversed());
+        setNeighbors(node, layer, selectNeighbors(candidates, maxNeighbors).stream().mapToInt(Result::node).toArray());
+    }
+
+    private int[] neighbors(int node, int layer) {
+        int base = neighborsOffset(node, layer);
+        int[] neighbors = new int[buffer.getInt(base)];
+        for (int i = 0; i < neighbors.length; i++) {
+            neighbors[i] = buffer.getInt(base + 4 + i * 4);
+        }
+        return neighbors;
+    }
+
+    private void setNeighbors(int node, int layer, int[] neighbors) {
+        int base = neighborsOffset(node, layer);
+        buffer.putInt(base, neighbors.length);
+        for (int i = 0; i < neighbors.length; i++) {
+            buffer.putInt(base + 4 + i * 4, neighbors[i]);
+        }
+    }
+
+    private float score(float[] query, int node) {
+        int base = (offset(node) + 8) / 4;
+        // Independent partial sums, as the JIT will not reorder a float reduction
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i + 3 < dimensions; i += 4) {
+            s0 += query[i] * floats.get(base + i);
+            s1 += query[i + 1] * floats.get(base + i + 1);
+            s2 += query[i + 2] * floats.get(base + i + 2);
+            s3 += query[i + 3] * floats.get(base + i + 3);
+        }
+        for (; i < dimensions; i++) {
+            s0 += query[i] * floats.get(base + i);
+        }
+        return s0 + s1 + s2 + s3;
+    }
+
+    private static float dot(float[] a, float[] b) {
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i + 3 < a.length; i += 4) {
+            s0 += a[i] * b[i];
+            s1 += a[i + 1] * b[i + 1];
+            s2 += a[i + 2] * b[i + 2];
+            s3 += a[i + 3] * b[i + 3];
+        }
+        for (; i < a.length; i++) {
+            s0 += a[i] * b[i];
+        }
+        return s0 + s1 + s2 + s3;
+    }
+
+    private int offset(int node) {
+        return HEADER_BYTES + node * recordBytes;
+    }
+
+    private int neighborsOffset(int node, int layer) {
+        int base = offset(node) + 8 + dimensions * 4;
+        return layer == 0 ? base : base + 4 + 2 * m * 4 + (layer - 1) * (4 + m * 4);
+    }
+
+    private void map(int records) {
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) records * recordBytes);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            floats = buffer.asFloatBuffer();
+            capacity = records;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeHeader() {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, dimensions);
+        buffer.putInt(8, m);
+        buffer.putInt(12, count);
+        buffer.putInt(16, entryPoint);
+        buffer.putInt(20, maxLevel);
+        buffer.putInt(24, deleted);
+    }
+}
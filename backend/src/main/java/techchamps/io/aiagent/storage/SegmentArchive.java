@@ -0,0 +1,263 @@
+package techchamps.io.aiagent.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only store of opaque records keyed by a string id.
+ *
+ * Records are appended to numbered segment files ({@code segment-000001.seg}) framed as
+ * {@code [length][crc32][payload]}; a segment is sealed once it reaches the configured
+ * size. Every put and remove is also appended to {@code archive.idx}, which is replayed
+ * into an in-memory index on open and then rewritten without dead entries. Reads go
+ * through read-only memory mappings of the segment files. A sealed segment whose records
+ * have all been removed is deleted.
+ */
+public class SegmentArchive implements AutoCloseable {
+
+    private static final byte OP_PUT = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final int HEADER_BYTES = 8;
+
+    private final Path directory;
+    private final long maxSegmentBytes;
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> liveRecords = new HashMap<>();
+    // Guarded by this, like liveRecords, so a read never maps a segment release() is deleting
+    private final Map<Integer, MappedByteBuffer> mappings = new HashMap<>();
+
+    private DataOutputStream indexOut;
+    private FileOutputStream indexFile;
+    private FileChannel activeChannel;
+    private int activeSegment;
+    private long activeSize;
+
+    public record Location(int segment, long offset, int length) {
+    }
+
+    public SegmentArchive(Path directory, long maxSegmentBytes) {
+        this.directory = directory;
+        this.maxSegmentBytes = maxSegmentBytes;
+        try {
+            Files.createDirectories(directory);
+            replayIndex();
+            rewriteIndex();
+            openActiveSegment(lastSegmentNumber());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open archive in " + directory, e);
+        }
+    }
+
+    public boolean contains(String id) {
+        return index.containsKey(id);
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    public Set<String> ids() {
+        return new HashSet<>(index.keySet());
+    }
+
+    public synchronized Location append(String id, byte[] payload) throws IOException {
+        if (activeSize > 0 && activeSize + HEADER_BYTES + payload.length > maxSegmentBytes) {
+            activeChannel.force(true);
+            activeChannel.close();
+            openActiveSegment(activeSegment + 1);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        frame.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        long offset = activeSize;
+        while (frame.hasRemaining()) {
+            activeChannel.write(frame);
+        }
+        activeSize += HEADER_BYTES + payload.length;
+
+        Location location = new Location(activeSegment, offset, payload.length);
+        writeIndexEntry(OP_PUT, id, location);
+        Location previous = index.put(id, location);
+        liveRecords.merge(activeSegment, 1, Integer::sum);
+        if (previous != null) {
+            release(previous.segment());
+        }
+        return location;
+    }
+
+    public byte[] read(String id) throws IOException {
+        Location location;
+        ByteBuffer buffer;
+        synchronized (this) {
+            location = index.get(id);
+            if (location == null) {
+                return null;
+            }
+            buffer = mapping(location).duplicate();
+        }
+        // A mapping stays readable after its file is deleted, so the copy needs no lock
+        buffer.position((int) location.offset());
+        int length = buffer.getInt();
+        int checksum = buffer.getInt();
+        byte[] payload = new byte[length];
+        buffer.get(payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int) crc.getValue() != checksum) {
+            throw new IOException("Corrupt archive record for " + id + " in segment " + location.segment());
+        }
+        return payload;
+    }
+
+    public synchronized void remove(String id) throws IOException {
+        Location location = index.remove(id);
+        if (location != null) {
+            writeIndexEntry(OP_REMOVE, id, location);
+            release(location.segment());
+        }
+    }
+
+    /**
+     * Makes all appended records and index entries durable.
+     */
+    public synchronized void flush() throws IOException {
+        activeChannel.force(false);
+        indexOut.flush();
+        indexFile.getFD().sync();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        activeChannel.close();
+        indexOut.close();
+        mappings.clear();
+    }
+
+    private MappedByteBuffer mapping(Location location) throws IOException {
+        long end = location.offset() + HEADER_BYTES + location.length();
+        MappedByteBuffer mapped = mappings.get(location.segment());
+        if (mapped == null || mapped.capacity() < end) {
+            // The active segment keeps growing, so remap it when a read goes past the old end
+            try (FileChannel channel = FileChannel.open(segmentPath(location.segment()), StandardOpenOption.READ)) {
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            mappings.put(location.segment(), mapped);
+        }
+        return mapped;
+    }
+
+    private void release(int segment) throws IOException {
+        int remaining = liveRecords.merge(segment, -1, Integer::sum);
+        if (remaining <= 0 && segment != activeSegment) {
+            liveRecords.remove(segment);
+            mappings.remove(segment);
+            Files.deleteIfExists(segmentPath(segment));
+        }
+    }
+
+    private void openActiveSegment(int segment) throws IOException {
+        activeSegment = segment;
+        activeChannel = FileChannel.open(segmentPath(segment),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        activeSize = activeChannel.size();
+    }
+
+    private int lastSegmentNumber() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(p -> p.getFileName().toString())
+                    .filter(name -> name.startsWith("segment-") && name.endsWith(".seg"))
+                    .mapToInt(name -> Integer.parseInt(name.substring(8, name.length() - 4)))
+                    .max()
+                    .orElse(1);
+        }
+    }
+
+    private Path segmentPath(int segment) {
+        return directory.resolve(String.format("segment-%06d.seg", segment));
+    }
+
+    private void writeIndexEntry(byte op, String id, Location location) throws IOException {
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        indexOut.writeByte(op);
+        indexOut.writeShort(key.length);
+        indexOut.write(key);
+        indexOut.writeInt(location.segment());
+        indexOut.writeLong(location.offset());
+        indexOut.writeInt(location.length());
+    }
+
+    private void replayIndex() throws IOException {
+        Path indexPath = directory.resolve("archive.idx");
+        if (!Files.exists(indexPath)) {
+            return;
+        }
+        try (InputStream in = Files.newInputStream(indexPath);
+             DataInputStream data = new DataInputStream(new BufferedInputStream(in))) {
+            while (true) {
+                byte op;
+                try {
+                    op = data.readByte();
+                } catch (EOFException e) {
+                    break;
+                }
+                try {
+                    byte[] key = new byte[data.readUnsignedShort()];
+                    data.readFully(key);
+                    Location location = new Location(data.readInt(), data.readLong(), data.readInt());
+                    String id = new String(key, StandardCharsets.UTF_8);
+                    if (op == OP_PUT && Files.exists(segmentPath(location.segment()))) {
+                        index.put(id, location);
+                    } else if (op == OP_REMOVE) {
+                        index.remove(id);
+                    }
+                } catch (EOFException e) {
+                    // Torn write at the tail of the index: everything before it is intact
+                    break;
+                }
+            }
+        }
+        for (Location location : index.values()) {
+            liveRecords.merge(location.segment(), 1, Integer::sum);
+        }
+    }
+
+    private void rewriteIndex() throws IOException {
+        Path indexPath = directory.resolve("archive.idx");
+        Path tmp = directory.resolve("archive.idx.tmp");
+        indexFile = new FileOutputStream(tmp.toFile());
+        indexOut = new DataOutputStream(new BufferedOutputStream(indexFile));
+        for (Map.Entry<String, Location> entry : index.entrySet()) {
+            writeIndexEntry(OP_PUT, entry.getKey(), entry.getValue());
+        }
+        indexOut.flush();
+        indexFile.getFD().sync();
+        indexOut.close();
+        Files.move(tmp, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        indexFile = new FileOutputStream(indexPath.toFile(), true);
+        indexOut = new DataOutputStream(new BufferedOutputStream(indexFile));
+    }
+}
@@ -0,0 +1,298 @@
+package techchamps.io.aiagent.storage;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of typed records in memory-mapped segment files.
+ *
+ * Segments ({@code journal-000001.log}) are preallocated to the segment size and mapped
+ * read-write; records are framed as {@code [length][crc32][type][payload]} and a zero
+ * length marks the end of the written part. Appends only write into the mapping; a
+ * background thread forces the written range to disk every group-commit interval, and
+ * {@link #awaitDurable} blocks until a record is covered, so concurrent writers share
+ * one fsync. On open every segment is scanned in order and each intact record is handed
+ * to the replay callback; scanning a segment stops at the first torn or corrupt record.
+ */
+public class SessionJournal implements AutoCloseable {
+
+    private static final int HEADER_BYTES = 9;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final Map<Integer, MappedByteBuffer> segments = new ConcurrentSkipListMap<>();
+    private final ScheduledExecutorService syncer;
+
+    private int activeSegment;
+    private MappedByteBuffer active;
+    private int writePosition;
+    private long durablePosition;
+    private volatile IOException syncFailure;
+
+    public record Location(int segment, int offset, int length) {
+
+        public int frameBytes() {
+            return HEADER_BYTES + length;
+        }
+    }
+
+    public interface RecordHandler {
+        void handle(byte type, Location location, byte[] payload) throws IOException;
+    }
+
+    public SessionJournal(Path directory, int segmentBytes, Duration groupCommitInterval, RecordHandler replay) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        try {
+            Files.createDirectories(directory);
+            List<Integer> existing = listSegments();
+            for (int segment : existing) {
+                segments.put(segment, map(segment));
+            }
+            int end = 0;
+            for (int segment : existing) {
+                end = scan(segment, replay);
+            }
+            if (existing.isEmpty()) {
+                openSegment(1);
+            } else {
+                activeSegment = existing.get(existing.size() - 1);
+                active = segments.get(activeSegment);
+                writePosition = end;
+                durablePosition = position(activeSegment, end);
+                clearTail();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open journal in " + directory, e);
+        }
+        syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "session-journal-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalNanos = Math.max(groupCommitInterval.toNanos(), 100_000);
+        syncer.scheduleWithFixedDelay(this::sync, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public synchronized Location append(byte type, byte[] payload) throws IOException {
+        int frame = HEADER_BYTES + payload.length;
+        if (frame + 4 > segmentBytes) {
+            throw new IOException("Journal record of " + payload.length + " bytes does not fit a segment");
+        }
+        if (writePosition + frame + 4 > segmentBytes) {
+            // Seal: everything in the full segment is forced before writes move on
+            active.force();
+            openSegment(activeSegment + 1);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload);
+        ByteBuffer buffer = active.duplicate();
+        buffer.position(writePosition);
+        buffer.putInt(payload.length).putInt((int) crc.getValue()).put(type).put(payload);
+        Location location = new Location(activeSegment, writePosition, payload.length);
+        writePosition += frame;
+        return location;
+    }
+
+    public byte[] read(Location location) throws IOException {
+        MappedByteBuffer mapped = segments.get(location.segment());
+        if (mapped == null) {
+            throw new IOException("Journal segment " + location.segment() + " no longer exists");
+        }
+        ByteBuffer buffer = mapped.duplicate();
+        buffer.position(location.offset() + 4);
+        int checksum = buffer.getInt();
+        byte type = buffer.get();
+        byte[] payload = new byte[location.length()];
+        buffer.get(payload);
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload);
+        if ((int) crc.getValue() != checksum) {
+            throw new IOException("Corrupt journal record in segment " + location.segment() + " at " + location.offset());
+        }
+        return payload;
+    }
+
+    /**
+     * Blocks until the record at {@code location} has been forced to disk by a group commit.
+     */
+    public synchronized void awaitDurable(Location location) throws IOException {
+        long target = position(location.segment(), location.offset() + location.frameBytes());
+        while (durablePosition < target) {
+            if (syncFailure != null) {
+                throw syncFailure;
+            }
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted waiting for journal sync", e);
+            }
+        }
+    }
+
+    /**
+     * Replays the records of one segment, e.g. to move its live records during compaction.
+     */
+    public int scan(int segment, RecordHandler handler) throws IOException {
+        MappedByteBuffer mapped = segments.get(segment);
+        if (mapped == null) {
+            return 0;
+        }
+        ByteBuffer buffer = mapped.duplicate();
+        int offset = 0;
+        while (offset + HEADER_BYTES <= segmentBytes) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || offset + HEADER_BYTES + length > segmentBytes) {
+                break;
+            }
+            buffer.position(offset + 4);
+            int checksum = buffer.getInt();
+            byte type = buffer.get();
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+            CRC32 crc = new CRC32();
+            crc.update(type);
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                // Torn write at the tail: everything before it is intact
+                break;
+            }
+            handler.handle(type, new Location(segment, offset, length), payload);
+            offset += HEADER_BYTES + length;
+        }
+        return offset;
+    }
+
+    public List<Integer> segmentNumbers() {
+        return List.copyOf(segments.keySet());
+    }
+
+    public synchronized int activeSegment() {
+        return activeSegment;
+    }
+
+    public int segmentBytes() {
+        return segmentBytes;
+    }
+
+    public synchronized void deleteSegment(int segment) throws IOException {
+        if (segment == activeSegment) {
+            throw new IllegalArgumentException("Cannot delete the active journal segment");
+        }
+        segments.remove(segment);
+        Files.deleteIfExists(segmentPath(segment));
+    }
+
+    @Override
+    public void close() throws IOException {
+        syncer.shutdown();
+        try {
+            syncer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sync();
+    }
+
+    private void sync() {
+        MappedByteBuffer mapped;
+        int segment;
+        int from;
+        int to;
+        synchronized (this) {
+            segment = activeSegment;
+            to = writePosition;
+            long durable = durablePosition;
+            if (durable >= position(segment, to)) {
+                return;
+            }
+            mapped = active;
+            // Earlier segments were forced when they were sealed
+            from = (int) (durable >>> 32) == segment ? (int) durable : 0;
+        }
+        try {
+            mapped.force(from, to - from);
+            synchronized (this) {
+                durablePosition = Math.max(durablePosition, position(segment, to));
+                notifyAll();
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                syncFailure = new IOException("Journal sync failed", e);
+                notifyAll();
+            }
+        }
+    }
+
+    private void clearTail() {
+        if (writePosition + 4 > segmentBytes || active.getInt(writePosition) == 0) {
+            return;
+        }
+        // A torn record was left behind; zero the rest so nothing after it replays later
+        byte[] zeros = new byte[64 * 1024];
+        ByteBuffer buffer = active.duplicate();
+        buffer.position(writePosition);
+        while (buffer.hasRemaining()) {
+            buffer.put(zeros, 0, Math.min(zeros.length, buffer.remaining()));
+        }
+        active.force();
+    }
+
+    private void openSegment(int segment) throws IOException {
+        MappedByteBuffer mapped = map(segment);
+        segments.put(segment, mapped);
+        if (active != null) {
+            durablePosition = position(activeSegment, writePosition);
+            notifyAll();
+        }
+        activeSegment = segment;
+        active = mapped;
+        writePosition = 0;
+    }
+
+    private MappedByteBuffer map(int segment) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(segmentPath(segment).toFile(), "rw")) {
+            if (file.length() < segmentBytes) {
+                // Preallocated with zeros, so a zero length marks the end of written data
+                file.setLength(segmentBytes);
+            }
+            return file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+    }
+
+    private List<Integer> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(p -> p.getFileName().toString())
+                    .filter(name -> name.startsWith("journal-") && name.endsWith(".log"))
+                    .map(name -> Integer.parseInt(name.substring(8, name.length() - 4)))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path segmentPath(int segment) {
+        return directory.resolve(String.format("journal-%06d.log", segment));
+    }
+
+    private static long position(int segment, int offset) {
+        return ((long) segment << 32) | offset;
+    }
+}
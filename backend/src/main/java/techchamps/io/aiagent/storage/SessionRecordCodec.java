@@ -0,0 +1,137 @@
+package techchamps.io.aiagent.storage;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import techchamps.io.aiagent.model.ChatMessage;
+import techchamps.io.aiagent.model.ChatSession;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact binary encoding of a session and its messages, LZ4-compressed as one block.
+ * The first byte is a format version so archived records survive future entity changes.
+ */
+public final class SessionRecordCodec {
+
+    private static final byte VERSION = 1;
+    private static final LZ4Factory LZ4 = LZ4Factory.fastestInstance();
+
+    public static class Decoded {
+        private final ChatSession session;
+        private final List<ChatMessage> messages;
+
+        Decoded(ChatSession session, List<ChatMessage> messages) {
+            this.session = session;
+            this.messages = messages;
+        }
+
+        public ChatSession getSession() {
+            return session;
+        }
+
+        public List<ChatMessage> getMessages() {
+            return messages;
+        }
+    }
+
+    private SessionRecordCodec() {
+    }
+
+    public static byte[] encode(ChatSession session, List<ChatMessage> messages) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeString(out, session.getSessionId());
+        writeString(out, session.getTitle());
+        writeString(out, session.getContext());
+        writeString(out, session.getModel());
+        writeString(out, session.getImageModel());
+        writeString(out, session.getCreatedAt().toString());
+        writeString(out, session.getUpdatedAt().toString());
+        writeString(out, session.getSummary());
+        out.writeLong(session.getSummarizedSequence() != null ? session.getSummarizedSequence() : -1);
+        writeString(out, session.getParentSessionId());
+        out.writeLong(session.getForkSequence() != null ? session.getForkSequence() : -1);
+        out.writeInt(messages.size());
+        for (ChatMessage message : messages) {
+            out.writeLong(message.getSequence());
+            writeString(out, message.getContent());
+            writeString(out, message.getSender());
+            writeString(out, message.getTimestamp().toString());
+            writeString(out, message.getImageUrl());
+            writeString(out, message.getFileContent());
+            writeString(out, message.getFileName());
+        }
+        out.flush();
+
+        byte[] raw = bytes.toByteArray();
+        LZ4Compressor compressor = LZ4.fastCompressor();
+        byte[] block = new byte[5 + compressor.maxCompressedLength(raw.length)];
+        ByteBuffer.wrap(block).put(VERSION).putInt(raw.length);
+        int compressedLength = compressor.compress(raw, 0, raw.length, block, 5, block.length - 5);
+        return Arrays.copyOf(block, 5 + compressedLength);
+    }
+
+    public static Decoded decode(byte[] record) throws IOException {
+        ByteBuffer header = ByteBuffer.wrap(record);
+        byte version = header.get();
+        if (version != VERSION) {
+            throw new IOException("Unsupported session record version " + version);
+        }
+        byte[] raw = new byte[header.getInt()];
+        LZ4.fastDecompressor().decompress(record, 5, raw, 0, raw.length);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw));
+        ChatSession session = new ChatSession(readString(in), readString(in), readString(in), readString(in), readString(in));
+        session.setCreatedAt(LocalDateTime.parse(readString(in)));
+        session.setUpdatedAt(LocalDateTime.parse(readString(in)));
+        session.setSummary(readString(in));
+        long summarizedSequence = in.readLong();
+        session.setSummarizedSequence(summarizedSequence >= 0 ? summarizedSequence : null);
+        session.setParentSessionId(readString(in));
+        long forkSequence = in.readLong();
+        session.setForkSequence(forkSequence >= 0 ? forkSequence : null);
+        int count = in.readInt();
+        List<ChatMessage> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long sequence = in.readLong();
+            ChatMessage message = new ChatMessage(readString(in), readString(in));
+            message.setSequence(sequence);
+            message.setTimestamp(LocalDateTime.parse(readString(in)));
+            message.setImageUrl(readString(in));
+            message.setFileContent(readString(in));
+            message.setFileName(readString(in));
+            messages.add(message);
+        }
+        return new Decoded(session, messages);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,114 @@
+package techchamps.io.aiagent.storage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Storage format for large text columns.
+ *
+ * Small values are stored as-is. Values of at least {@code threshold} UTF-8 bytes are
+ * LZ4-compressed and stored as {@code MARKER + "lz4:" + base64(originalLength + block)},
+ * but only when that is actually shorter than the plain value. The marker is a control
+ * character that does not occur in normal text; plain values that happen to start with
+ * it are stored with a {@code "raw:"} prefix so they round-trip unchanged.
+ */
+public final class TextCompression {
+
+    static final char MARKER = '\u0001';
+    private static final String LZ4_PREFIX = MARKER + "lz4:";
+    private static final String RAW_PREFIX = MARKER + "raw:";
+
+    private static final LZ4Factory LZ4 = LZ4Factory.fastestInstance();
+
+    private static final AtomicLong rawBytes = new AtomicLong();
+    private static final AtomicLong storedBytes = new AtomicLong();
+
+    private static final Counter compressedValues = Counter.builder("chat.storage.compression.values")
+            .description("Values stored LZ4-compressed")
+            .register(Metrics.globalRegistry);
+    private static final Counter rawBytesCounter = Counter.builder("chat.storage.compression.raw.bytes")
+            .description("Uncompressed size of values that were compressed")
+            .baseUnit("bytes")
+            .register(Metrics.globalRegistry);
+    private static final Counter storedBytesCounter = Counter.builder("chat.storage.compression.stored.bytes")
+            .description("Stored size of values that were compressed")
+            .baseUnit("bytes")
+            .register(Metrics.globalRegistry);
+    private static final Timer compressTimer = Timer.builder("chat.storage.compression.time")
+            .tag("operation", "compress")
+            .register(Metrics.globalRegistry);
+    private static final Timer decompressTimer = Timer.builder("chat.storage.compression.time")
+            .tag("operation", "decompress")
+            .register(Metrics.globalRegistry);
+
+    static {
+        Metrics.globalRegistry.gauge("chat.storage.compression.ratio", rawBytes,
+                raw -> storedBytes.get() == 0 ? 1.0 : (double) raw.get() / storedBytes.get());
+    }
+
+    private TextCompression() {
+    }
+
+    public static String encode(String value, int threshold) {
+        if (value == null) {
+            return null;
+        }
+        if (value.length() * 3 < threshold || value.getBytes(StandardCharsets.UTF_8).length < threshold) {
+            return escape(value);
+        }
+        long start = System.nanoTime();
+        byte[] raw = value.getBytes(StandardCharsets.UTF_8);
+        LZ4Compressor compressor = LZ4.fastCompressor();
+        byte[] block = new byte[4 + compressor.maxCompressedLength(raw.length)];
+        ByteBuffer.wrap(block).putInt(raw.length);
+        int compressedLength = compressor.compress(raw, 0, raw.length, block, 4, block.length - 4);
+        String encoded = LZ4_PREFIX + Base64.getEncoder().encodeToString(Arrays.copyOf(block, 4 + compressedLength));
+        compressTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        if (encoded.length() >= value.length()) {
+            return escape(value);
+        }
+        compressedValues.increment();
+        rawBytes.addAndGet(raw.length);
+        storedBytes.addAndGet(encoded.length());
+        rawBytesCounter.increment(raw.length);
+        storedBytesCounter.increment(encoded.length());
+        return encoded;
+    }
+
+    public static String decode(String stored) {
+        if (stored == null || stored.isEmpty() || stored.charAt(0) != MARKER) {
+            return stored;
+        }
+        if (stored.startsWith(RAW_PREFIX)) {
+            return stored.substring(RAW_PREFIX.length());
+        }
+        if (!stored.startsWith(LZ4_PREFIX)) {
+            return stored;
+        }
+        long start = System.nanoTime();
+        byte[] block = Base64.getDecoder().decode(stored.substring(LZ4_PREFIX.length()));
+        int rawLength = ByteBuffer.wrap(block).getInt();
+        byte[] raw = new byte[rawLength];
+        LZ4FastDecompressor decompressor = LZ4.fastDecompressor();
+        decompressor.decompress(block, 4, raw, 0, rawLength);
+        String value = new String(raw, StandardCharsets.UTF_8);
+        decompressTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return value;
+    }
+
+    private static String escape(String value) {
+        return !value.isEmpty() && value.charAt(0) == MARKER ? RAW_PREFIX + value : value;
+    }
+}
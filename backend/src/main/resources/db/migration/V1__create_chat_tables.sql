@@ -0,0 +1,33 @@
+CREATE TABLE chat_sessions (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    session_id VARCHAR(255) NOT NULL,
+    title VARCHAR(255) NOT NULL,
+    context TEXT,
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6) NOT NULL,
+    model VARCHAR(255) NOT NULL,
+    image_model VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE chat_messages (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    chat_session_id BIGINT NOT NULL,
+    content TEXT NOT NULL,
+    sender VARCHAR(255) NOT NULL,
+    timestamp TIMESTAMP(6) NOT NULL,
+    image_url TEXT,
+    file_content TEXT,
+    file_name VARCHAR(255),
+    PRIMARY KEY (id),
+    CONSTRAINT fk_chat_messages_session FOREIGN KEY (chat_session_id) REFERENCES chat_sessions (id)
+);
+
+-- Every session lookup goes through session_id
+CREATE UNIQUE INDEX ux_chat_sessions_session_id ON chat_sessions (session_id);
+
+-- Session listings are ordered by most recent activity
+CREATE INDEX ix_chat_sessions_updated_at ON chat_sessions (updated_at);
+
+-- Ordered history reads: WHERE chat_session_id = ? ORDER BY timestamp
+CREATE INDEX ix_chat_messages_session_timestamp ON chat_messages (chat_session_id, timestamp);
@@ -0,0 +1,8 @@
+-- Sequence-based ids let Hibernate batch inserts (IDENTITY forces one round trip per row).
+-- Hibernate's pooled optimizer treats each value as the top of a block of 50 ids, so
+-- restart above the current maximum plus one block.
+CREATE SEQUENCE chat_sessions_seq START WITH 51 INCREMENT BY 50;
+CREATE SEQUENCE chat_messages_seq START WITH 51 INCREMENT BY 50;
+
+ALTER SEQUENCE chat_sessions_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 51 FROM chat_sessions);
+ALTER SEQUENCE chat_messages_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 51 FROM chat_messages);
@@ -0,0 +1,3 @@
+-- Rolling summary of older turns, and the sequence of the last message it covers
+ALTER TABLE chat_sessions ADD COLUMN summary TEXT;
+ALTER TABLE chat_sessions ADD COLUMN summarized_sequence BIGINT;
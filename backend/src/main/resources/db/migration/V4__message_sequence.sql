@@ -0,0 +1,17 @@
+-- Per-session message sequence numbers: timestamps tie or interleave under concurrent
+-- appends, so ordering uses the sequence allocated at insert time instead.
+ALTER TABLE chat_messages ADD COLUMN sequence BIGINT;
+
+UPDATE chat_messages m SET sequence = (
+    SELECT COUNT(*) FROM chat_messages o
+    WHERE o.chat_session_id = m.chat_session_id
+      AND (o.timestamp < m.timestamp OR (o.timestamp = m.timestamp AND o.id <= m.id))
+);
+
+ALTER TABLE chat_messages ALTER COLUMN sequence SET NOT NULL;
+
+DROP INDEX ix_chat_messages_session_timestamp;
+
+-- Ordered history reads (WHERE chat_session_id = ? ORDER BY sequence), and a guard
+-- against two writers ever allocating the same number
+CREATE UNIQUE INDEX ux_chat_messages_session_sequence ON chat_messages (chat_session_id, sequence);
@@ -0,0 +1,6 @@
+-- A fork shares its parent's messages up to fork_sequence by reference; the parent is
+-- referenced by session_id so the link survives archiving and re-import
+ALTER TABLE chat_sessions ADD COLUMN parent_session_id VARCHAR(255);
+ALTER TABLE chat_sessions ADD COLUMN fork_sequence BIGINT;
+
+CREATE INDEX ix_chat_sessions_parent_session_id ON chat_sessions (parent_session_id);
@@ -0,0 +1,18 @@
+-- Attached file content is stored once per distinct SHA-256 and shared by reference.
+-- ref_count is the number of chat_messages rows pointing at the blob; blobs that drop
+-- to zero are removed by FileBlobService once the grace period has passed since
+-- released_at, the time of the last release (or of the insert).
+CREATE TABLE file_blobs (
+    hash VARCHAR(64) NOT NULL,
+    content TEXT NOT NULL,
+    size_bytes BIGINT NOT NULL,
+    ref_count BIGINT NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL,
+    released_at TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (hash)
+);
+
+-- Existing inline file_content rows are moved into file_blobs in the background
+ALTER TABLE chat_messages ADD COLUMN file_blob_hash VARCHAR(64);
+
+CREATE INDEX ix_chat_messages_file_blob_hash ON chat_messages (file_blob_hash);
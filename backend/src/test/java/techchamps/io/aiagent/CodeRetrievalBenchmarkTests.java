@@ -0,0 +1,131 @@
+package techchamps.io.aiagent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import techchamps.io.aiagent.service.CodeRetrievalIndex;
+import techchamps.io.aiagent.service.GitHubFileContent;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Recall and query latency of code retrieval on a real snapshot: this project's own
+ * Java sources. Each class is looked up by its name split into words ("session journal"
+ * for SessionJournal). Recall@8 compares the results at the given ef-search with a
+ * search whose ef covers every chunk, which visits the whole graph. Hit@8 counts queries
+ * with a chunk of the class's own file in the results. Run with -Pperf.
+ */
+@Tag("perf")
+class CodeRetrievalBenchmarkTests {
+
+    private static final int K = 8;
+    private static final String TOKEN = "benchmark-token";
+
+    @TempDir
+    Path root;
+
+    private CodeRetrievalIndex index;
+
+    @AfterEach
+    void shutdown() {
+        index.shutdown();
+    }
+
+    @Test
+    void recallAndLatencyOnThisRepository() throws Exception {
+        Map<String, String> shas = new LinkedHashMap<>();
+        try (Stream<Path> files = Stream.concat(Files.walk(Path.of("src/main/java")), Files.walk(Path.of("src/test/java")))) {
+            files.filter(path -> path.toString().endsWith(".java"))
+                    .forEach(path -> shas.put(path.toString(), Integer.toHexString(read(path).hashCode())));
+        }
+        index = new CodeRetrievalIndex();
+        ReflectionTestUtils.setField(index, "enabled", true);
+        ReflectionTestUtils.setField(index, "directory", root.toString());
+        ReflectionTestUtils.setField(index, "maxFileSize", DataSize.ofMegabytes(1));
+        ReflectionTestUtils.setField(index, "rebuildThreshold", 0.3);
+        ReflectionTestUtils.setField(index, "efSearch", 64);
+        index.init();
+
+        long start = System.nanoTime();
+        index.update("techchamps/ai-agent", TOKEN, shas, path -> GitHubFileContent.of(read(Path.of(path)).getBytes(StandardCharsets.UTF_8)));
+        ExecutorService indexer = (ExecutorService) ReflectionTestUtils.getField(index, "indexer");
+        indexer.submit(() -> { }).get(10, TimeUnit.MINUTES);
+        long indexing = (System.nanoTime() - start) / 1_000_000;
+        // An unbounded search returns every chunk
+        int chunks = search("warm up", Integer.MAX_VALUE / 2, 100_000).size();
+        System.out.printf("indexed %d files, %d chunks in %,d ms%n", shas.size(), chunks, indexing);
+
+        List<String> queries = new ArrayList<>();
+        for (String path : shas.keySet()) {
+            String name = Path.of(path).getFileName().toString().replace(".java", "");
+            queries.add(String.join(" ", name.split("(?<=[a-z0-9])(?=[A-Z])")).toLowerCase(Locale.ROOT) + "\t" + path);
+        }
+        List<List<String>> exact = new ArrayList<>();
+        for (String query : queries) {
+            exact.add(keys(search(query.split("\t")[0], chunks, K)));
+        }
+
+        for (int ef : new int[] {16, 64, 128}) {
+            ReflectionTestUtils.setField(index, "efSearch", ef);
+            double recall = 0;
+            int hits = 0;
+            long[] latencies = new long[queries.size()];
+            for (int i = 0; i < queries.size(); i++) {
+                String[] query = queries.get(i).split("\t");
+                long queryStart = System.nanoTime();
+                List<CodeRetrievalIndex.ScoredChunk> results = index.search("techchamps/ai-agent", TOKEN, query[0], K);
+                latencies[i] = System.nanoTime() - queryStart;
+                Set<String> found = Set.copyOf(keys(results));
+                recall += exact.get(i).stream().filter(found::contains).count() / (double) exact.get(i).size();
+                if (results.stream().anyMatch(result -> result.chunk().path().equals(query[1]))) {
+                    hits++;
+                }
+            }
+            Arrays.sort(latencies);
+            recall /= queries.size();
+            System.out.printf("ef-search %d: recall@%d %.3f, hit@%d %.3f, mean %.2f ms, p95 %.2f ms%n", ef, K, recall, K,
+                    hits / (double) queries.size(), Arrays.stream(latencies).average().orElse(0) / 1e6,
+                    latencies[(int) (latencies.length * 0.95)] / 1e6);
+            if (ef >= 64) {
+                assertTrue(recall >= 0.9, "recall@" + K + " " + recall + " at ef-search " + ef);
+            }
+        }
+    }
+
+    private List<CodeRetrievalIndex.ScoredChunk> search(String question, int ef, int k) {
+        ReflectionTestUtils.setField(index, "efSearch", ef);
+        return index.search("techchamps/ai-agent", TOKEN, question, k);
+    }
+
+    // Chunks are told apart by file and first line
+    private static List<String> keys(List<CodeRetrievalIndex.ScoredChunk> results) {
+        return results.stream().map(result -> result.chunk().path() + ":" + result.chunk().startLine()).toList();
+    }
+
+    private static String read(Path path) {
+        try {
+            return Files.readString(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
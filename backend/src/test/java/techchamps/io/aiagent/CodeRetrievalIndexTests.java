@@ -0,0 +1,181 @@
+package techchamps.io.aiagent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import techchamps.io.aiagent.service.CodeRetrievalIndex;
+import techchamps.io.aiagent.service.GitHubFileContent;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CodeRetrievalIndexTests {
+
+    private static final String REPOSITORY = "octo/hello";
+    private static final String TOKEN = "retrieval-token";
+
+    private static final String LIMITER = """
+            package octo;
+
+            /**
+             * Waits out the rate limit before each request.
+             */
+            public class RateLimiter {
+
+                private long resetAt;
+
+                public void awaitRateLimitReset() throws InterruptedException {
+                    long wait = resetAt - System.currentTimeMillis();
+                    if (wait > 0) {
+                        Thread.sleep(wait);
+                    }
+                }
+            }
+            """;
+
+    private static final String JOURNAL = """
+            package octo;
+
+            import java.nio.file.Path;
+
+            public class SessionJournal {
+
+                private final Path journalFile;
+
+                public SessionJournal(Path journalFile) {
+                    this.journalFile = journalFile;
+                }
+
+                public void appendMessage(String sessionId, String message) {
+                    // Writes the message to the journal file
+                }
+            }
+            """;
+
+    @TempDir
+    Path root;
+
+    private final List<CodeRetrievalIndex> opened = new ArrayList<>();
+    private final Map<String, String> shas = new LinkedHashMap<>();
+    private final Map<String, String> contents = new LinkedHashMap<>();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @AfterEach
+    void shutdown() {
+        opened.forEach(CodeRetrievalIndex::shutdown);
+    }
+
+    @Test
+    void questionsRetrieveTheChunkThatDeclaresWhatTheyAskAbout() {
+        CodeRetrievalIndex index = open(true);
+        file("src/RateLimiter.java", LIMITER);
+        file("src/SessionJournal.java", JOURNAL);
+        sync(index);
+
+        // The class is cut before its members, so both halves rank above the other file
+        List<CodeRetrievalIndex.ScoredChunk> results = index.search(REPOSITORY, TOKEN, "where do we wait for the rate limit reset?", 2);
+        assertEquals(2, results.size());
+        assertEquals(List.of("src/RateLimiter.java", "src/RateLimiter.java"), results.stream().map(result -> result.chunk().path()).toList());
+        assertTrue(results.stream().anyMatch(result -> result.chunk().text().contains("public void awaitRateLimitReset()")));
+        assertTrue(results.get(0).score() >= results.get(1).score());
+        assertEquals("src/SessionJournal.java",
+                index.search(REPOSITORY, TOKEN, "append a message to the session journal", 1).get(0).chunk().path());
+        assertTrue(index.search(REPOSITORY, "other-token", "rate limit", 1).isEmpty());
+    }
+
+    @Test
+    void changedFilesReplaceTheirChunks() {
+        CodeRetrievalIndex index = open(true);
+        file("src/RateLimiter.java", LIMITER);
+        file("src/SessionJournal.java", JOURNAL);
+        sync(index);
+
+        file("src/RateLimiter.java", LIMITER.replace("awaitRateLimitReset", "blockUntilQuotaReturns"));
+        shas.remove("src/SessionJournal.java");
+        sync(index);
+
+        List<CodeRetrievalIndex.ScoredChunk> results = index.search(REPOSITORY, TOKEN, "session journal append message", 10);
+        assertFalse(results.isEmpty());
+        for (CodeRetrievalIndex.ScoredChunk result : results) {
+            assertEquals("src/RateLimiter.java", result.chunk().path());
+            assertFalse(result.chunk().text().contains("awaitRateLimitReset"));
+        }
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void indexesSurviveARestartWithoutReloadingFiles() {
+        CodeRetrievalIndex index = open(true);
+        file("src/RateLimiter.java", LIMITER);
+        file("src/SessionJournal.java", JOURNAL);
+        sync(index);
+        index.shutdown();
+        opened.remove(index);
+
+        CodeRetrievalIndex reopened = open(true);
+        // Token grants are kept in memory only, so the repository is connected again
+        assertTrue(reopened.search(REPOSITORY, TOKEN, "rate limit", 1).isEmpty());
+        sync(reopened);
+
+        assertEquals(2, loads.get());
+        assertEquals("src/RateLimiter.java", reopened.search(REPOSITORY, TOKEN, "rate limit reset", 1).get(0).chunk().path());
+    }
+
+    @Test
+    void nothingIsWrittenWhenDisabled() {
+        CodeRetrievalIndex index = open(false);
+        file("src/RateLimiter.java", LIMITER);
+        index.update(REPOSITORY, TOKEN, new LinkedHashMap<>(shas), this::load);
+
+        assertTrue(index.search(REPOSITORY, TOKEN, "rate limit", 1).isEmpty());
+        assertFalse(Files.exists(root.resolve("retrieval")));
+        assertEquals(0, loads.get());
+    }
+
+    private CodeRetrievalIndex open(boolean enabled) {
+        CodeRetrievalIndex index = new CodeRetrievalIndex();
+        ReflectionTestUtils.setField(index, "enabled", enabled);
+        ReflectionTestUtils.setField(index, "directory", root.resolve("retrieval").toString());
+        ReflectionTestUtils.setField(index, "efSearch", 64);
+        ReflectionTestUtils.setField(index, "maxFileSize", DataSize.ofKilobytes(64));
+        ReflectionTestUtils.setField(index, "rebuildThreshold", 0.3);
+        index.init();
+        opened.add(index);
+        return index;
+    }
+
+    private void file(String path, String content) {
+        shas.put(path, Integer.toHexString(content.hashCode()));
+        contents.put(path, content);
+    }
+
+    private GitHubFileContent load(String path) {
+        loads.incrementAndGet();
+        return GitHubFileContent.of(contents.get(path).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Updates run one after another on the indexer thread, so an empty task queued behind one waits it out
+    private void sync(CodeRetrievalIndex index) {
+        index.update(REPOSITORY, TOKEN, new LinkedHashMap<>(shas), this::load);
+        ExecutorService indexer = (ExecutorService) ReflectionTestUtils.getField(index, "indexer");
+        try {
+            indexer.submit(() -> { }).get(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new AssertionError("Indexing did not finish", e);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package techchamps.io.aiagent;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import techchamps.io.aiagent.service.CodeSearchIndex;
+import techchamps.io.aiagent.service.GitHubService;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Which connected repositories get indexed for code search.
+ */
+@SpringBootTest(properties = "code-retrieval.enabled=false")
+class CodeSearchConnectTests {
+
+    private static final GitHubApiStub github = GitHubApiStub.start();
+    private static final AtomicInteger blobRequests = new AtomicInteger();
+
+    static {
+        github.route("/repos/octo/", new SyntheticTreeHandler(2, 2, 3));
+        github.route("/repos/octo/api/git/blobs/", exchange -> {
+            blobRequests.incrementAndGet();
+            GitHubApiStub.respond(exchange, 200, "class F { void connect() {} }".getBytes());
+        });
+    }
+
+    @DynamicPropertySource
+    static void githubProperties(DynamicPropertyRegistry registry) {
+        registry.add("github.api.base-url", github::baseUrl);
+    }
+
+    @AfterAll
+    static void stopGitHub() {
+        github.close();
+    }
+
+    @Autowired
+    private GitHubService gitHubService;
+
+    @Autowired
+    private CodeSearchIndex codeSearchIndex;
+
+    @Test
+    void repositoriesWithoutAMirrorAreNotIndexedByDefault() {
+        gitHubService.connectToRepository("connect-token", "https://github.com/octo/unmirrored");
+
+        assertThrows(IllegalStateException.class,
+                () -> codeSearchIndex.search("octo/unmirrored", "connect-token", "connect", false, false, 10));
+        assertEquals(0, blobRequests.get());
+    }
+
+    @Test
+    void apiRepositoriesAreIndexedWhenEnabled() throws Exception {
+        ReflectionTestUtils.setField(gitHubService, "indexApiRepositories", true);
+        try {
+            gitHubService.connectToRepository("connect-token", "https://github.com/octo/api");
+        } finally {
+            ReflectionTestUtils.setField(gitHubService, "indexApiRepositories", false);
+        }
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (codeSearchIndex.search("octo/api", "connect-token", "connect", false, false, 20).indexing()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Indexing did not finish");
+            }
+            Thread.sleep(20);
+        }
+        // Twelve sources plus README.md, one blob request each; logo.png is skipped
+        assertEquals(13, blobRequests.get());
+        assertEquals(13, codeSearchIndex.search("octo/api", "connect-token", "connect", false, false, 20).matches().size());
+    }
+}
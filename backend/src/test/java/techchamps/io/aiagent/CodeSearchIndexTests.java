@@ -0,0 +1,125 @@
+package techchamps.io.aiagent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import techchamps.io.aiagent.service.CodeSearchIndex;
+import techchamps.io.aiagent.service.GitHubFileContent;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class CodeSearchIndexTests {
+
+    private static final String REPOSITORY = "octo/hello";
+    private static final String TOKEN = "search-token";
+
+    private CodeSearchIndex index;
+    private final Map<String, String> shas = new LinkedHashMap<>();
+    private final Map<String, String> contents = new HashMap<>();
+
+    @BeforeEach
+    void createIndex() {
+        index = new CodeSearchIndex();
+        ReflectionTestUtils.setField(index, "enabled", true);
+        ReflectionTestUtils.setField(index, "maxFileSize", DataSize.ofKilobytes(1));
+        ReflectionTestUtils.setField(index, "rebuildThreshold", 0.3);
+        ReflectionTestUtils.setField(index, "regexTimeout", Duration.ofSeconds(2));
+        index.init();
+        file("src/Main.java", "class Main {\n    String getFileContent(String token) {\n        return token;\n    }\n}\n");
+        file("src/Util.java", "class Util {\n    static int GETFILECONTENT = 1;\n}\n");
+        file("README.md", "Call getFileContent() to read a file.\n");
+        file("big.txt", "getFileContent ".repeat(100));
+        sync();
+    }
+
+    @AfterEach
+    void shutdown() {
+        index.shutdown();
+    }
+
+    @Test
+    void substringQueriesReturnMatchingLines() {
+        List<CodeSearchIndex.Match> matches = search("getFileContent(", false, false);
+
+        assertEquals(Set.of(new CodeSearchIndex.Match("src/Main.java", 2, "String getFileContent(String token) {"),
+                new CodeSearchIndex.Match("README.md", 1, "Call getFileContent() to read a file.")), Set.copyOf(matches));
+        assertEquals(3, search("getfilecontent", false, false).size());
+        assertEquals(1, search("GETFILECONTENT", false, true).size());
+    }
+
+    @Test
+    void regexQueriesAreMatchedAgainstCandidates() {
+        List<CodeSearchIndex.Match> matches = search("getFileContent\\(String \\w+\\)", true, true);
+
+        assertEquals(1, matches.size());
+        assertEquals("src/Main.java", matches.get(0).path());
+        // A top-level alternation has no required literal, so every file is a candidate
+        assertEquals(2, search("class (Main|Util)", true, true).size());
+        assertThrows(IllegalArgumentException.class, () -> index.search(REPOSITORY, TOKEN, "(", true, false, 10));
+    }
+
+    @Test
+    void catastrophicBacktrackingTimesOut() {
+        file("src/Backtrack.txt", "a".repeat(40) + "!\n");
+        sync();
+        ReflectionTestUtils.setField(index, "regexTimeout", Duration.ofMillis(200));
+
+        long start = System.nanoTime();
+        // The JDK memoizes simple nested quantifiers like (a+)+$, so this one nests .* instead
+        assertThrows(IllegalStateException.class, () -> index.search(REPOSITORY, TOKEN, "(.*a){20}$", true, true, 10));
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(5).toNanos());
+    }
+
+    @Test
+    void changedAndRemovedFilesAreReindexed() {
+        file("src/Main.java", "class Main {}\n");
+        shas.remove("README.md");
+        file("src/New.java", "class New { void getFileContent() {} }\n");
+        sync();
+
+        List<CodeSearchIndex.Match> matches = search("getFileContent(", false, true);
+        assertEquals(1, matches.size());
+        assertEquals("src/New.java", matches.get(0).path());
+        assertEquals(3, index.search(REPOSITORY, TOKEN, "class", false, true, 10).indexedFiles());
+    }
+
+    @Test
+    void onlyTokensThatConnectedTheRepositoryMaySearchIt() {
+        assertThrows(IllegalStateException.class, () -> index.search(REPOSITORY, "other-token", "class", false, false, 10));
+        assertThrows(IllegalStateException.class, () -> index.search("octo/other", TOKEN, "class", false, false, 10));
+    }
+
+    private void file(String path, String content) {
+        shas.put(path, Integer.toHexString(content.hashCode()));
+        contents.put(path, content);
+    }
+
+    private void sync() {
+        index.update(REPOSITORY, TOKEN, new LinkedHashMap<>(shas),
+                path -> GitHubFileContent.of(contents.get(path).getBytes(StandardCharsets.UTF_8)));
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (index.search(REPOSITORY, TOKEN, "zzz", false, false, 1).indexing()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Indexing did not finish");
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private List<CodeSearchIndex.Match> search(String query, boolean regex, boolean caseSensitive) {
+        return index.search(REPOSITORY, TOKEN, query, regex, caseSensitive, 10).matches();
+    }
+}
@@ -0,0 +1,63 @@
+package techchamps.io.aiagent;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import techchamps.io.aiagent.model.ChatSession;
+import techchamps.io.aiagent.service.ChatSessionService;
+import techchamps.io.aiagent.storage.TextCompression;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class ColumnCompressionTests {
+
+    @Autowired
+    private ChatSessionService chatSessionService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void onlyValuesPastTheThresholdAreCompressed() {
+        String small = "short value";
+        String large = "line of repeated text\n".repeat(200);
+
+        assertEquals(small, TextCompression.encode(small, 1024));
+        String stored = TextCompression.encode(large, 1024);
+        assertTrue(stored.length() < large.length());
+        assertEquals(large, TextCompression.decode(stored));
+    }
+
+    @Test
+    void largeMessagesAreStoredCompressedAndReadBackIntact() {
+        String large = "a long assistant reply\n".repeat(200);
+        ChatSession session = chatSessionService.createSession("compression", null, "gpt-4", "dall-e-3");
+        chatSessionService.addMessage(session.getSessionId(), large, "assistant", null, null, null);
+
+        String stored = jdbcTemplate.queryForObject("SELECT m.content FROM chat_messages m JOIN chat_sessions s ON s.id = m.chat_session_id "
+                + "WHERE s.session_id = ?", String.class, session.getSessionId());
+        assertTrue(stored.length() < large.length());
+        assertEquals(large, chatSessionService.getSessionMessages(session.getSessionId()).get(0).getContent());
+    }
+
+    @Test
+    void searchMatchesLargeContextsInTheDatabase() {
+        String context = "project notes\n".repeat(200) + "needle-in-context";
+        ChatSession session = chatSessionService.createSession("searchable", context, "gpt-4", "dall-e-3");
+
+        String stored = jdbcTemplate.queryForObject("SELECT context FROM chat_sessions WHERE session_id = ?",
+                String.class, session.getSessionId());
+        assertEquals(context, stored);
+        List<String> found = chatSessionService.searchSessions("needle-in-context").stream()
+                .map(ChatSession::getSessionId).toList();
+        assertTrue(found.contains(session.getSessionId()));
+        assertFalse(chatSessionService.searchSessions("no-such-needle").stream()
+                .anyMatch(s -> s.getSessionId().equals(session.getSessionId())));
+    }
+}
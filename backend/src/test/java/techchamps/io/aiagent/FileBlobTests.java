@@ -0,0 +1,71 @@
+package techchamps.io.aiagent;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import techchamps.io.aiagent.model.ChatMessage;
+import techchamps.io.aiagent.model.ChatSession;
+import techchamps.io.aiagent.service.ChatSessionService;
+import techchamps.io.aiagent.service.FileBlobService;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@SpringBootTest(properties = "chat.file-blobs.grace-period=PT1H")
+class FileBlobTests {
+
+    @Autowired
+    private ChatSessionService chatSessionService;
+
+    @Autowired
+    private FileBlobService fileBlobService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void identicalAttachmentsShareOneCountedBlob() {
+        String content = "shared attachment " + System.nanoTime();
+        ChatSession first = chatSessionService.createSession("blob a", null, "gpt-4", "dall-e-3");
+        ChatSession second = chatSessionService.createSession("blob b", null, "gpt-4", "dall-e-3");
+        ChatMessage message = chatSessionService.addMessage(first.getSessionId(), "see file", "user", null, content, "a.txt");
+        chatSessionService.addMessage(second.getSessionId(), "same file", "user", null, content, "a.txt");
+
+        String hash = message.getFileBlobHash();
+        assertNotNull(hash);
+        assertNull(message.getFileContent());
+        assertEquals(content, fileBlobService.getContent(hash).orElseThrow());
+        assertEquals(2L, refCount(hash));
+
+        chatSessionService.deleteSession(first.getSessionId());
+        assertEquals(1L, refCount(hash));
+    }
+
+    @Test
+    void theGracePeriodRunsFromTheLastRelease() {
+        String content = "old attachment " + System.nanoTime();
+        ChatSession session = chatSessionService.createSession("grace", null, "gpt-4", "dall-e-3");
+        String hash = chatSessionService.addMessage(session.getSessionId(), "file", "user", null, content, "b.txt").getFileBlobHash();
+        // Created long ago, but only just released
+        jdbcTemplate.update("UPDATE file_blobs SET created_at = ? WHERE hash = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusDays(2)), hash);
+        chatSessionService.deleteSession(session.getSessionId());
+
+        fileBlobService.deleteUnreferenced();
+        assertEquals(0L, refCount(hash));
+
+        jdbcTemplate.update("UPDATE file_blobs SET released_at = ? WHERE hash = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusHours(2)), hash);
+        fileBlobService.deleteUnreferenced();
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM file_blobs WHERE hash = ?", Integer.class, hash));
+    }
+
+    private Long refCount(String hash) {
+        return jdbcTemplate.queryForObject("SELECT ref_count FROM file_blobs WHERE hash = ?", Long.class, hash);
+    }
+}
@@ -0,0 +1,123 @@
+package techchamps.io.aiagent;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import techchamps.io.aiagent.service.GitHubBlobCache;
+import techchamps.io.aiagent.service.GitHubService;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "github.blob-cache.max-size=1KB",
+        "code-search.enabled=false",
+        "code-retrieval.enabled=false"})
+class GitHubBlobCacheTests {
+
+    private static final String SMALL = "class A { /* é */ }\n".repeat(3);
+    private static final String LARGE = "x".repeat(2000);
+
+    private static final GitHubApiStub github = GitHubApiStub.start();
+    private static final AtomicInteger blobRequests = new AtomicInteger();
+
+    static {
+        // Two repositories holding the same small file
+        for (String repo : List.of("hello", "fork")) {
+            github.route("/repos/octo/" + repo + "/git/trees/", exchange -> GitHubApiStub.respond(exchange, 200,
+                    "{\"truncated\":false,\"tree\":["
+                            + "{\"path\":\"A.java\",\"type\":\"blob\",\"sha\":\"" + sha(1) + "\"},"
+                            + "{\"path\":\"Big.java\",\"type\":\"blob\",\"sha\":\"" + sha(2) + "\"}]}"));
+            github.route("/repos/octo/" + repo + "/git/blobs/", exchange -> {
+                blobRequests.incrementAndGet();
+                String body = exchange.getRequestURI().getPath().endsWith(sha(1)) ? SMALL : LARGE;
+                GitHubApiStub.respond(exchange, 200, body.getBytes(StandardCharsets.UTF_8));
+            });
+        }
+    }
+
+    @DynamicPropertySource
+    static void githubProperties(DynamicPropertyRegistry registry) {
+        registry.add("github.api.base-url", github::baseUrl);
+    }
+
+    @AfterAll
+    static void stopGitHub() {
+        github.close();
+    }
+
+    @Autowired
+    private GitHubService gitHubService;
+
+    @BeforeEach
+    void reset() {
+        blobRequests.set(0);
+    }
+
+    @Test
+    void listedFilesAreFetchedOncePerBlob() {
+        gitHubService.connectToRepository("blob-token-a", "https://github.com/octo/hello");
+        gitHubService.connectToRepository("blob-token-a", "https://github.com/octo/fork");
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(SMALL, gitHubService.getFileContent("blob-token-a", "https://github.com/octo/hello", "A.java"));
+        }
+        // Same SHA in another repository
+        assertEquals(SMALL, gitHubService.getFileContent("blob-token-a", "https://github.com/octo/fork", "A.java"));
+        assertEquals(1, blobRequests.get());
+
+        // Larger than the whole cache, so fetched every time
+        assertEquals(LARGE, gitHubService.getFileContent("blob-token-a", "https://github.com/octo/hello", "Big.java"));
+        assertEquals(LARGE, gitHubService.getFileContent("blob-token-a", "https://github.com/octo/hello", "Big.java"));
+        assertEquals(3, blobRequests.get());
+    }
+
+    @Test
+    void blobsAreEvictedLeastRecentlyUsedByTotalSize() {
+        GitHubBlobCache cache = new GitHubBlobCache();
+        ReflectionTestUtils.setField(cache, "maxSize", DataSize.ofBytes(100));
+        cache.put("a", ByteBuffer.wrap(new byte[40]));
+        cache.put("b", ByteBuffer.wrap(new byte[40]));
+        assertNotNull(cache.get("a"));
+        cache.put("c", ByteBuffer.wrap(new byte[40]));
+
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertEquals(80, cache.size());
+        cache.put("huge", ByteBuffer.wrap(new byte[101]));
+        assertNull(cache.get("huge"));
+    }
+
+    @Test
+    void readersGetIndependentReadOnlyViews() {
+        GitHubBlobCache cache = new GitHubBlobCache();
+        ReflectionTestUtils.setField(cache, "maxSize", DataSize.ofKilobytes(1));
+        cache.put("a", ByteBuffer.wrap("abc".getBytes(StandardCharsets.UTF_8)));
+
+        ByteBuffer first = cache.get("a");
+        first.get();
+        ByteBuffer second = cache.get("a");
+
+        assertTrue(first.isReadOnly());
+        assertTrue(first.isDirect());
+        assertEquals(3, second.remaining());
+    }
+
+    private static String sha(int n) {
+        return String.format("%040d", n);
+    }
+}
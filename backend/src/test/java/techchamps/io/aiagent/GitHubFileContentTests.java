@@ -0,0 +1,124 @@
+package techchamps.io.aiagent;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import techchamps.io.aiagent.service.GitHubFileContent;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GitHubFileContentTests {
+
+    @TempDir
+    Path tempDirectory;
+
+    @Test
+    void charsetsAreDetectedFromTheBytes() {
+        GitHubFileContent utf8 = GitHubFileContent.of("naïve café".getBytes(StandardCharsets.UTF_8));
+        assertEquals(StandardCharsets.UTF_8, utf8.getCharset());
+        assertEquals("naïve café", utf8.text());
+
+        GitHubFileContent utf8Bom = GitHubFileContent.of(concat(new byte[] {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF},
+                "héllo".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("héllo", utf8Bom.text());
+
+        GitHubFileContent utf16 = GitHubFileContent.of(concat(new byte[] {(byte) 0xFF, (byte) 0xFE},
+                "héllo".getBytes(StandardCharsets.UTF_16LE)));
+        assertEquals(StandardCharsets.UTF_16LE, utf16.getCharset());
+        assertEquals("héllo", utf16.text());
+
+        // é and the euro sign in windows-1252, neither valid UTF-8
+        GitHubFileContent legacy = GitHubFileContent.of(new byte[] {'c', 'a', 'f', (byte) 0xE9, ' ', (byte) 0x80});
+        assertEquals(Charset.forName("windows-1252"), legacy.getCharset());
+        assertEquals("café €", legacy.text());
+    }
+
+    @Test
+    void binaryFilesKeepTheirBytesAndHaveNoText() throws IOException {
+        byte[] png = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0, 0, 0, 13, (byte) 0xFF};
+        GitHubFileContent content = GitHubFileContent.of(png);
+
+        assertTrue(content.isBinary());
+        assertNull(content.getCharset());
+        assertEquals(png.length, content.size());
+        try (InputStream in = content.openStream()) {
+            assertArrayEquals(png, in.readAllBytes());
+        }
+        ByteBuffer view = content.asByteBuffer();
+        assertTrue(view.isReadOnly());
+        assertEquals(png.length, view.remaining());
+        assertThrows(IllegalStateException.class, content::text);
+        assertThrows(IllegalStateException.class, content::openReader);
+    }
+
+    @Test
+    void aPrefixOfTheTextCanBeDecodedAlone() throws IOException {
+        GitHubFileContent content = GitHubFileContent.of("line one\nline twö\n".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("line one", content.text(8));
+        assertEquals("line one\nline twö\n", content.text(1000));
+        try (BufferedReader reader = new BufferedReader(content.openReader())) {
+            assertEquals("line one", reader.readLine());
+            assertEquals("line twö", reader.readLine());
+        }
+    }
+
+    @Test
+    void largeContentIsSpooledToATempFileThatIsDeletedOnceMapped() throws IOException {
+        byte[] small = "x".repeat(100).getBytes(StandardCharsets.UTF_8);
+        GitHubFileContent.Spool inMemory = GitHubFileContent.spool(10_000, 1_000, tempDirectory);
+        inMemory.write(small);
+        assertEquals(0, tempFiles());
+        assertArrayEquals(small, inMemory.finish().openStream().readAllBytes());
+
+        byte[] large = new byte[5_000];
+        Arrays.fill(large, (byte) 'y');
+        GitHubFileContent.Spool spooled = GitHubFileContent.spool(10_000, 1_000, tempDirectory);
+        spooled.write(large, 0, 800);
+        assertEquals(0, tempFiles());
+        spooled.write(large, 800, 4_200);
+        assertEquals(1, tempFiles());
+        GitHubFileContent content = spooled.finish();
+        assertEquals(0, tempFiles());
+        assertEquals(5_000, content.size());
+        assertFalse(content.isBinary());
+        assertEquals("y".repeat(5_000), content.text());
+    }
+
+    @Test
+    void spoolsRefuseContentPastTheMaximumSize() throws IOException {
+        GitHubFileContent.Spool spool = GitHubFileContent.spool(2_000, 1_000, tempDirectory);
+        spool.write(new byte[1_500]);
+
+        assertThrows(IOException.class, () -> spool.write(new byte[501]));
+        spool.discard();
+        assertEquals(0, tempFiles());
+    }
+
+    private long tempFiles() throws IOException {
+        try (Stream<Path> files = Files.list(tempDirectory)) {
+            return files.count();
+        }
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] bytes = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, bytes, first.length, second.length);
+        return bytes;
+    }
+}
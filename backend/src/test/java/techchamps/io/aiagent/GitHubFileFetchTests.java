@@ -0,0 +1,107 @@
+package techchamps.io.aiagent;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import techchamps.io.aiagent.service.GitHubService;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "github.file-fetch.concurrency=3",
+        "github.file-fetch.timeout=PT1S",
+        "code-search.enabled=false",
+        "code-retrieval.enabled=false"})
+class GitHubFileFetchTests {
+
+    private static final GitHubApiStub github = GitHubApiStub.start();
+    private static final AtomicBoolean slowDownloadAborted = new AtomicBoolean();
+    private static final CountDownLatch slowDownloadEnded = new CountDownLatch(1);
+
+    static {
+        github.route("/repos/octo/hello/contents/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            if (!path.endsWith("/Slow.java")) {
+                sleep(200);
+                GitHubApiStub.respond(exchange, 200, path.substring(path.lastIndexOf('/') + 1).getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            // Trickles out a chunk every 100 ms for four seconds unless the client hangs up
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream body = exchange.getResponseBody()) {
+                for (int i = 0; i < 40; i++) {
+                    body.write(new byte[1024]);
+                    body.flush();
+                    sleep(100);
+                }
+            } catch (IOException e) {
+                slowDownloadAborted.set(true);
+            } finally {
+                slowDownloadEnded.countDown();
+            }
+        });
+    }
+
+    @DynamicPropertySource
+    static void githubProperties(DynamicPropertyRegistry registry) {
+        registry.add("github.api.base-url", github::baseUrl);
+    }
+
+    @AfterAll
+    static void stopGitHub() {
+        github.close();
+    }
+
+    @Autowired
+    private GitHubService gitHubService;
+
+    @Test
+    void filesStreamInAsTheyArriveAndATimeoutAbortsTheDownload() throws Exception {
+        List<String> paths = new ArrayList<>();
+        paths.add("Slow.java");
+        for (int i = 0; i < 9; i++) {
+            paths.add("F" + i + ".java");
+        }
+        // Starts the client's event loops so only the fetches are timed
+        gitHubService.fetchFiles("fetch-token", "https://github.com/octo/hello", List.of("Warm.java")).blockLast();
+        github.resetCounters();
+
+        long start = System.nanoTime();
+        List<Long> arrivals = new ArrayList<>();
+        List<String> fetched = gitHubService.fetchFiles("fetch-token", "https://github.com/octo/hello", paths)
+                .doOnNext(file -> arrivals.add((System.nanoTime() - start) / 1_000_000))
+                .map(file -> file.content().text())
+                .collectList()
+                .block();
+
+        assertEquals(9, fetched.size());
+        assertFalse(fetched.contains("Slow.java"));
+        assertTrue(arrivals.get(0) < 1000, "first file after " + arrivals.get(0) + " ms");
+        assertTrue(github.maxInFlight() <= 3, "max in flight " + github.maxInFlight());
+        // The stub only notices the cancelled exchange when its next write fails
+        assertTrue(slowDownloadEnded.await(5, TimeUnit.SECONDS));
+        assertTrue(slowDownloadAborted.get(), "the timed-out download ran to completion");
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
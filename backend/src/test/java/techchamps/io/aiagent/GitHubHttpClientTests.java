@@ -0,0 +1,100 @@
+package techchamps.io.aiagent;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import techchamps.io.aiagent.service.GitHubService;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The RestTemplate and WebClient share one pooled, compressing HTTP client.
+ */
+@SpringBootTest(properties = {
+        "github.identity-cache.ttl=PT0S",
+        "code-search.enabled=false",
+        "code-retrieval.enabled=false"})
+class GitHubHttpClientTests {
+
+    private static final GitHubApiStub github = GitHubApiStub.start();
+    // Client-side ports of the connections requests arrived on
+    private static final Set<Integer> restTemplateConnections = ConcurrentHashMap.newKeySet();
+    private static final Set<Integer> webClientConnections = ConcurrentHashMap.newKeySet();
+    private static final List<String> acceptEncodings = new CopyOnWriteArrayList<>();
+
+    static {
+        github.route("/user", exchange -> {
+            restTemplateConnections.add(exchange.getRemoteAddress().getPort());
+            acceptEncodings.add(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+            GitHubApiStub.respond(exchange, 200, "{\"login\":\"octocat\",\"id\":1}");
+        });
+        github.route("/repos/octo/hello/contents/", exchange -> {
+            webClientConnections.add(exchange.getRemoteAddress().getPort());
+            acceptEncodings.add(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(body)) {
+                gzip.write("class Hello {}\n".repeat(100).getBytes(StandardCharsets.UTF_8));
+            }
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            GitHubApiStub.respond(exchange, 200, body.toByteArray());
+        });
+    }
+
+    @DynamicPropertySource
+    static void githubProperties(DynamicPropertyRegistry registry) {
+        registry.add("github.api.base-url", github::baseUrl);
+    }
+
+    @AfterAll
+    static void stopGitHub() {
+        github.close();
+    }
+
+    @Autowired
+    private GitHubService gitHubService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void bothClientsReusePooledConnectionsAndAcceptGzip() {
+        for (int i = 0; i < 10; i++) {
+            assertEquals(true, gitHubService.authenticateUser("http-token").get("success"));
+            assertEquals("class Hello {}\n".repeat(100),
+                    gitHubService.getFileContent("http-token", "https://github.com/octo/hello", "Hello.java"));
+        }
+
+        // Requests go one at a time; a connection can still be on its way back to the pool when the next one starts
+        Set<Integer> connections = new HashSet<>(restTemplateConnections);
+        connections.addAll(webClientConnections);
+        assertTrue(connections.size() <= 2, "connections " + connections);
+        assertEquals(20, acceptEncodings.size());
+        assertTrue(acceptEncodings.stream().allMatch(encoding -> encoding != null && encoding.contains("gzip")), acceptEncodings.toString());
+
+        // Contexts of other test classes register pools of the same name for their own stubs
+        Gauge total = meterRegistry.find("reactor.netty.connection.provider.total.connections")
+                .tags("name", "github", "remote.address", URI.create(github.baseUrl()).getAuthority())
+                .gauge();
+        assertNotNull(total, "pool gauges are not registered");
+        // Every connection either client used belongs to the one pool
+        assertEquals(connections.size(), (int) total.value(),
+                "the RestTemplate used " + restTemplateConnections + ", the WebClient " + webClientConnections);
+    }
+}
@@ -0,0 +1,147 @@
+package techchamps.io.aiagent;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import techchamps.io.aiagent.service.GitHubIdentityCache;
+import techchamps.io.aiagent.service.GitHubService;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Which authentications reach the stub's /user endpoint.
+ */
+@SpringBootTest(properties = {
+        "code-search.enabled=false",
+        "code-retrieval.enabled=false"})
+class GitHubIdentityCacheTests {
+
+    private static final GitHubApiStub github = GitHubApiStub.start();
+    private static final AtomicInteger userRequests = new AtomicInteger();
+    private static final AtomicInteger treeResponses = new AtomicInteger();
+    private static volatile int treeStatus;
+
+    static {
+        github.route("/user", exchange -> {
+            userRequests.incrementAndGet();
+            exchange.getResponseHeaders().set(GitHubIdentityCache.SCOPES_HEADER, "repo");
+            GitHubApiStub.respond(exchange, 200, "{\"login\":\"octocat\",\"id\":1,\"name\":\"The Octocat\"}");
+        });
+        github.route("/repos/octo/hello/contents/", exchange -> {
+            exchange.getResponseHeaders().set(GitHubIdentityCache.SCOPES_HEADER, "read:org, repo");
+            GitHubApiStub.respond(exchange, 200, "hello".getBytes(StandardCharsets.UTF_8));
+        });
+        // Rate limited once, then answered with the next status in line
+        github.route("/repos/octo/limited/git/trees/", exchange -> {
+            if (treeResponses.getAndIncrement() % 2 == 0) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                GitHubApiStub.respond(exchange, 429, "{\"message\":\"rate limited\"}");
+            } else if (treeStatus == 401) {
+                GitHubApiStub.respond(exchange, 401, "{\"message\":\"Bad credentials\"}");
+            } else {
+                exchange.getResponseHeaders().set(GitHubIdentityCache.SCOPES_HEADER, "admin:org, repo");
+                GitHubApiStub.respond(exchange, 200, "{\"truncated\":false,\"tree\":[]}");
+            }
+        });
+        github.route("/repos/octo/revoked/contents/", exchange ->
+                GitHubApiStub.respond(exchange, 401, "{\"message\":\"Bad credentials\"}"));
+    }
+
+    @DynamicPropertySource
+    static void githubProperties(DynamicPropertyRegistry registry) {
+        registry.add("github.api.base-url", github::baseUrl);
+    }
+
+    @AfterAll
+    static void stopGitHub() {
+        github.close();
+    }
+
+    @Autowired
+    private GitHubService gitHubService;
+
+    @BeforeEach
+    void reset() {
+        userRequests.set(0);
+    }
+
+    @Test
+    void repeatedAuthenticationsCallGitHubOncePerToken() {
+        for (int i = 0; i < 3; i++) {
+            Map<String, Object> result = gitHubService.authenticateUser("identity-token-a");
+            assertEquals("octocat", result.get("username"));
+            assertEquals(Set.of("repo"), result.get("scopes"));
+        }
+        assertEquals(1, userRequests.get());
+
+        gitHubService.authenticateUser("identity-token-b");
+        assertEquals(2, userRequests.get());
+    }
+
+    @Test
+    void otherResponsesRefreshScopesAndA401DropsTheEntry() {
+        gitHubService.authenticateUser("identity-token-c");
+        gitHubService.getFileContent("identity-token-c", "https://github.com/octo/hello", "README.md");
+
+        assertEquals(Set.of("read:org", "repo"), gitHubService.authenticateUser("identity-token-c").get("scopes"));
+        assertEquals(1, userRequests.get());
+
+        gitHubService.getFileContent("identity-token-c", "https://github.com/octo/revoked", "README.md");
+        gitHubService.authenticateUser("identity-token-c");
+        assertEquals(2, userRequests.get());
+    }
+
+    @Test
+    void responsesToRetriedRequestsReachTheCache() {
+        treeStatus = 200;
+        gitHubService.authenticateUser("identity-token-d");
+        gitHubService.connectToRepository("identity-token-d", "https://github.com/octo/limited");
+        assertEquals(Set.of("admin:org", "repo"), gitHubService.authenticateUser("identity-token-d").get("scopes"));
+        assertEquals(1, userRequests.get());
+
+        treeStatus = 401;
+        gitHubService.connectToRepository("identity-token-d", "https://github.com/octo/limited");
+        gitHubService.authenticateUser("identity-token-d");
+        assertEquals(2, userRequests.get());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void entriesExpireAreEvictedAndAreNotKeyedByTheToken() {
+        GitHubIdentityCache cache = new GitHubIdentityCache();
+        ReflectionTestUtils.setField(cache, "ttl", Duration.ofMinutes(10));
+        ReflectionTestUtils.setField(cache, "maxEntries", 2);
+        GitHubIdentityCache.Identity identity = new GitHubIdentityCache.Identity("octocat", 1, null, null, Set.of());
+
+        cache.store("token secret-1", identity);
+        cache.store("token secret-2", identity);
+        assertNotNull(cache.lookup("token secret-1"));
+        cache.store("token secret-3", identity);
+
+        assertNull(cache.lookup("token secret-2"));
+        assertNotNull(cache.lookup("token secret-1"));
+        Map<String, ?> entries = (Map<String, ?>) ReflectionTestUtils.getField(cache, "entries");
+        assertFalse(entries.keySet().stream().anyMatch(key -> key.contains("secret")), entries.keySet().toString());
+
+        ReflectionTestUtils.setField(cache, "ttl", Duration.ZERO);
+        cache.store("token secret-4", identity);
+        assertNull(cache.lookup("token secret-4"));
+        cache.onResponse("token secret-1", 401, new HttpHeaders());
+        assertNull(cache.lookup("token secret-1"));
+    }
+}
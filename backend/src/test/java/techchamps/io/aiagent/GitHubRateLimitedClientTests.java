@@ -0,0 +1,107 @@
+package techchamps.io.aiagent;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import techchamps.io.aiagent.service.GitHubService;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Both GitHub clients wait out a rate-limited response and retry it.
+ */
+@SpringBootTest(properties = {
+        "github.identity-cache.ttl=PT0S",
+        "github.rate-limit.max-wait=PT3S",
+        "code-search.enabled=false",
+        "code-retrieval.enabled=false"})
+class GitHubRateLimitedClientTests {
+
+    private static final GitHubApiStub github = GitHubApiStub.start();
+    private static final AtomicInteger rejections = new AtomicInteger();
+    private static volatile String retryAfter = "1";
+
+    static {
+        github.route("/user", exchange -> {
+            if (reject(exchange)) {
+                return;
+            }
+            GitHubApiStub.respond(exchange, 200, "{\"login\":\"octocat\",\"id\":1}");
+        });
+        github.route("/repos/octo/hello/contents/", exchange -> {
+            if (reject(exchange)) {
+                return;
+            }
+            GitHubApiStub.respond(exchange, 200, "hello".getBytes(StandardCharsets.UTF_8));
+        });
+    }
+
+    @DynamicPropertySource
+    static void githubProperties(DynamicPropertyRegistry registry) {
+        registry.add("github.api.base-url", github::baseUrl);
+    }
+
+    @AfterAll
+    static void stopGitHub() {
+        github.close();
+    }
+
+    @Autowired
+    private GitHubService gitHubService;
+
+    @BeforeEach
+    void reset() {
+        github.resetCounters();
+        retryAfter = "1";
+    }
+
+    @Test
+    void restTemplateRequestsAreRetriedAfterTheBackoff() {
+        rejections.set(1);
+        long start = System.nanoTime();
+
+        assertEquals("octocat", gitHubService.authenticateUser("retry-token-a").get("username"));
+        assertTrue((System.nanoTime() - start) / 1_000_000 >= 900);
+        assertEquals(2, github.requests());
+    }
+
+    @Test
+    void webClientRequestsAreRetriedAfterTheBackoff() {
+        rejections.set(1);
+        long start = System.nanoTime();
+
+        assertEquals("hello", gitHubService.getFileContent("retry-token-b", "https://github.com/octo/hello", "a.txt"));
+        assertTrue((System.nanoTime() - start) / 1_000_000 >= 900);
+        assertEquals(2, github.requests());
+    }
+
+    @Test
+    void aBackoffLongerThanTheMaximumWaitFailsFast() {
+        rejections.set(1);
+        retryAfter = "120";
+        long start = System.nanoTime();
+
+        assertEquals(false, gitHubService.authenticateUser("retry-token-c").get("success"));
+        assertTrue((System.nanoTime() - start) / 1_000_000 < 2000);
+        assertEquals(1, github.requests());
+    }
+
+    private static boolean reject(HttpExchange exchange) throws IOException {
+        if (rejections.getAndUpdate(n -> Math.max(n - 1, 0)) == 0) {
+            return false;
+        }
+        exchange.getResponseHeaders().set("Retry-After", retryAfter);
+        GitHubApiStub.respond(exchange, 429, "{\"message\":\"secondary rate limit\"}");
+        return true;
+    }
+}
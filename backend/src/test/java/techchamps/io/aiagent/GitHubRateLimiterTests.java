@@ -0,0 +1,99 @@
+package techchamps.io.aiagent;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+import techchamps.io.aiagent.service.GitHubRateLimiter;
+import techchamps.io.aiagent.service.GitHubRateLimiter.Priority;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GitHubRateLimiterTests {
+
+    private static final String TOKEN = "token limited";
+
+    private GitHubRateLimiter rateLimiter;
+
+    @BeforeEach
+    void createRateLimiter() {
+        rateLimiter = new GitHubRateLimiter();
+        ReflectionTestUtils.setField(rateLimiter, "burst", 4);
+        ReflectionTestUtils.setField(rateLimiter, "backgroundReserve", 0.5);
+        ReflectionTestUtils.setField(rateLimiter, "maxWait", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(rateLimiter, "backgroundMaxWait", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(rateLimiter, "secondaryBackoff", Duration.ofSeconds(60));
+        ReflectionTestUtils.setField(rateLimiter, "maxRetries", 2);
+    }
+
+    @Test
+    void requestsArePacedToTheRemainingQuota() {
+        // Four requests left for four seconds: one per second once the burst is spent
+        rateLimiter.onResponse(TOKEN, 200, quota(4, Duration.ofSeconds(4)));
+        for (int i = 0; i < 4; i++) {
+            assertTrue(millisToAcquire(Priority.INTERACTIVE) < 200);
+        }
+        assertTrue(millisToAcquire(Priority.INTERACTIVE) >= 500);
+    }
+
+    @Test
+    void backgroundRequestsLeaveTheReserveToInteractiveOnes() throws Exception {
+        rateLimiter.onResponse(TOKEN, 200, quota(4, Duration.ofSeconds(4)));
+        rateLimiter.acquire(TOKEN, Priority.INTERACTIVE);
+        rateLimiter.acquire(TOKEN, Priority.INTERACTIVE);
+
+        // Two of four left is exactly the reserve, so only the interactive request goes through
+        CompletableFuture<Long> background = CompletableFuture.supplyAsync(() -> millisToAcquire(Priority.BACKGROUND));
+        assertTrue(millisToAcquire(Priority.INTERACTIVE) < 200);
+        assertTrue(background.get() >= 500, "background waited " + background.get() + " ms");
+    }
+
+    @Test
+    void rateLimitedResponsesBlockTheTokenForRetryAfter() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "1");
+
+        assertEquals(1000, rateLimiter.onResponse(TOKEN, 429, headers));
+        assertTrue(millisToAcquire(Priority.INTERACTIVE) >= 900);
+        // Other tokens are not affected
+        long start = System.nanoTime();
+        rateLimiter.acquire("token other", Priority.INTERACTIVE);
+        assertTrue((System.nanoTime() - start) / 1_000_000 < 200);
+    }
+
+    @Test
+    void callersFailFastInsteadOfWaitingPastTheirMaximum() {
+        HttpHeaders headers = quota(0, Duration.ofHours(1));
+
+        assertTrue(rateLimiter.onResponse(TOKEN, 403, headers) > 0);
+        long start = System.nanoTime();
+        assertThrows(IllegalStateException.class, () -> rateLimiter.acquire(TOKEN, Priority.INTERACTIVE));
+        assertTrue((System.nanoTime() - start) / 1_000_000 < 200);
+    }
+
+    @Test
+    void secondaryLimitsWithoutAHintBackOffExponentially() {
+        assertEquals(60_000, rateLimiter.onResponse(TOKEN, 429, new HttpHeaders()));
+        assertEquals(120_000, rateLimiter.onResponse(TOKEN, 429, new HttpHeaders()));
+        // A 403 without rate-limit headers is a permission error
+        assertEquals(-1, rateLimiter.onResponse("token other", 403, new HttpHeaders()));
+    }
+
+    private long millisToAcquire(Priority priority) {
+        long start = System.nanoTime();
+        rateLimiter.acquire(TOKEN, priority);
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static HttpHeaders quota(long remaining, Duration untilReset) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-RateLimit-Remaining", Long.toString(remaining));
+        headers.set("X-RateLimit-Reset", Long.toString((System.currentTimeMillis() + untilReset.toMillis()) / 1000));
+        return headers;
+    }
+}
@@ -0,0 +1,131 @@
+package techchamps.io.aiagent;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import techchamps.io.aiagent.service.GitHubFileContent;
+import techchamps.io.aiagent.service.GitHubService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Files are downloaded raw, past the contents API's 1 MB limit, and spooled to disk when large.
+ */
+@SpringBootTest(properties = {
+        "github.file-content.max-size=4MB",
+        "github.file-content.memory-threshold=64KB",
+        "code-search.enabled=false",
+        "code-retrieval.enabled=false"})
+class GitHubRawFileTests {
+
+    private static final String BIG = "public class Big {}\n".repeat(150_000);
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0, 0, 0, 13, (byte) 0xFF};
+
+    private static final GitHubApiStub github = GitHubApiStub.start();
+    private static final List<String> requests = new CopyOnWriteArrayList<>();
+
+    @TempDir
+    static Path spoolDirectory;
+
+    static {
+        github.route("/repos/octo/hello/contents/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            requests.add(path + " " + exchange.getRequestHeaders().getFirst("Accept"));
+            if (path.endsWith("/Big.java")) {
+                GitHubApiStub.respond(exchange, 200, BIG.getBytes(StandardCharsets.UTF_8));
+            } else if (path.endsWith("/Huge.java")) {
+                GitHubApiStub.respond(exchange, 200, new byte[5 * 1024 * 1024]);
+            } else if (path.endsWith("/logo.png")) {
+                GitHubApiStub.respond(exchange, 200, PNG);
+            } else {
+                GitHubApiStub.respond(exchange, 404, "{\"message\":\"Not Found\"}");
+            }
+        });
+        github.route("/repos/octo/hello/git/trees/", exchange -> GitHubApiStub.respond(exchange, 200,
+                "{\"truncated\":false,\"tree\":[{\"path\":\"README.md\",\"type\":\"blob\",\"sha\":\"" + "a".repeat(40) + "\"}]}"));
+        github.route("/repos/octo/hello/git/blobs/", exchange -> {
+            requests.add(exchange.getRequestURI().getPath() + " " + exchange.getRequestHeaders().getFirst("Accept"));
+            GitHubApiStub.respond(exchange, 200, "# Hello\n".getBytes(StandardCharsets.UTF_8));
+        });
+    }
+
+    @DynamicPropertySource
+    static void githubProperties(DynamicPropertyRegistry registry) {
+        registry.add("github.api.base-url", github::baseUrl);
+        registry.add("github.file-content.temp-directory", spoolDirectory::toString);
+    }
+
+    @AfterAll
+    static void stopGitHub() {
+        github.close();
+    }
+
+    @Autowired
+    private GitHubService gitHubService;
+
+    @BeforeEach
+    void reset() {
+        requests.clear();
+    }
+
+    @Test
+    void filesOverOneMegabyteAreDownloadedRawAndSpooled() throws IOException {
+        GitHubFileContent content = gitHubService.openFile("raw-token", "https://github.com/octo/hello", "src/Big.java");
+
+        assertNotNull(content);
+        assertEquals(BIG.length(), content.size());
+        assertEquals(BIG, content.text());
+        assertEquals(List.of("/repos/octo/hello/contents/src/Big.java application/vnd.github.raw"), requests);
+        // The spooled temp file is deleted once mapped
+        assertEquals(0, spooledFiles());
+    }
+
+    @Test
+    void filesPastTheMaximumSizeAreRefused() throws IOException {
+        assertNull(gitHubService.openFile("raw-token", "https://github.com/octo/hello", "src/Huge.java"));
+        assertEquals(0, spooledFiles());
+    }
+
+    @Test
+    void binaryFilesKeepTheirBytesButAreNotReturnedAsText() throws IOException {
+        GitHubFileContent content = gitHubService.openFile("raw-token", "https://github.com/octo/hello", "logo.png");
+
+        assertTrue(content.isBinary());
+        try (InputStream in = content.openStream()) {
+            assertArrayEquals(PNG, in.readAllBytes());
+        }
+        assertNull(gitHubService.getFileContent("raw-token", "https://github.com/octo/hello", "logo.png"));
+    }
+
+    @Test
+    void listedFilesAreReadThroughTheBlobsApi() {
+        gitHubService.connectToRepository("raw-token", "https://github.com/octo/hello");
+
+        assertEquals("# Hello\n", gitHubService.getFileContent("raw-token", "https://github.com/octo/hello", "README.md"));
+        assertEquals(List.of("/repos/octo/hello/git/blobs/" + "a".repeat(40) + " application/vnd.github.raw"), requests);
+    }
+
+    private static long spooledFiles() throws IOException {
+        try (Stream<Path> files = Files.list(spoolDirectory)) {
+            return files.count();
+        }
+    }
+}
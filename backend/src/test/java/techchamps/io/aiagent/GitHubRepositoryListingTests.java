@@ -0,0 +1,170 @@
+package techchamps.io.aiagent;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.util.UriComponentsBuilder;
+import techchamps.io.aiagent.service.GitHubService;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Repository listings against a stub serving pages of 100 repositories with a Link header.
+ */
+@SpringBootTest(properties = {
+        "github.repository-listing.concurrency=4",
+        "code-search.enabled=false",
+        "code-retrieval.enabled=false"})
+class GitHubRepositoryListingTests {
+
+    private static final GitHubApiStub github = GitHubApiStub.start();
+    private static final List<String> queries = new CopyOnWriteArrayList<>();
+
+    private static volatile int pageCount;
+    private static volatile boolean linkLast;
+    private static volatile boolean overlap;
+    private static volatile CountDownLatch laterPages;
+
+    static {
+        github.route("/user/repos", GitHubRepositoryListingTests::page);
+    }
+
+    @DynamicPropertySource
+    static void githubProperties(DynamicPropertyRegistry registry) {
+        registry.add("github.api.base-url", github::baseUrl);
+    }
+
+    @AfterAll
+    static void stopGitHub() {
+        github.close();
+    }
+
+    @Autowired
+    private GitHubService gitHubService;
+
+    @BeforeEach
+    void reset() {
+        pageCount = 7;
+        linkLast = true;
+        overlap = false;
+        laterPages = new CountDownLatch(0);
+        queries.clear();
+        github.resetCounters();
+        github.setLatency(Duration.ofMillis(50));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void pagesAfterTheFirstAreFetchedInParallelAndEmittedInOrder() {
+        Map<String, Object> result = gitHubService.getUserRepositories("listing-token");
+
+        List<Map<String, Object>> repositories = (List<Map<String, Object>>) result.get("repositories");
+        assertEquals(true, result.get("success"), String.valueOf(result.get("error")));
+        assertEquals(700, repositories.size());
+        for (int i = 0; i < 700; i++) {
+            assertEquals("octo/r" + i, repositories.get(i).get("full_name"));
+        }
+        assertEquals(7, github.requests());
+        assertTrue(github.maxInFlight() > 1 && github.maxInFlight() <= 4, "max in flight " + github.maxInFlight());
+        assertTrue(queries.get(0).contains("affiliation=owner,collaborator,organization_member"), queries.get(0));
+    }
+
+    @Test
+    void withoutALastLinkNextLinksAreFollowedOneByOne() {
+        pageCount = 3;
+        linkLast = false;
+
+        assertEquals(300, gitHubService.streamUserRepositories("listing-token").count().block());
+        assertEquals(3, github.requests());
+        assertEquals(1, github.maxInFlight());
+    }
+
+    @Test
+    void repositoriesThatMoveBetweenPagesAreListedOnce() {
+        pageCount = 3;
+        overlap = true;
+
+        List<Object> names = gitHubService.streamUserRepositories("listing-token")
+                .map(repository -> repository.get("full_name"))
+                .collectList()
+                .block();
+
+        assertEquals(300, names.size());
+        assertEquals(300, names.stream().distinct().count());
+    }
+
+    @Test
+    void theFirstPageIsEmittedBeforeLaterPagesArrive() {
+        laterPages = new CountDownLatch(1);
+        try {
+            List<Map<String, Object>> first = gitHubService.streamUserRepositories("listing-token")
+                    .take(100)
+                    .collectList()
+                    .block(Duration.ofSeconds(5));
+            assertEquals(100, first.size());
+            assertEquals("octo/r0", first.get(0).get("full_name"));
+        } finally {
+            laterPages.countDown();
+        }
+    }
+
+    private static void page(HttpExchange exchange) throws IOException {
+        String query = exchange.getRequestURI().getRawQuery();
+        queries.add(query);
+        String pageParameter = UriComponentsBuilder.fromUri(exchange.getRequestURI()).build().getQueryParams().getFirst("page");
+        int page = pageParameter == null ? 1 : Integer.parseInt(pageParameter);
+        if (page > 1) {
+            try {
+                laterPages.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        List<String> repositories = new ArrayList<>();
+        if (overlap && page > 1) {
+            // The previous page's last repository was updated and moved down
+            repositories.add(repository((page - 1) * 100 - 1));
+        }
+        for (int i = 0; i < 100; i++) {
+            repositories.add(repository((page - 1) * 100 + i));
+        }
+        List<String> links = new ArrayList<>();
+        if (page < pageCount) {
+            links.add("<" + pageUrl(exchange, page + 1) + ">; rel=\"next\"");
+            if (linkLast) {
+                links.add("<" + pageUrl(exchange, pageCount) + ">; rel=\"last\"");
+            }
+        }
+        if (!links.isEmpty()) {
+            exchange.getResponseHeaders().set("Link", String.join(", ", links));
+        }
+        GitHubApiStub.respond(exchange, 200, "[" + String.join(",", repositories) + "]");
+    }
+
+    private static String pageUrl(HttpExchange exchange, int page) {
+        return UriComponentsBuilder.fromHttpUrl(github.baseUrl()).path(exchange.getRequestURI().getRawPath())
+                .query(exchange.getRequestURI().getRawQuery()).replaceQueryParam("page", page).build(true).toUriString();
+    }
+
+    private static String repository(int id) {
+        return "{\"id\":" + id + ",\"name\":\"r" + id + "\",\"full_name\":\"octo/r" + id + "\",\"description\":null,"
+                + "\"private\":false,\"html_url\":\"https://github.com/octo/r" + id + "\",\"clone_url\":\"https://github.com/octo/r"
+                + id + ".git\",\"language\":\"Java\",\"updated_at\":\"2026-10-01T00:00:00Z\"}";
+    }
+}
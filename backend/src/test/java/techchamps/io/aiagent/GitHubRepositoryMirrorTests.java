@@ -0,0 +1,128 @@
+package techchamps.io.aiagent;
+
+import org.eclipse.jgit.api.Git;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import techchamps.io.aiagent.service.GitHubRepositoryMirror;
+import techchamps.io.aiagent.service.GitHubService;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Mirrors a local bare repository over file:// and checks which reads it serves.
+ */
+@SpringBootTest(properties = {
+        "github.mirror.enabled=true",
+        "code-search.enabled=false",
+        "code-retrieval.enabled=false"})
+class GitHubRepositoryMirrorTests {
+
+    private static final String REPOSITORY_URL = "https://github.com/octo/hello";
+
+    private static final GitHubApiStub github = GitHubApiStub.start();
+
+    @TempDir
+    static Path root;
+
+    private static Git work;
+
+    static {
+        github.route("/repos/octo/hello/contents/", exchange ->
+                GitHubApiStub.respond(exchange, 200, "from the API".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @DynamicPropertySource
+    static void mirrorProperties(DynamicPropertyRegistry registry) {
+        registry.add("github.api.base-url", github::baseUrl);
+        registry.add("github.mirror.directory", () -> root.resolve("mirrors").toString());
+        registry.add("github.mirror.clone-url", () -> root.resolve("origin").toUri() + "%s/%s.git");
+    }
+
+    @BeforeAll
+    static void createOrigin() throws Exception {
+        Git.init().setBare(true).setDirectory(root.resolve("origin/octo/hello.git").toFile()).call().close();
+        work = Git.cloneRepository()
+                .setURI(root.resolve("origin/octo/hello.git").toUri().toString())
+                .setDirectory(root.resolve("work").toFile())
+                .call();
+        commit(Map.of("src/Main.java", "class Main {}", "README.md", "héllo", "logo.png", "\u0089PNG"));
+    }
+
+    @AfterAll
+    static void stopGitHub() {
+        work.close();
+        github.close();
+    }
+
+    @Autowired
+    private GitHubService gitHubService;
+
+    @Autowired
+    private GitHubRepositoryMirror repositoryMirror;
+
+    @BeforeEach
+    void resetCounters() {
+        github.resetCounters();
+    }
+
+    @Test
+    void listingsAndContentsComeFromTheCloneUntilTheNextSync() throws Exception {
+        Map<String, Object> result = gitHubService.connectToRepository("mirror-token-a", REPOSITORY_URL);
+        assertEquals(true, result.get("success"), String.valueOf(result.get("error")));
+        assertEquals(List.of("README.md", "src/Main.java"), result.get("files"));
+        assertEquals("class Main {}", gitHubService.getFileContent("mirror-token-a", REPOSITORY_URL, "src/Main.java"));
+        assertEquals("héllo", gitHubService.getFileContent("mirror-token-a", REPOSITORY_URL, "README.md"));
+        assertNull(gitHubService.getFileContent("mirror-token-a", REPOSITORY_URL, "missing.txt"));
+
+        commit(Map.of("src/Main.java", "class Main { int x; }", "lib/util.py", "x = 1"));
+        assertEquals("class Main {}", gitHubService.getFileContent("mirror-token-a", REPOSITORY_URL, "src/Main.java"));
+
+        result = gitHubService.connectToRepository("mirror-token-a", REPOSITORY_URL);
+        assertEquals(List.of("README.md", "lib/util.py", "src/Main.java"), result.get("files"));
+        assertEquals("class Main { int x; }", gitHubService.getFileContent("mirror-token-a", REPOSITORY_URL, "src/Main.java"));
+        assertEquals(0, github.requests());
+    }
+
+    @Test
+    void tokensThatDidNotSyncTheCloneReadThroughTheApi() {
+        gitHubService.connectToRepository("mirror-token-a", REPOSITORY_URL);
+
+        assertTrue(repositoryMirror.isMirrored("octo", "hello", "mirror-token-a"));
+        assertFalse(repositoryMirror.isMirrored("octo", "hello", "mirror-token-b"));
+        assertEquals("from the API", gitHubService.getFileContent("mirror-token-b", REPOSITORY_URL, "src/Main.java"));
+        assertEquals(1, github.requests());
+    }
+
+    @Test
+    void repositoryNamesCannotLeaveTheMirrorDirectory() {
+        assertFalse(repositoryMirror.isMirrored("..", "hello", "mirror-token-a"));
+        assertEquals(false, gitHubService.connectToRepository("mirror-token-a", "https://github.com/../hello").get("success"));
+    }
+
+    private static void commit(Map<String, String> files) throws Exception {
+        for (Map.Entry<String, String> file : files.entrySet()) {
+            Path path = root.resolve("work").resolve(file.getKey());
+            Files.createDirectories(path.getParent());
+            Files.writeString(path, file.getValue());
+        }
+        work.add().addFilepattern(".").call();
+        work.commit().setMessage("update").setAuthor("octo", "octo@example.com").setCommitter("octo", "octo@example.com").call();
+        work.push().setRemote("origin").add("HEAD:refs/heads/master").call();
+    }
+}
@@ -0,0 +1,177 @@
+package techchamps.io.aiagent;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.util.UriComponentsBuilder;
+import techchamps.io.aiagent.model.ChatResponse;
+import techchamps.io.aiagent.service.AiService;
+import techchamps.io.aiagent.service.GitHubService;
+import techchamps.io.aiagent.service.MCPService;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Heap allocated per GitHub request, summed over all threads, for the large responses
+ * the service parses: a 20k-entry recursive tree, three pages of 100 repositories and
+ * a list of 100 issues read through MCP. The response cache is kept too small to hold
+ * them, so every run parses a fresh body. Run with -Pperf.
+ */
+@Tag("perf")
+@SpringBootTest(properties = {
+        "github.cache.max-size=1KB",
+        "github.identity-cache.ttl=PT0S",
+        "code-search.enabled=false",
+        "code-retrieval.enabled=false"})
+class GitHubResponseAllocationBenchmarkTests {
+
+    private static final int RUNS = 5;
+
+    private static final GitHubApiStub github = GitHubApiStub.start();
+    private static final byte[] tree;
+    private static final byte[][] repositoryPages = new byte[3][];
+    private static final byte[] issues;
+
+    static {
+        List<String> entries = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            String sha = String.format("%040x", i);
+            entries.add("{\"path\":\"src/pkg" + (i % 50) + "/File" + i + ".java\",\"mode\":\"100644\",\"type\":\"blob\","
+                    + "\"sha\":\"" + sha + "\",\"size\":1234,\"url\":\"https://api.github.com/repos/octo/big/git/blobs/" + sha + "\"}");
+        }
+        tree = ("{\"sha\":\"HEAD\",\"truncated\":false,\"tree\":[" + String.join(",", entries) + "]}").getBytes(StandardCharsets.UTF_8);
+
+        StringBuilder urls = new StringBuilder();
+        for (String field : List.of("forks", "keys", "collaborators", "teams", "hooks", "events", "assignees", "branches", "tags",
+                "blobs", "trees", "statuses", "languages", "stargazers", "contributors", "subscribers", "commits", "comments",
+                "contents", "compare", "merges", "archive", "downloads", "issues", "pulls", "milestones", "labels", "releases")) {
+            urls.append(",\"").append(field).append("_url\":\"https://api.github.com/repos/octo/r/").append(field).append("{/id}\"");
+        }
+        String owner = "{\"login\":\"octo\",\"id\":1,\"avatar_url\":\"https://avatars.githubusercontent.com/u/1\",\"type\":\"User\","
+                + "\"url\":\"https://api.github.com/users/octo\",\"html_url\":\"https://github.com/octo\",\"site_admin\":false}";
+        for (int page = 0; page < 3; page++) {
+            List<String> repositories = new ArrayList<>();
+            for (int i = page * 100; i < page * 100 + 100; i++) {
+                repositories.add("{\"id\":" + i + ",\"name\":\"r" + i + "\",\"full_name\":\"octo/r" + i + "\",\"owner\":" + owner
+                        + ",\"private\":false,\"html_url\":\"https://github.com/octo/r" + i + "\",\"description\":\"Repository number " + i
+                        + "\",\"clone_url\":\"https://github.com/octo/r" + i + ".git\",\"language\":\"Java\",\"updated_at\":\"2026-10-01T00:00:00Z\""
+                        + urls + ",\"permissions\":{\"admin\":true,\"push\":true,\"pull\":true},\"topics\":[\"java\",\"spring\"]}");
+            }
+            repositoryPages[page] = ("[" + String.join(",", repositories) + "]").getBytes(StandardCharsets.UTF_8);
+        }
+
+        List<String> issueList = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) {
+            issueList.add("{\"number\":" + i + ",\"title\":\"Issue " + i + "\",\"user\":" + owner + ",\"labels\":[{\"name\":\"bug\"}],"
+                    + "\"created_at\":\"2026-10-01T08:00:00Z\",\"html_url\":\"https://github.com/octo/r/issues/" + i + "\","
+                    + "\"body\":\"" + "Steps to reproduce the problem. ".repeat(60) + "\",\"reactions\":{\"+1\":2}}");
+        }
+        issues = ("[" + String.join(",", issueList) + "]").getBytes(StandardCharsets.UTF_8);
+
+        github.route("/repos/octo/big/git/trees/", exchange -> GitHubApiStub.respond(exchange, 200, json(exchange, tree)));
+        github.route("/user/repos", exchange -> {
+            String query = exchange.getRequestURI().getRawQuery();
+            String pageParameter = UriComponentsBuilder.fromUri(exchange.getRequestURI()).build().getQueryParams().getFirst("page");
+            int page = pageParameter == null ? 1 : Integer.parseInt(pageParameter);
+            if (page == 1) {
+                exchange.getResponseHeaders().set("Link", "<" + github.baseUrl() + "/user/repos?" + query + "&page=3>; rel=\"last\"");
+            }
+            GitHubApiStub.respond(exchange, 200, json(exchange, repositoryPages[page - 1]));
+        });
+        github.route("/repos/octo/r/issues", exchange -> GitHubApiStub.respond(exchange, 200, json(exchange, issues)));
+    }
+
+    @DynamicPropertySource
+    static void githubProperties(DynamicPropertyRegistry registry) {
+        registry.add("github.api.base-url", github::baseUrl);
+    }
+
+    @AfterAll
+    static void stopGitHub() {
+        github.close();
+    }
+
+    @Autowired
+    private GitHubService gitHubService;
+
+    @Autowired
+    private MCPService mcpService;
+
+    @MockBean
+    private AiService aiService;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void allocationPerRequest() {
+        long treeBytes = measure("recursive tree, 20k entries", tree.length, () ->
+                assertEquals(20_000, ((List<String>) gitHubService.connectToRepository("alloc-token", "https://github.com/octo/big")
+                        .get("files")).size()));
+        long pageBytes = measure("3 repository pages of 100", repositoryPages[0].length * 3, () ->
+                assertEquals(300, ((List<Map<String, Object>>) gitHubService.getUserRepositories("alloc-token")
+                        .get("repositories")).size()));
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        ObjectNode apiCall = objectMapper.createObjectNode();
+        apiCall.put("method", "GET");
+        apiCall.put("endpoint", "/repos/{owner}/{repo}/issues?state=open");
+        apiCall.put("description", "List open issues");
+        when(aiService.chat(any())).thenReturn(new ChatResponse(apiCall.toString()));
+        ObjectNode payload = objectMapper.createObjectNode();
+        payload.put("message", "List open issues");
+        payload.put("repository", "octo/r");
+        payload.put("token", "alloc-token");
+        long issueBytes = measure("100-issue list via MCP", issues.length, () ->
+                assertTrue(mcpService.execute(payload).join().get("message").asText().contains("#100")));
+
+        // Reading each body into a String and then a JsonNode tree took 8-12 times the payload;
+        // uncacheable bodies now stream into the parser without a whole-body copy
+        assertTrue(treeBytes < tree.length * 6L, "tree " + treeBytes);
+        assertTrue(pageBytes < repositoryPages[0].length * 3 * 3L, "pages " + pageBytes);
+        assertTrue(issueBytes < issues.length * 3L, "issues " + issueBytes);
+    }
+
+    private static long measure(String label, long payload, Runnable request) {
+        for (int i = 0; i < 3; i++) {
+            request.run();
+        }
+        long start = allocatedBytes();
+        for (int i = 0; i < RUNS; i++) {
+            request.run();
+        }
+        long perRequest = (allocatedBytes() - start) / RUNS;
+        System.out.printf("%s (%,d KB): %,.1f MB allocated per request%n", label, payload / 1024, perRequest / 1e6);
+        return perRequest;
+    }
+
+    // Threads that end between two calls drop out of the sum, so the pools are warmed up first
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (long allocated : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            total += Math.max(0, allocated);
+        }
+        return total;
+    }
+
+    private static byte[] json(HttpExchange exchange, byte[] body) {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        return body;
+    }
+}
@@ -0,0 +1,127 @@
+package techchamps.io.aiagent;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import techchamps.io.aiagent.service.GitHubResponseCache;
+import techchamps.io.aiagent.service.GitHubService;
+import techchamps.io.aiagent.service.MCPService;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        // Every authenticateUser call goes to GitHub
+        "github.identity-cache.ttl=PT0S",
+        "code-search.enabled=false",
+        "code-retrieval.enabled=false"})
+class GitHubResponseCacheTests {
+
+    private static final GitHubApiStub github = GitHubApiStub.start();
+    private static final List<Request> requests = new CopyOnWriteArrayList<>();
+    private static volatile String login = "octocat";
+
+    private record Request(String ifNoneMatch, int status) {
+    }
+
+    static {
+        github.route("/user", exchange -> conditional(exchange,
+                "{\"login\":\"" + login + "\",\"id\":1,\"name\":\"Octo Cat\",\"avatar_url\":\"a\"}", "private, max-age=60"));
+        github.route("/users/octo/repos", exchange -> conditional(exchange,
+                "[{\"id\":7,\"name\":\"hello\",\"full_name\":\"octo/hello\",\"private\":false,\"html_url\":\"h\"}]",
+                "public, max-age=60"));
+    }
+
+    @DynamicPropertySource
+    static void githubProperties(DynamicPropertyRegistry registry) {
+        registry.add("github.api.base-url", github::baseUrl);
+    }
+
+    @AfterAll
+    static void stopGitHub() {
+        github.close();
+    }
+
+    @Autowired
+    private GitHubService gitHubService;
+
+    @Autowired
+    private MCPService mcpService;
+
+    @BeforeEach
+    void reset() {
+        requests.clear();
+        login = "octocat";
+    }
+
+    @Test
+    void repeatedRequestsAreRevalidatedAndReplayed() {
+        assertEquals("octocat", gitHubService.authenticateUser("cache-token-a").get("username"));
+        assertEquals("octocat", gitHubService.authenticateUser("cache-token-a").get("username"));
+        login = "hubot";
+        assertEquals("hubot", gitHubService.authenticateUser("cache-token-a").get("username"));
+
+        assertNull(requests.get(0).ifNoneMatch());
+        assertNotNull(requests.get(1).ifNoneMatch());
+        assertEquals(304, requests.get(1).status());
+        assertEquals(200, requests.get(2).status());
+    }
+
+    @Test
+    void onlyPublicResponsesAreSharedBetweenTokens() throws Exception {
+        gitHubService.authenticateUser("cache-token-b");
+        gitHubService.authenticateUser("cache-token-c");
+        ObjectNode first = mcpService.listRepositories("cache-token-b", "octo").get();
+        ObjectNode second = mcpService.listRepositories("cache-token-c", "octo").get();
+
+        // token-c may not revalidate against token-b's private /user response
+        assertNull(requests.get(1).ifNoneMatch());
+        assertEquals(304, requests.get(3).status());
+        assertEquals("hello", first.get("repositories").get(0).get("name").asText());
+        assertEquals(first.get("repositories"), second.get("repositories"));
+    }
+
+    @Test
+    void entriesAreEvictedByTotalBodySize() {
+        GitHubResponseCache cache = new GitHubResponseCache();
+        ReflectionTestUtils.setField(cache, "maxSize", DataSize.ofKilobytes(4));
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag("\"v1\"");
+
+        assertFalse(cache.store("http://api/none", "token x", new HttpHeaders(), new byte[10]));
+        for (int i = 0; i < 3; i++) {
+            assertTrue(cache.store("http://api/" + i, "token x", headers, new byte[1500]));
+        }
+
+        assertTrue(cache.size() <= DataSize.ofKilobytes(4).toBytes());
+        assertNull(cache.lookup("http://api/0", "token x"));
+        assertNotNull(cache.lookup("http://api/2", "token x"));
+        assertNull(cache.lookup("http://api/2", "token y"));
+    }
+
+    private static void conditional(HttpExchange exchange, String body, String cacheControl) throws IOException {
+        String etag = "\"" + Integer.toHexString(body.hashCode()) + "\"";
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        int status = etag.equals(ifNoneMatch) ? 304 : 200;
+        requests.add(new Request(ifNoneMatch, status));
+        exchange.getResponseHeaders().set("ETag", etag);
+        exchange.getResponseHeaders().set("Cache-Control", cacheControl);
+        GitHubApiStub.respond(exchange, status, status == 304 ? "" : body);
+    }
+}
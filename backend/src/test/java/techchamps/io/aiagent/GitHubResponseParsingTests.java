@@ -0,0 +1,131 @@
+package techchamps.io.aiagent;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import techchamps.io.aiagent.model.ChatResponse;
+import techchamps.io.aiagent.service.AiService;
+import techchamps.io.aiagent.service.MCPService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * MCP operations read only the fields they show from GitHub responses full of others.
+ */
+@SpringBootTest(properties = {
+        "code-search.enabled=false",
+        "code-retrieval.enabled=false"})
+class GitHubResponseParsingTests {
+
+    private static final String USER = "{\"login\":\"octocat\",\"id\":1,\"avatar_url\":\"https://avatars/1\",\"site_admin\":false}";
+
+    private static final GitHubApiStub github = GitHubApiStub.start();
+
+    static {
+        github.route("/repos/octo/hello/issues", exchange -> {
+            if ("PATCH".equals(exchange.getRequestMethod())) {
+                GitHubApiStub.respond(exchange, 200, "{\"number\":2,\"title\":\"Login fails\",\"state\":\"closed\","
+                        + "\"html_url\":\"https://github.com/octo/hello/issues/2\",\"user\":" + USER + "}");
+                return;
+            }
+            GitHubApiStub.respond(exchange, 200, "[" + issue(1, "Crash on start") + "," + issue(2, "Login fails") + "]");
+        });
+        github.route("/repos/octo/hello/branches", exchange -> GitHubApiStub.respond(exchange, 200,
+                "[{\"name\":\"main\",\"commit\":{\"sha\":\"0123456789abcdef\",\"url\":\"https://api/commits/0123456\"},"
+                        + "\"protected\":true,\"protection\":{\"enabled\":true,\"required_status_checks\":{\"contexts\":[\"ci\"]}}}]"));
+        github.route("/repos/octo/hello/commits", exchange -> GitHubApiStub.respond(exchange, 200,
+                "[{\"sha\":\"fedcba9876543210\",\"node_id\":\"C_1\",\"commit\":{\"author\":{\"name\":\"Mona\","
+                        + "\"email\":\"mona@example.com\",\"date\":\"2026-10-01T12:00:00Z\"},\"committer\":{\"name\":\"GitHub\"},"
+                        + "\"message\":\"Fix login\",\"tree\":{\"sha\":\"abc\"},\"verification\":{\"verified\":false}},"
+                        + "\"author\":" + USER + ",\"parents\":[{\"sha\":\"0123456\"}],\"files\":[]}]"));
+        github.route("/users/octocat/repos", exchange -> GitHubApiStub.respond(exchange, 200,
+                "[{\"id\":7,\"name\":\"hello\",\"full_name\":\"octocat/hello\",\"owner\":" + USER + ",\"private\":false,"
+                        + "\"html_url\":\"https://github.com/octocat/hello\",\"description\":null,\"topics\":[\"a\",\"b\"],"
+                        + "\"permissions\":{\"admin\":true,\"push\":true},\"license\":{\"key\":\"mit\"}}]"));
+    }
+
+    @DynamicPropertySource
+    static void githubProperties(DynamicPropertyRegistry registry) {
+        registry.add("github.api.base-url", github::baseUrl);
+    }
+
+    @AfterAll
+    static void stopGitHub() {
+        github.close();
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Autowired
+    private MCPService mcpService;
+
+    @MockBean
+    private AiService aiService;
+
+    @Test
+    void issueListsShowNumberTitleAuthorDateAndLink() {
+        String message = execute("GET", "/repos/{owner}/{repo}/issues?state=open", "List open issues");
+
+        assertEquals("✅ **List open issues:**\n\n"
+                + "🔸 **#1** Crash on start\n   👤 octocat • 2026-10-01\n   🔗 https://github.com/octo/hello/issues/1\n\n"
+                + "🔸 **#2** Login fails\n   👤 octocat • 2026-10-02\n   🔗 https://github.com/octo/hello/issues/2\n\n", message);
+    }
+
+    @Test
+    void singleItemsBecomeASentence() {
+        assertEquals("I closed issue #2 successfully!\nhttps://github.com/octo/hello/issues/2",
+                execute("PATCH", "/repos/{owner}/{repo}/issues/2", "Close issue number 2"));
+    }
+
+    @Test
+    void branchesAndCommitsReadTheirNestedCommit() {
+        assertEquals("✅ **List all branches:**\n\n🌿 **main**\n   📝 0123456\n\n",
+                execute("GET", "/repos/{owner}/{repo}/branches", "List all branches"));
+        assertEquals("✅ **Show recent commits:**\n\n🔸 **fedcba9**\n   📝 Fix login\n   👤 Mona • 2026-10-01\n\n",
+                execute("GET", "/repos/{owner}/{repo}/commits", "Show recent commits"));
+    }
+
+    @Test
+    void repositoryListsSkipOwnersAndPermissions() throws Exception {
+        JsonNode repository = mcpService.listRepositories("parse-token", "octocat").get().get("repositories").get(0);
+
+        assertEquals("{\"id\":7,\"name\":\"hello\",\"fullName\":\"octocat/hello\",\"description\":\"\","
+                + "\"url\":\"https://github.com/octocat/hello\",\"private\":false}", repository.toString());
+    }
+
+    private String execute(String method, String endpoint, String description) {
+        ObjectNode apiCall = objectMapper.createObjectNode();
+        apiCall.put("method", method);
+        apiCall.put("endpoint", endpoint);
+        apiCall.put("description", description);
+        if ("PATCH".equals(method)) {
+            apiCall.putObject("data").put("state", "closed");
+        }
+        when(aiService.chat(any())).thenReturn(new ChatResponse(apiCall.toString()));
+
+        ObjectNode payload = objectMapper.createObjectNode();
+        payload.put("message", description);
+        payload.put("repository", "octo/hello");
+        payload.put("token", "parse-token");
+        JsonNode response = mcpService.execute(payload).join();
+        assertEquals(true, response.get("success").asBoolean(), response.toString());
+        return response.get("message").asText();
+    }
+
+    private static String issue(int number, String title) {
+        return "{\"url\":\"https://api/issues/" + number + "\",\"id\":" + (1000 + number) + ",\"number\":" + number + ","
+                + "\"title\":\"" + title + "\",\"user\":" + USER + ",\"labels\":[{\"id\":1,\"name\":\"bug\",\"color\":\"f00\"}],"
+                + "\"state\":\"open\",\"assignees\":[" + USER + "],\"milestone\":null,\"comments\":3,"
+                + "\"created_at\":\"2026-10-0" + number + "T08:00:00Z\",\"html_url\":\"https://github.com/octo/hello/issues/" + number + "\","
+                + "\"body\":\"Steps:\\n1. \\\"quoted\\\" {not json}\\n\",\"reactions\":{\"+1\":2,\"heart\":0},\"pull_request\":null}";
+    }
+}
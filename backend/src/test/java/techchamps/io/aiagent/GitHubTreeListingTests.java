@@ -0,0 +1,88 @@
+package techchamps.io.aiagent;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import techchamps.io.aiagent.service.GitHubService;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "github.tree-walk.parallelism=3",
+        "code-search.enabled=false",
+        "code-retrieval.enabled=false"})
+class GitHubTreeListingTests {
+
+    private static final GitHubApiStub github = GitHubApiStub.start();
+    private static final SyntheticTreeHandler tree = new SyntheticTreeHandler(4, 3, 5);
+
+    static {
+        github.route("/repos/octo/mono/git/trees/", tree);
+    }
+
+    @DynamicPropertySource
+    static void githubProperties(DynamicPropertyRegistry registry) {
+        registry.add("github.api.base-url", github::baseUrl);
+    }
+
+    @AfterAll
+    static void stopGitHub() {
+        github.close();
+    }
+
+    @Autowired
+    private GitHubService gitHubService;
+
+    @BeforeEach
+    void reset() {
+        tree.truncated().clear();
+        github.setLatency(Duration.ZERO);
+        github.resetCounters();
+    }
+
+    @Test
+    void oneRecursiveCallListsTheWholeRepository() {
+        List<String> files = connect();
+
+        assertEquals(sorted(tree.codeFiles()), sorted(files));
+        assertEquals(1, github.requests());
+    }
+
+    @Test
+    void truncatedListingsFallBackToABoundedSubtreeWalk() {
+        tree.truncated().add("HEAD");
+        tree.truncated().add("t1");
+        github.setLatency(Duration.ofMillis(50));
+
+        List<String> files = connect();
+
+        assertEquals(sorted(tree.codeFiles()), files);
+        // Root twice, each directory recursively, t1 again without recursion, then its subdirectories
+        assertEquals(2 + 4 + 1 + 3, github.requests());
+        assertTrue(github.maxInFlight() <= 3, "max in flight " + github.maxInFlight());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> connect() {
+        Map<String, Object> result = gitHubService.connectToRepository("listing-token", "https://github.com/octo/mono");
+        assertEquals(true, result.get("success"), String.valueOf(result.get("error")));
+        return (List<String>) result.get("files");
+    }
+
+    private static List<String> sorted(List<String> files) {
+        List<String> copy = new ArrayList<>(files);
+        Collections.sort(copy);
+        return copy;
+    }
+}
@@ -0,0 +1,140 @@
+package techchamps.io.aiagent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import techchamps.io.aiagent.model.ChatMessage;
+import techchamps.io.aiagent.model.ChatSession;
+import techchamps.io.aiagent.service.JournalSessionStore;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournalSessionStoreTests {
+
+    @TempDir
+    Path directory;
+
+    private JournalSessionStore store;
+
+    @AfterEach
+    void close() throws Exception {
+        store.close();
+    }
+
+    @Test
+    void sessionsAndMessagesSurviveReopening() throws Exception {
+        store = open();
+        ChatSession session = store.createSession(new ChatSession("journal-1", "title", "ctx", "gpt-4", "dall-e-3"));
+        for (int i = 1; i <= 5; i++) {
+            store.appendMessage(session, message(session, i));
+        }
+        store.updateTitle(session, "renamed", session.getUpdatedAt());
+        store.close();
+
+        store = open();
+        assertEquals("renamed", store.findSession("journal-1").orElseThrow().getTitle());
+        assertEquals(List.of("message 1", "message 2", "message 3", "message 4", "message 5"), contents(store.findMessages("journal-1")));
+        assertEquals(List.of("message 4", "message 5"), contents(store.findRecentMessages("journal-1", 2)));
+        assertEquals(List.of("message 5"), contents(store.findMessagesAfter("journal-1", 4)));
+    }
+
+    @Test
+    void compactionKeepsLiveRecordsAndNeverBreaksConcurrentReads() throws Exception {
+        store = open();
+        ChatSession kept = store.createSession(new ChatSession("kept", "kept", null, "gpt-4", "dall-e-3"));
+        for (int i = 1; i <= 20; i++) {
+            store.appendMessage(kept, message(kept, i));
+        }
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> reader = executor.submit(() -> {
+                int reads = 0;
+                while (running.get()) {
+                    assertEquals(20, store.findMessages("kept").size());
+                    reads++;
+                }
+                return reads;
+            });
+            int compacted = 0;
+            for (int round = 0; round < 30; round++) {
+                ChatSession churn = store.createSession(new ChatSession("churn-" + round, "churn", null, "gpt-4", "dall-e-3"));
+                for (int i = 1; i <= 20; i++) {
+                    store.appendMessage(churn, message(churn, i));
+                }
+                store.deleteSession(churn.getSessionId());
+                compacted += store.compact();
+            }
+            running.set(false);
+            assertTrue(reader.get(60, TimeUnit.SECONDS) > 0);
+            assertTrue(compacted > 0);
+        } finally {
+            running.set(false);
+            executor.shutdownNow();
+        }
+        store.close();
+
+        store = open();
+        assertEquals(20, store.findMessages("kept").size());
+        assertTrue(store.findSession("churn-0").isEmpty());
+    }
+
+    @Test
+    void readersDoNotWaitForASnapshotToBeForced() throws Exception {
+        store = open(Duration.ofSeconds(3));
+        // Returns right after a group commit, so the next one is about three seconds away
+        ChatSession session = store.createSession(new ChatSession("slow-sync", "title", null, "gpt-4", "dall-e-3"));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> update = executor.submit(() -> store.updateTitle(session, "renamed", session.getUpdatedAt()));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+            while (!"renamed".equals(store.findSession("slow-sync").orElseThrow().getTitle())) {
+                assertTrue(System.nanoTime() < deadline, "the session stayed locked while its snapshot was forced");
+                Thread.onSpinWait();
+            }
+            assertFalse(update.isDone());
+            update.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private JournalSessionStore open() {
+        return open(Duration.ofMillis(1));
+    }
+
+    private JournalSessionStore open(Duration groupCommitInterval) {
+        JournalSessionStore journal = new JournalSessionStore();
+        ReflectionTestUtils.setField(journal, "directory", directory.toString());
+        ReflectionTestUtils.setField(journal, "segmentSize", DataSize.ofKilobytes(8));
+        ReflectionTestUtils.setField(journal, "groupCommitInterval", groupCommitInterval);
+        ReflectionTestUtils.setField(journal, "awaitSync", true);
+        ReflectionTestUtils.setField(journal, "compactionThreshold", 0.5);
+        journal.open();
+        return journal;
+    }
+
+    private static ChatMessage message(ChatSession session, long sequence) {
+        ChatMessage message = new ChatMessage("message " + sequence, "user");
+        message.setSequence(sequence);
+        message.setChatSession(session);
+        return message;
+    }
+
+    private static List<String> contents(List<ChatMessage> messages) {
+        return messages.stream().map(ChatMessage::getContent).toList();
+    }
+}
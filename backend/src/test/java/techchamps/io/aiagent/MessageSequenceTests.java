@@ -0,0 +1,61 @@
+package techchamps.io.aiagent;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import techchamps.io.aiagent.model.ChatMessage;
+import techchamps.io.aiagent.model.ChatSession;
+import techchamps.io.aiagent.service.ChatSessionService;
+import techchamps.io.aiagent.service.SessionCache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class MessageSequenceTests {
+
+    @Autowired
+    private ChatSessionService chatSessionService;
+
+    @Autowired
+    private SessionCache sessionCache;
+
+    @Test
+    void concurrentAppendsGetDistinctConsecutiveSequences() throws Exception {
+        ChatSession session = chatSessionService.createSession("sequences", null, "gpt-4", "dall-e-3");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int w = 0; w < 4; w++) {
+                int writer = w;
+                writers.add(executor.submit(() -> {
+                    for (int i = 0; i < 10; i++) {
+                        chatSessionService.addMessage(session.getSessionId(), writer + "-" + i, "user", null, null, null);
+                    }
+                }));
+            }
+            for (Future<?> future : writers) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<Long> expected = LongStream.rangeClosed(1, 40).boxed().toList();
+        assertEquals(expected, sequences(chatSessionService.getSessionMessages(session.getSessionId())));
+        // The same order comes back from the database
+        sessionCache.invalidate(session.getSessionId());
+        assertEquals(expected, sequences(chatSessionService.getSessionMessages(session.getSessionId())));
+    }
+
+    private static List<Long> sequences(List<ChatMessage> messages) {
+        return messages.stream().map(ChatMessage::getSequence).toList();
+    }
+}
@@ -0,0 +1,100 @@
+package techchamps.io.aiagent;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import techchamps.io.aiagent.service.GitHubService;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Connect latency on a synthetic 50k-file repository (50 directories of 10 subdirectories
+ * of 100 files) behind a local GitHub API stub answering every request after 20 ms. The
+ * truncated case walks all 550 subtrees, once with the configured parallelism and once
+ * one request at a time, which is the cost of the per-directory listing this replaced.
+ * Run with -Pperf.
+ */
+@Tag("perf")
+@SpringBootTest(properties = {
+        "github.tree-walk.parallelism=8",
+        "code-search.enabled=false",
+        "code-retrieval.enabled=false"})
+class RepositoryConnectBenchmarkTests {
+
+    private static final GitHubApiStub github = GitHubApiStub.start();
+    private static final SyntheticTreeHandler tree = new SyntheticTreeHandler(50, 10, 100);
+
+    static {
+        github.route("/repos/octo/mono/git/trees/", tree);
+        github.setLatency(Duration.ofMillis(20));
+    }
+
+    @DynamicPropertySource
+    static void githubProperties(DynamicPropertyRegistry registry) {
+        registry.add("github.api.base-url", github::baseUrl);
+    }
+
+    @AfterAll
+    static void stopGitHub() {
+        github.close();
+    }
+
+    @Autowired
+    private GitHubService gitHubService;
+
+    @Test
+    void connectLatencyOnA50kFileTree() {
+        connect("warm-up");
+
+        long recursive = connect("recursive");
+        int recursiveRequests = github.requests();
+
+        // Every directory's recursive listing is truncated, so each subdirectory is listed on its own
+        tree.truncated().add("HEAD");
+        for (int d = 0; d < 50; d++) {
+            tree.truncated().add("t" + d);
+        }
+        long parallel = connect("truncated, parallelism 8");
+        int walkRequests = github.requests();
+
+        ExecutorService parallelExecutor = (ExecutorService) ReflectionTestUtils.getField(gitHubService, "treeWalkExecutor");
+        ExecutorService sequential = Executors.newSingleThreadExecutor();
+        ReflectionTestUtils.setField(gitHubService, "treeWalkExecutor", sequential);
+        long oneAtATime;
+        try {
+            oneAtATime = connect("truncated, one at a time");
+        } finally {
+            ReflectionTestUtils.setField(gitHubService, "treeWalkExecutor", parallelExecutor);
+            sequential.shutdownNow();
+        }
+
+        assertEquals(1, recursiveRequests);
+        assertEquals(2 + 50 * 2 + 500, walkRequests);
+        assertTrue(recursive * 10 < oneAtATime, "recursive " + recursive + " ms, one at a time " + oneAtATime + " ms");
+        assertTrue(parallel * 2 < oneAtATime, "parallel " + parallel + " ms, one at a time " + oneAtATime + " ms");
+    }
+
+    @SuppressWarnings("unchecked")
+    private long connect(String label) {
+        github.resetCounters();
+        long start = System.nanoTime();
+        Map<String, Object> result = gitHubService.connectToRepository("benchmark-token", "https://github.com/octo/mono");
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        assertEquals(true, result.get("success"), String.valueOf(result.get("error")));
+        assertEquals(50_001, ((List<String>) result.get("files")).size());
+        System.out.printf("%s: %,d ms, %d requests, %d in flight%n", label, millis, github.requests(), github.maxInFlight());
+        return millis;
+    }
+}
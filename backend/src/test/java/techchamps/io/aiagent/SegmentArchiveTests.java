@@ -0,0 +1,104 @@
+package techchamps.io.aiagent;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import techchamps.io.aiagent.storage.SegmentArchive;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SegmentArchiveTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recordsSurviveReopening() throws IOException {
+        try (SegmentArchive archive = new SegmentArchive(directory, 1024)) {
+            archive.append("a", bytes("first"));
+            archive.append("b", bytes("second"));
+            archive.append("a", bytes("replaced"));
+            archive.remove("b");
+            archive.flush();
+        }
+        try (SegmentArchive archive = new SegmentArchive(directory, 1024)) {
+            assertArrayEquals(bytes("replaced"), archive.read("a"));
+            assertNull(archive.read("b"));
+            assertEquals(1, archive.size());
+        }
+    }
+
+    @Test
+    void sealedSegmentsAreDeletedOnceEmpty() throws IOException {
+        try (SegmentArchive archive = new SegmentArchive(directory, 64)) {
+            for (int i = 0; i < 6; i++) {
+                archive.append("record-" + i, new byte[40]);
+            }
+            assertTrue(segmentCount() > 2);
+            for (int i = 0; i < 5; i++) {
+                archive.remove("record-" + i);
+            }
+            // Only the active segment is left
+            assertEquals(1, segmentCount());
+            assertEquals(40, archive.read("record-5").length);
+        }
+    }
+
+    @Test
+    void readsRacingRemovesSeeTheRecordOrNothing() throws Exception {
+        byte[] payload = new byte[100];
+        try (SegmentArchive archive = new SegmentArchive(directory, 256)) {
+            ExecutorService executor = Executors.newFixedThreadPool(2);
+            try {
+                for (int round = 0; round < 200; round++) {
+                    for (int i = 0; i < 4; i++) {
+                        archive.append(round + "-" + i, payload);
+                    }
+                    String prefix = round + "-";
+                    Future<?> remover = executor.submit(() -> {
+                        for (int i = 0; i < 4; i++) {
+                            archive.remove(prefix + i);
+                        }
+                        return null;
+                    });
+                    Future<?> reader = executor.submit(() -> {
+                        for (int i = 0; i < 4; i++) {
+                            byte[] record = archive.read(prefix + i);
+                            if (record != null) {
+                                assertArrayEquals(payload, record);
+                            }
+                        }
+                        return null;
+                    });
+                    remover.get(10, TimeUnit.SECONDS);
+                    reader.get(10, TimeUnit.SECONDS);
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            assertEquals(0, archive.size());
+        }
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(".seg")).count();
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
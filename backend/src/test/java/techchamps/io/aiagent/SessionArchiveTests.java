@@ -0,0 +1,87 @@
+package techchamps.io.aiagent;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import techchamps.io.aiagent.model.ChatMessage;
+import techchamps.io.aiagent.model.ChatSession;
+import techchamps.io.aiagent.service.ChatSessionService;
+import techchamps.io.aiagent.service.SessionArchiveService;
+import techchamps.io.aiagent.service.SessionCache;
+
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:session-archive-tests")
+class SessionArchiveTests {
+
+    @TempDir
+    static Path archiveDirectory;
+
+    @DynamicPropertySource
+    static void archiveProperties(DynamicPropertyRegistry registry) {
+        registry.add("chat.archive.directory", () -> archiveDirectory.toString());
+    }
+
+    @Autowired
+    private ChatSessionService chatSessionService;
+
+    @Autowired
+    private SessionArchiveService sessionArchiveService;
+
+    @Autowired
+    private SessionCache sessionCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void idleSessionsMoveToTheArchiveAndComeBackOnAccess() {
+        ChatSession session = chatSessionService.createSession("idle", "notes", "gpt-4", "dall-e-3");
+        chatSessionService.addMessage(session.getSessionId(), "question", "user", null, null, null);
+        chatSessionService.addMessage(session.getSessionId(), "answer", "assistant", null, "file body", "a.txt");
+        jdbcTemplate.update("UPDATE chat_sessions SET updated_at = ? WHERE session_id = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusDays(60)), session.getSessionId());
+        sessionCache.clear();
+
+        assertTrue(sessionArchiveService.archiveIdleSessions() >= 1);
+        assertTrue(sessionArchiveService.archivedSessionIds().contains(session.getSessionId()));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM chat_sessions WHERE session_id = ?",
+                Integer.class, session.getSessionId()));
+
+        List<ChatMessage> messages = chatSessionService.getSessionMessages(session.getSessionId());
+        assertEquals(List.of("question", "answer"), messages.stream().map(ChatMessage::getContent).toList());
+        assertEquals("notes", chatSessionService.getSessionContext(session.getSessionId()));
+        assertFalse(sessionArchiveService.archivedSessionIds().contains(session.getSessionId()));
+    }
+
+    @Test
+    void forksAreNotArchivedSoTheirParentCannotBeDeleted() {
+        ChatSession parent = chatSessionService.createSession("parent", null, "gpt-4", "dall-e-3");
+        chatSessionService.addMessage(parent.getSessionId(), "inherited", "user", null, null, null);
+        ChatSession fork = chatSessionService.forkSession(parent.getSessionId(), 1, "fork");
+        chatSessionService.addMessage(fork.getSessionId(), "own", "user", null, null, null);
+        jdbcTemplate.update("UPDATE chat_sessions SET updated_at = ? WHERE session_id IN (?, ?)",
+                Timestamp.valueOf(LocalDateTime.now().minusDays(60)), parent.getSessionId(), fork.getSessionId());
+        sessionCache.clear();
+
+        sessionArchiveService.archiveIdleSessions();
+        assertFalse(sessionArchiveService.isArchived(fork.getSessionId()));
+        assertFalse(sessionArchiveService.isArchived(parent.getSessionId()));
+        assertThrows(RuntimeException.class, () -> chatSessionService.deleteSession(parent.getSessionId()));
+
+        assertEquals(List.of("inherited", "own"), chatSessionService.getSessionMessages(fork.getSessionId()).stream()
+                .map(ChatMessage::getContent).toList());
+    }
+}
@@ -0,0 +1,83 @@
+package techchamps.io.aiagent;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import techchamps.io.aiagent.model.ChatMessage;
+import techchamps.io.aiagent.model.ChatSession;
+import techchamps.io.aiagent.service.ChatSessionService;
+import techchamps.io.aiagent.service.SessionCache;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {"chat.session-cache.max-sessions=2", "chat.session-cache.recent-messages=3"})
+class SessionCacheTests {
+
+    @Autowired
+    private ChatSessionService chatSessionService;
+
+    @Autowired
+    private SessionCache sessionCache;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void recentMessagesComeBackInOrderWithAndWithoutTheCache() {
+        ChatSession session = chatSessionService.createSession("cache", null, "gpt-4", "dall-e-3");
+        for (int i = 0; i < 5; i++) {
+            chatSessionService.addMessage(session.getSessionId(), "message " + i, "user", null, null, null);
+        }
+
+        assertEquals(List.of("message 2", "message 3", "message 4"),
+                contents(chatSessionService.getRecentMessages(session.getSessionId(), 3)));
+        // More than the ring buffer holds has to come from the store
+        assertEquals(List.of("message 1", "message 2", "message 3", "message 4"),
+                contents(chatSessionService.getRecentMessages(session.getSessionId(), 4)));
+
+        sessionCache.invalidate(session.getSessionId());
+        assertEquals(List.of("message 3", "message 4"),
+                contents(chatSessionService.getRecentMessages(session.getSessionId(), 2)));
+        assertEquals(5, chatSessionService.getSessionMessages(session.getSessionId()).size());
+    }
+
+    @Test
+    void leastRecentlyUsedSessionsAreEvicted() {
+        ChatSession first = chatSessionService.createSession("first", null, "gpt-4", "dall-e-3");
+        chatSessionService.createSession("second", null, "gpt-4", "dall-e-3");
+        chatSessionService.createSession("third", null, "gpt-4", "dall-e-3");
+
+        assertTrue(sessionCache.size() <= 2);
+        // An evicted session is reloaded from the store
+        chatSessionService.updateSessionTitle(first.getSessionId(), "renamed");
+        assertEquals("renamed", chatSessionService.getSession(first.getSessionId()).orElseThrow().getTitle());
+    }
+
+    @Test
+    void aReadThatMissesAnUncommittedAppendDoesNotSeedTheCache() {
+        ChatSession session = chatSessionService.createSession("uncommitted", null, "gpt-4", "dall-e-3");
+        for (int i = 0; i < 4; i++) {
+            chatSessionService.addMessage(session.getSessionId(), "message " + i, "user", null, null, null);
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            chatSessionService.addMessage(session.getSessionId(), "message 4", "user", null, null, null);
+            // Another thread reads past the buffer from the database before this append commits
+            List<ChatMessage> concurrent = CompletableFuture.supplyAsync(
+                    () -> chatSessionService.getRecentMessages(session.getSessionId(), 4)).join();
+            assertEquals(List.of("message 0", "message 1", "message 2", "message 3"), contents(concurrent));
+        });
+
+        assertEquals(List.of("message 2", "message 3", "message 4"),
+                contents(chatSessionService.getRecentMessages(session.getSessionId(), 3)));
+    }
+
+    private static List<String> contents(List<ChatMessage> messages) {
+        return messages.stream().map(ChatMessage::getContent).toList();
+    }
+}
@@ -0,0 +1,113 @@
+package techchamps.io.aiagent;
+
+import com.theokanning.openai.completion.chat.ChatCompletionChoice;
+import com.theokanning.openai.completion.chat.ChatCompletionRequest;
+import com.theokanning.openai.completion.chat.ChatCompletionResult;
+import com.theokanning.openai.service.OpenAiService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import techchamps.io.aiagent.model.ChatMessage;
+import techchamps.io.aiagent.model.ChatRequest;
+import techchamps.io.aiagent.model.ChatSession;
+import techchamps.io.aiagent.service.AiService;
+import techchamps.io.aiagent.service.ChatSessionService;
+import techchamps.io.aiagent.service.SessionCompactionService;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Compaction is driven by hand so the assertions do not race the async listener
+@SpringBootTest(properties = "chat.compaction.enabled=false")
+class SessionCompactionTests {
+
+    @Autowired
+    private AiService aiService;
+
+    @Autowired
+    private ChatSessionService chatSessionService;
+
+    @Autowired
+    private SessionCompactionService sessionCompactionService;
+
+    @BeforeEach
+    void stubOpenAi() {
+        OpenAiService openAi = mock(OpenAiService.class);
+        when(openAi.createChatCompletion(any(ChatCompletionRequest.class))).thenAnswer(invocation -> {
+            ChatCompletionRequest request = invocation.getArgument(0);
+            boolean summary = request.getMessages().get(0).getContent().contains("summaries");
+            return completion(summary ? "rolling summary" : "assistant reply");
+        });
+        ReflectionTestUtils.setField(aiService, "openAiService", openAi);
+    }
+
+    @Test
+    void sessionChatStoresBothTurns() {
+        ChatSession session = chatSessionService.createSession("persisted", null, "gpt-4", "dall-e-3");
+        ChatRequest request = new ChatRequest();
+        request.setMessage("hello");
+        request.setSessionId(session.getSessionId());
+
+        assertEquals("assistant reply", aiService.generateResponseWithSession(request).getMessage());
+
+        List<ChatMessage> stored = chatSessionService.getSessionMessages(session.getSessionId());
+        assertEquals(List.of("user", "assistant"), stored.stream().map(ChatMessage::getSender).toList());
+        assertEquals(List.of("hello", "assistant reply"), stored.stream().map(ChatMessage::getContent).toList());
+    }
+
+    @Test
+    void manyShortTurnsAreFoldedUntilTheRestFitsThePrompt() {
+        ChatSession session = chatSessionService.createSession("many turns", null, "gpt-4", "dall-e-3");
+        for (int i = 0; i < 60; i++) {
+            chatSessionService.addMessage(session.getSessionId(), "turn " + i, "user", null, null, null);
+        }
+
+        while (sessionCompactionService.compact(session.getSessionId())) {
+            // Each pass folds at most max-fold-tokens
+        }
+
+        ChatSession compacted = chatSessionService.getSession(session.getSessionId()).orElseThrow();
+        assertEquals("rolling summary", compacted.getSummary());
+        List<ChatMessage> pending = chatSessionService.getUnsummarizedMessages(session.getSessionId());
+        assertTrue(pending.size() <= 20, "unsummarized turns: " + pending.size());
+        assertEquals("turn 59", pending.get(pending.size() - 1).getContent());
+    }
+
+    @Test
+    void fileAttachmentsDoNotCountTowardsTheBudget() {
+        // The journal and sharded stores return attachments inline; the prompt only carries the content
+        ChatMessage message = new ChatMessage("please review this file", "user");
+        int withoutAttachment = SessionCompactionService.estimateTokens(message);
+        message.setFileContent("class Big {}\n".repeat(5_000));
+
+        assertEquals(withoutAttachment, SessionCompactionService.estimateTokens(message));
+    }
+
+    @Test
+    void aTriggerAboveThePromptBudgetIsRejected() {
+        SessionCompactionService misconfigured = new SessionCompactionService();
+        ReflectionTestUtils.setField(misconfigured, "promptHistoryTokens", 3000);
+        ReflectionTestUtils.setField(misconfigured, "triggerTokens", 6000);
+        ReflectionTestUtils.setField(misconfigured, "keepRecentTokens", 1000);
+        ReflectionTestUtils.setField(misconfigured, "promptHistoryMessages", 50);
+        ReflectionTestUtils.setField(misconfigured, "keepRecentMessages", 20);
+
+        assertThrows(IllegalStateException.class, misconfigured::validateBudgets);
+    }
+
+    private static ChatCompletionResult completion(String content) {
+        ChatCompletionChoice choice = new ChatCompletionChoice();
+        choice.setMessage(new com.theokanning.openai.completion.chat.ChatMessage("assistant", content));
+        ChatCompletionResult result = new ChatCompletionResult();
+        result.setChoices(List.of(choice));
+        return result;
+    }
+}
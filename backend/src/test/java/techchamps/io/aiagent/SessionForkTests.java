@@ -0,0 +1,83 @@
+package techchamps.io.aiagent;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import techchamps.io.aiagent.model.ChatMessage;
+import techchamps.io.aiagent.model.ChatSession;
+import techchamps.io.aiagent.service.ChatSessionService;
+import techchamps.io.aiagent.service.SessionCache;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+class SessionForkTests {
+
+    @Autowired
+    private ChatSessionService chatSessionService;
+
+    @Autowired
+    private SessionCache sessionCache;
+
+    @Test
+    void forksShareThePrefixAndDivergeAfterIt() {
+        ChatSession parent = chatSessionService.createSession("parent", null, "gpt-4", "dall-e-3");
+        add(parent, "p1");
+        add(parent, "p2");
+        add(parent, "p3");
+
+        ChatSession fork = chatSessionService.forkSession(parent.getSessionId(), 2, null);
+        add(fork, "f3");
+        add(parent, "p4");
+        ChatSession grandchild = chatSessionService.forkSession(fork.getSessionId(), 3, "grandchild");
+        add(grandchild, "g4");
+
+        assertEquals("parent", fork.getTitle());
+        assertEquals(List.of("p1", "p2", "f3"), contents(fork));
+        assertEquals(List.of("p1", "p2", "p3", "p4"), contents(parent));
+        assertEquals(List.of("p1", "p2", "f3", "g4"), contents(grandchild));
+        // Sequences continue from the fork point
+        assertEquals(List.of(1L, 2L, 3L, 4L), chatSessionService.getSessionMessages(grandchild.getSessionId()).stream()
+                .map(ChatMessage::getSequence).toList());
+
+        sessionCache.clear();
+        assertEquals(List.of("p1", "p2", "f3", "g4"), contents(grandchild));
+        assertEquals(List.of("f3", "g4"), chatSessionService.getRecentMessages(grandchild.getSessionId(), 2).stream()
+                .map(ChatMessage::getContent).toList());
+    }
+
+    @Test
+    void summariesPastTheForkPointAreNotInherited() {
+        ChatSession parent = chatSessionService.createSession("summarized", null, "gpt-4", "dall-e-3");
+        add(parent, "one");
+        add(parent, "two");
+        add(parent, "three");
+        chatSessionService.updateSessionSummary(parent.getSessionId(), "one and two", 2L);
+
+        assertEquals("one and two", chatSessionService.forkSession(parent.getSessionId(), 2, null).getSummary());
+        assertNull(chatSessionService.forkSession(parent.getSessionId(), 1, null).getSummary());
+    }
+
+    @Test
+    void invalidForksAndParentDeletesAreRefused() {
+        ChatSession parent = chatSessionService.createSession("guarded", null, "gpt-4", "dall-e-3");
+        add(parent, "only");
+
+        assertThrows(IllegalArgumentException.class, () -> chatSessionService.forkSession(parent.getSessionId(), 5, null));
+        chatSessionService.forkSession(parent.getSessionId(), 1, null);
+        assertThrows(RuntimeException.class, () -> chatSessionService.deleteSession(parent.getSessionId()));
+        assertEquals(List.of("only"), contents(parent));
+    }
+
+    private void add(ChatSession session, String content) {
+        chatSessionService.addMessage(session.getSessionId(), content, "user", null, null, null);
+    }
+
+    private List<String> contents(ChatSession session) {
+        return chatSessionService.getSessionMessages(session.getSessionId()).stream().map(ChatMessage::getContent).toList();
+    }
+}
@@ -0,0 +1,107 @@
+package techchamps.io.aiagent;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import techchamps.io.aiagent.repository.ChatMessageRepository;
+import techchamps.io.aiagent.repository.ChatSessionRepository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Session and history lookups go through the session_id and (chat_session_id, sequence)
+ * indexes, so their cost should not grow with the number of rows. Run with -Pperf.
+ */
+@Tag("perf")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:perf-session-lookup",
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=INFO",
+        "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=INFO"})
+class SessionLookupBenchmarkTests {
+
+    private static final int MESSAGES_PER_SESSION = 4;
+    private static final int LOOKUPS = 5000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ChatSessionRepository chatSessionRepository;
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+
+    @Test
+    void lookupCostStaysFlatAsSessionsGrow() {
+        int[] sizes = {1_000, 10_000, 100_000};
+        double[] sessionNanos = new double[sizes.length];
+        double[] historyNanos = new double[sizes.length];
+        int inserted = 0;
+        for (int i = 0; i < sizes.length; i++) {
+            insertSessions(inserted, sizes[i]);
+            inserted = sizes[i];
+            sessionNanos[i] = averageNanos(inserted, id -> chatSessionRepository.findBySessionId(id).orElseThrow());
+            historyNanos[i] = averageNanos(inserted, id -> chatMessageRepository.findBySessionIdOrderBySequenceAsc(id));
+            System.out.printf("sessions=%,d findBySessionId=%.1f us history=%.1f us%n",
+                    inserted, sessionNanos[i] / 1000, historyNanos[i] / 1000);
+        }
+        // Indexed lookups: 100x the rows may not cost more than 3x per lookup
+        assertTrue(sessionNanos[sizes.length - 1] < 3 * sessionNanos[0],
+                "session lookup grew from " + sessionNanos[0] + " ns to " + sessionNanos[sizes.length - 1] + " ns");
+        assertTrue(historyNanos[sizes.length - 1] < 3 * historyNanos[0],
+                "history lookup grew from " + historyNanos[0] + " ns to " + historyNanos[sizes.length - 1] + " ns");
+    }
+
+    private void insertSessions(int from, int to) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> sessions = new ArrayList<>();
+        List<Object[]> messages = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            long id = 1_000_000L + i;
+            sessions.add(new Object[]{id, sessionId(i), "Session " + i, now, now, "gpt-4", "dall-e-3"});
+            for (int m = 1; m <= MESSAGES_PER_SESSION; m++) {
+                messages.add(new Object[]{id * MESSAGES_PER_SESSION + m, id, "message " + m, "user", now, m});
+            }
+            if (sessions.size() == 1000) {
+                flush(sessions, messages);
+            }
+        }
+        flush(sessions, messages);
+    }
+
+    private void flush(List<Object[]> sessions, List<Object[]> messages) {
+        jdbcTemplate.batchUpdate("INSERT INTO chat_sessions (id, session_id, title, created_at, updated_at, model, image_model) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)", sessions);
+        jdbcTemplate.batchUpdate("INSERT INTO chat_messages (id, chat_session_id, content, sender, timestamp, sequence) "
+                + "VALUES (?, ?, ?, ?, ?, ?)", messages);
+        sessions.clear();
+        messages.clear();
+    }
+
+    private double averageNanos(int sessions, Consumer<String> lookup) {
+        Random random = new Random(42);
+        // Warm up the JIT and the statement caches before measuring
+        for (int i = 0; i < LOOKUPS; i++) {
+            lookup.accept(sessionId(random.nextInt(sessions)));
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+            lookup.accept(sessionId(random.nextInt(sessions)));
+        }
+        return (System.nanoTime() - start) / (double) LOOKUPS;
+    }
+
+    private static String sessionId(int i) {
+        return "perf-session-" + i;
+    }
+}
@@ -0,0 +1,61 @@
+package techchamps.io.aiagent;
+
+import org.junit.jupiter.api.Test;
+import techchamps.io.aiagent.model.ChatMessage;
+import techchamps.io.aiagent.model.ChatSession;
+import techchamps.io.aiagent.storage.SessionRecordCodec;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SessionRecordCodecTests {
+
+    @Test
+    void sessionsRoundTripWithSummaryForkAndSequences() throws IOException {
+        ChatSession session = new ChatSession("s-1", "title", "context", "gpt-4", "dall-e-3");
+        session.setCreatedAt(LocalDateTime.of(2026, 1, 1, 10, 0));
+        session.setUpdatedAt(LocalDateTime.of(2026, 1, 2, 10, 0));
+        session.setSummary("summary so far");
+        session.setSummarizedSequence(4L);
+        session.setParentSessionId("parent");
+        session.setForkSequence(3L);
+        ChatMessage first = message(5, "question", "user");
+        first.setFileContent("file body");
+        first.setFileName("a.txt");
+        ChatMessage second = message(6, "answer", "assistant");
+
+        SessionRecordCodec.Decoded decoded = SessionRecordCodec.decode(SessionRecordCodec.encode(session, List.of(first, second)));
+
+        ChatSession restored = decoded.getSession();
+        assertEquals("s-1", restored.getSessionId());
+        assertEquals("context", restored.getContext());
+        assertEquals(session.getUpdatedAt(), restored.getUpdatedAt());
+        assertEquals("summary so far", restored.getSummary());
+        assertEquals(4L, restored.getSummarizedSequence());
+        assertEquals("parent", restored.getParentSessionId());
+        assertEquals(3L, restored.getForkSequence());
+        assertEquals(List.of(5L, 6L), decoded.getMessages().stream().map(ChatMessage::getSequence).toList());
+        assertEquals("file body", decoded.getMessages().get(0).getFileContent());
+        assertNull(decoded.getMessages().get(1).getFileName());
+    }
+
+    @Test
+    void unknownVersionsAreRejected() throws IOException {
+        ChatSession session = new ChatSession("s-2", "title", null, "gpt-4", "dall-e-3");
+        byte[] record = SessionRecordCodec.encode(session, List.of());
+        record[0] = 9;
+
+        assertThrows(IOException.class, () -> SessionRecordCodec.decode(record));
+    }
+
+    private static ChatMessage message(long sequence, String content, String sender) {
+        ChatMessage message = new ChatMessage(content, sender);
+        message.setSequence(sequence);
+        return message;
+    }
+}
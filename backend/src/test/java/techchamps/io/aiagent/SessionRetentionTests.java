@@ -0,0 +1,77 @@
+package techchamps.io.aiagent;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import techchamps.io.aiagent.model.ChatSession;
+import techchamps.io.aiagent.service.ChatSessionService;
+import techchamps.io.aiagent.service.SessionCache;
+import techchamps.io.aiagent.service.SessionRetentionService;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:session-retention-tests",
+        "chat.retention.batch-size=2",
+        "chat.retention.pause=0ms"})
+class SessionRetentionTests {
+
+    @Autowired
+    private ChatSessionService chatSessionService;
+
+    @Autowired
+    private SessionRetentionService sessionRetentionService;
+
+    @Autowired
+    private SessionCache sessionCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void expiredSessionsAreDeletedInBatchesAndTheRestSurvive() {
+        ChatSession[] expired = new ChatSession[3];
+        for (int i = 0; i < expired.length; i++) {
+            expired[i] = chatSessionService.createSession("expired " + i, null, "gpt-4", "dall-e-3");
+            chatSessionService.addMessage(expired[i].getSessionId(), "old", "user", null, "expired attachment", "a.txt");
+            age(expired[i], 400);
+        }
+        ChatSession empty = chatSessionService.createSession("empty", null, "gpt-4", "dall-e-3");
+        age(empty, 10);
+        ChatSession recent = chatSessionService.createSession("recent", null, "gpt-4", "dall-e-3");
+        chatSessionService.addMessage(recent.getSessionId(), "new", "user", null, null, null);
+        ChatSession parent = chatSessionService.createSession("parent", null, "gpt-4", "dall-e-3");
+        chatSessionService.addMessage(parent.getSessionId(), "shared", "user", null, null, null);
+        chatSessionService.forkSession(parent.getSessionId(), 1, "fork");
+        age(parent, 400);
+        sessionCache.clear();
+
+        assertEquals(4, sessionRetentionService.purgeExpiredSessions());
+
+        for (ChatSession session : expired) {
+            assertFalse(exists(session));
+        }
+        assertFalse(exists(empty));
+        assertTrue(exists(recent));
+        // Forks read their parent's messages, so the parent stays
+        assertTrue(exists(parent));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(ref_count), 0) FROM file_blobs", Long.class));
+    }
+
+    private void age(ChatSession session, int days) {
+        jdbcTemplate.update("UPDATE chat_sessions SET updated_at = ? WHERE session_id = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusDays(days)), session.getSessionId());
+    }
+
+    private boolean exists(ChatSession session) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM chat_sessions WHERE session_id = ?",
+                Integer.class, session.getSessionId()) > 0;
+    }
+}
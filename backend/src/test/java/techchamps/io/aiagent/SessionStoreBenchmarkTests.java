@@ -0,0 +1,133 @@
+package techchamps.io.aiagent;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+import techchamps.io.aiagent.model.ChatMessage;
+import techchamps.io.aiagent.model.ChatSession;
+import techchamps.io.aiagent.service.JournalSessionStore;
+import techchamps.io.aiagent.service.SessionStore;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Message append and history read throughput of the journal store against the JPA store
+ * (in-memory H2), both going through the {@link SessionStore} interface with one
+ * transaction per JPA append as ChatSessionService does. Appends come from several
+ * writer threads, which is what the journal's group commit batches. Run with -Pperf.
+ */
+@Tag("perf")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:perf-session-store",
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=INFO",
+        "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=INFO"})
+class SessionStoreBenchmarkTests {
+
+    private static final int SESSIONS = 100;
+    private static final int MESSAGES_PER_SESSION = 50;
+    private static final int WRITERS = 8;
+    private static final String CONTENT = "a typical chat turn of a couple of sentences, ".repeat(6);
+
+    @TempDir
+    Path journalDirectory;
+
+    @Autowired
+    private SessionStore jpaStore;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void journalAgainstJpaThroughput() throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        // Warm-up pass over both stores before the measured one
+        run("jpa-warmup", jpaStore, transactionTemplate, false);
+        JournalSessionStore journal = openJournal(false);
+        try {
+            run("journal-warmup", journal, null, false);
+            run("jpa", jpaStore, transactionTemplate, true);
+            run("journal", journal, null, true);
+        } finally {
+            journal.close();
+        }
+        JournalSessionStore syncedJournal = openJournal(true);
+        try {
+            run("journal-synced-warmup", syncedJournal, null, false);
+            run("journal-synced", syncedJournal, null, true);
+        } finally {
+            syncedJournal.close();
+        }
+    }
+
+    private void run(String name, SessionStore store, TransactionTemplate transactionTemplate, boolean report) throws Exception {
+        ChatSession[] sessions = new ChatSession[SESSIONS];
+        for (int s = 0; s < SESSIONS; s++) {
+            sessions[s] = store.createSession(new ChatSession(name + "-" + s, "bench", null, "gpt-4", "dall-e-3"));
+        }
+        ExecutorService writers = Executors.newFixedThreadPool(WRITERS);
+        List<Future<?>> done = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            done.add(writers.submit(() -> {
+                // Each writer owns every WRITERS-th session and interleaves across them
+                for (int m = 1; m <= MESSAGES_PER_SESSION; m++) {
+                    for (int s = writer; s < SESSIONS; s += WRITERS) {
+                        ChatSession session = sessions[s];
+                        ChatMessage message = new ChatMessage(CONTENT, m % 2 == 0 ? "assistant" : "user");
+                        message.setSequence((long) m);
+                        message.setChatSession(session);
+                        if (transactionTemplate != null) {
+                            transactionTemplate.executeWithoutResult(status -> store.appendMessage(session, message));
+                        } else {
+                            store.appendMessage(session, message);
+                        }
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : done) {
+            future.get();
+        }
+        long appendNanos = System.nanoTime() - start;
+        writers.shutdown();
+
+        start = System.nanoTime();
+        for (ChatSession session : sessions) {
+            assertEquals(MESSAGES_PER_SESSION, store.findMessages(session.getSessionId()).size());
+        }
+        long readNanos = System.nanoTime() - start;
+
+        if (report) {
+            int appends = SESSIONS * MESSAGES_PER_SESSION;
+            System.out.printf("%-15s appends=%,d %,.0f appends/s  full-history reads %,.0f us/session%n", name, appends,
+                    appends / (appendNanos / 1e9), readNanos / 1000.0 / SESSIONS);
+        }
+    }
+
+    private JournalSessionStore openJournal(boolean awaitSync) {
+        JournalSessionStore journal = new JournalSessionStore();
+        ReflectionTestUtils.setField(journal, "directory", journalDirectory.resolve(awaitSync ? "synced" : "async").toString());
+        ReflectionTestUtils.setField(journal, "segmentSize", DataSize.ofMegabytes(64));
+        ReflectionTestUtils.setField(journal, "groupCommitInterval", Duration.ofMillis(5));
+        ReflectionTestUtils.setField(journal, "awaitSync", awaitSync);
+        ReflectionTestUtils.setField(journal, "compactionThreshold", 0.5);
+        journal.open();
+        return journal;
+    }
+}
@@ -0,0 +1,138 @@
+package techchamps.io.aiagent;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import techchamps.io.aiagent.model.ChatMessage;
+import techchamps.io.aiagent.model.ChatSession;
+import techchamps.io.aiagent.service.ChatSessionService;
+import techchamps.io.aiagent.service.FileBlobService;
+import techchamps.io.aiagent.service.SessionArchiveService;
+import techchamps.io.aiagent.service.SessionCache;
+import techchamps.io.aiagent.service.SessionTransferService;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:session-transfer-tests",
+        "chat.transfer.import-batch-size=1"})
+class SessionTransferTests {
+
+    @TempDir
+    static Path archiveDirectory;
+
+    @DynamicPropertySource
+    static void archiveProperties(DynamicPropertyRegistry registry) {
+        registry.add("chat.archive.directory", () -> archiveDirectory.toString());
+    }
+
+    @Autowired
+    private SessionTransferService sessionTransferService;
+
+    @Autowired
+    private ChatSessionService chatSessionService;
+
+    @Autowired
+    private SessionArchiveService sessionArchiveService;
+
+    @Autowired
+    private FileBlobService fileBlobService;
+
+    @Autowired
+    private SessionCache sessionCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void exportIncludesArchivedSessionsAndImportRestoresThem() throws Exception {
+        ChatSession live = chatSessionService.createSession("live", null, "gpt-4", "dall-e-3");
+        chatSessionService.addMessage(live.getSessionId(), "live question", "user", null, null, null);
+        ChatSession archived = chatSessionService.createSession("archived", "ctx", "gpt-4", "dall-e-3");
+        chatSessionService.addMessage(archived.getSessionId(), "old question", "user", null, "attached", "a.txt");
+        jdbcTemplate.update("UPDATE chat_sessions SET updated_at = ? WHERE session_id = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusDays(60)), archived.getSessionId());
+        sessionCache.clear();
+        assertTrue(sessionArchiveService.archiveIdleSessions() >= 1);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        sessionTransferService.exportSessions(out);
+        String exported = out.toString(StandardCharsets.UTF_8);
+        assertTrue(exported.contains(live.getSessionId()));
+        assertTrue(exported.contains("\"content\":\"old question\""));
+        assertTrue(exported.contains("\"fileContent\":\"attached\""));
+
+        sessionArchiveService.remove(archived.getSessionId());
+        chatSessionService.deleteSession(live.getSessionId());
+        Map<String, Object> result = sessionTransferService.importSessions(
+                new ByteArrayInputStream(exported.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(true, result.get("success"));
+        assertTrue((Long) result.get("sessions") >= 2);
+        List<ChatMessage> restored = chatSessionService.getSessionMessages(archived.getSessionId());
+        assertEquals("old question", restored.get(0).getContent());
+        assertEquals("attached", fileBlobService.resolveFileContent(restored.get(0)));
+        assertEquals(1, chatSessionService.getSessionMessages(live.getSessionId()).size());
+    }
+
+    @Test
+    void repeatedSessionIdsInOneStreamAreSkipped() throws Exception {
+        String ndjson = session("dup-session") + message("dup-session", "first copy")
+                + session("dup-session") + message("dup-session", "second copy");
+
+        Map<String, Object> result = sessionTransferService.importSessions(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(true, result.get("success"));
+        assertEquals(1L, result.get("sessions"));
+        assertEquals(1L, result.get("skipped"));
+        // The copies land in concurrent batches, whichever commits first is kept
+        List<ChatMessage> messages = chatSessionService.getSessionMessages("dup-session");
+        assertEquals(1, messages.size());
+        assertTrue(List.of("first copy", "second copy").contains(messages.get(0).getContent()));
+    }
+
+    @Test
+    void archivedSessionIdsAreSkipped() throws Exception {
+        ChatSession archived = chatSessionService.createSession("archived", null, "gpt-4", "dall-e-3");
+        chatSessionService.addMessage(archived.getSessionId(), "archived question", "user", null, null, null);
+        jdbcTemplate.update("UPDATE chat_sessions SET updated_at = ? WHERE session_id = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusDays(60)), archived.getSessionId());
+        sessionCache.clear();
+        assertTrue(sessionArchiveService.archiveIdleSessions() >= 1);
+
+        String ndjson = session(archived.getSessionId()) + message(archived.getSessionId(), "imported copy");
+        Map<String, Object> result = sessionTransferService.importSessions(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(true, result.get("success"));
+        assertEquals(0L, result.get("sessions"));
+        assertEquals(1L, result.get("skipped"));
+        assertEquals(List.of("archived question"), chatSessionService.getSessionMessages(archived.getSessionId()).stream()
+                .map(ChatMessage::getContent).toList());
+    }
+
+    private static String session(String sessionId) {
+        return "{\"type\":\"session\",\"sessionId\":\"" + sessionId + "\",\"title\":\"t\",\"model\":\"gpt-4\","
+                + "\"imageModel\":\"dall-e-3\",\"createdAt\":\"2026-01-01T00:00\",\"updatedAt\":\"2026-01-01T00:00\"}\n";
+    }
+
+    private static String message(String sessionId, String content) {
+        return "{\"type\":\"message\",\"sessionId\":\"" + sessionId + "\",\"sequence\":1,\"sender\":\"user\","
+                + "\"content\":\"" + content + "\",\"timestamp\":\"2026-01-01T00:00\"}\n";
+    }
+}
@@ -0,0 +1,80 @@
+package techchamps.io.aiagent;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import techchamps.io.aiagent.model.ChatMessage;
+import techchamps.io.aiagent.model.ChatSession;
+import techchamps.io.aiagent.service.ChatSessionService;
+import techchamps.io.aiagent.service.SessionCache;
+import techchamps.io.aiagent.service.SessionStore;
+import techchamps.io.aiagent.service.ShardedSessionStore;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "chat.store.type=sharded",
+        "chat.store.sharded.shards=4",
+        "chat.store.sharded.url=jdbc:h2:mem:sharded-store-tests-%d;DB_CLOSE_DELAY=-1"})
+class ShardedSessionStoreTests {
+
+    @Autowired
+    private SessionStore sessionStore;
+
+    @Autowired
+    private ChatSessionService chatSessionService;
+
+    @Autowired
+    private SessionCache sessionCache;
+
+    @Test
+    void sessionsSpreadOverShardsAndQueriesMergeThem() {
+        assertInstanceOf(ShardedSessionStore.class, sessionStore);
+        List<ChatSession> created = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            ChatSession session = chatSessionService.createSession("sharded " + i, i == 7 ? "find-this-context" : null, "gpt-4", "dall-e-3");
+            chatSessionService.addMessage(session.getSessionId(), "hello " + i, "user", null, null, null);
+            created.add(session);
+        }
+        sessionCache.clear();
+
+        Set<Long> ids = new HashSet<>();
+        for (ChatSession session : created) {
+            ids.add(chatSessionService.getSession(session.getSessionId()).orElseThrow().getId());
+            assertEquals(1, chatSessionService.getSessionMessages(session.getSessionId()).size());
+        }
+        // Ids encode the shard, so they stay unique across shards
+        assertEquals(created.size(), ids.size());
+        assertTrue(ids.stream().map(id -> id % 4).distinct().count() > 1);
+
+        List<ChatSession> all = chatSessionService.getAllSessions();
+        for (int i = 1; i < all.size(); i++) {
+            assertTrue(!all.get(i).getUpdatedAt().isAfter(all.get(i - 1).getUpdatedAt()));
+        }
+        assertEquals(List.of(created.get(7).getSessionId()), chatSessionService.searchSessions("find-this-context").stream()
+                .map(ChatSession::getSessionId).toList());
+    }
+
+    @Test
+    void forksReadTheirParentAcrossShards() {
+        ChatSession parent = chatSessionService.createSession("sharded parent", null, "gpt-4", "dall-e-3");
+        chatSessionService.addMessage(parent.getSessionId(), "first", "user", null, null, null);
+        chatSessionService.addMessage(parent.getSessionId(), "second", "assistant", null, null, null);
+        ChatSession fork = chatSessionService.forkSession(parent.getSessionId(), 1, null);
+        chatSessionService.addMessage(fork.getSessionId(), "branch", "user", null, null, null);
+        sessionCache.clear();
+
+        assertEquals(List.of("first", "branch"), chatSessionService.getSessionMessages(fork.getSessionId()).stream()
+                .map(ChatMessage::getContent).toList());
+        chatSessionService.deleteSession(fork.getSessionId());
+        chatSessionService.deleteSession(parent.getSessionId());
+        assertTrue(chatSessionService.getSession(parent.getSessionId()).isEmpty());
+    }
+}
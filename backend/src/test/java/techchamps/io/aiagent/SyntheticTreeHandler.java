@@ -0,0 +1,98 @@
+package techchamps.io.aiagent;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves {@code /repos/{owner}/{repo}/git/trees/{sha}} for a generated repository of
+ * {@code dirs} top-level directories with {@code subdirs} subdirectories of {@code files}
+ * Java files each, plus a README and a binary at the root. Recursive listings of the
+ * trees in {@link #truncated()} are cut short and flagged the way GitHub does.
+ */
+class SyntheticTreeHandler implements HttpHandler {
+
+    private final int dirs;
+    private final int subdirs;
+    private final int files;
+    private final Set<String> truncated = ConcurrentHashMap.newKeySet();
+
+    SyntheticTreeHandler(int dirs, int subdirs, int files) {
+        this.dirs = dirs;
+        this.subdirs = subdirs;
+        this.files = files;
+    }
+
+    Set<String> truncated() {
+        return truncated;
+    }
+
+    // Code files only, as connectToRepository lists them
+    List<String> codeFiles() {
+        List<String> paths = new ArrayList<>();
+        paths.add("README.md");
+        for (int d = 0; d < dirs; d++) {
+            for (int s = 0; s < subdirs; s++) {
+                for (int f = 0; f < files; f++) {
+                    paths.add("d" + d + "/s" + s + "/F" + f + ".java");
+                }
+            }
+        }
+        return paths;
+    }
+
+    static String blobSha(String path) {
+        return String.format("%040x", path.hashCode() & 0xffffffffL);
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String sha = path.substring(path.lastIndexOf('/') + 1);
+        boolean recursive = "recursive=1".equals(exchange.getRequestURI().getQuery());
+        List<String> entries = new ArrayList<>();
+        if (sha.equals("HEAD")) {
+            entries.add(entry("README.md", "blob", blobSha("README.md")));
+            entries.add(entry("logo.png", "blob", blobSha("logo.png")));
+            for (int d = 0; d < dirs; d++) {
+                entries.add(entry("d" + d, "tree", "t" + d));
+                if (recursive) {
+                    directory(d, "d" + d + "/", entries, true);
+                }
+            }
+        } else if (sha.contains("_")) {
+            String[] parts = sha.substring(1).split("_");
+            subdirectory(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), "", entries);
+        } else {
+            directory(Integer.parseInt(sha.substring(1)), "", entries, recursive);
+        }
+        boolean cut = recursive && truncated.contains(sha);
+        String body = "{\"sha\":\"" + sha + "\",\"truncated\":" + cut + ",\"tree\":["
+            + String.join(",", cut ? entries.subList(0, Math.min(5, entries.size())) : entries) + "]}";
+        GitHubApiStub.respond(exchange, 200, body);
+    }
+
+    private void directory(int d, String prefix, List<String> entries, boolean recursive) {
+        for (int s = 0; s < subdirs; s++) {
+            entries.add(entry(prefix + "s" + s, "tree", "t" + d + "_" + s));
+            if (recursive) {
+                subdirectory(d, s, prefix + "s" + s + "/", entries);
+            }
+        }
+    }
+
+    private void subdirectory(int d, int s, String prefix, List<String> entries) {
+        for (int f = 0; f < files; f++) {
+            entries.add(entry(prefix + "F" + f + ".java", "blob", blobSha("d" + d + "/s" + s + "/F" + f + ".java")));
+        }
+    }
+
+    private static String entry(String path, String type, String sha) {
+        return "{\"path\":\"" + path + "\",\"mode\":\"100644\",\"type\":\"" + type + "\",\"sha\":\"" + sha + "\"}";
+    }
+}
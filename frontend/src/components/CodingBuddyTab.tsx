@@ -155,17 +155,48 @@ export default function CodingBuddyTab({ isConfigured }: CodingBuddyTabProps) {
         method: 'POST',
         headers: {
           'Content-Type': 'application/json',
+          'Accept': 'application/x-ndjson',
         },
         body: JSON.stringify({ personalAccessToken }),
       });
 
-      const data = await response.json();
+      if (!response.body) {
+        throw new Error('Empty response');
+      }
 
-      if (data.success) {
-        setRepositories(data.repositories || []);
-        addMessage(`Found ${data.repositories?.length || 0} repositories. Select one to connect.`, 'assistant');
+      // One repository per line, shown as each page arrives
+      const reader = response.body.getReader();
+      const decoder = new TextDecoder();
+      const loaded: Repository[] = [];
+      let buffer = '';
+      let error: string | null = null;
+      setRepositories([]);
+      for (;;) {
+        const { done, value } = await reader.read();
+        buffer += decoder.decode(value, { stream: !done });
+        const lines = buffer.split('\n');
+        buffer = done ? '' : lines.pop() || '';
+        const batch: Repository[] = [];
+        for (const line of lines) {
+          if (!line.trim()) continue;
+          const item = JSON.parse(line);
+          if (item.success === false) {
+            error = item.error;
+          } else {
+            batch.push(item);
+          }
+        }
+        if (batch.length > 0) {
+          loaded.push(...batch);
+          setRepositories([...loaded]);
+        }
+        if (done) break;
+      }
+
+      if (error) {
+        addMessage('Failed to fetch repositories: ' + error, 'assistant');
       } else {
-        addMessage('Failed to fetch repositories: ' + (data.error || 'Unknown error'), 'assistant');
+        addMessage(`Found ${loaded.length} repositories. Select one to connect.`, 'assistant');
       }
     } catch (error) {
       console.error('Error fetching repositories:', error);
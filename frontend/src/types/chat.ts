@@ -8,6 +8,7 @@ export interface ChatMessage {
   prompt?: string;
   fileName?: string;
   fileContent?: string;
+  fileBlobHash?: string;
 }
 
 export interface ChatSession {